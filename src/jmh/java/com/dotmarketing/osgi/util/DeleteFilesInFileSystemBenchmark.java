@@ -0,0 +1,104 @@
+package com.dotmarketing.osgi.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dotcms.repackage.org.apache.commons.io.FilenameUtils;
+import com.dotmarketing.portlets.files.model.File;
+
+/**
+ * Measures {@link LegacyFilesMigrator#deleteFilesInFileSystem(java.io.File)},
+ * which removes a legacy binary and its derived files via the
+ * {@link DerivedAssetIndex}, against the original approach of listing the
+ * whole folder of every binary and matching file names, which is kept here as
+ * the baseline.
+ * <p>
+ * Every iteration deletes the binaries of {@value #FILES} legacy files out of
+ * a Site of {@code siteFiles} files, so the folders hold as many unrelated
+ * files as they would in a real {@code assets/} folder. Results are reported
+ * per legacy file.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DeleteFilesInFileSystemBenchmark {
+
+	static final int FILES = 500;
+
+	@Param({ "1000", "20000" })
+	public int siteFiles;
+
+	@Param({ "3", "9" })
+	public int derivedFiles;
+
+	private LegacyFilesDataset dataset;
+	private LegacyFilesMigrator migrator;
+	private List<java.io.File> binaries;
+
+	@Setup(Level.Iteration)
+	public void setUp() throws IOException {
+		dataset = LegacyFilesDataset.generate(Files.createTempDirectory("legacy-files-jmh"), 1,
+				Math.max(FILES, siteFiles), 1, 4096, derivedFiles);
+		final List<File> legacyFiles = dataset.getWorkingFiles(dataset.getSites().get(0).getIdentifier());
+		binaries = new ArrayList<java.io.File>(FILES);
+		for (int i = 0; i < FILES; i++) {
+			binaries.add(dataset.getBinary(legacyFiles.get(i)).toFile());
+		}
+		migrator = new InMemoryDotCmsApis(dataset, 0).newMigrator(new MigrationConfig(), new InMemoryTransactions(0));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(FILES)
+	public void derivedAssetIndex() {
+		for (java.io.File binary : binaries) {
+			migrator.deleteFilesInFileSystem(binary);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(FILES)
+	public void directoryScan() {
+		for (java.io.File binary : binaries) {
+			final String baseName = FilenameUtils.removeExtension(binary.getName());
+			final java.io.File parentDir = binary.getParentFile();
+			if (parentDir.isDirectory()) {
+				for (java.io.File file : parentDir.listFiles()) {
+					if (!file.isDirectory() && file.getName().contains(baseName)) {
+						file.delete();
+					}
+				}
+			}
+		}
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() throws IOException {
+		dataset.delete();
+	}
+
+}
@@ -0,0 +1,379 @@
+package com.dotmarketing.osgi.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.dotmarketing.beans.Host;
+import com.dotmarketing.beans.Identifier;
+import com.dotmarketing.business.IdentifierAPI;
+import com.dotmarketing.business.UserAPI;
+import com.dotmarketing.business.VersionableAPI;
+import com.dotmarketing.business.Versionable;
+import com.dotmarketing.portlets.contentlet.business.ContentletAPI;
+import com.dotmarketing.portlets.contentlet.business.HostAPI;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.portlets.files.business.FileAPI;
+import com.dotmarketing.portlets.files.model.File;
+import com.dotmarketing.portlets.folders.business.FolderAPI;
+import com.dotmarketing.portlets.languagesmanager.business.LanguageAPI;
+import com.dotmarketing.portlets.languagesmanager.model.Language;
+import com.dotmarketing.portlets.structure.model.Structure;
+import com.liferay.portal.model.User;
+
+/**
+ * In-memory stand-ins of the dotCMS APIs used by the {@link LegacyFilesMigrator},
+ * backed by a {@link LegacyFilesDataset}. Only the methods the migration calls
+ * are implemented; any other method throws an
+ * {@link UnsupportedOperationException}, so a benchmark never silently
+ * measures a call that does nothing.
+ * <p>
+ * Every call waits for the latency configured for its API before returning,
+ * which stands in for the database round trips of a real dotCMS instance.
+ * Latencies are set per API via {@link #setLatencyMicros(Class, long)}.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class InMemoryDotCmsApis {
+
+	private final LegacyFilesDataset dataset;
+	private final long defaultLatencyNanos;
+	private final Map<Class<?>, Long> latencyNanos = new ConcurrentHashMap<Class<?>, Long>();
+	private final AtomicLong calls = new AtomicLong();
+	private final AtomicLong checkins = new AtomicLong();
+	private final User systemUser;
+	private final Language defaultLanguage;
+	private final Structure fileAssetContentType;
+
+	/**
+	 * Creates the APIs.
+	 *
+	 * @param dataset
+	 *            - The data served by the APIs.
+	 * @param defaultLatencyMicros
+	 *            - The latency of every call, in microseconds, unless a
+	 *            specific one is set for its API.
+	 */
+	public InMemoryDotCmsApis(final LegacyFilesDataset dataset, final long defaultLatencyMicros) {
+		this.dataset = dataset;
+		this.defaultLatencyNanos = TimeUnit.MICROSECONDS.toNanos(defaultLatencyMicros);
+		this.systemUser = new User();
+		this.systemUser.setUserId("system");
+		this.defaultLanguage = new Language();
+		this.defaultLanguage.setId(1);
+		this.fileAssetContentType = new Structure();
+		this.fileAssetContentType.setInode(UUID.randomUUID().toString());
+		this.fileAssetContentType.setVelocityVarName("FileAsset");
+	}
+
+	/**
+	 * Sets the latency of every call to the specified API.
+	 *
+	 * @param api
+	 *            - The API, e.g., {@code FileAPI.class}.
+	 * @param latencyMicros
+	 *            - The latency, in microseconds.
+	 */
+	public void setLatencyMicros(final Class<?> api, final long latencyMicros) {
+		latencyNanos.put(api, TimeUnit.MICROSECONDS.toNanos(latencyMicros));
+	}
+
+	/**
+	 * Creates a migrator that uses these APIs and the specified transactions.
+	 * The migrator is initialized, so single legacy files can be migrated
+	 * right away.
+	 *
+	 * @param config
+	 *            - The migration configuration.
+	 * @param transactions
+	 *            - The transaction and session operations.
+	 * @return The migrator.
+	 */
+	public LegacyFilesMigrator newMigrator(final MigrationConfig config, final MigrationTransactions transactions) {
+		final LegacyFilesMigrator migrator = new LegacyFilesMigrator(config, transactions,
+				InMemoryIndexer.newFactory(), getContentletAPI(), getLanguageAPI(), getHostAPI(), getFileAPI(),
+				getIdentifierAPI(), getUserAPI(), getVersionableAPI(), getFolderAPI());
+		migrator.initialize(systemUser, fileAssetContentType);
+		return migrator;
+	}
+
+	/**
+	 * Returns the number of API calls made so far.
+	 *
+	 * @return The number of calls.
+	 */
+	public long getCallCount() {
+		return calls.get();
+	}
+
+	/**
+	 * Returns the number of contents checked in so far.
+	 *
+	 * @return The number of check-ins.
+	 */
+	public long getCheckinCount() {
+		return checkins.get();
+	}
+
+	/**
+	 * Returns the File API, which locates binaries in the dataset and deletes
+	 * legacy files from it.
+	 *
+	 * @return The File API.
+	 */
+	public FileAPI getFileAPI() {
+		return proxy(FileAPI.class, new ApiHandler(FileAPI.class) {
+
+			@Override
+			protected Object handle(final String method, final Object[] args) throws Exception {
+				if ("getAssetIOFile".equals(method)) {
+					return dataset.getBinary((File) args[0]).toFile();
+				} else if ("getRealAssetPathTmpBinary".equals(method)) {
+					return dataset.getTmpBinaries().toString();
+				} else if ("delete".equals(method)) {
+					dataset.remove((File) args[0]);
+					return Boolean.TRUE;
+				}
+				return unsupported(method);
+			}
+
+		});
+	}
+
+	/**
+	 * Returns the Contentlet API, which accepts every check-in and publish.
+	 *
+	 * @return The Contentlet API.
+	 */
+	public ContentletAPI getContentletAPI() {
+		return proxy(ContentletAPI.class, new ApiHandler(ContentletAPI.class) {
+
+			@Override
+			protected Object handle(final String method, final Object[] args) throws Exception {
+				if ("checkin".equals(method)) {
+					checkins.incrementAndGet();
+					return args[0];
+				} else if ("publish".equals(method)) {
+					return null;
+				} else if ("findContentlets".equals(method)) {
+					return new ArrayList<Contentlet>();
+				}
+				return unsupported(method);
+			}
+
+		});
+	}
+
+	/**
+	 * Returns the Versionable API, which reads the versions of the dataset.
+	 *
+	 * @return The Versionable API.
+	 */
+	public VersionableAPI getVersionableAPI() {
+		return proxy(VersionableAPI.class, new ApiHandler(VersionableAPI.class) {
+
+			@Override
+			protected Object handle(final String method, final Object[] args) throws Exception {
+				if ("getVersionInfo".equals(method)) {
+					return dataset.findVersionInfo((String) args[0]);
+				} else if ("findAllVersions".equals(method)) {
+					return dataset.findAllVersions(((Identifier) args[0]).getId());
+				} else if ("findWorkingVersion".equals(method)) {
+					final String identifier = ((Identifier) args[0]).getId();
+					return dataset.findFile(dataset.findVersionInfo(identifier).getWorkingInode());
+				} else if ("findLiveVersion".equals(method)) {
+					final String identifier = ((Identifier) args[0]).getId();
+					return dataset.findFile(dataset.findVersionInfo(identifier).getLiveInode());
+				} else if ("setLive".equals(method)) {
+					return null;
+				}
+				return unsupported(method);
+			}
+
+		});
+	}
+
+	/**
+	 * Returns the Identifier API, which reads the Identifiers of the dataset.
+	 *
+	 * @return The Identifier API.
+	 */
+	public IdentifierAPI getIdentifierAPI() {
+		return proxy(IdentifierAPI.class, new ApiHandler(IdentifierAPI.class) {
+
+			@Override
+			protected Object handle(final String method, final Object[] args) throws Exception {
+				if ("find".equals(method) || "loadFromDb".equals(method)) {
+					final String identifier = args[0] instanceof Versionable ? ((Versionable) args[0]).getVersionId()
+							: args[0].toString();
+					return dataset.findIdentifier(identifier);
+				}
+				return unsupported(method);
+			}
+
+		});
+	}
+
+	/**
+	 * Returns the Site API, which reads the Sites of the dataset.
+	 *
+	 * @return The Site API.
+	 */
+	public HostAPI getHostAPI() {
+		return proxy(HostAPI.class, new ApiHandler(HostAPI.class) {
+
+			@Override
+			protected Object handle(final String method, final Object[] args) throws Exception {
+				if ("findAll".equals(method)) {
+					return dataset.getSites();
+				} else if ("find".equals(method) && args[0] instanceof String) {
+					return dataset.findSite((String) args[0]);
+				} else if ("findSystemHost".equals(method)) {
+					final Host systemHost = new Host();
+					systemHost.setIdentifier(Host.SYSTEM_HOST);
+					systemHost.setInode(Host.SYSTEM_HOST);
+					return systemHost;
+				}
+				return unsupported(method);
+			}
+
+		});
+	}
+
+	/**
+	 * Returns the Language API, which only knows the default language.
+	 *
+	 * @return The Language API.
+	 */
+	public LanguageAPI getLanguageAPI() {
+		return proxy(LanguageAPI.class, new ApiHandler(LanguageAPI.class) {
+
+			@Override
+			protected Object handle(final String method, final Object[] args) throws Exception {
+				if ("getDefaultLanguage".equals(method)) {
+					return defaultLanguage;
+				}
+				return unsupported(method);
+			}
+
+		});
+	}
+
+	/**
+	 * Returns the Folder API, which creates folders as they are looked up.
+	 *
+	 * @return The Folder API.
+	 */
+	public FolderAPI getFolderAPI() {
+		return proxy(FolderAPI.class, new ApiHandler(FolderAPI.class) {
+
+			@Override
+			protected Object handle(final String method, final Object[] args) throws Exception {
+				if ("findFolderByPath".equals(method)) {
+					final String hostId = args[1] instanceof Host ? ((Host) args[1]).getIdentifier()
+							: args[1].toString();
+					return dataset.findFolder(hostId, (String) args[0]);
+				}
+				return unsupported(method);
+			}
+
+		});
+	}
+
+	/**
+	 * Returns the User API, which only knows the system user.
+	 *
+	 * @return The User API.
+	 */
+	public UserAPI getUserAPI() {
+		return proxy(UserAPI.class, new ApiHandler(UserAPI.class) {
+
+			@Override
+			protected Object handle(final String method, final Object[] args) throws Exception {
+				if ("getSystemUser".equals(method)) {
+					return systemUser;
+				}
+				return unsupported(method);
+			}
+
+		});
+	}
+
+	/**
+	 * Creates a dynamic proxy of an API.
+	 *
+	 * @param api
+	 *            - The API interface.
+	 * @param handler
+	 *            - The implementation of the API.
+	 * @return The API.
+	 */
+	private static <T> T proxy(final Class<T> api, final InvocationHandler handler) {
+		return api.cast(Proxy.newProxyInstance(InMemoryDotCmsApis.class.getClassLoader(), new Class<?>[] { api },
+				handler));
+	}
+
+	/**
+	 * Dispatches the calls to an API by method name, after waiting for the
+	 * latency of the API.
+	 */
+	private abstract class ApiHandler implements InvocationHandler {
+
+		private final Class<?> api;
+
+		private ApiHandler(final Class<?> api) {
+			this.api = api;
+		}
+
+		@Override
+		public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+			if (Object.class.equals(method.getDeclaringClass())) {
+				return method.invoke(this, args);
+			}
+			calls.incrementAndGet();
+			final Long latency = latencyNanos.get(api);
+			final long nanos = null != latency ? latency : defaultLatencyNanos;
+			if (nanos > 0) {
+				LockSupport.parkNanos(nanos);
+			}
+			final Object result = handle(method.getName(), null == args ? new Object[0] : args);
+			return null == result && Boolean.TYPE.equals(method.getReturnType()) ? Boolean.FALSE : result;
+		}
+
+		/**
+		 * Implements a method of the API.
+		 *
+		 * @param method
+		 *            - The name of the method.
+		 * @param args
+		 *            - The arguments of the call.
+		 * @return The result of the call.
+		 * @throws Exception
+		 *             The call failed.
+		 */
+		protected abstract Object handle(String method, Object[] args) throws Exception;
+
+		/**
+		 * Rejects a method that the migration is not expected to call.
+		 *
+		 * @param method
+		 *            - The name of the method.
+		 * @return Never returns.
+		 */
+		protected Object unsupported(final String method) {
+			throw new UnsupportedOperationException(
+					api.getSimpleName() + "." + method + "() is not available in the benchmarks");
+		}
+
+	}
+
+}
@@ -0,0 +1,61 @@
+package com.dotmarketing.osgi.util;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link MigrationIndexer} that does not touch a search index. It only counts
+ * the Inodes handed over by the committed batches, so deferred indexing can
+ * be measured without Elasticsearch.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class InMemoryIndexer implements MigrationIndexer {
+
+	private final AtomicLong indexed = new AtomicLong();
+
+	/**
+	 * Returns the factory of the indexers of every migration run.
+	 *
+	 * @return The indexer factory.
+	 */
+	public static MigrationIndexer.Factory newFactory() {
+		return new MigrationIndexer.Factory() {
+
+			@Override
+			public MigrationIndexer newIndexer(final MigrationMetrics metrics, final int bulkSize,
+					final int queueCapacity) {
+				return new InMemoryIndexer();
+			}
+
+		};
+	}
+
+	@Override
+	public void start() {
+		// Nothing to start
+	}
+
+	@Override
+	public void add(final List<String> inodes) {
+		indexed.addAndGet(inodes.size());
+	}
+
+	@Override
+	public void close() {
+		// Nothing to stop
+	}
+
+	@Override
+	public long getIndexedCount() {
+		return indexed.get();
+	}
+
+	@Override
+	public long getFailedCount() {
+		return 0;
+	}
+
+}
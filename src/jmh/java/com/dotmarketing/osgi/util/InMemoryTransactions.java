@@ -0,0 +1,89 @@
+package com.dotmarketing.osgi.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link MigrationTransactions} that do not touch a database. Commits wait
+ * for a configurable latency, which stands in for the flush and the commit
+ * round trip of a real transaction, so the effect of the batch size can be
+ * measured.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class InMemoryTransactions implements MigrationTransactions {
+
+	private final long commitLatencyNanos;
+	private final AtomicLong commits = new AtomicLong();
+	private final AtomicLong rollbacks = new AtomicLong();
+
+	/**
+	 * Creates the transactions.
+	 *
+	 * @param commitLatencyMicros
+	 *            - The latency of every commit, in microseconds.
+	 */
+	public InMemoryTransactions(final long commitLatencyMicros) {
+		this.commitLatencyNanos = TimeUnit.MICROSECONDS.toNanos(commitLatencyMicros);
+	}
+
+	@Override
+	public void begin() {
+		// Nothing to start
+	}
+
+	@Override
+	public void commit() {
+		if (commitLatencyNanos > 0) {
+			LockSupport.parkNanos(commitLatencyNanos);
+		}
+		commits.incrementAndGet();
+	}
+
+	@Override
+	public void rollback() {
+		rollbacks.incrementAndGet();
+	}
+
+	@Override
+	public void clearSession() {
+		// There is no session to clear
+	}
+
+	@Override
+	public void closeSession() {
+		// There is no session to close
+	}
+
+	@Override
+	public void evictIdentifier(final String identifier) {
+		// Identifiers are not cached
+	}
+
+	@Override
+	public void evictContent(final String identifier, final String inode, final long languageId) {
+		// Contents are not cached
+	}
+
+	/**
+	 * Returns the number of commits so far.
+	 *
+	 * @return The number of commits.
+	 */
+	public long getCommitCount() {
+		return commits.get();
+	}
+
+	/**
+	 * Returns the number of rollbacks so far.
+	 *
+	 * @return The number of rollbacks.
+	 */
+	public long getRollbackCount() {
+		return rollbacks.get();
+	}
+
+}
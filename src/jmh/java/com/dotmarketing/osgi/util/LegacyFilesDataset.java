@@ -0,0 +1,423 @@
+package com.dotmarketing.osgi.util;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.dotmarketing.beans.Host;
+import com.dotmarketing.beans.Identifier;
+import com.dotmarketing.beans.VersionInfo;
+import com.dotmarketing.business.Versionable;
+import com.dotmarketing.portlets.files.model.File;
+import com.dotmarketing.portlets.folders.model.Folder;
+
+/**
+ * Synthetic set of legacy files used by the benchmarks: N Sites with M legacy
+ * files each, every one of them with K versions. All the versions have a real
+ * binary under {@code assets/}, laid out the way the legacy File API stores
+ * them ({@code assets/2/c/2cb2a266-1784-4d12-8738-b59fd85910d1.jpg}), along
+ * with {@code _resized_}, {@code _thumb_} and {@code dotGenerated_} derived
+ * files next to it. The data the dotCMS APIs would read from the database is
+ * kept in memory, and is served by the {@link InMemoryDotCmsApis}.
+ * <p>
+ * Binaries are filled with seeded random bytes, so two runs with the same
+ * parameters produce the same dataset.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class LegacyFilesDataset {
+
+	private static final int FILES_PER_FOLDER = 100;
+	private static final int DERIVED_FILE_BYTES = 1024;
+	private static final String EXTENSION = "jpg";
+	private static final String MOD_USER = "dotcms.org.1";
+
+	private final Path root;
+	private final Path assets;
+	private final Path tmpBinaries;
+	private final int versionsPerFile;
+	private final int derivedFilesPerVersion;
+	private final byte[] binary;
+	private final byte[] derivedBinary;
+	private final Random random = new Random(17);
+	private final List<Host> sites = Collections.synchronizedList(new ArrayList<Host>());
+	private final Map<String, List<File>> workingFilesBySite = new ConcurrentHashMap<String, List<File>>();
+	private final Map<String, Identifier> identifiers = new ConcurrentHashMap<String, Identifier>();
+	private final Map<String, VersionInfo> versionInfos = new ConcurrentHashMap<String, VersionInfo>();
+	private final Map<String, List<Versionable>> versions = new ConcurrentHashMap<String, List<Versionable>>();
+	private final Map<String, File> files = new ConcurrentHashMap<String, File>();
+	private final ConcurrentHashMap<String, Folder> folders = new ConcurrentHashMap<String, Folder>();
+
+	/**
+	 * Creates an empty dataset.
+	 *
+	 * @param root
+	 *            - The folder where the binaries are written. It is deleted by
+	 *            {@link #delete()}.
+	 * @param versionsPerFile
+	 *            - The number of versions of every legacy file.
+	 * @param binaryBytes
+	 *            - The size of every legacy binary.
+	 * @param derivedFilesPerVersion
+	 *            - The number of derived files written next to every binary.
+	 * @throws IOException
+	 *             The folders of the dataset could not be created.
+	 */
+	public LegacyFilesDataset(final Path root, final int versionsPerFile, final int binaryBytes,
+			final int derivedFilesPerVersion) throws IOException {
+		this.root = root;
+		this.assets = Files.createDirectories(root.resolve("assets"));
+		this.tmpBinaries = Files.createDirectories(root.resolve("tmp_upload"));
+		this.versionsPerFile = Math.max(1, versionsPerFile);
+		this.derivedFilesPerVersion = Math.max(0, derivedFilesPerVersion);
+		this.binary = new byte[binaryBytes];
+		this.derivedBinary = new byte[Math.min(binaryBytes, DERIVED_FILE_BYTES)];
+		random.nextBytes(binary);
+		random.nextBytes(derivedBinary);
+	}
+
+	/**
+	 * Generates a dataset of N Sites with M legacy files each.
+	 *
+	 * @param root
+	 *            - The folder where the binaries are written.
+	 * @param sites
+	 *            - The number of Sites.
+	 * @param filesPerSite
+	 *            - The number of legacy files of every Site.
+	 * @param versionsPerFile
+	 *            - The number of versions of every legacy file.
+	 * @param binaryBytes
+	 *            - The size of every legacy binary.
+	 * @param derivedFilesPerVersion
+	 *            - The number of derived files written next to every binary.
+	 * @return The dataset.
+	 * @throws IOException
+	 *             The binaries could not be written.
+	 */
+	public static LegacyFilesDataset generate(final Path root, final int sites, final int filesPerSite,
+			final int versionsPerFile, final int binaryBytes, final int derivedFilesPerVersion) throws IOException {
+		final LegacyFilesDataset dataset = new LegacyFilesDataset(root, versionsPerFile, binaryBytes,
+				derivedFilesPerVersion);
+		for (int i = 0; i < sites; i++) {
+			dataset.addFiles(dataset.addSite("site" + i + ".dotcms.com"), filesPerSite);
+		}
+		return dataset;
+	}
+
+	/**
+	 * Adds an empty Site.
+	 *
+	 * @param hostname
+	 *            - The name of the Site.
+	 * @return The Site.
+	 */
+	public Host addSite(final String hostname) {
+		final Host site = new Host();
+		site.setIdentifier(UUID.randomUUID().toString());
+		site.setInode(UUID.randomUUID().toString());
+		site.setHostname(hostname);
+		sites.add(site);
+		workingFilesBySite.put(site.getIdentifier(), Collections.synchronizedList(new ArrayList<File>()));
+		return site;
+	}
+
+	/**
+	 * Adds legacy files to a Site, spread over folders of
+	 * {@value #FILES_PER_FOLDER} files.
+	 *
+	 * @param site
+	 *            - The Site.
+	 * @param count
+	 *            - The number of legacy files.
+	 * @return The working versions of the new legacy files.
+	 * @throws IOException
+	 *             The binaries could not be written.
+	 */
+	public List<File> addFiles(final Host site, final int count) throws IOException {
+		final List<File> added = new ArrayList<File>(count);
+		final int existing = workingFilesBySite.get(site.getIdentifier()).size();
+		for (int i = 0; i < count; i++) {
+			added.add(addFile(site, "/folder" + ((existing + i) / FILES_PER_FOLDER) + "/"));
+		}
+		return added;
+	}
+
+	/**
+	 * Adds a legacy file, with all its versions, binaries and derived files.
+	 * The last version is the working one. Every fourth file with more than
+	 * one version has an older live version.
+	 *
+	 * @param site
+	 *            - The Site.
+	 * @param parentPath
+	 *            - The path of the parent folder.
+	 * @return The working version of the legacy file.
+	 * @throws IOException
+	 *             The binaries could not be written.
+	 */
+	public File addFile(final Host site, final String parentPath) throws IOException {
+		final List<File> siteFiles = workingFilesBySite.get(site.getIdentifier());
+		final String fileName = "image" + siteFiles.size() + "." + EXTENSION;
+		final Identifier identifier = new Identifier();
+		identifier.setId(UUID.randomUUID().toString());
+		identifier.setHostId(site.getIdentifier());
+		identifier.setParentPath(parentPath);
+		identifier.setAssetName(fileName);
+		identifier.setAssetType("file_asset");
+		final List<Versionable> fileVersions = new ArrayList<Versionable>(versionsPerFile);
+		for (int i = 0; i < versionsPerFile; i++) {
+			final File version = new File();
+			version.setInode(UUID.randomUUID().toString());
+			version.setIdentifier(identifier.getId());
+			version.setFileName(fileName);
+			version.setTitle(fileName);
+			version.setModUser(MOD_USER);
+			version.setModDate(new Date());
+			version.setSize(binary.length);
+			writeBinaries(version);
+			fileVersions.add(version);
+			files.put(version.getInode(), version);
+		}
+		final File working = (File) fileVersions.get(fileVersions.size() - 1);
+		final VersionInfo versionInfo = new VersionInfo();
+		versionInfo.setIdentifier(identifier.getId());
+		versionInfo.setWorkingInode(working.getInode());
+		versionInfo.setLiveInode(fileVersions.size() > 1 && siteFiles.size() % 4 == 0
+				? fileVersions.get(fileVersions.size() - 2).getInode() : working.getInode());
+		identifiers.put(identifier.getId(), identifier);
+		versionInfos.put(identifier.getId(), versionInfo);
+		versions.put(identifier.getId(), fileVersions);
+		siteFiles.add(working);
+		return working;
+	}
+
+	/**
+	 * Returns the location of the binary of a legacy file version.
+	 *
+	 * @param file
+	 *            - The legacy file version.
+	 * @return The location of its binary.
+	 */
+	public Path getBinary(final File file) {
+		final String inode = file.getInode();
+		return assets.resolve(inode.substring(0, 1)).resolve(inode.substring(1, 2))
+				.resolve(inode + "." + EXTENSION);
+	}
+
+	/**
+	 * Returns the folder where binaries are staged before being checked in.
+	 *
+	 * @return The temporary binary folder.
+	 */
+	public Path getTmpBinaries() {
+		return tmpBinaries;
+	}
+
+	/**
+	 * Returns all the Sites.
+	 *
+	 * @return The Sites.
+	 */
+	public List<Host> getSites() {
+		return new ArrayList<Host>(sites);
+	}
+
+	/**
+	 * Returns the working versions of the legacy files of a Site, in the order
+	 * they were added.
+	 *
+	 * @param siteId
+	 *            - The Identifier of the Site.
+	 * @return The working versions.
+	 */
+	public List<File> getWorkingFiles(final String siteId) {
+		final List<File> siteFiles = workingFilesBySite.get(siteId);
+		return null == siteFiles ? new ArrayList<File>() : new ArrayList<File>(siteFiles);
+	}
+
+	/**
+	 * Returns a Site.
+	 *
+	 * @param siteId
+	 *            - The Identifier of the Site.
+	 * @return The Site, or {@code null} if it does not exist.
+	 */
+	public Host findSite(final String siteId) {
+		synchronized (sites) {
+			for (Host site : sites) {
+				if (site.getIdentifier().equals(siteId)) {
+					return site;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns an Identifier.
+	 *
+	 * @param identifierId
+	 *            - The Id of the Identifier.
+	 * @return The Identifier, or {@code null} if it has been deleted.
+	 */
+	public Identifier findIdentifier(final String identifierId) {
+		return identifiers.get(identifierId);
+	}
+
+	/**
+	 * Returns the version info of an Identifier.
+	 *
+	 * @param identifierId
+	 *            - The Id of the Identifier.
+	 * @return The version info, or {@code null} if it has been deleted.
+	 */
+	public VersionInfo findVersionInfo(final String identifierId) {
+		return versionInfos.get(identifierId);
+	}
+
+	/**
+	 * Returns a copy of the list of versions of an Identifier, as callers may
+	 * modify it.
+	 *
+	 * @param identifierId
+	 *            - The Id of the Identifier.
+	 * @return The versions.
+	 */
+	public List<Versionable> findAllVersions(final String identifierId) {
+		final List<Versionable> fileVersions = versions.get(identifierId);
+		return null == fileVersions ? new ArrayList<Versionable>() : new ArrayList<Versionable>(fileVersions);
+	}
+
+	/**
+	 * Returns a legacy file version.
+	 *
+	 * @param inode
+	 *            - The Inode of the version.
+	 * @return The version, or {@code null} if it has been deleted.
+	 */
+	public File findFile(final String inode) {
+		return null == inode ? null : files.get(inode);
+	}
+
+	/**
+	 * Returns a folder, creating it the first time it is looked up.
+	 *
+	 * @param hostId
+	 *            - The Identifier of the Site.
+	 * @param path
+	 *            - The path of the folder.
+	 * @return The folder.
+	 */
+	public Folder findFolder(final String hostId, final String path) {
+		final String key = hostId + ":" + path;
+		Folder folder = folders.get(key);
+		if (null == folder) {
+			folder = new Folder();
+			folder.setInode(UUID.randomUUID().toString());
+			final Folder existing = folders.putIfAbsent(key, folder);
+			if (null != existing) {
+				folder = existing;
+			}
+		}
+		return folder;
+	}
+
+	/**
+	 * Removes the data of a legacy file, with all its versions, the way the
+	 * File API deletes it from the database. Binaries are left untouched.
+	 *
+	 * @param file
+	 *            - Any version of the legacy file.
+	 */
+	public void remove(final File file) {
+		final List<Versionable> fileVersions = versions.remove(file.getIdentifier());
+		if (null != fileVersions) {
+			for (Versionable version : fileVersions) {
+				files.remove(version.getInode());
+			}
+		}
+		identifiers.remove(file.getIdentifier());
+		versionInfos.remove(file.getIdentifier());
+	}
+
+	/**
+	 * Returns the directory holding all the files of the dataset.
+	 *
+	 * @return The root directory.
+	 */
+	public Path getRoot() {
+		return root;
+	}
+
+	/**
+	 * Deletes all the files of the dataset.
+	 *
+	 * @throws IOException
+	 *             A file could not be deleted.
+	 */
+	public void delete() throws IOException {
+		if (!Files.exists(root)) {
+			return;
+		}
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(final Path dir, final IOException e) throws IOException {
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+
+		});
+	}
+
+	/**
+	 * Writes the binary of a legacy file version and its derived files.
+	 *
+	 * @param version
+	 *            - The legacy file version.
+	 * @throws IOException
+	 *             The files could not be written.
+	 */
+	private void writeBinaries(final File version) throws IOException {
+		final Path original = getBinary(version);
+		final Path folder = Files.createDirectories(original.getParent());
+		final String inode = version.getInode();
+		Files.write(original, binary);
+		for (int i = 0; i < derivedFilesPerVersion; i++) {
+			final String name;
+			switch (i % 3) {
+			case 0:
+				name = inode + "_resized_" + (250 + i) + "_w_974." + EXTENSION;
+				break;
+			case 1:
+				name = inode + "_thumb_" + (100 + i) + "_100_255_255_255." + EXTENSION;
+				break;
+			default:
+				name = "dotGenerated_" + inode + (250 + i) + "_w_974." + EXTENSION;
+				break;
+			}
+			Files.write(folder.resolve(name), derivedBinary);
+		}
+	}
+
+}
@@ -0,0 +1,90 @@
+package com.dotmarketing.osgi.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.dotmarketing.beans.Host;
+import com.dotmarketing.portlets.files.model.File;
+
+/**
+ * Measures {@link LegacyFilesMigrator#migrateLegacyFile(File)}: lookups,
+ * staging, deletion of the legacy file and its versions, and check-in, for a
+ * single legacy file on the calling thread.
+ * <p>
+ * Every iteration migrates a freshly generated Site of {@value #FILES} legacy
+ * files with a new migrator, so the derived file index starts cold, the same
+ * way it does for every Site of a real migration. Results are reported per
+ * legacy file.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MigrateLegacyFileBenchmark {
+
+	static final int FILES = 200;
+
+	@Param({ "1", "5" })
+	public int versions;
+
+	@Param({ "65536" })
+	public int binaryBytes;
+
+	@Param({ "3" })
+	public int derivedFiles;
+
+	@Param({ "0", "200" })
+	public long apiLatencyMicros;
+
+	private LegacyFilesDataset dataset;
+	private LegacyFilesMigrator migrator;
+	private List<File> legacyFiles;
+
+	@Setup(Level.Iteration)
+	public void setUp() throws IOException {
+		dataset = new LegacyFilesDataset(Files.createTempDirectory("legacy-files-jmh"), versions, binaryBytes,
+				derivedFiles);
+		final Host site = dataset.addSite("bench.dotcms.com");
+		legacyFiles = dataset.addFiles(site, FILES);
+		migrator = new InMemoryDotCmsApis(dataset, apiLatencyMicros).newMigrator(new MigrationConfig(),
+				new InMemoryTransactions(0));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(FILES)
+	public void migrateLegacyFile(final Blackhole blackhole) throws Exception {
+		for (File legacyFile : legacyFiles) {
+			blackhole.consume(migrator.migrateLegacyFile(legacyFile));
+		}
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() throws IOException {
+		dataset.delete();
+	}
+
+}
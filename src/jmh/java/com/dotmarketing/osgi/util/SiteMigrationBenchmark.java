@@ -0,0 +1,138 @@
+package com.dotmarketing.osgi.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dotmarketing.beans.Host;
+import com.dotmarketing.portlets.files.model.File;
+
+/**
+ * Measures the migration of a whole Site: every legacy file is dispatched to
+ * a {@link MigrationWorkerPool}, keyed by its parent folder, and migrated in
+ * batches whose size is adjusted by the {@link BatchSizeController}, the same
+ * way {@link LegacyFilesMigrator#migrateLegacyFiles()} does for every Site.
+ * Binaries are staged by the {@link MigrationPipeline} while their files wait
+ * for a worker, unless {@code stagingThreads} is 0, and deleted by the
+ * {@link DeferredFileDeletion} after every commit. The time it takes to drain
+ * both is included.
+ * <p>
+ * Paging the Site and prefetching its lookups need a database, so files are
+ * dispatched straight from the {@link LegacyFilesDataset}, and every lookup
+ * goes through the in-memory APIs. Every iteration migrates a freshly
+ * generated Site of {@value #FILES} legacy files. Results are reported per
+ * legacy file.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SiteMigrationBenchmark {
+
+	static final int FILES = 2000;
+
+	@Param({ "1", "4", "8" })
+	public int workerThreads;
+
+	@Param({ "1", "3" })
+	public int versions;
+
+	@Param({ "0", "4" })
+	public int stagingThreads;
+
+	@Param({ "0", "200" })
+	public long apiLatencyMicros;
+
+	@Param({ "0", "5000" })
+	public long commitLatencyMicros;
+
+	private LegacyFilesDataset dataset;
+	private MigrationConfig config;
+	private LegacyFilesMigrator migrator;
+	private InMemoryTransactions transactions;
+	private Host site;
+
+	@Setup(Level.Iteration)
+	public void setUp() throws IOException {
+		dataset = LegacyFilesDataset.generate(Files.createTempDirectory("legacy-files-jmh"), 1, FILES, versions,
+				65536, 3);
+		site = dataset.getSites().get(0);
+		config = new MigrationConfig();
+		transactions = new InMemoryTransactions(commitLatencyMicros);
+		migrator = new InMemoryDotCmsApis(dataset, apiLatencyMicros).newMigrator(config, transactions);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(FILES)
+	public long migrateSite() throws Exception {
+		final BatchSizeController batchSizeController = new BatchSizeController(config.getBatchSize(),
+				config.getMinBatchSize(), config.getMaxBatchSize(), config.getBatchTargetMillis(),
+				config.getCommitLatencyCeilingMillis());
+		final MigrationWorkerPool workerPool = new MigrationWorkerPool(workerThreads, config.getQueueCapacity(),
+				batchSizeController, migrator.getMetrics(), migrator.getControl(), transactions,
+				migrator.newFailurePolicy(new DeadLetterFile(dataset.getRoot().resolve(DeadLetterFile.FILE_NAME))));
+		workerPool.addBatchListener(migrator.startDeferredDeletion());
+		final MigrationPipeline pipeline = new MigrationPipeline(1, 1, stagingThreads,
+				config.getStagingQueueCapacity(), migrator.getMetrics(), transactions);
+		workerPool.start();
+		try {
+			for (final File legacyFile : dataset.getWorkingFiles(site.getIdentifier())) {
+				final String parentPath = dataset.findIdentifier(legacyFile.getIdentifier()).getParentPath();
+				final Future<StagedBinary> staged = pipeline.isStaging()
+						? pipeline.stage(new Callable<StagedBinary>() {
+
+							@Override
+							public StagedBinary call() throws Exception {
+								return migrator.stageBinary(legacyFile);
+							}
+
+						}) : null;
+				workerPool.submit(site.getIdentifier() + ":" + parentPath,
+						new MigrationWorkerPool.MigrationTask(site.getIdentifier(), legacyFile.getInode()) {
+
+							@Override
+							public boolean execute() throws Exception {
+								return migrator.migrateLegacyFile(legacyFile,
+										null != staged ? MigrationPipeline.get(staged) : null);
+							}
+
+						});
+			}
+			workerPool.flush();
+		} finally {
+			workerPool.shutdown();
+			pipeline.close();
+			migrator.finishDeferredDeletion();
+		}
+		return workerPool.getProcessedCount();
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() throws IOException {
+		dataset.delete();
+	}
+
+}
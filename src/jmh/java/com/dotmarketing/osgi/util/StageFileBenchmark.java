@@ -0,0 +1,90 @@
+package com.dotmarketing.osgi.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.dotmarketing.portlets.files.model.File;
+import com.liferay.util.FileUtil;
+
+/**
+ * Measures {@link LegacyFilesMigrator#stageFileInTempFolder(File)}, which
+ * stages a legacy binary in the temporary upload folder via the
+ * {@link BinaryStager}, against the original approach of copying it with
+ * {@link FileUtil#copyFile(java.io.File, java.io.File)}, which is kept here as
+ * the baseline.
+ * <p>
+ * Every iteration stages the binaries of {@value #FILES} legacy files.
+ * Results are reported per legacy file.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StageFileBenchmark {
+
+	static final int FILES = 200;
+
+	@Param({ "4096", "1048576", "16777216" })
+	public int binaryBytes;
+
+	private LegacyFilesDataset dataset;
+	private LegacyFilesMigrator migrator;
+	private List<File> legacyFiles;
+
+	@Setup(Level.Iteration)
+	public void setUp() throws IOException {
+		dataset = LegacyFilesDataset.generate(Files.createTempDirectory("legacy-files-jmh"), 1, FILES, 1,
+				binaryBytes, 0);
+		legacyFiles = dataset.getWorkingFiles(dataset.getSites().get(0).getIdentifier());
+		migrator = new InMemoryDotCmsApis(dataset, 0).newMigrator(new MigrationConfig(), new InMemoryTransactions(0));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(FILES)
+	public void binaryStager(final Blackhole blackhole) {
+		for (File legacyFile : legacyFiles) {
+			blackhole.consume(migrator.stageFileInTempFolder(legacyFile));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(FILES)
+	public void fileCopy(final Blackhole blackhole) throws IOException {
+		for (File legacyFile : legacyFiles) {
+			final java.io.File tmp = dataset.getTmpBinaries().resolve(legacyFile.getInode())
+					.resolve(legacyFile.getFileName()).toFile();
+			FileUtil.copyFile(dataset.getBinary(legacyFile).toFile(), tmp);
+			blackhole.consume(tmp);
+		}
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() throws IOException {
+		dataset.delete();
+	}
+
+}
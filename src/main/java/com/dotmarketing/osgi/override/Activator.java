@@ -1,8 +1,13 @@
 package com.dotmarketing.osgi.override;
 
 import com.dotcms.repackage.org.osgi.framework.BundleContext;
+import com.dotcms.repackage.org.osgi.framework.ServiceRegistration;
 import com.dotmarketing.osgi.GenericBundleActivator;
 import com.dotmarketing.osgi.util.LegacyFilesMigrator;
+import com.dotmarketing.osgi.util.MigrationMetrics;
+import com.dotmarketing.osgi.util.MigrationMetricsMXBean;
+import com.dotmarketing.osgi.util.MigrationService;
+import com.dotmarketing.osgi.util.MigrationServiceImpl;
 
 import com.dotcms.repackage.org.apache.logging.log4j.LogManager;
 import com.dotcms.repackage.org.apache.logging.log4j.core.LoggerContext;
@@ -15,6 +20,26 @@ import com.dotmarketing.util.Logger;
  * migrating the legacy files and, therefore, keep the OSGi framework from
  * having to extend the start phase of the bundle because of such a heavy
  * process.
+ * <p>
+ * The migration keeps a checkpoint journal in the dynamic content folder, so
+ * restarting the server or redeploying this bundle in the middle of the
+ * migration makes the new thread resume from the last committed batch. When
+ * the {@code legacy.files.migrator.dry.run} property is set, the thread only
+ * writes a migration plan and does not change any data, and when the
+ * {@code legacy.files.migrator.verify} property is set, it checks the
+ * migrated files against the manifest of the previous runs. When the
+ * {@code legacy.files.migrator.cluster.enabled} property is set, the bundle
+ * can be deployed on every node of a cluster, and the nodes share the legacy
+ * files via work leases stored in the database. Otherwise, the
+ * {@code legacy.files.migrator.schedule.enabled} property makes the largest
+ * Sites start first, split into chunks that several threads dispatch at once.
+ * <p>
+ * The metrics of the running migration are registered in JMX and published
+ * as a {@link MigrationMetricsMXBean} OSGi service until the bundle stops.
+ * The thread itself is managed by the {@link MigrationService}, which is also
+ * published so the migration can be paused, throttled or cancelled. Stopping
+ * the bundle cancels the migration and waits for it to commit its pending
+ * work.
  * 
  * @author Jose Orsini, Jose Castro
  * @version 3.7.1
@@ -23,6 +48,11 @@ import com.dotmarketing.util.Logger;
 public class Activator extends GenericBundleActivator {
     
     private LoggerContext pluginLoggerContext;
+    private MigrationMetrics metrics;
+    private ServiceRegistration metricsRegistration;
+    private MigrationService migrationService;
+    private ServiceRegistration migrationRegistration;
+    private int shutdownTimeoutSeconds;
 
     @Override
     public void start(BundleContext context) throws Exception {
@@ -40,21 +70,44 @@ public class Activator extends GenericBundleActivator {
         // Expose bundle elements
         publishBundleServices(context);
         final LegacyFilesMigrator migrator = new LegacyFilesMigrator();
-        Thread migrationThread = new Thread(new Runnable() {
-
-            @Override
-            public void run() {
-                migrator.migrateLegacyFiles();
-            }
-
-        });
-        migrationThread.start();
+        // Expose the migration metrics via JMX and as an OSGi service
+        metrics = migrator.getMetrics();
+        metrics.registerMBean();
+        metricsRegistration = context.registerService(MigrationMetricsMXBean.class.getName(), metrics, null);
+        // Expose the migration lifecycle, so it can be paused, throttled or cancelled
+        migrationService = new MigrationServiceImpl(migrator);
+        migrationRegistration = context.registerService(MigrationService.class.getName(), migrationService, null);
+        shutdownTimeoutSeconds = migrator.getConfig().getShutdownTimeoutSeconds();
+        if (migrator.getConfig().isAutoStart()) {
+            migrationService.start();
+        }
     }
 
     @Override
     public void stop(BundleContext context) throws Exception {
+        // Let the migration commit the files it is working on before the bundle goes away
+        if (null != migrationService) {
+            migrationService.cancel();
+            if (!migrationService.awaitTermination(shutdownTimeoutSeconds * 1000L)) {
+                Logger.warn(this, "The legacy files migration did not stop after " + shutdownTimeoutSeconds
+                        + " seconds.");
+            }
+            migrationService = null;
+        }
+        if (null != migrationRegistration) {
+            migrationRegistration.unregister();
+            migrationRegistration = null;
+        }
         // Unpublish bundle services
         unpublishBundleServices();
+        if (null != metricsRegistration) {
+            metricsRegistration.unregister();
+            metricsRegistration = null;
+        }
+        if (null != metrics) {
+            metrics.unregisterMBean();
+            metrics = null;
+        }
         
         //Shutting down log4j in order to avoid memory leaks
         Log4jUtil.shutdown(pluginLoggerContext);
@@ -0,0 +1,195 @@
+package com.dotmarketing.osgi.util;
+
+import com.dotmarketing.util.Logger;
+
+/**
+ * Sizes the transactions of the migration workers based on how the database is
+ * actually behaving, instead of using a fixed number of files per commit.
+ * <p>
+ * The controller keeps an exponentially weighted moving average of the time
+ * it takes to migrate a single file (check-in included) and of the commit
+ * latency. The commit latency includes the time spent waiting for row locks,
+ * which grows quickly when transactions are too large. Based on them:
+ * <ul>
+ * <li>If commits take longer than the configured ceiling, the batch size is
+ * halved.</li>
+ * <li>Otherwise, the batch size grows gradually towards the number of files
+ * that can be migrated in the configured target transaction time, so small
+ * images get large batches and multi-MB PDFs get small ones.</li>
+ * </ul>
+ * The batch size always stays between the configured minimum and maximum.
+ * While the heap is under pressure, the {@link MemoryGovernor} lowers that
+ * maximum, as every open transaction holds the objects of its files.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class BatchSizeController {
+
+	private static final double SMOOTHING = 0.2;
+
+	private final int minBatchSize;
+	private final int maxBatchSize;
+	private final long targetBatchMillis;
+	private final long commitLatencyCeilingMillis;
+	private volatile int memoryCeiling;
+	private volatile int batchSize;
+	private double avgFileMillis = -1;
+	private double avgCommitMillis = -1;
+
+	/**
+	 * Creates the controller.
+	 *
+	 * @param initialBatchSize
+	 *            - The batch size used until there are measurements.
+	 * @param minBatchSize
+	 *            - The smallest allowed batch size.
+	 * @param maxBatchSize
+	 *            - The largest allowed batch size.
+	 * @param targetBatchMillis
+	 *            - The desired duration of a transaction, in milliseconds.
+	 * @param commitLatencyCeilingMillis
+	 *            - Commits slower than this, in milliseconds, shrink the batch
+	 *            size.
+	 */
+	public BatchSizeController(final int initialBatchSize, final int minBatchSize, final int maxBatchSize,
+			final long targetBatchMillis, final long commitLatencyCeilingMillis) {
+		this.minBatchSize = Math.max(1, minBatchSize);
+		this.maxBatchSize = Math.max(this.minBatchSize, maxBatchSize);
+		this.targetBatchMillis = targetBatchMillis;
+		this.commitLatencyCeilingMillis = commitLatencyCeilingMillis;
+		this.memoryCeiling = this.maxBatchSize;
+		this.batchSize = clamp(initialBatchSize);
+	}
+
+	/**
+	 * Returns the number of files a worker should migrate before committing.
+	 *
+	 * @return The current batch size.
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Records the time it took to migrate a single file.
+	 *
+	 * @param millis
+	 *            - The migration time, in milliseconds.
+	 */
+	public synchronized void fileMigrated(final long millis) {
+		avgFileMillis = average(avgFileMillis, millis);
+	}
+
+	/**
+	 * Records a completed commit and recalculates the batch size.
+	 *
+	 * @param millis
+	 *            - The time the commit took, in milliseconds.
+	 * @param files
+	 *            - The number of files in the committed batch.
+	 */
+	public synchronized void batchCommitted(final long millis, final int files) {
+		if (files <= 0) {
+			return;
+		}
+		avgCommitMillis = average(avgCommitMillis, millis);
+		final int previous = batchSize;
+		if (avgCommitMillis > commitLatencyCeilingMillis) {
+			batchSize = clamp(previous / 2);
+		} else if (avgFileMillis > 0) {
+			final int target = clamp((int) (targetBatchMillis / avgFileMillis));
+			if (target > previous) {
+				batchSize = clamp(Math.min(target, previous + Math.max(1, previous / 4)));
+			} else {
+				batchSize = target;
+			}
+		}
+		if (batchSize != previous) {
+			Logger.debug(this.getClass(), "Batch size changed from " + previous + " to " + batchSize
+					+ " (avg file = " + Math.round(avgFileMillis) + " ms, avg commit = " + Math.round(avgCommitMillis)
+					+ " ms)");
+		}
+	}
+
+	/**
+	 * Records a transaction that failed because of a lock timeout or a
+	 * deadlock, and halves the batch size, as smaller transactions hold fewer
+	 * locks.
+	 */
+	public synchronized void contentionDetected() {
+		final int previous = batchSize;
+		batchSize = clamp(previous / 2);
+		if (batchSize != previous) {
+			Logger.debug(this.getClass(), "Batch size changed from " + previous + " to " + batchSize
+					+ " after a lock contention error");
+		}
+	}
+
+	/**
+	 * Records that the heap is running out, and halves the batch size. The
+	 * batch size cannot grow back until {@link #memoryRelieved()} is called.
+	 */
+	public synchronized void memoryPressure() {
+		final int previous = batchSize;
+		memoryCeiling = Math.max(minBatchSize, previous / 2);
+		batchSize = clamp(previous);
+		if (batchSize != previous) {
+			Logger.debug(this.getClass(), "Batch size changed from " + previous + " to " + batchSize
+					+ " because of heap pressure");
+		}
+	}
+
+	/**
+	 * Records that the heap is no longer under pressure, so the batch size can
+	 * grow up to the configured maximum again.
+	 */
+	public synchronized void memoryRelieved() {
+		memoryCeiling = maxBatchSize;
+	}
+
+	/**
+	 * Returns the average time it takes to migrate a single file.
+	 *
+	 * @return The average time per file, in milliseconds, or -1 if unknown.
+	 */
+	public synchronized double getAverageFileMillis() {
+		return avgFileMillis;
+	}
+
+	/**
+	 * Returns the average commit latency.
+	 *
+	 * @return The average commit time, in milliseconds, or -1 if unknown.
+	 */
+	public synchronized double getAverageCommitMillis() {
+		return avgCommitMillis;
+	}
+
+	/**
+	 * Adds a sample to an exponentially weighted moving average.
+	 *
+	 * @param current
+	 *            - The current average, or a negative value if there is none.
+	 * @param sample
+	 *            - The new sample.
+	 * @return The new average.
+	 */
+	private double average(final double current, final long sample) {
+		return current < 0 ? sample : current + SMOOTHING * (sample - current);
+	}
+
+	/**
+	 * Keeps a batch size between the configured minimum and maximum, the
+	 * latter lowered while the heap is under pressure.
+	 *
+	 * @param size
+	 *            - The proposed batch size.
+	 * @return The allowed batch size.
+	 */
+	private int clamp(final int size) {
+		return Math.max(minBatchSize, Math.min(memoryCeiling, size));
+	}
+
+}
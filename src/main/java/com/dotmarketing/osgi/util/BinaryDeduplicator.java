@@ -0,0 +1,168 @@
+package com.dotmarketing.osgi.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dotmarketing.util.Logger;
+
+/**
+ * Stores identical binaries only once in the asset tree of the new Files as
+ * Content. The same logo or PDF is often uploaded to many Sites and folders as
+ * separate legacy files, and checking in every copy duplicates its bytes.
+ * <p>
+ * The source binary of every migrated legacy file is fingerprinted by the
+ * {@link BinaryHasher}. Once the batch of a file is committed,
+ * the first stored binary with a given hash and size is kept in an index for
+ * the rest of the run, and every later duplicate in the asset tree is
+ * replaced by a hard link to it. A binary is only replaced after its size has
+ * been checked, and through a temporary link that is atomically moved over
+ * it, so it is never missing. If it cannot be linked, e.g., because it lives
+ * on another file system, the copy is simply kept.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class BinaryDeduplicator implements MigrationWorkerPool.BatchListener {
+
+	private final BinaryHasher hasher;
+	private final ConcurrentHashMap<String, Path> storedBinaries = new ConcurrentHashMap<String, Path>();
+	private final Map<String, Candidate> candidates = new ConcurrentHashMap<String, Candidate>();
+	private final AtomicLong duplicates = new AtomicLong();
+	private final AtomicLong bytesSaved = new AtomicLong();
+	private final AtomicLong linkFailures = new AtomicLong();
+
+	/**
+	 * A binary stored by a check-in whose transaction is not committed yet.
+	 */
+	private static final class Candidate {
+
+		private final String fingerprint;
+		private final long size;
+		private final Path stored;
+
+		private Candidate(final String fingerprint, final long size, final Path stored) {
+			this.fingerprint = fingerprint;
+			this.size = size;
+			this.stored = stored;
+		}
+
+	}
+
+	/**
+	 * Creates the deduplicator.
+	 *
+	 * @param hasher
+	 *            - Fingerprints the source binaries.
+	 */
+	public BinaryDeduplicator(final BinaryHasher hasher) {
+		this.hasher = hasher;
+	}
+
+	/**
+	 * Returns the fingerprint of a source binary: its hash and its size.
+	 *
+	 * @param binary
+	 *            - The source binary.
+	 * @return The fingerprint, or {@code null} if the binary does not exist.
+	 * @throws IOException
+	 *             The binary could not be read.
+	 */
+	public String fingerprint(final Path binary) throws IOException {
+		return hasher.fingerprint(binary);
+	}
+
+	/**
+	 * Records the binary stored by the check-in of a legacy file. It is
+	 * deduplicated once the batch of the file is committed.
+	 *
+	 * @param taskInode
+	 *            - The Inode of the task whose transaction must be committed.
+	 * @param fingerprint
+	 *            - The fingerprint of the source binary.
+	 * @param stored
+	 *            - The binary in the asset tree of the new File as Content.
+	 */
+	public void stored(final String taskInode, final String fingerprint, final Path stored) {
+		if (null == fingerprint || null == stored) {
+			return;
+		}
+		candidates.put(taskInode, new Candidate(fingerprint, BinaryHasher.getSize(fingerprint), stored));
+	}
+
+	/**
+	 * Returns a one-line summary of the deduplication.
+	 *
+	 * @return The deduplication statistics.
+	 */
+	public String getSummary() {
+		return hasher.getSummary() + ", " + storedBinaries.size()
+				+ " unique, " + duplicates.get() + " duplicates linked, " + bytesSaved.get() / (1024 * 1024)
+				+ " MB saved, " + linkFailures.get() + " kept as copies";
+	}
+
+	@Override
+	public void beforeCommit(final List<MigrationWorkerPool.MigrationTask> batch) {
+		// Binaries are only linked once they are committed
+	}
+
+	@Override
+	public void afterCommit(final List<MigrationWorkerPool.MigrationTask> batch) {
+		for (MigrationWorkerPool.MigrationTask task : batch) {
+			final Candidate candidate = candidates.remove(task.getInode());
+			if (null == candidate) {
+				continue;
+			}
+			final Path canonical = storedBinaries.putIfAbsent(candidate.fingerprint, candidate.stored);
+			if (null != canonical) {
+				deduplicate(canonical, candidate);
+			}
+		}
+	}
+
+	@Override
+	public void afterRollback(final List<MigrationWorkerPool.MigrationTask> batch) {
+		for (MigrationWorkerPool.MigrationTask task : batch) {
+			candidates.remove(task.getInode());
+		}
+	}
+
+	/**
+	 * Replaces a stored binary with a hard link to an identical one.
+	 *
+	 * @param canonical
+	 *            - The binary kept for its fingerprint.
+	 * @param candidate
+	 *            - The duplicate.
+	 */
+	private void deduplicate(final Path canonical, final Candidate candidate) {
+		final Path duplicate = candidate.stored;
+		final Path link = duplicate.resolveSibling(duplicate.getFileName() + ".dedup");
+		try {
+			if (!Files.exists(canonical) || Files.size(duplicate) != candidate.size
+					|| Files.isSameFile(canonical, duplicate)) {
+				return;
+			}
+			Files.deleteIfExists(link);
+			Files.createLink(link, canonical);
+			Files.move(link, duplicate, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			duplicates.incrementAndGet();
+			bytesSaved.addAndGet(candidate.size);
+		} catch (IOException | UnsupportedOperationException e) {
+			linkFailures.incrementAndGet();
+			Logger.debug(this.getClass(), "Could not link '" + duplicate + "' to '" + canonical + "': " + e.getMessage());
+			try {
+				Files.deleteIfExists(link);
+			} catch (IOException ex) {
+				Logger.warn(this, "Could not delete temporary link '" + link + "': " + ex.getMessage());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,155 @@
+package com.dotmarketing.osgi.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Computes the fingerprint of a binary: its SHA-1 hash and its size. Large
+ * binaries are read via memory-mapped regions, so hashing them does not copy
+ * their bytes through the heap, and small ones through a buffer reused by
+ * every thread. Fingerprints are used by the {@link BinaryDeduplicator} to
+ * find identical binaries, and by the {@link VerificationManifest} and the
+ * {@link MigrationVerifier} to check that every binary was migrated intact.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class BinaryHasher {
+
+	private static final String ALGORITHM = "SHA-1";
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final long MAPPED_REGION_SIZE = 64L * 1024 * 1024;
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final long mmapMinBytes;
+	private final MigrationMetrics metrics;
+	private final AtomicLong hashedFiles = new AtomicLong();
+	private final AtomicLong hashedBytes = new AtomicLong();
+	private final AtomicLong hashNanos = new AtomicLong();
+	private final ThreadLocal<MessageDigest> digests = new ThreadLocal<MessageDigest>() {
+
+		@Override
+		protected MessageDigest initialValue() {
+			try {
+				return MessageDigest.getInstance(ALGORITHM);
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException(ALGORITHM + " is not available", e);
+			}
+		}
+
+	};
+	private final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>() {
+
+		@Override
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocate(BUFFER_SIZE);
+		}
+
+	};
+
+	/**
+	 * Creates the hasher.
+	 *
+	 * @param mmapMinBytes
+	 *            - Binaries of this size or larger are hashed via memory-mapped
+	 *            reads.
+	 * @param metrics
+	 *            - Records the hashing latency.
+	 */
+	public BinaryHasher(final long mmapMinBytes, final MigrationMetrics metrics) {
+		this.mmapMinBytes = mmapMinBytes;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Returns the fingerprint of a binary: its hash and its size.
+	 *
+	 * @param binary
+	 *            - The binary.
+	 * @return The fingerprint, or {@code null} if the binary does not exist.
+	 * @throws IOException
+	 *             The binary could not be read.
+	 */
+	public String fingerprint(final Path binary) throws IOException {
+		if (!Files.exists(binary)) {
+			return null;
+		}
+		final long start = System.nanoTime();
+		final MessageDigest digest = digests.get();
+		digest.reset();
+		long size = 0;
+		try (FileChannel channel = FileChannel.open(binary, StandardOpenOption.READ)) {
+			size = channel.size();
+			if (size >= mmapMinBytes) {
+				for (long position = 0; position < size; position += MAPPED_REGION_SIZE) {
+					digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+							Math.min(MAPPED_REGION_SIZE, size - position)));
+				}
+			} else {
+				final ByteBuffer buffer = buffers.get();
+				buffer.clear();
+				while (channel.read(buffer) > 0) {
+					buffer.flip();
+					digest.update(buffer);
+					buffer.clear();
+				}
+			}
+		}
+		final long elapsed = System.nanoTime() - start;
+		hashNanos.addAndGet(elapsed);
+		hashedBytes.addAndGet(size);
+		hashedFiles.incrementAndGet();
+		metrics.record(MigrationMetrics.Phase.HASH, start);
+		return toHex(digest.digest()) + ":" + size;
+	}
+
+	/**
+	 * Returns the size part of a fingerprint.
+	 *
+	 * @param fingerprint
+	 *            - The fingerprint.
+	 * @return The size of the binary.
+	 */
+	public static long getSize(final String fingerprint) {
+		return Long.parseLong(fingerprint.substring(fingerprint.lastIndexOf(':') + 1));
+	}
+
+	/**
+	 * Returns a one-line summary of the hashing.
+	 *
+	 * @return The hashing statistics.
+	 */
+	public String getSummary() {
+		final long nanos = hashNanos.get();
+		final double megabytesPerSecond = nanos > 0
+				? hashedBytes.get() / (1024.0 * 1024.0) / (nanos / (double) TimeUnit.SECONDS.toNanos(1)) : 0;
+		return hashedFiles.get() + " binaries hashed (" + hashedBytes.get() / (1024 * 1024) + " MB at "
+				+ String.format("%.1f", megabytesPerSecond) + " MB/s per thread)";
+	}
+
+	/**
+	 * Encodes a hash in hexadecimal.
+	 *
+	 * @param hash
+	 *            - The hash.
+	 * @return The hexadecimal hash.
+	 */
+	private static String toHex(final byte[] hash) {
+		final char[] hex = new char[hash.length * 2];
+		for (int i = 0; i < hash.length; i++) {
+			hex[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+			hex[i * 2 + 1] = HEX[hash[i] & 0xF];
+		}
+		return new String(hex);
+	}
+
+}
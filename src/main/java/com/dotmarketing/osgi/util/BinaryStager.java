@@ -0,0 +1,164 @@
+package com.dotmarketing.osgi.util;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dotmarketing.util.Logger;
+
+/**
+ * Places the binary of a legacy file in the temporary folder the new File as
+ * Content is checked in from, without copying its bytes whenever possible.
+ * The following strategies are tried in order:
+ * <ol>
+ * <li>{@link Strategy#HARD_LINK}: A hard link to the original binary. No data
+ * is copied and the original binary is left untouched.</li>
+ * <li>{@link Strategy#TRANSFER}: A copy via {@link FileChannel#transferTo},
+ * which lets the kernel move the data without going through the Java heap.
+ * This is only needed when the temporary folder is on a different file
+ * system.</li>
+ * </ol>
+ * The original binary is never moved: it must stay in place until the batch
+ * of its file is committed, as a rolled back or replayed file is migrated
+ * again from it.
+ * <p>
+ * The number of files and bytes staged with each strategy are counted.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class BinaryStager {
+
+	/**
+	 * The different ways a binary can be staged.
+	 */
+	public enum Strategy {
+		HARD_LINK, TRANSFER
+	}
+
+	private final Map<Strategy, AtomicLong> files = new EnumMap<Strategy, AtomicLong>(Strategy.class);
+	private final Map<Strategy, AtomicLong> bytes = new EnumMap<Strategy, AtomicLong>(Strategy.class);
+	private volatile boolean hardLinksSupported = Boolean.TRUE;
+
+	/**
+	 * Creates the stager.
+	 */
+	public BinaryStager() {
+		for (Strategy strategy : Strategy.values()) {
+			files.put(strategy, new AtomicLong());
+			bytes.put(strategy, new AtomicLong());
+		}
+	}
+
+	/**
+	 * Stages the source binary at the target location.
+	 *
+	 * @param source
+	 *            - The original binary.
+	 * @param target
+	 *            - The location of the staged binary. Its parent folders are
+	 *            created if needed, and any existing file is replaced.
+	 * @return The strategy that was used.
+	 * @throws IOException
+	 *             The binary could not be staged.
+	 */
+	public Strategy stage(final Path source, final Path target) throws IOException {
+		Files.createDirectories(target.getParent());
+		Files.deleteIfExists(target);
+		final long size = Files.size(source);
+		Strategy strategy = null;
+		if (hardLinksSupported) {
+			try {
+				Files.createLink(target, source);
+				strategy = Strategy.HARD_LINK;
+			} catch (UnsupportedOperationException e) {
+				hardLinksSupported = Boolean.FALSE;
+				Logger.info(this.getClass(), "Hard links are not supported. Binaries will be staged by copying them.");
+			} catch (IOException e) {
+				// Usually a cross-device link, or too many links to the same file
+				Logger.debug(this.getClass(), "Could not hard-link '" + source + "': " + e.getMessage());
+			}
+		}
+		if (null == strategy) {
+			transfer(source, target, size);
+			strategy = Strategy.TRANSFER;
+		}
+		files.get(strategy).incrementAndGet();
+		bytes.get(strategy).addAndGet(size);
+		return strategy;
+	}
+
+	/**
+	 * Returns the number of files staged with the specified strategy.
+	 *
+	 * @param strategy
+	 *            - The staging strategy.
+	 * @return The number of files.
+	 */
+	public long getFileCount(final Strategy strategy) {
+		return files.get(strategy).get();
+	}
+
+	/**
+	 * Returns the number of bytes staged with the specified strategy.
+	 *
+	 * @param strategy
+	 *            - The staging strategy.
+	 * @return The number of bytes.
+	 */
+	public long getByteCount(final Strategy strategy) {
+		return bytes.get(strategy).get();
+	}
+
+	/**
+	 * Returns a one-line summary of the files and bytes staged with each
+	 * strategy.
+	 *
+	 * @return The staging summary.
+	 */
+	public String getSummary() {
+		final StringBuilder summary = new StringBuilder();
+		for (Strategy strategy : Strategy.values()) {
+			if (summary.length() > 0) {
+				summary.append(", ");
+			}
+			summary.append(strategy).append(" = ").append(getFileCount(strategy)).append(" files / ")
+					.append(getByteCount(strategy)).append(" bytes");
+		}
+		return summary.toString();
+	}
+
+	/**
+	 * Copies the source binary to the target location via
+	 * {@link FileChannel#transferTo}.
+	 *
+	 * @param source
+	 *            - The original binary.
+	 * @param target
+	 *            - The location of the copy.
+	 * @param size
+	 *            - The size of the original binary.
+	 * @throws IOException
+	 *             An error occurred when copying the binary.
+	 */
+	private void transfer(final Path source, final Path target, final long size) throws IOException {
+		try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+			long position = 0;
+			while (position < size) {
+				final long transferred = in.transferTo(position, size - position, out);
+				if (transferred <= 0) {
+					break;
+				}
+				position += transferred;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,233 @@
+package com.dotmarketing.osgi.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dotcms.content.elasticsearch.business.ContentletIndexAPI;
+import com.dotcms.content.elasticsearch.util.ESClient;
+import com.dotmarketing.business.CacheLocator;
+import com.dotmarketing.db.HibernateUtil;
+import com.dotmarketing.exception.DotHibernateException;
+import com.dotmarketing.portlets.contentlet.business.ContentletAPI;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.util.Logger;
+
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+
+/**
+ * {@link MigrationIndexer} that sends the migrated Files as Content to
+ * Elasticsearch in bulk requests. A single background thread drains a bounded
+ * queue of Inodes, loads up to {@code bulkSize} contents at a time and indexes
+ * all of them with one bulk request. Errors are logged and counted, but never
+ * stop the migration, as the affected contents can always be reindexed later.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class BulkMigrationIndexer implements MigrationIndexer {
+
+	private static final long POLL_MILLIS = 500;
+
+	private final ContentletAPI contentletAPI;
+	private final ContentletIndexAPI indexAPI;
+	private final MigrationMetrics metrics;
+	private final BlockingQueue<String> queue;
+	private final int bulkSize;
+	private final AtomicLong indexed = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final Thread indexerThread;
+	private volatile boolean closing = Boolean.FALSE;
+
+	/**
+	 * Creates the indexer.
+	 *
+	 * @param contentletAPI
+	 *            - The Contentlet API, used to load the migrated contents.
+	 * @param indexAPI
+	 *            - The Contentlet Index API.
+	 * @param metrics
+	 *            - Records the latency and the errors of every bulk request.
+	 * @param bulkSize
+	 *            - The maximum number of contents per bulk request.
+	 * @param queueCapacity
+	 *            - The maximum number of Inodes waiting to be indexed.
+	 */
+	public BulkMigrationIndexer(final ContentletAPI contentletAPI, final ContentletIndexAPI indexAPI,
+			final MigrationMetrics metrics, final int bulkSize, final int queueCapacity) {
+		this.contentletAPI = contentletAPI;
+		this.indexAPI = indexAPI;
+		this.metrics = metrics;
+		this.bulkSize = bulkSize;
+		this.queue = new ArrayBlockingQueue<String>(queueCapacity);
+		this.indexerThread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				indexQueuedContents();
+			}
+
+		}, "LegacyFilesMigrator-indexer");
+		this.indexerThread.setDaemon(Boolean.TRUE);
+	}
+
+	/**
+	 * Returns the factory of the indexers of every migration run.
+	 *
+	 * @param contentletAPI
+	 *            - The Contentlet API, used to load the migrated contents.
+	 * @param indexAPI
+	 *            - The Contentlet Index API.
+	 * @return The indexer factory.
+	 */
+	public static MigrationIndexer.Factory newFactory(final ContentletAPI contentletAPI,
+			final ContentletIndexAPI indexAPI) {
+		return new MigrationIndexer.Factory() {
+
+			@Override
+			public MigrationIndexer newIndexer(final MigrationMetrics metrics, final int bulkSize,
+					final int queueCapacity) {
+				return new BulkMigrationIndexer(contentletAPI, indexAPI, metrics, bulkSize, queueCapacity);
+			}
+
+		};
+	}
+
+	@Override
+	public void start() {
+		indexerThread.start();
+	}
+
+	@Override
+	public void add(final List<String> inodes) throws InterruptedException {
+		for (String inode : inodes) {
+			queue.put(inode);
+		}
+	}
+
+	@Override
+	public void close() throws InterruptedException {
+		closing = Boolean.TRUE;
+		indexerThread.join();
+	}
+
+	@Override
+	public long getIndexedCount() {
+		return indexed.get();
+	}
+
+	@Override
+	public long getFailedCount() {
+		return failed.get();
+	}
+
+	/**
+	 * Main loop of the indexer thread. It keeps indexing until it has been
+	 * closed and the queue is empty.
+	 */
+	private void indexQueuedContents() {
+		try {
+			final List<String> inodes = new ArrayList<String>(bulkSize);
+			while (true) {
+				final String first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+				if (null == first) {
+					if (closing) {
+						break;
+					}
+					continue;
+				}
+				inodes.add(first);
+				queue.drainTo(inodes, bulkSize - 1);
+				indexBulk(inodes);
+				inodes.clear();
+			}
+		} catch (InterruptedException e) {
+			Logger.warn(this, "The migration indexer was interrupted. " + queue.size()
+					+ " contents were not indexed and must be reindexed.");
+			failed.addAndGet(queue.size());
+			Thread.currentThread().interrupt();
+		} finally {
+			try {
+				HibernateUtil.closeSession();
+			} catch (DotHibernateException e) {
+				Logger.error(this.getClass(), "An error occurred when closing the Hibernate session.", e);
+			}
+		}
+	}
+
+	/**
+	 * Indexes the specified contents with a single bulk request.
+	 *
+	 * @param inodes
+	 *            - The Inodes of the contents.
+	 */
+	private void indexBulk(final List<String> inodes) {
+		final long start = System.nanoTime();
+		try {
+			// Inodes of legacy files that were deleted instead of migrated are
+			// simply not found
+			final List<Contentlet> contents = contentletAPI.findContentlets(inodes);
+			if (!contents.isEmpty()) {
+				final BulkRequestBuilder bulk = new ESClient().getClient().prepareBulk();
+				indexAPI.indexContentList(contents, bulk, false);
+				int failures = 0;
+				if (bulk.numberOfActions() > 0) {
+					final BulkResponse response = bulk.execute().actionGet();
+					if (response.hasFailures()) {
+						failures = countFailedDocuments(response, contents.size());
+						Logger.warn(this, failures + " migrated contents could not be indexed: "
+								+ response.buildFailureMessage());
+					}
+				}
+				for (Contentlet content : contents) {
+					CacheLocator.getContentletCache().remove(content.getInode());
+				}
+				indexed.addAndGet(contents.size() - failures);
+				failed.addAndGet(failures);
+			}
+			metrics.record(MigrationMetrics.Phase.INDEX, start);
+		} catch (Exception e) {
+			Logger.warn(this, "An error occurred when indexing " + inodes.size() + " migrated contents: "
+					+ e.getMessage(), e);
+			metrics.error(e);
+			failed.addAndGet(inodes.size());
+		} finally {
+			try {
+				HibernateUtil.getSession().clear();
+			} catch (DotHibernateException e) {
+				Logger.warn(this, e.getMessage(), e);
+			}
+		}
+	}
+
+
+	/**
+	 * Counts the contents whose documents failed in a bulk request. A content
+	 * may have several documents, e.g., its working and live versions, so
+	 * failures are counted by document Id.
+	 *
+	 * @param response
+	 *            - The response of the bulk request.
+	 * @param contents
+	 *            - The number of contents in the request.
+	 * @return The number of contents that could not be indexed.
+	 */
+	private static int countFailedDocuments(final BulkResponse response, final int contents) {
+		final Set<String> failedIds = new HashSet<String>();
+		for (BulkItemResponse item : response.getItems()) {
+			if (item.isFailed()) {
+				failedIds.add(item.getId());
+			}
+		}
+		return Math.min(failedIds.size(), contents);
+	}
+
+}
@@ -0,0 +1,445 @@
+package com.dotmarketing.osgi.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.dotmarketing.util.Logger;
+
+/**
+ * Append-only local journal that records the progress of the Legacy Files
+ * migration, so that a migration interrupted by a JVM restart or a redeploy of
+ * the bundle resumes where it stopped instead of starting over.
+ * <p>
+ * Every line of the journal is a tab-separated record:
+ *
+ * <pre>
+ * RUN_START  timestamp
+ * SITE_START siteId  timestamp
+ * BATCH      siteId  lastCommittedInode  committedFiles  timestamp
+ * SITE_DONE  siteId  processedFiles  timestamp
+ * RUN_DONE   processedFiles  timestamp
+ * </pre>
+ *
+ * Records are written by a background thread that groups all the pending
+ * records in a single write followed by a single {@code fsync}, so that
+ * workers never wait for the disk. Losing the last unsynced records after a
+ * crash is harmless: migrated legacy files no longer exist, so resuming from
+ * an older checkpoint just finds nothing to do for those files.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class CheckpointJournal {
+
+	public static final String FILE_NAME = "checkpoint.journal";
+
+	public static final String RUN_START = "RUN_START";
+	public static final String SITE_START = "SITE_START";
+	public static final String BATCH = "BATCH";
+	public static final String SITE_DONE = "SITE_DONE";
+	public static final String RUN_DONE = "RUN_DONE";
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final String SEPARATOR = "\t";
+	private static final Record END_OF_JOURNAL = new Record("", null);
+
+	private final Path journalFile;
+	private final int syncIntervalMillis;
+	private final int maxRecordsPerSync;
+	private final Map<String, String> lastInodeBySite = new HashMap<String, String>();
+	private final Set<String> finishedSites = new HashSet<String>();
+	private final LinkedBlockingQueue<Record> queue = new LinkedBlockingQueue<Record>();
+	private FileChannel channel;
+	private Thread writer;
+	private volatile boolean closed = Boolean.FALSE;
+	private boolean resumed = Boolean.FALSE;
+
+	/**
+	 * A single journal line and, for synchronous appends, the latch released
+	 * once the line is durable.
+	 */
+	private static final class Record {
+
+		private final String line;
+		private final CountDownLatch synced;
+
+		private Record(final String line, final CountDownLatch synced) {
+			this.line = line;
+			this.synced = synced;
+		}
+
+	}
+
+	/**
+	 * Creates the journal for the specified file. The journal is not read nor
+	 * written until {@link #open()} is called.
+	 *
+	 * @param journalFile
+	 *            - The location of the journal file.
+	 * @param syncIntervalMillis
+	 *            - The maximum time records may wait before being synced to
+	 *            disk.
+	 * @param maxRecordsPerSync
+	 *            - The maximum number of records written per sync.
+	 */
+	public CheckpointJournal(final Path journalFile, final int syncIntervalMillis, final int maxRecordsPerSync) {
+		this.journalFile = journalFile;
+		this.syncIntervalMillis = syncIntervalMillis;
+		this.maxRecordsPerSync = maxRecordsPerSync;
+	}
+
+	/**
+	 * Opens the journal. If a previous, unfinished run is found, its progress
+	 * is loaded so it can be resumed. If the previous run finished, its journal
+	 * is archived and a new run is started.
+	 *
+	 * @throws IOException
+	 *             An error occurred when reading or creating the journal.
+	 */
+	public synchronized void open() throws IOException {
+		Files.createDirectories(journalFile.getParent());
+		if (Files.exists(journalFile)) {
+			final boolean finished = replay();
+			if (finished) {
+				final Path archive = journalFile
+						.resolveSibling(journalFile.getFileName() + "." + System.currentTimeMillis() + ".done");
+				Files.move(journalFile, archive, StandardCopyOption.REPLACE_EXISTING);
+				lastInodeBySite.clear();
+				finishedSites.clear();
+				Logger.info(this.getClass(), "Previous migration run was completed. Its journal was archived as '"
+						+ archive + "'");
+			} else {
+				resumed = Boolean.TRUE;
+			}
+		}
+		terminateTornRecord();
+		channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+		writer = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				writeRecords();
+			}
+
+		}, "LegacyFilesMigrator-journal");
+		writer.setDaemon(Boolean.TRUE);
+		writer.start();
+		if (!resumed) {
+			append(record(RUN_START), Boolean.TRUE);
+		}
+	}
+
+	/**
+	 * Indicates whether this journal continues an unfinished migration run.
+	 *
+	 * @return Returns {@code true} if a previous run is being resumed.
+	 */
+	public synchronized boolean isResumed() {
+		return resumed;
+	}
+
+	/**
+	 * Indicates whether all the legacy files of the specified Site have already
+	 * been processed.
+	 *
+	 * @param siteId
+	 *            - The Identifier of the Site.
+	 * @return Returns {@code true} if the Site is finished.
+	 */
+	public synchronized boolean isSiteFinished(final String siteId) {
+		return finishedSites.contains(siteId);
+	}
+
+	/**
+	 * Returns the Inode up to which the legacy files of the specified Site have
+	 * been committed.
+	 *
+	 * @param siteId
+	 *            - The Identifier of the Site.
+	 * @return The last committed Inode, or an empty String if none.
+	 */
+	public synchronized String getLastCommittedInode(final String siteId) {
+		final String inode = lastInodeBySite.get(siteId);
+		return null == inode ? "" : inode;
+	}
+
+	/**
+	 * Records that the migration of a Site has started.
+	 *
+	 * @param siteId
+	 *            - The Identifier of the Site.
+	 */
+	public void siteStarted(final String siteId) {
+		append(record(SITE_START, siteId), Boolean.FALSE);
+	}
+
+	/**
+	 * Records a committed batch of a Site. This method does not wait for the
+	 * record to be synced to disk.
+	 *
+	 * @param siteId
+	 *            - The Identifier of the Site.
+	 * @param lastInode
+	 *            - The Inode up to which all files of the Site are committed.
+	 * @param committedFiles
+	 *            - The number of files of the Site in the committed batch.
+	 */
+	public void batchCommitted(final String siteId, final String lastInode, final int committedFiles) {
+		synchronized (this) {
+			lastInodeBySite.put(siteId, lastInode);
+		}
+		append(record(BATCH, siteId, lastInode, String.valueOf(committedFiles)), Boolean.FALSE);
+	}
+
+	/**
+	 * Records that all the legacy files of a Site have been processed, and
+	 * waits for the record to be synced to disk.
+	 *
+	 * @param siteId
+	 *            - The Identifier of the Site.
+	 * @param processedFiles
+	 *            - The number of processed files of the Site.
+	 */
+	public void siteFinished(final String siteId, final long processedFiles) {
+		synchronized (this) {
+			finishedSites.add(siteId);
+		}
+		append(record(SITE_DONE, siteId, String.valueOf(processedFiles)), Boolean.TRUE);
+	}
+
+	/**
+	 * Records that the whole migration has finished, and waits for the record
+	 * to be synced to disk.
+	 *
+	 * @param processedFiles
+	 *            - The total number of processed files.
+	 */
+	public void runFinished(final long processedFiles) {
+		append(record(RUN_DONE, String.valueOf(processedFiles)), Boolean.TRUE);
+	}
+
+	/**
+	 * Writes all the pending records and closes the journal. Records queued
+	 * while the journal was closing are dropped, and the threads waiting for
+	 * them are released, so that no worker hangs on a closed journal.
+	 */
+	public void close() {
+		// The journal thread may have stopped already, but the channel is
+		// only closed here
+		if (null == writer || !channel.isOpen()) {
+			return;
+		}
+		closed = Boolean.TRUE;
+		// The writer is stopped with a marker instead of an interrupt, as an
+		// interrupt would close the channel in the middle of a write
+		queue.add(END_OF_JOURNAL);
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		releaseUnwritten();
+		try {
+			channel.close();
+		} catch (IOException e) {
+			Logger.warn(this, "An error occurred when closing the migration journal: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Returns the location of the journal file.
+	 *
+	 * @return The journal file.
+	 */
+	public Path getJournalFile() {
+		return journalFile;
+	}
+
+	/**
+	 * Reads an existing journal and loads the progress of every Site.
+	 *
+	 * @return Returns {@code true} if the journal belongs to a finished run.
+	 * @throws IOException
+	 *             An error occurred when reading the journal.
+	 */
+	private boolean replay() throws IOException {
+		boolean finished = Boolean.FALSE;
+		try (BufferedReader reader = Files.newBufferedReader(journalFile, UTF8)) {
+			String line;
+			while (null != (line = reader.readLine())) {
+				final String[] fields = line.split(SEPARATOR);
+				// A torn record from a crash is simply ignored
+				if (BATCH.equals(fields[0]) && fields.length >= 5) {
+					lastInodeBySite.put(fields[1], fields[2]);
+				} else if (SITE_DONE.equals(fields[0]) && fields.length >= 4) {
+					finishedSites.add(fields[1]);
+				} else if (RUN_DONE.equals(fields[0]) && fields.length >= 3) {
+					finished = Boolean.TRUE;
+				}
+			}
+		}
+		return finished;
+	}
+
+	/**
+	 * Makes sure the journal ends with a line break, so that a record torn by a
+	 * crash is not merged with the first record of this run.
+	 *
+	 * @throws IOException
+	 *             An error occurred when accessing the journal.
+	 */
+	private void terminateTornRecord() throws IOException {
+		if (!Files.exists(journalFile) || Files.size(journalFile) == 0) {
+			return;
+		}
+		try (RandomAccessFile file = new RandomAccessFile(journalFile.toFile(), "rw")) {
+			file.seek(file.length() - 1);
+			if (file.read() != '\n') {
+				file.write('\n');
+			}
+		}
+	}
+
+	/**
+	 * Builds a journal line from the specified fields, adding the current
+	 * timestamp at the end.
+	 *
+	 * @param fields
+	 *            - The fields of the record.
+	 * @return The journal line.
+	 */
+	private String record(final String... fields) {
+		final StringBuilder line = new StringBuilder();
+		for (String field : fields) {
+			line.append(field).append(SEPARATOR);
+		}
+		return line.append(System.currentTimeMillis()).append('\n').toString();
+	}
+
+	/**
+	 * Queues a record to be written by the journal thread.
+	 *
+	 * @param line
+	 *            - The journal line.
+	 * @param sync
+	 *            - If {@code true}, waits until the record is synced to disk.
+	 */
+	private void append(final String line, final boolean sync) {
+		if (closed) {
+			Logger.warn(this, "Migration journal is closed. Record was not written: " + line.trim());
+			return;
+		}
+		final CountDownLatch synced = sync ? new CountDownLatch(1) : null;
+		final Record record = new Record(line, synced);
+		queue.add(record);
+		if (closed && queue.remove(record)) {
+			// Queued after the journal thread stopped, so it is never written
+			Logger.warn(this, "Migration journal is closed. Record was not written: " + line.trim());
+			return;
+		}
+		if (sync) {
+			try {
+				synced.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Main loop of the journal thread: waits for records, writes all the
+	 * pending ones at once and syncs them to disk.
+	 */
+	private void writeRecords() {
+		final List<Record> pending = new ArrayList<Record>(maxRecordsPerSync);
+		boolean stop = Boolean.FALSE;
+		while (!stop) {
+			try {
+				final Record first = queue.poll(syncIntervalMillis, TimeUnit.MILLISECONDS);
+				if (null != first) {
+					pending.add(first);
+					queue.drainTo(pending, maxRecordsPerSync - 1);
+				}
+			} catch (InterruptedException e) {
+				Logger.warn(this, "Migration journal thread was interrupted. Pending records will be written now.");
+				queue.drainTo(pending);
+				stop = Boolean.TRUE;
+			}
+			stop |= pending.remove(END_OF_JOURNAL);
+			if (!pending.isEmpty()) {
+				write(pending);
+				pending.clear();
+			}
+		}
+		// Nothing is written from now on, even if the journal was not closed
+		closed = Boolean.TRUE;
+		releaseUnwritten();
+	}
+
+	/**
+	 * Drops the records left in the queue once the journal thread has
+	 * stopped, and releases the threads waiting for them.
+	 */
+	private void releaseUnwritten() {
+		final List<Record> unwritten = new ArrayList<Record>();
+		queue.drainTo(unwritten);
+		for (Record record : unwritten) {
+			if (END_OF_JOURNAL != record) {
+				Logger.warn(this, "Migration journal is closed. Record was not written: " + record.line.trim());
+			}
+			if (null != record.synced) {
+				record.synced.countDown();
+			}
+		}
+	}
+
+	/**
+	 * Writes a group of records with a single sync, and releases the threads
+	 * waiting for them.
+	 *
+	 * @param records
+	 *            - The records to write.
+	 */
+	private void write(final List<Record> records) {
+		final StringBuilder lines = new StringBuilder();
+		for (Record record : records) {
+			lines.append(record.line);
+		}
+		try {
+			final ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(UTF8));
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(false);
+		} catch (IOException e) {
+			Logger.error(this.getClass(), "An error occurred when writing to the migration journal: " + e.getMessage(),
+					e);
+		} finally {
+			for (Record record : records) {
+				if (null != record.synced) {
+					record.synced.countDown();
+				}
+			}
+		}
+	}
+
+}
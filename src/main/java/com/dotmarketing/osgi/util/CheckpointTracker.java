@@ -0,0 +1,210 @@
+package com.dotmarketing.osgi.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dotmarketing.util.Logger;
+
+/**
+ * Connects the {@link MigrationWorkerPool} with the {@link CheckpointJournal}:
+ * it follows every file handed to the workers and, every time a batch is
+ * committed, journals the Inode up to which each Site is safely committed.
+ * A Site with legacy files in the {@link DeadLetterFile} is never recorded as
+ * finished: the watermark stops before its first failed file, so the next run
+ * resumes the Site from there and retries them.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class CheckpointTracker implements MigrationWorkerPool.BatchListener {
+
+	private final CheckpointJournal journal;
+	private final DeadLetterFile deadLetters;
+	private final Map<String, CommitWatermark> watermarks = new ConcurrentHashMap<String, CommitWatermark>();
+	private final Map<String, AtomicLong> committedBySite = new ConcurrentHashMap<String, AtomicLong>();
+
+	/**
+	 * Creates a tracker that writes to the specified journal.
+	 *
+	 * @param journal
+	 *            - The open checkpoint journal.
+	 * @param deadLetters
+	 *            - The legacy files that could not be migrated during this
+	 *            run.
+	 */
+	public CheckpointTracker(final CheckpointJournal journal, final DeadLetterFile deadLetters) {
+		this.journal = journal;
+		this.deadLetters = deadLetters;
+	}
+
+	/**
+	 * Starts tracking a Site, and returns the Inode its migration must resume
+	 * from.
+	 *
+	 * @param siteId
+	 *            - The Identifier of the Site.
+	 * @return The last committed Inode of the Site, or an empty String if the
+	 *         Site has not been started before.
+	 */
+	public String startSite(final String siteId) {
+		final String startInode = journal.getLastCommittedInode(siteId);
+		watermarks.put(siteId, new CommitWatermark(startInode));
+		committedBySite.put(siteId, new AtomicLong());
+		journal.siteStarted(siteId);
+		return startInode;
+	}
+
+	/**
+	 * Starts tracking a range of the legacy files of a Site, e.g., a work unit
+	 * claimed from the {@link MigrationLeaseManager} or a chunk planned by the
+	 * {@link MigrationScheduler}. Its start comes from the lease table or the
+	 * plan instead of the journal.
+	 *
+	 * @param siteId
+	 *            - The Identifier of the Site, or the key of the range.
+	 * @param startInode
+	 *            - The Inode the range starts after.
+	 */
+	public void startRange(final String siteId, final String startInode) {
+		watermarks.put(siteId, new CommitWatermark(startInode));
+		committedBySite.put(siteId, new AtomicLong());
+		journal.siteStarted(siteId);
+	}
+
+	/**
+	 * Stops tracking a range of the legacy files of a Site. Unlike
+	 * {@link #finishSite(String)}, the Site is not recorded as finished.
+	 *
+	 * @param siteId
+	 *            - The Identifier of the Site.
+	 * @return The number of files of the range committed during this run.
+	 */
+	public long finishRange(final String siteId) {
+		watermarks.remove(siteId);
+		final AtomicLong committed = committedBySite.remove(siteId);
+		return null == committed ? 0 : committed.get();
+	}
+
+	/**
+	 * Returns the number of legacy files of a Site, or of a range, committed
+	 * so far during this run.
+	 *
+	 * @param siteId
+	 *            - The Identifier of the Site, or the key of the range.
+	 * @return The number of committed files, or 0 if it is not being tracked.
+	 */
+	public long getCommittedCount(final String siteId) {
+		final AtomicLong committed = committedBySite.get(siteId);
+		return null == committed ? 0 : committed.get();
+	}
+
+	/**
+	 * Records that a Site whose ranges were tracked separately has been
+	 * completed, once its last range is finished.
+	 *
+	 * @param siteId
+	 *            - The Identifier of the Site.
+	 * @param committed
+	 *            - The number of files of the Site committed during this run.
+	 */
+	public void finishSplitSite(final String siteId, final long committed) {
+		recordSiteFinished(siteId, committed);
+	}
+
+	/**
+	 * Returns the Inode up to which the legacy files of a Site are committed.
+	 *
+	 * @param siteId
+	 *            - The Identifier of the Site.
+	 * @return The last committed Inode, or {@code null} if the Site is not
+	 *         being tracked.
+	 */
+	public String getCommittedInode(final String siteId) {
+		final CommitWatermark watermark = watermarks.get(siteId);
+		return null == watermark ? null : watermark.get();
+	}
+
+	/**
+	 * Registers a legacy file that has been handed to a worker.
+	 *
+	 * @param siteId
+	 *            - The Identifier of the Site.
+	 * @param inode
+	 *            - The Inode of the legacy file.
+	 */
+	public void dispatched(final String siteId, final String inode) {
+		watermarks.get(siteId).dispatched(inode);
+	}
+
+	/**
+	 * Records that all the legacy files of a Site have been committed.
+	 *
+	 * @param siteId
+	 *            - The Identifier of the Site.
+	 * @return The number of files of the Site committed during this run.
+	 */
+	public long finishSite(final String siteId) {
+		final long committed = committedBySite.get(siteId).get();
+		recordSiteFinished(siteId, committed);
+		watermarks.remove(siteId);
+		committedBySite.remove(siteId);
+		return committed;
+	}
+
+	@Override
+	public void beforeCommit(final List<MigrationWorkerPool.MigrationTask> batch) {
+		// The watermark only moves once the batch is durable
+	}
+
+	@Override
+	public void afterCommit(final List<MigrationWorkerPool.MigrationTask> batch) {
+		final Map<String, List<String>> inodesBySite = new HashMap<String, List<String>>();
+		for (MigrationWorkerPool.MigrationTask task : batch) {
+			List<String> inodes = inodesBySite.get(task.getTrackingKey());
+			if (null == inodes) {
+				inodes = new ArrayList<String>();
+				inodesBySite.put(task.getTrackingKey(), inodes);
+			}
+			inodes.add(task.getInode());
+		}
+		for (Map.Entry<String, List<String>> entry : inodesBySite.entrySet()) {
+			final CommitWatermark watermark = watermarks.get(entry.getKey());
+			if (null == watermark) {
+				continue;
+			}
+			watermark.committed(entry.getValue());
+			committedBySite.get(entry.getKey()).addAndGet(entry.getValue().size());
+			journal.batchCommitted(entry.getKey(), watermark.get(), entry.getValue().size());
+		}
+	}
+
+	@Override
+	public void afterRollback(final List<MigrationWorkerPool.MigrationTask> batch) {
+		// Rolled back files stay in flight, so the watermark never passes them
+	}
+
+	/**
+	 * Records a Site as finished in the journal, unless some of its legacy
+	 * files could not be migrated.
+	 *
+	 * @param siteId
+	 *            - The Identifier of the Site.
+	 * @param committed
+	 *            - The number of files of the Site committed during this run.
+	 */
+	private void recordSiteFinished(final String siteId, final long committed) {
+		final long failed = deadLetters.getCount(siteId);
+		if (failed > 0) {
+			Logger.warn(this, "Site '" + siteId + "' has " + failed + " legacy files that could not be migrated (see '"
+					+ deadLetters.getFile() + "'). It is not marked as finished, so the next run retries them.");
+			return;
+		}
+		journal.siteFinished(siteId, committed);
+	}
+
+}
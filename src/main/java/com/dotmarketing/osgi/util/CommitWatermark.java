@@ -0,0 +1,77 @@
+package com.dotmarketing.osgi.util;
+
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * Keeps track of the last Inode of a Site up to which every legacy file has
+ * been committed. Legacy files are read in Inode order but committed by
+ * different workers, so batches may finish out of order. The watermark only
+ * moves forward when all the files before it have been committed, which makes
+ * it a safe point to resume the migration from.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class CommitWatermark {
+
+	private final TreeSet<String> inFlight = new TreeSet<String>();
+	private final TreeSet<String> committed = new TreeSet<String>();
+	private String watermark;
+
+	/**
+	 * Creates a watermark starting at the specified Inode.
+	 *
+	 * @param startInode
+	 *            - The Inode the migration of the Site resumes from, or an
+	 *            empty String.
+	 */
+	public CommitWatermark(final String startInode) {
+		this.watermark = startInode;
+	}
+
+	/**
+	 * Registers an Inode that has been handed to a worker and is not yet
+	 * committed.
+	 *
+	 * @param inode
+	 *            - The Inode of the legacy file.
+	 */
+	public synchronized void dispatched(final String inode) {
+		inFlight.add(inode);
+	}
+
+	/**
+	 * Registers a group of committed Inodes and moves the watermark forward as
+	 * far as possible.
+	 *
+	 * @param inodes
+	 *            - The committed Inodes.
+	 * @return Returns {@code true} if the watermark has moved.
+	 */
+	public synchronized boolean committed(final Collection<String> inodes) {
+		for (String inode : inodes) {
+			if (inFlight.remove(inode)) {
+				committed.add(inode);
+			}
+		}
+		boolean moved = Boolean.FALSE;
+		while (!committed.isEmpty() && (inFlight.isEmpty() || committed.first().compareTo(inFlight.first()) < 0)) {
+			watermark = committed.pollFirst();
+			moved = Boolean.TRUE;
+		}
+		return moved;
+	}
+
+	/**
+	 * Returns the last Inode up to which all the legacy files have been
+	 * committed.
+	 *
+	 * @return The current watermark.
+	 */
+	public synchronized String get() {
+		return watermark;
+	}
+
+}
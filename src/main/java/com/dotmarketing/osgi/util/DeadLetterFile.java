@@ -0,0 +1,183 @@
+package com.dotmarketing.osgi.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dotmarketing.util.Logger;
+
+/**
+ * Records the legacy files that could not be migrated, so the rest of the
+ * migration can go on without them. Every failure is appended as a JSON
+ * object on its own line, with the Site, the Inode, the number of attempts and
+ * the stack trace of the last error:
+ *
+ * <pre>
+ * {"time":"2026-10-17T10:15:00.000+0000","site":"48190c8c-...","inode":"2cb2a266-...","attempts":1,
+ *  "error":"com.dotmarketing.exception.DotDataException: ...","stackTrace":"..."}
+ * </pre>
+ *
+ * The file is created on the first failure and is appended to by later runs.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class DeadLetterFile {
+
+	public static final String FILE_NAME = "dead-letters.jsonl";
+
+	private final Path file;
+	private final AtomicLong count = new AtomicLong();
+	private final Map<String, AtomicLong> countBySite = new ConcurrentHashMap<String, AtomicLong>();
+	private BufferedWriter writer;
+
+	/**
+	 * Creates the dead-letter file.
+	 *
+	 * @param file
+	 *            - The location of the file.
+	 */
+	public DeadLetterFile(final Path file) {
+		this.file = file;
+	}
+
+	/**
+	 * Appends a legacy file that could not be migrated.
+	 *
+	 * @param siteId
+	 *            - The Identifier of the Site of the legacy file.
+	 * @param inode
+	 *            - The Inode of the legacy file.
+	 * @param attempts
+	 *            - The number of failed attempts.
+	 * @param error
+	 *            - The last error.
+	 */
+	public synchronized void write(final String siteId, final String inode, final int attempts,
+			final Throwable error) {
+		count.incrementAndGet();
+		AtomicLong siteCount = countBySite.get(siteId);
+		if (null == siteCount) {
+			siteCount = new AtomicLong();
+			countBySite.put(siteId, siteCount);
+		}
+		siteCount.incrementAndGet();
+		final StringWriter stackTrace = new StringWriter();
+		error.printStackTrace(new PrintWriter(stackTrace));
+		final StringBuilder line = new StringBuilder();
+		line.append("{\"time\":").append(quote(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").format(new Date())))
+				.append(",\"site\":").append(quote(siteId)).append(",\"inode\":").append(quote(inode))
+				.append(",\"attempts\":").append(attempts).append(",\"error\":").append(quote(error.toString()))
+				.append(",\"stackTrace\":").append(quote(stackTrace.toString())).append('}');
+		try {
+			if (null == writer) {
+				Files.createDirectories(file.getParent());
+				writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+						StandardOpenOption.APPEND);
+			}
+			writer.write(line.toString());
+			writer.newLine();
+			writer.flush();
+		} catch (IOException e) {
+			Logger.error(this.getClass(), "Could not write to dead-letter file '" + file + "'. Failed legacy file: "
+					+ line, e);
+		}
+	}
+
+	/**
+	 * Closes the file.
+	 */
+	public synchronized void close() {
+		if (null != writer) {
+			try {
+				writer.close();
+			} catch (IOException e) {
+				Logger.warn(this, "Could not close dead-letter file '" + file + "': " + e.getMessage());
+			}
+			writer = null;
+		}
+	}
+
+	/**
+	 * Returns the number of legacy files recorded during this run.
+	 *
+	 * @return The number of failed legacy files.
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * Returns the number of legacy files of a Site recorded during this run.
+	 *
+	 * @param siteId
+	 *            - The Identifier of the Site.
+	 * @return The number of failed legacy files of the Site.
+	 */
+	public long getCount(final String siteId) {
+		final AtomicLong siteCount = countBySite.get(siteId);
+		return null == siteCount ? 0 : siteCount.get();
+	}
+
+	/**
+	 * Returns the location of the file.
+	 *
+	 * @return The dead-letter file.
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * Quotes a value as a JSON string.
+	 *
+	 * @param value
+	 *            - The value.
+	 * @return The JSON string, or {@code null} for a {@code null} value.
+	 */
+	static String quote(final String value) {
+		if (null == value) {
+			return "null";
+		}
+		final StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				quoted.append("\\\"");
+				break;
+			case '\\':
+				quoted.append("\\\\");
+				break;
+			case '\n':
+				quoted.append("\\n");
+				break;
+			case '\r':
+				quoted.append("\\r");
+				break;
+			case '\t':
+				quoted.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					quoted.append(String.format("\\u%04x", (int) c));
+				} else {
+					quoted.append(c);
+				}
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+}
@@ -0,0 +1,159 @@
+package com.dotmarketing.osgi.util;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Defers the deletion of legacy binaries until the transaction that deletes
+ * their legacy files is committed. Migrating a legacy file only records which
+ * binaries must go, under the Inode of its {@link MigrationWorkerPool.MigrationTask};
+ * once the batch is committed, they are handed to a {@link FileSystemDeleter},
+ * which deletes them in parallel, off the critical path of the workers. If the
+ * batch is rolled back instead, its deletions are dropped, so the legacy
+ * binaries are still there for the next run.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class DeferredFileDeletion implements MigrationWorkerPool.BatchListener {
+
+	private final FileSystemDeleter fileSystemDeleter;
+	private final MigrationMetrics metrics;
+	private final Map<String, Deletions> pending = new ConcurrentHashMap<String, Deletions>();
+
+	/**
+	 * The binaries to delete once the transaction of a task is committed.
+	 */
+	private static final class Deletions {
+
+		private final List<Path> files = new ArrayList<Path>(1);
+		private final List<Path> families = new ArrayList<Path>();
+
+		private int size() {
+			return files.size() + families.size();
+		}
+
+	}
+
+	/**
+	 * Creates the deferred deletion.
+	 *
+	 * @param fileSystemDeleter
+	 *            - Deletes the binaries of committed batches.
+	 * @param metrics
+	 *            - Counts the deferred and dropped deletions.
+	 */
+	public DeferredFileDeletion(final FileSystemDeleter fileSystemDeleter, final MigrationMetrics metrics) {
+		this.fileSystemDeleter = fileSystemDeleter;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Schedules the deletion of a single binary, without its derived files.
+	 *
+	 * @param taskInode
+	 *            - The Inode of the task whose transaction must be committed.
+	 * @param file
+	 *            - The binary.
+	 */
+	public void deleteFile(final String taskInode, final Path file) {
+		deletionsOf(taskInode).files.add(file);
+		metrics.deletionsDeferred(1);
+	}
+
+	/**
+	 * Schedules the deletion of a legacy binary along with its derived files.
+	 *
+	 * @param taskInode
+	 *            - The Inode of the task whose transaction must be committed.
+	 * @param binary
+	 *            - The legacy binary.
+	 */
+	public void deleteFamily(final String taskInode, final Path binary) {
+		deletionsOf(taskInode).families.add(binary);
+		metrics.deletionsDeferred(1);
+	}
+
+	/**
+	 * Waits for all the released deletions to finish and stops the deleting
+	 * threads.
+	 *
+	 * @throws InterruptedException
+	 *             The current thread was interrupted while waiting.
+	 */
+	public void close() throws InterruptedException {
+		fileSystemDeleter.close();
+	}
+
+	/**
+	 * Returns a one-line summary of the deleted binaries.
+	 *
+	 * @return The deletion statistics.
+	 */
+	public String getSummary() {
+		return fileSystemDeleter.getSummary() + ", " + metrics.getDroppedDeletions()
+				+ " kept after a rollback";
+	}
+
+	@Override
+	public void beforeCommit(final List<MigrationWorkerPool.MigrationTask> batch) {
+		// Binaries are only deleted once the batch is committed
+	}
+
+	@Override
+	public void afterCommit(final List<MigrationWorkerPool.MigrationTask> batch) {
+		final List<Path> files = new ArrayList<Path>();
+		final List<Path> families = new ArrayList<Path>();
+		int released = 0;
+		for (MigrationWorkerPool.MigrationTask task : batch) {
+			final Deletions deletions = pending.remove(task.getInode());
+			if (null != deletions) {
+				files.addAll(deletions.files);
+				families.addAll(deletions.families);
+				released += deletions.size();
+			}
+		}
+		if (released > 0) {
+			metrics.deletionsReleased(released);
+			fileSystemDeleter.deleteFiles(files);
+			fileSystemDeleter.delete(families);
+		}
+	}
+
+	@Override
+	public void afterRollback(final List<MigrationWorkerPool.MigrationTask> batch) {
+		int dropped = 0;
+		for (MigrationWorkerPool.MigrationTask task : batch) {
+			final Deletions deletions = pending.remove(task.getInode());
+			if (null != deletions) {
+				dropped += deletions.size();
+			}
+		}
+		if (dropped > 0) {
+			metrics.deletionsDropped(dropped);
+		}
+	}
+
+	/**
+	 * Returns the deletions scheduled for a task. A task is only ever executed
+	 * by one worker, so its deletions are not shared between threads until
+	 * its batch is completed.
+	 *
+	 * @param taskInode
+	 *            - The Inode of the task.
+	 * @return The deletions of the task.
+	 */
+	private Deletions deletionsOf(final String taskInode) {
+		Deletions deletions = pending.get(taskInode);
+		if (null == deletions) {
+			deletions = new Deletions();
+			pending.put(taskInode, deletions);
+		}
+		return deletions;
+	}
+
+}
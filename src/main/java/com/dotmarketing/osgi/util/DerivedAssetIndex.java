@@ -0,0 +1,230 @@
+package com.dotmarketing.osgi.util;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import com.dotcms.repackage.org.apache.commons.io.FilenameUtils;
+import com.dotmarketing.util.Logger;
+
+/**
+ * Finds the files generated from a legacy binary, such as the ones created by
+ * the WYSIWYG, the Image Editor or the Image Servlet, without scanning their
+ * folder once per legacy file. For example, the legacy file
+ * {@code 2cb2a266-1784-4d12-8738-b59fd85910d1.jpg} can have the following
+ * derived files:
+ *
+ * <pre>
+ * 2cb2a266-1784-4d12-8738-b59fd85910d1_resized_250_w_974.jpg
+ * 2cb2a266-1784-4d12-8738-b59fd85910d1_thumb_100_100_255_255_255.jpg
+ * dotGenerated_2cb2a266-1784-4d12-8738-b59fd85910d1250_w_974.jpg
+ * </pre>
+ *
+ * Every folder is read once with a {@link DirectoryStream}, and its files are
+ * grouped by the base name (the Inode) they derive from. Looking up the files
+ * of a legacy binary is then a map lookup, and base names are matched exactly,
+ * so a legacy file whose Inode is contained in the name of an unrelated file
+ * no longer causes that file to be deleted. Indexes are kept in an LRU cache
+ * with a maximum number of folders and a maximum age, so that files generated
+ * while the migration runs are eventually seen as well.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class DerivedAssetIndex {
+
+	private static final String DOT_GENERATED_PREFIX = "dotGenerated_";
+	private static final String RESIZED_MARKER = "_resized_";
+	private static final String THUMBNAIL_MARKER = "_thumb_";
+	private static final int UUID_LENGTH = 36;
+	private static final Pattern UUID_PATTERN = Pattern
+			.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+
+	private final Map<Path, DirectoryIndex> directories;
+	private final long maxAgeMillis;
+
+	/**
+	 * Files of a single folder grouped by the base name they derive from.
+	 */
+	private static final class DirectoryIndex {
+
+		private final long createdOn = System.currentTimeMillis();
+		private final Map<String, List<String>> filesByBaseName = new HashMap<String, List<String>>();
+		/**
+		 * {@code dotGenerated_} files whose base name is not a UUID cannot be
+		 * split from the suffix appended to it, so they are matched by prefix.
+		 */
+		private final List<String> unresolved = new ArrayList<String>();
+
+	}
+
+	/**
+	 * Creates the index.
+	 *
+	 * @param maxDirectories
+	 *            - The maximum number of folder indexes kept in memory.
+	 * @param maxAgeMillis
+	 *            - The time after which a folder is read again.
+	 */
+	public DerivedAssetIndex(final int maxDirectories, final long maxAgeMillis) {
+		this.maxAgeMillis = maxAgeMillis;
+		this.directories = new LinkedHashMap<Path, DirectoryIndex>(16, 0.75f, Boolean.TRUE) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Path, DirectoryIndex> eldest) {
+				return size() > maxDirectories;
+			}
+
+		};
+	}
+
+	/**
+	 * Returns the specified legacy binary and all the files derived from it,
+	 * and removes them from the index as they are about to be deleted.
+	 *
+	 * @param original
+	 *            - The legacy binary.
+	 * @return The legacy binary and its derived files that exist in its folder.
+	 * @throws IOException
+	 *             An error occurred when reading the folder.
+	 */
+	public List<Path> removeFamily(final Path original) throws IOException {
+		final Path folder = original.getParent();
+		final String baseName = FilenameUtils.removeExtension(original.getFileName().toString());
+		final DirectoryIndex index = getIndex(folder);
+		final List<Path> family = new ArrayList<Path>();
+		synchronized (index) {
+			final List<String> names = index.filesByBaseName.remove(baseName);
+			if (null != names) {
+				for (String name : names) {
+					family.add(folder.resolve(name));
+				}
+			}
+			final Iterator<String> unresolved = index.unresolved.iterator();
+			while (unresolved.hasNext()) {
+				final String name = unresolved.next();
+				if (name.startsWith(DOT_GENERATED_PREFIX + baseName)) {
+					family.add(folder.resolve(name));
+					unresolved.remove();
+				}
+			}
+		}
+		return family;
+	}
+
+	/**
+	 * Returns the index of the specified folder, reading the folder if it is
+	 * not indexed yet or its index is too old.
+	 *
+	 * @param folder
+	 *            - The folder.
+	 * @return The index of the folder.
+	 * @throws IOException
+	 *             An error occurred when reading the folder.
+	 */
+	private DirectoryIndex getIndex(final Path folder) throws IOException {
+		synchronized (directories) {
+			final DirectoryIndex index = directories.get(folder);
+			if (null != index && System.currentTimeMillis() - index.createdOn < maxAgeMillis) {
+				return index;
+			}
+		}
+		// Large folders are read outside of the lock so other folders can be
+		// looked up in the meantime
+		final DirectoryIndex index = buildIndex(folder);
+		synchronized (directories) {
+			directories.put(folder, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Reads a folder once and groups its files by base name.
+	 *
+	 * @param folder
+	 *            - The folder.
+	 * @return The index of the folder.
+	 * @throws IOException
+	 *             An error occurred when reading the folder.
+	 */
+	private DirectoryIndex buildIndex(final Path folder) throws IOException {
+		final DirectoryIndex index = new DirectoryIndex();
+		if (!Files.isDirectory(folder)) {
+			return index;
+		}
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+			for (Path entry : stream) {
+				final String name = entry.getFileName().toString();
+				final String baseName = getBaseName(name);
+				if (null == baseName) {
+					index.unresolved.add(name);
+					continue;
+				}
+				List<String> names = index.filesByBaseName.get(baseName);
+				if (null == names) {
+					names = new ArrayList<String>(1);
+					index.filesByBaseName.put(baseName, names);
+				}
+				names.add(name);
+			}
+		}
+		Logger.debug(this.getClass(), "Indexed " + index.filesByBaseName.size() + " base names in '" + folder + "'");
+		return index;
+	}
+
+	/**
+	 * Returns the base name a file derives from.
+	 *
+	 * @param name
+	 *            - The name of the file.
+	 * @return The base name, or {@code null} for {@code dotGenerated_} files
+	 *         whose base name cannot be determined.
+	 */
+	private String getBaseName(final String name) {
+		if (name.startsWith(DOT_GENERATED_PREFIX)) {
+			final String generated = name.substring(DOT_GENERATED_PREFIX.length());
+			if (generated.length() >= UUID_LENGTH
+					&& UUID_PATTERN.matcher(generated.substring(0, UUID_LENGTH)).matches()) {
+				return generated.substring(0, UUID_LENGTH);
+			}
+			return null;
+		}
+		int marker = name.indexOf(RESIZED_MARKER);
+		if (marker < 0) {
+			marker = name.indexOf(THUMBNAIL_MARKER);
+		}
+		return marker > 0 ? name.substring(0, marker) : FilenameUtils.removeExtension(name);
+	}
+
+	/**
+	 * Returns the number of folders currently indexed.
+	 *
+	 * @return The number of indexed folders.
+	 */
+	public int size() {
+		synchronized (directories) {
+			return directories.size();
+		}
+	}
+
+	/**
+	 * Removes all the folder indexes.
+	 */
+	public void clear() {
+		synchronized (directories) {
+			directories.clear();
+		}
+	}
+
+}
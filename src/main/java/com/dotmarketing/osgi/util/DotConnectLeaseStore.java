@@ -0,0 +1,71 @@
+package com.dotmarketing.osgi.util;
+
+import java.util.List;
+import java.util.Map;
+
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.db.DbConnectionFactory;
+import com.dotmarketing.exception.DotDataException;
+
+/**
+ * Default {@link MigrationLeaseStore}, backed by the database connection of
+ * the current thread in dotCMS. The lease manager is only called outside of
+ * the transactions of the workers, so every statement is committed on its
+ * own and is visible to the other nodes right away.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class DotConnectLeaseStore implements MigrationLeaseStore {
+
+	/**
+	 * Runs a query with {@link DotConnect}, which reads the column names in
+	 * lower case on every database.
+	 */
+	@Override
+	public List<Map<String, Object>> query(final String sql, final int maxRows, final Object... params)
+			throws DotDataException {
+		final DotConnect dc = new DotConnect();
+		dc.setSQL(sql);
+		for (Object param : params) {
+			dc.addParam(param);
+		}
+		if (maxRows > 0) {
+			dc.setMaxRows(maxRows);
+		}
+		return dc.loadObjectResults();
+	}
+
+	/**
+	 * Executes a statement with {@link DotConnect} on the connection of the
+	 * current thread.
+	 */
+	@Override
+	public void update(final String sql, final Object... params) throws DotDataException {
+		final DotConnect dc = new DotConnect();
+		dc.setSQL(sql);
+		for (Object param : params) {
+			dc.addParam(param);
+		}
+		dc.loadResult();
+	}
+
+	/**
+	 * Returns whether dotCMS runs on Oracle.
+	 */
+	@Override
+	public boolean isOracle() {
+		return DbConnectionFactory.isOracle();
+	}
+
+	/**
+	 * Splits the legacy files of a Site with
+	 * {@link LegacyFileSource#findRangeBoundaries(String, int)}.
+	 */
+	@Override
+	public List<String> findRangeBoundaries(final String siteId, final int rangeSize) throws DotDataException {
+		return LegacyFileSource.findRangeBoundaries(siteId, rangeSize);
+	}
+
+}
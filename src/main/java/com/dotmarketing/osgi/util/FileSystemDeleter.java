@@ -0,0 +1,178 @@
+package com.dotmarketing.osgi.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dotmarketing.util.Logger;
+
+/**
+ * Deletes legacy binaries, along with their derived files, with a small pool
+ * of threads, so that file system latency does not hold up the database work
+ * of the migration. The derived files of every binary are found via the
+ * {@link DerivedAssetIndex}. When all the threads are busy and the queue is
+ * full, the calling thread deletes the file itself, which keeps the number of
+ * pending deletions bounded, and the number of threads caps the number of
+ * concurrent deletions on slow file systems, e.g., NFS.
+ * <p>
+ * Every queued and deleted binary is counted by the {@link MigrationMetrics}.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class FileSystemDeleter {
+
+	private final DerivedAssetIndex derivedAssetIndex;
+	private final MigrationMetrics metrics;
+	private final ThreadPoolExecutor executor;
+	private final AtomicLong deleted = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+
+	/**
+	 * Creates the deleter.
+	 *
+	 * @param derivedAssetIndex
+	 *            - Finds the derived files of every binary.
+	 * @param threads
+	 *            - The number of deleting threads.
+	 * @param queueCapacity
+	 *            - The maximum number of binaries waiting to be deleted.
+	 * @param metrics
+	 *            - Counts the queued and deleted binaries.
+	 */
+	public FileSystemDeleter(final DerivedAssetIndex derivedAssetIndex, final int threads,
+			final int queueCapacity, final MigrationMetrics metrics) {
+		this.derivedAssetIndex = derivedAssetIndex;
+		this.metrics = metrics;
+		this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+
+					private final AtomicInteger counter = new AtomicInteger();
+
+					@Override
+					public Thread newThread(final Runnable runnable) {
+						final Thread thread = new Thread(runnable,
+								"LegacyFilesMigrator-fs-deleter-" + counter.incrementAndGet());
+						thread.setDaemon(Boolean.TRUE);
+						return thread;
+					}
+
+				}, new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	/**
+	 * Queues the specified binaries, and their derived files, for deletion.
+	 *
+	 * @param binaries
+	 *            - The legacy binaries.
+	 */
+	public void delete(final List<Path> binaries) {
+		metrics.deletionsQueued(binaries.size());
+		for (final Path binary : binaries) {
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						deleteFamily(binary);
+					} finally {
+						metrics.deletionCompleted();
+					}
+				}
+
+			});
+		}
+	}
+
+	/**
+	 * Queues the specified files for deletion, without their derived files.
+	 *
+	 * @param files
+	 *            - The files.
+	 */
+	public void deleteFiles(final List<Path> files) {
+		metrics.deletionsQueued(files.size());
+		for (final Path file : files) {
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						deleteFile(file);
+					} finally {
+						metrics.deletionCompleted();
+					}
+				}
+
+			});
+		}
+	}
+
+	/**
+	 * Waits for all the queued deletions to finish and stops the threads.
+	 *
+	 * @throws InterruptedException
+	 *             The current thread was interrupted while waiting.
+	 */
+	public void close() throws InterruptedException {
+		executor.shutdown();
+		while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+			Logger.info(this.getClass(), "Waiting for " + executor.getQueue().size()
+					+ " legacy binaries to be deleted...");
+		}
+	}
+
+	/**
+	 * Returns a one-line summary of the deleted files.
+	 *
+	 * @return The deletion statistics.
+	 */
+	public String getSummary() {
+		return deleted.get() + " files deleted, " + failed.get() + " could not be deleted";
+	}
+
+	/**
+	 * Deletes a single file.
+	 *
+	 * @param file
+	 *            - The file.
+	 */
+	private void deleteFile(final Path file) {
+		try {
+			if (Files.deleteIfExists(file)) {
+				deleted.incrementAndGet();
+			}
+		} catch (IOException e) {
+			failed.incrementAndGet();
+			Logger.warn(this, "Could not delete legacy binary '" + file + "': " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Deletes a legacy binary and its derived files.
+	 *
+	 * @param binary
+	 *            - The legacy binary.
+	 */
+	private void deleteFamily(final Path binary) {
+		try {
+			for (Path path : derivedAssetIndex.removeFamily(binary)) {
+				if (!Files.isDirectory(path) && Files.deleteIfExists(path)) {
+					deleted.incrementAndGet();
+				}
+			}
+		} catch (IOException e) {
+			failed.incrementAndGet();
+			Logger.warn(this, "Could not delete legacy binary '" + binary + "': " + e.getMessage(), e);
+		}
+	}
+
+}
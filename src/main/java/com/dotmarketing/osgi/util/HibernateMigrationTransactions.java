@@ -0,0 +1,54 @@
+package com.dotmarketing.osgi.util;
+
+import com.dotmarketing.business.CacheLocator;
+import com.dotmarketing.db.HibernateUtil;
+import com.dotmarketing.exception.DotHibernateException;
+
+/**
+ * Default {@link MigrationTransactions}, backed by the thread-local Hibernate
+ * session of dotCMS and its Identifier cache.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class HibernateMigrationTransactions implements MigrationTransactions {
+
+	@Override
+	public void begin() throws DotHibernateException {
+		HibernateUtil.startTransaction();
+	}
+
+	@Override
+	public void commit() throws DotHibernateException {
+		HibernateUtil.commitTransaction();
+	}
+
+	@Override
+	public void rollback() throws DotHibernateException {
+		HibernateUtil.rollbackTransaction();
+	}
+
+	@Override
+	public void clearSession() throws DotHibernateException {
+		HibernateUtil.getSession().clear();
+	}
+
+	@Override
+	public void closeSession() throws DotHibernateException {
+		HibernateUtil.closeSession();
+	}
+
+	@Override
+	public void evictIdentifier(final String identifier) {
+		CacheLocator.getIdentifierCache().removeFromCacheByIdentifier(identifier);
+	}
+
+	@Override
+	public void evictContent(final String identifier, final String inode, final long languageId) {
+		CacheLocator.getContentletCache().remove(inode);
+		CacheLocator.getIdentifierCache().removeContentletVersionInfoToCache(identifier, languageId);
+		CacheLocator.getIdentifierCache().removeFromCacheByIdentifier(identifier);
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.dotmarketing.osgi.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.dotmarketing.util.Logger;
+
+/**
+ * Hands the Files as Content of every committed batch to the
+ * {@link MigrationIndexer}. The Inodes to index are the ones that were
+ * actually checked in for every legacy file, which are not always the Inode
+ * of the legacy file itself: a legacy file whose live version differs from
+ * its working version is checked in under the Inode of the live version.
+ * Legacy files that are deleted instead of migrated record nothing, so there
+ * is nothing to index for them.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class IndexingBatchListener implements MigrationWorkerPool.BatchListener {
+
+	private final MigrationIndexer indexer;
+	private final Map<String, List<String>> pending = new ConcurrentHashMap<String, List<String>>();
+
+	/**
+	 * Creates the listener.
+	 *
+	 * @param indexer
+	 *            - The indexer of the migration run.
+	 */
+	public IndexingBatchListener(final MigrationIndexer indexer) {
+		this.indexer = indexer;
+	}
+
+	/**
+	 * Records a content checked in for a legacy file. It is indexed once the
+	 * batch of the legacy file is committed.
+	 *
+	 * @param legacyInode
+	 *            - The Inode of the legacy file, as followed by its task.
+	 * @param contentInode
+	 *            - The Inode of the checked in File as Content.
+	 */
+	public void checkedIn(final String legacyInode, final String contentInode) {
+		List<String> inodes = pending.get(legacyInode);
+		if (null == inodes) {
+			inodes = new ArrayList<String>(2);
+			pending.put(legacyInode, inodes);
+		}
+		if (!inodes.contains(contentInode)) {
+			inodes.add(contentInode);
+		}
+	}
+
+	@Override
+	public void beforeCommit(final List<MigrationWorkerPool.MigrationTask> batch) {
+		// Contents can only be indexed once they are committed
+	}
+
+	@Override
+	public void afterCommit(final List<MigrationWorkerPool.MigrationTask> batch) {
+		final List<String> inodes = new ArrayList<String>(batch.size());
+		for (MigrationWorkerPool.MigrationTask task : batch) {
+			final List<String> checkedIn = pending.remove(task.getInode());
+			if (null != checkedIn) {
+				inodes.addAll(checkedIn);
+			}
+		}
+		if (inodes.isEmpty()) {
+			return;
+		}
+		try {
+			// Blocks the worker while the indexer is behind
+			indexer.add(inodes);
+		} catch (InterruptedException e) {
+			Logger.warn(this, "Interrupted while queueing migrated contents for indexing.", e);
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void afterRollback(final List<MigrationWorkerPool.MigrationTask> batch) {
+		// Nothing was migrated. A replayed file records its contents again
+		for (MigrationWorkerPool.MigrationTask task : batch) {
+			pending.remove(task.getInode());
+		}
+	}
+
+}
@@ -0,0 +1,115 @@
+package com.dotmarketing.osgi.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.exception.DotDataException;
+
+/**
+ * Reads the results of a SQL query in fixed-size pages using keyset pagination:
+ * every page is selected with {@code key > lastKeyOfPreviousPage ORDER BY key},
+ * so the cost of reading a page does not depend on how many pages have been
+ * read before, and only one page is kept in memory at any given time.
+ * <p>
+ * The base query must select the key column and end with its {@code WHERE}
+ * clause, as this class appends the keyset condition and the {@code ORDER BY}
+ * clause to it. The condition is left out until a start key is known, as
+ * Oracle treats an empty String as {@code NULL} and no key is greater than
+ * {@code NULL}.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class KeysetPager {
+
+	private final String firstQuery;
+	private final String query;
+	private final String keyLabel;
+	private final List<Object> params;
+	private final int pageSize;
+	private String lastKey;
+	private boolean exhausted = Boolean.FALSE;
+
+	/**
+	 * Creates a pager for the specified query.
+	 *
+	 * @param baseQuery
+	 *            - The {@code SELECT ... WHERE ...} query, without ordering.
+	 * @param keyColumn
+	 *            - The column or expression used as the pagination key, e.g.,
+	 *            {@code fa.inode}.
+	 * @param keyLabel
+	 *            - The name of the key in the returned rows, e.g.,
+	 *            {@code inode}.
+	 * @param params
+	 *            - The parameters of the base query, in order.
+	 * @param pageSize
+	 *            - The maximum number of rows per page.
+	 * @param startAfter
+	 *            - Only rows whose key is greater than this value will be
+	 *            returned. Use an empty String to start from the beginning.
+	 */
+	public KeysetPager(final String baseQuery, final String keyColumn, final String keyLabel,
+			final List<Object> params, final int pageSize, final String startAfter) {
+		this.firstQuery = baseQuery + " ORDER BY " + keyColumn;
+		this.query = baseQuery + " AND " + keyColumn + " > ? ORDER BY " + keyColumn;
+		this.keyLabel = keyLabel;
+		this.params = null == params ? Collections.<Object>emptyList() : new ArrayList<Object>(params);
+		this.pageSize = pageSize;
+		this.lastKey = null == startAfter ? "" : startAfter;
+	}
+
+	/**
+	 * Returns the next page of results.
+	 *
+	 * @return The rows of the next page, or an empty list if there are no more
+	 *         results.
+	 * @throws DotDataException
+	 *             An error occurred when reading the results.
+	 */
+	public List<Map<String, Object>> nextPage() throws DotDataException {
+		if (exhausted) {
+			return Collections.emptyList();
+		}
+		final DotConnect dc = new DotConnect();
+		dc.setSQL(lastKey.isEmpty() ? firstQuery : query);
+		for (Object param : params) {
+			dc.addParam(param);
+		}
+		if (!lastKey.isEmpty()) {
+			dc.addParam(lastKey);
+		}
+		dc.setMaxRows(pageSize);
+		final List<Map<String, Object>> rows = dc.loadObjectResults();
+		if (rows.size() < pageSize) {
+			exhausted = Boolean.TRUE;
+		}
+		if (!rows.isEmpty()) {
+			lastKey = rows.get(rows.size() - 1).get(keyLabel).toString();
+		}
+		return rows;
+	}
+
+	/**
+	 * Returns the key of the last row read so far.
+	 *
+	 * @return The last key, or an empty String if no rows have been read.
+	 */
+	public String getLastKey() {
+		return lastKey;
+	}
+
+	/**
+	 * Indicates whether all the results have been read.
+	 *
+	 * @return Returns {@code true} if there are no more pages.
+	 */
+	public boolean isExhausted() {
+		return exhausted;
+	}
+
+}
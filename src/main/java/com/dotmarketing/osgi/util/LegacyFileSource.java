@@ -0,0 +1,210 @@
+package com.dotmarketing.osgi.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.dotmarketing.db.HibernateUtil;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.portlets.files.model.File;
+
+/**
+ * Streams the working versions of the legacy files of a Site, ordered by Inode,
+ * in pages of a fixed size. Unlike {@code FileAPI.getAllHostFiles()}, which
+ * loads every legacy file of a Site before returning, this source only keeps
+ * one page in memory, so heap usage stays flat no matter how big the Site is.
+ * <p>
+ * The Inodes of every page are read via keyset-paginated SQL, and the legacy
+ * file objects of the page are then loaded with a single Hibernate query.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class LegacyFileSource {
+
+	private static final String FILES_QUERY = "SELECT fa.inode, i.id AS identifier, i.host_inode, i.parent_path "
+			+ "FROM file_asset fa "
+			+ "INNER JOIN fileasset_version_info fvi ON fvi.working_inode = fa.inode "
+			+ "INNER JOIN identifier i ON i.id = fvi.identifier "
+			+ "WHERE i.host_inode = ?";
+	private static final String INODES_QUERY = "SELECT fa.inode "
+			+ "FROM file_asset fa "
+			+ "INNER JOIN fileasset_version_info fvi ON fvi.working_inode = fa.inode "
+			+ "INNER JOIN identifier i ON i.id = fvi.identifier "
+			+ "WHERE i.host_inode = ?";
+
+	private final KeysetPager pager;
+
+	/**
+	 * A legacy file read from the source, along with the location data that
+	 * was selected with it.
+	 */
+	public static final class Entry {
+
+		private final File file;
+		private final String identifier;
+		private final String hostId;
+		private final String parentPath;
+
+		private Entry(final File file, final String identifier, final String hostId, final String parentPath) {
+			this.file = file;
+			this.identifier = identifier;
+			this.hostId = hostId;
+			this.parentPath = parentPath;
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		public String getIdentifier() {
+			return identifier;
+		}
+
+		public String getHostId() {
+			return hostId;
+		}
+
+		public String getParentPath() {
+			return parentPath;
+		}
+
+	}
+
+	/**
+	 * Creates a source for the legacy files of the specified Site.
+	 *
+	 * @param siteId
+	 *            - The Identifier of the Site.
+	 * @param pageSize
+	 *            - The number of legacy files per page.
+	 * @param startAfterInode
+	 *            - Only files whose Inode is greater than this one will be
+	 *            returned. Use an empty String to read all the files.
+	 */
+	public LegacyFileSource(final String siteId, final int pageSize, final String startAfterInode) {
+		this(siteId, pageSize, startAfterInode, "");
+	}
+
+	/**
+	 * Creates a source for a range of the legacy files of the specified Site.
+	 *
+	 * @param siteId
+	 *            - The Identifier of the Site.
+	 * @param pageSize
+	 *            - The number of legacy files per page.
+	 * @param startAfterInode
+	 *            - Only files whose Inode is greater than this one will be
+	 *            returned. Use an empty String to read from the first file.
+	 * @param endInode
+	 *            - Only files whose Inode is lower than or equal to this one
+	 *            will be returned. Use an empty String to read up to the last
+	 *            file.
+	 */
+	public LegacyFileSource(final String siteId, final int pageSize, final String startAfterInode,
+			final String endInode) {
+		this.pager = null == endInode || endInode.isEmpty()
+				? new KeysetPager(FILES_QUERY, "fa.inode", "inode", Arrays.<Object>asList(siteId), pageSize,
+						startAfterInode)
+				: new KeysetPager(FILES_QUERY + " AND fa.inode <= ?", "fa.inode", "inode",
+						Arrays.<Object>asList(siteId, endInode), pageSize, startAfterInode);
+	}
+
+	/**
+	 * Splits the legacy files of a Site into ranges of the same size, by
+	 * reading only their Inodes, in pages of the range size.
+	 *
+	 * @param siteId
+	 *            - The Identifier of the Site.
+	 * @param rangeSize
+	 *            - The number of legacy files per range.
+	 * @return The last Inode of every range but the last one, in order.
+	 * @throws DotDataException
+	 *             An error occurred when reading the Inodes.
+	 */
+	public static List<String> findRangeBoundaries(final String siteId, final int rangeSize)
+			throws DotDataException {
+		final KeysetPager pager = new KeysetPager(INODES_QUERY, "fa.inode", "inode", Arrays.<Object>asList(siteId),
+				rangeSize, "");
+		final List<String> boundaries = new ArrayList<String>();
+		String lastInode = null;
+		while (!pager.nextPage().isEmpty()) {
+			// The previous range only ends there if some files come after it,
+			// so an exact multiple of the range size adds no empty range
+			if (null != lastInode) {
+				boundaries.add(lastInode);
+			}
+			lastInode = pager.getLastKey();
+		}
+		return boundaries;
+	}
+
+	/**
+	 * Returns the next page of legacy files, in Inode order.
+	 *
+	 * @return The next page, or an empty list if all the files have been read.
+	 * @throws DotDataException
+	 *             An error occurred when reading the legacy files.
+	 */
+	public List<Entry> nextPage() throws DotDataException {
+		final List<Map<String, Object>> rows = pager.nextPage();
+		if (rows.isEmpty()) {
+			return Collections.emptyList();
+		}
+		final Map<String, File> filesByInode = loadFiles(rows);
+		final List<Entry> page = new ArrayList<Entry>(rows.size());
+		for (Map<String, Object> row : rows) {
+			final File file = filesByInode.get(row.get("inode").toString());
+			// The file might have been deleted after its Inode was read
+			if (null != file) {
+				page.add(new Entry(file, row.get("identifier").toString(), row.get("host_inode").toString(),
+						null == row.get("parent_path") ? null : row.get("parent_path").toString()));
+			}
+		}
+		return page;
+	}
+
+	/**
+	 * Returns the Inode of the last legacy file read so far.
+	 *
+	 * @return The last Inode, or an empty String if nothing has been read.
+	 */
+	public String getLastInode() {
+		return pager.getLastKey();
+	}
+
+	/**
+	 * Loads the legacy file objects of a page with a single query per
+	 * {@code IN}-list chunk. The objects
+	 * are evicted from the Hibernate session of the current thread afterwards,
+	 * so that the session does not grow with every page.
+	 *
+	 * @param rows
+	 *            - The rows of the page.
+	 * @return The legacy files of the page, mapped by Inode.
+	 * @throws DotDataException
+	 *             An error occurred when loading the legacy files.
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<String, File> loadFiles(final List<Map<String, Object>> rows) throws DotDataException {
+		final Map<String, File> filesByInode = new HashMap<String, File>(rows.size() * 2);
+		for (List<Map<String, Object>> chunk : SqlHelper.chunks(rows)) {
+			final HibernateUtil dh = new HibernateUtil(File.class);
+			dh.setQuery("from " + File.class.getName() + " file where file.inode in ("
+					+ SqlHelper.placeholders(chunk.size()) + ")");
+			for (Map<String, Object> row : chunk) {
+				dh.setParam(row.get("inode").toString());
+			}
+			for (File file : (List<File>) dh.list()) {
+				filesByInode.put(file.getInode(), file);
+			}
+		}
+		HibernateUtil.getSession().clear();
+		return filesByInode;
+	}
+
+}
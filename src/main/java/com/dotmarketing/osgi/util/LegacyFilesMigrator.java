@@ -1,24 +1,33 @@
 package com.dotmarketing.osgi.util;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import com.dotcms.repackage.org.apache.commons.io.FilenameUtils;
 import com.dotmarketing.beans.Host;
 import com.dotmarketing.beans.Identifier;
 import com.dotmarketing.beans.VersionInfo;
 import com.dotmarketing.business.APILocator;
 import com.dotmarketing.business.CacheLocator;
-import com.dotmarketing.business.DotStateException;
 import com.dotmarketing.business.IdentifierAPI;
 import com.dotmarketing.business.PermissionAPI;
 import com.dotmarketing.business.UserAPI;
 import com.dotmarketing.business.Versionable;
 import com.dotmarketing.business.VersionableAPI;
 import com.dotmarketing.common.db.DotConnect;
-import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.exception.DotHibernateException;
 import com.dotmarketing.exception.DotSecurityException;
@@ -29,12 +38,12 @@ import com.dotmarketing.portlets.contentlet.business.HostAPI;
 import com.dotmarketing.portlets.contentlet.model.Contentlet;
 import com.dotmarketing.portlets.files.business.FileAPI;
 import com.dotmarketing.portlets.files.model.File;
+import com.dotmarketing.portlets.folders.business.FolderAPI;
 import com.dotmarketing.portlets.languagesmanager.business.LanguageAPI;
 import com.dotmarketing.portlets.structure.factories.StructureFactory;
 import com.dotmarketing.portlets.structure.model.Structure;
 import com.dotmarketing.util.Logger;
 import com.liferay.portal.model.User;
-import com.liferay.util.FileUtil;
 
 /**
  * This service is in charge of retrieving all the legacy files from all the
@@ -50,33 +59,101 @@ import com.liferay.util.FileUtil;
  */
 public class LegacyFilesMigrator {
 
-	private static ContentletAPI contAPI;
-	private static LanguageAPI langAPI;
-	private static HostAPI siteAPI;
-	private static FileAPI fileAPI;
-	private static IdentifierAPI identifierAPI;
-	private static PermissionAPI permissionAPI;
-	private static UserAPI userAPI;
-	private static VersionableAPI versionableAPI;
-	private static User sysUser;
-	private static Structure fileAssetContentType;
+	private final ContentletAPI contAPI;
+	private final LanguageAPI langAPI;
+	private final HostAPI siteAPI;
+	private final FileAPI fileAPI;
+	private final IdentifierAPI identifierAPI;
+	private final UserAPI userAPI;
+	private final VersionableAPI versionableAPI;
+	private final FolderAPI folderAPI;
+	private User sysUser;
+	private Structure fileAssetContentType;
+	private long defaultLanguageId;
 
 	private static final boolean RESPECT_FRONTEND_ROLES = Boolean.TRUE;
 	private static final boolean RESPECT_ANON_PERMISSIONS = Boolean.TRUE;
+	private static final long DELETED = -1;
+
+	private final MigrationConfig config;
+	private final BinaryStager binaryStager;
+	private final DerivedAssetIndex derivedAssetIndex;
+	private final MigrationMetrics metrics;
+	private final MigrationControl control;
+	private final PermissionCarryOver permissionCarryOver;
+	private final MigrationTransactions transactions;
+	private final MigrationIndexer.Factory indexerFactory;
+	private MigrationLookupCache lookups;
+	private DeferredFileDeletion deferredDeletion;
+	private BinaryHasher hasher;
+	private BinaryDeduplicator deduplicator;
+	private VerificationManifest manifest;
+	private MemoryGovernor memoryGovernor;
+	private IndexingBatchListener indexingListener;
+	private Map<String, Long> uncommittedOutcomes;
 
 	/**
 	 * Default class constructor. Initializes the different APIs required to
 	 * perform the Legacy Files transformation.
 	 */
 	public LegacyFilesMigrator() {
-		contAPI = APILocator.getContentletAPI();
-		langAPI = APILocator.getLanguageAPI();
-		siteAPI = APILocator.getHostAPI();
-		fileAPI = APILocator.getFileAPI();
-		identifierAPI = APILocator.getIdentifierAPI();
-		permissionAPI = APILocator.getPermissionAPI();
-		userAPI = APILocator.getUserAPI();
-		versionableAPI = APILocator.getVersionableAPI();
+		this(new MigrationConfig(), new HibernateMigrationTransactions(),
+				BulkMigrationIndexer.newFactory(APILocator.getContentletAPI(), APILocator.getContentletIndexAPI()),
+				APILocator.getContentletAPI(),
+				APILocator.getLanguageAPI(), APILocator.getHostAPI(), APILocator.getFileAPI(),
+				APILocator.getIdentifierAPI(), APILocator.getUserAPI(), APILocator.getVersionableAPI(),
+				APILocator.getFolderAPI());
+	}
+
+	/**
+	 * Creates the migrator with the specified configuration and APIs, e.g., to
+	 * measure it with in-memory stand-ins of the dotCMS APIs.
+	 * 
+	 * @param config
+	 *            - The migration configuration.
+	 * @param transactions
+	 *            - The transaction and session operations.
+	 * @param indexerFactory
+	 *            - Creates the indexer of every run with deferred indexing.
+	 * @param contentletAPI
+	 *            - The Contentlet API.
+	 * @param languageAPI
+	 *            - The Language API.
+	 * @param hostAPI
+	 *            - The Site API.
+	 * @param legacyFileAPI
+	 *            - The legacy File API.
+	 * @param identifierApi
+	 *            - The Identifier API.
+	 * @param userApi
+	 *            - The User API.
+	 * @param versionableApi
+	 *            - The Versionable API.
+	 * @param folderApi
+	 *            - The Folder API.
+	 */
+	public LegacyFilesMigrator(final MigrationConfig config, final MigrationTransactions transactions,
+			final MigrationIndexer.Factory indexerFactory, final ContentletAPI contentletAPI,
+			final LanguageAPI languageAPI, final HostAPI hostAPI,
+			final FileAPI legacyFileAPI, final IdentifierAPI identifierApi, final UserAPI userApi,
+			final VersionableAPI versionableApi, final FolderAPI folderApi) {
+		contAPI = contentletAPI;
+		langAPI = languageAPI;
+		siteAPI = hostAPI;
+		fileAPI = legacyFileAPI;
+		identifierAPI = identifierApi;
+		userAPI = userApi;
+		versionableAPI = versionableApi;
+		folderAPI = folderApi;
+		this.config = config;
+		this.transactions = transactions;
+		this.indexerFactory = indexerFactory;
+		binaryStager = new BinaryStager();
+		derivedAssetIndex = new DerivedAssetIndex(config.getDerivedIndexMaxDirectories(),
+				config.getDerivedIndexMaxAgeMillis());
+		metrics = new MigrationMetrics();
+		control = new MigrationControl(config.getFilesPerSecondLimit(), config.getMegabytesPerSecondLimit());
+		permissionCarryOver = new PermissionCarryOver(config.getPermissionCacheFlushThreshold());
 	}
 
 	/**
@@ -84,107 +161,1024 @@ public class LegacyFilesMigrator {
 	 * process. All files form all sites will be converted to Files as Content.
 	 * However, for files located under the System Host, they will be deleted as
 	 * no File as Content can be created inside System Host.
+	 * <p>
+	 * Files are migrated concurrently by a {@link MigrationWorkerPool}, where
+	 * every worker uses its own Hibernate session and transaction. The size of
+	 * the pool is set via {@link MigrationConfig}, and the size of the
+	 * transactions is adjusted on the fly by a {@link BatchSizeController}.
+	 * <p>
+	 * The progress of every Site is recorded in a {@link CheckpointJournal}. If
+	 * a previous run did not finish, the Sites it completed are skipped and the
+	 * others resume after their last committed Inode.
+	 * <p>
+	 * Per-phase latencies, throughput and errors are collected by the
+	 * {@link MigrationMetrics}, whose summary is logged periodically instead
+	 * of a line per file.
+	 * <p>
+	 * Before dispatching every file, the {@link MigrationControl} is checked,
+	 * so the migration can be paused, throttled or cancelled. A cancelled
+	 * migration commits the files being migrated and does not mark the run as
+	 * finished, so the next run resumes from the journal.
+	 * <p>
+	 * When {@link MigrationConfig#isDeferredIndexing()} is set, new contents
+	 * are not published one by one. They are marked as live and a
+	 * {@link MigrationIndexer} indexes them in bulk after every commit.
+	 * <p>
+	 * Legacy binaries are not deleted while their transaction is open. The
+	 * {@link DeferredFileDeletion} deletes them in parallel once their batch
+	 * is committed, and keeps them if it is rolled back.
+	 * <p>
+	 * When {@link MigrationConfig#isDeduplication()} is set, the
+	 * {@link BinaryDeduplicator} replaces every binary checked in more than
+	 * once with a hard link to its first copy.
+	 * <p>
+	 * When {@link MigrationConfig#isVerifyManifest()} is set, the expected
+	 * state of every committed file is recorded in the
+	 * {@link VerificationManifest}, to be checked later by the
+	 * {@link MigrationVerifier}.
+	 * <p>
+	 * When {@link MigrationConfig#isMemoryGoverned()} is set, the
+	 * {@link MemoryGovernor} evicts the migrated contents from the caches and
+	 * clears the session of the worker after every batch, and shrinks the
+	 * batches while the heap is over its high watermark.
+	 * <p>
+	 * Files reach the workers through a {@link MigrationPipeline}: the next
+	 * pages of a Site are prefetched while the current one is dispatched, and
+	 * binaries are staged by their own threads while their files wait in the
+	 * queues of the workers.
+	 * <p>
+	 * When {@link MigrationConfig#isCluster()} is set, the Sites are split into
+	 * work units that every node of the cluster claims from the
+	 * {@link MigrationLeaseManager}, and the run is only marked as finished by
+	 * the node that sees every unit completed. Otherwise, when
+	 * {@link MigrationConfig#isSchedule()} is set, the
+	 * {@link MigrationScheduler} orders the Sites largest first, splits the
+	 * biggest ones into chunks, and deals them to several dispatch runners.
 	 */
 	public void migrateLegacyFiles() {
 		Logger.info(this.getClass(),
 				" \n \n" + "=======================================================================\n"
 						+ "===== Initializing conversion of Legacy Files to Files as Content =====\n"
 						+ "=======================================================================\n");
+		MigrationWorkerPool workerPool = null;
+		CheckpointJournal journal = null;
+		MigrationIndexer indexer = null;
+		DeadLetterFile deadLetters = null;
+		MigrationPipeline pipeline = null;
 		try {
 			recreateMissingParentPath();
-			sysUser = userAPI.getSystemUser();
-			fileAssetContentType = getFileAssetContentType("FileAsset", sysUser);
-			int migrated = 0;
+			final User systemUser = userAPI.getSystemUser();
+			initialize(systemUser, getFileAssetContentType("FileAsset", systemUser));
 			final List<Host> siteList = siteAPI.findAll(sysUser, false);
 			if (null != siteList && !siteList.isEmpty()) {
-				for (Host site : siteList) {
+				journal = new CheckpointJournal(
+						Paths.get(config.getJournalDirectory(), CheckpointJournal.FILE_NAME),
+						config.getJournalSyncIntervalMillis(), config.getJournalMaxRecordsPerSync());
+				journal.open();
+				if (journal.isResumed()) {
+					Logger.info(this.getClass(), " \n-> Resuming the previous migration run from journal '"
+							+ journal.getJournalFile() + "'\n");
+				}
+				deadLetters = new DeadLetterFile(Paths.get(config.getJournalDirectory(), DeadLetterFile.FILE_NAME));
+				final CheckpointTracker checkpoints = new CheckpointTracker(journal, deadLetters);
+				final BatchSizeController batchSizeController = new BatchSizeController(config.getBatchSize(),
+						config.getMinBatchSize(), config.getMaxBatchSize(), config.getBatchTargetMillis(),
+						config.getCommitLatencyCeilingMillis());
+				workerPool = new MigrationWorkerPool(config.getWorkerThreads(), config.getQueueCapacity(),
+						batchSizeController, metrics, control, transactions, newFailurePolicy(deadLetters));
+				workerPool.addBatchListener(checkpoints);
+				workerPool.addBatchListener(permissionCarryOver);
+				workerPool.addBatchListener(startDeferredDeletion());
+				uncommittedOutcomes = new ConcurrentHashMap<String, Long>();
+				workerPool.addBatchListener(newMetricsListener());
+				if (config.isMemoryGoverned()) {
+					memoryGovernor = new MemoryGovernor(transactions, batchSizeController, metrics,
+							config.getMemoryHighWatermark(), config.getMemoryLowWatermark());
+					workerPool.addBatchListener(memoryGovernor);
+				}
+				if (config.isDeduplication() || config.isVerifyManifest()) {
+					hasher = new BinaryHasher(config.getDedupMmapMinBytes(), metrics);
+				}
+				if (config.isDeduplication()) {
+					deduplicator = new BinaryDeduplicator(hasher);
+					workerPool.addBatchListener(deduplicator);
+				}
+				if (config.isVerifyManifest()) {
+					manifest = new VerificationManifest(
+							Paths.get(config.getJournalDirectory(), VerificationManifest.FILE_NAME));
+					workerPool.addBatchListener(manifest);
+				}
+				if (config.isDeferredIndexing()) {
+					indexer = indexerFactory.newIndexer(metrics, config.getIndexBulkSize(),
+							config.getIndexQueueCapacity());
+					indexer.start();
+					indexingListener = new IndexingBatchListener(indexer);
+					workerPool.addBatchListener(indexingListener);
+				}
+				// The metrics are exposed via JMX for the life of the service,
+				// so a restarted run starts them over
+				metrics.reset();
+				metrics.markStarted();
+				metrics.startReporter(config.getMetricsReportIntervalSeconds());
+				pipeline = new MigrationPipeline(config.getPrefetchThreads(), config.getPrefetchPages(),
+						config.getStagingThreads(), config.getStagingQueueCapacity(), metrics, transactions);
+				workerPool.start();
+				final boolean finished;
+				if (config.isCluster()) {
+					finished = migrateWorkUnits(siteList, workerPool, pipeline, checkpoints);
+				} else if (config.isSchedule()) {
+					migrateScheduled(siteList, journal, workerPool, pipeline, checkpoints);
+					finished = Boolean.TRUE;
+				} else {
+					migrateSites(siteList, journal, workerPool, pipeline, checkpoints);
+					finished = Boolean.TRUE;
+				}
+				workerPool.shutdown();
+				pipeline.close();
+				pipeline = null;
+				if (null != indexer) {
+					indexer.close();
+					Logger.info(this.getClass(), "Indexed contents: " + indexer.getIndexedCount() + " ("
+							+ indexer.getFailedCount() + " must be reindexed)");
+					indexer = null;
+				}
+				finishDeferredDeletion();
+				metrics.stopReporter();
+				Logger.info(this.getClass(), "Staged binaries: " + binaryStager.getSummary());
+				Logger.info(this.getClass(), "Lookups: " + lookups.getSummary());
+				Logger.info(this.getClass(), "Permissions: " + permissionCarryOver.getSummary());
+				if (null != deduplicator) {
+					Logger.info(this.getClass(), "Deduplication: " + deduplicator.getSummary());
+				}
+				if (null != memoryGovernor) {
+					Logger.info(this.getClass(), "Memory: " + memoryGovernor.getSummary());
+				}
+				if (null != manifest) {
+					Logger.info(this.getClass(), "Verification manifest: " + manifest.getCount()
+							+ " files recorded in '" + manifest.getFile() + "'");
+				}
+				Logger.info(this.getClass(), "Failures: " + workerPool.getRetriedCount() + " retries, "
+						+ workerPool.getDeadLetterCount() + " legacy files could not be migrated"
+						+ (workerPool.getDeadLetterCount() > 0 ? " (see '" + deadLetters.getFile() + "')" : ""));
+				if (control.isCancelled()) {
+					Logger.info(this.getClass(),
+							" \n" + "\n-> Total processed files = " + workerPool.getProcessedCount() + "\n \n"
+									+ "The migration was cancelled. It will resume from its journal the next time it is started.\n"
+									+ " \n");
+				} else if (!finished) {
 					Logger.info(this.getClass(),
-							" \n**********************************************************************\n"
-									+ "-> Migrating files for Site '" + site.getHostname() + "'");
-					boolean skipMigration = Boolean.FALSE;
-					if (Host.SYSTEM_HOST.equalsIgnoreCase(site.getIdentifier())) {
-						Logger.info(this.getClass(),
-								" \nNOTE: The new Files as Contents CANNOT LIVE UNDER SYSTEM_HOST. Therefore, these legacy files will be permanently deleted.");
-						skipMigration = Boolean.TRUE;
+							" \n" + "\n-> Total processed files = " + workerPool.getProcessedCount() + "\n \n"
+									+ "No more legacy files are available to this node. Other nodes are still migrating theirs.\n"
+									+ " \n");
+				} else if (workerPool.getDeadLetterCount() > 0) {
+					// The run is not finished, so the next one retries the failed files
+					Logger.warn(this.getClass(),
+							" \n" + "\n-> Total processed files = " + workerPool.getProcessedCount() + "\n \n"
+									+ workerPool.getDeadLetterCount() + " legacy files could not be migrated. They are"
+									+ " listed in '" + deadLetters.getFile() + "'.\n"
+									+ "Fix their errors and start the migration again to retry them. Do NOT undeploy"
+									+ " the Legacy File Migrator plugin yet.\n"
+									+ " \n");
+				} else {
+					journal.runFinished(workerPool.getProcessedCount());
+					Logger.info(this.getClass(),
+							" \n" + "\n-> Total processed files = " + workerPool.getProcessedCount() + "\n \n"
+									+ "All legacy files have been processed. Please undeploy the Legacy File Migrator plugin now.\n"
+									+ " \n");
+				}
+				workerPool = null;
+			} else {
+				Logger.error(this.getClass(),
+						" \nAn error occurred: No Sites could be retrieved. Have you tried re-indexing your contents first?\n");
+			}
+		} catch (Exception ex) {
+			Logger.error(this.getClass(), "An error occurred when migrating Files to Contents: " + ex.getMessage(), ex);
+		} finally {
+			metrics.stopReporter();
+			if (null != workerPool) {
+				try {
+					workerPool.shutdown();
+				} catch (InterruptedException e) {
+					Logger.warn(this, "Interrupted while stopping the migration workers.", e);
+					Thread.currentThread().interrupt();
+				}
+			}
+			if (null != pipeline) {
+				try {
+					pipeline.close();
+				} catch (InterruptedException e) {
+					Logger.warn(this, "Interrupted while stopping the migration pipeline.", e);
+					Thread.currentThread().interrupt();
+				}
+			}
+			if (null != indexer) {
+				try {
+					indexer.close();
+				} catch (InterruptedException e) {
+					Logger.warn(this, "Interrupted while stopping the migration indexer.", e);
+					Thread.currentThread().interrupt();
+				}
+			}
+			indexingListener = null;
+			try {
+				finishDeferredDeletion();
+			} catch (InterruptedException e) {
+				Logger.warn(this, "Interrupted while deleting the legacy binaries.", e);
+				Thread.currentThread().interrupt();
+			}
+			if (null != journal) {
+				journal.close();
+			}
+			if (null != deadLetters) {
+				deadLetters.close();
+			}
+			if (null != manifest) {
+				manifest.close();
+			}
+			try {
+				transactions.closeSession();
+			} catch (DotHibernateException e) {
+				Logger.error(this.getClass(), "An error occurred when closing the Hibernate session.", e);
+			}
+		}
+	}
+
+	/**
+	 * Migrates the legacy files of every Site, one Site after the other,
+	 * skipping the Sites completed by a previous run.
+	 *
+	 * @param siteList
+	 *            - The Sites whose legacy files are migrated.
+	 * @param journal
+	 *            - The progress of the previous runs.
+	 * @param workerPool
+	 *            - Migrates the dispatched files.
+	 * @param pipeline
+	 *            - Prefetches the pages and stages the binaries of the Sites.
+	 * @param checkpoints
+	 *            - Follows the committed files of every Site.
+	 * @throws DotDataException
+	 *             An error occurred when reading the legacy files.
+	 * @throws InterruptedException
+	 *             The current thread was interrupted while waiting.
+	 */
+	private void migrateSites(final List<Host> siteList, final CheckpointJournal journal,
+			final MigrationWorkerPool workerPool, final MigrationPipeline pipeline,
+			final CheckpointTracker checkpoints) throws DotDataException, InterruptedException {
+		for (Host site : siteList) {
+			if (control.isCancelled()) {
+				break;
+			}
+			if (journal.isSiteFinished(site.getIdentifier())) {
+				Logger.info(this.getClass(), " \n-> Skipping Site '" + site.getHostname()
+						+ "': it was completed by a previous run.");
+				continue;
+			}
+			Logger.info(this.getClass(),
+					" \n**********************************************************************\n"
+							+ "-> Migrating files for Site '" + site.getHostname() + "'");
+			boolean skipMigration = Boolean.FALSE;
+			if (Host.SYSTEM_HOST.equalsIgnoreCase(site.getIdentifier())) {
+				Logger.info(this.getClass(),
+						" \nNOTE: The new Files as Contents CANNOT LIVE UNDER SYSTEM_HOST. Therefore, these legacy files will be permanently deleted.");
+				skipMigration = Boolean.TRUE;
+			}
+			Logger.info(this.getClass(), " \n");
+			final String startInode = checkpoints.startSite(site.getIdentifier());
+			if (skipMigration && config.isSystemHostBulkPurge()) {
+				purgeSystemHost();
+				if (control.isCancelled()) {
+					break;
+				}
+				checkpoints.finishSite(site.getIdentifier());
+				continue;
+			}
+			if (!startInode.isEmpty()) {
+				Logger.info(this.getClass(), "Resuming after Inode '" + startInode + "'");
+			}
+			dispatchFiles(site, site.getIdentifier(), skipMigration,
+					new LegacyFileSource(site.getIdentifier(), config.getPageSize(), startInode), workerPool,
+					pipeline, checkpoints, null);
+			lookups.clearPrefetched();
+			permissionCarryOver.clear();
+			if (control.isCancelled()) {
+				break;
+			}
+			checkpoints.finishSite(site.getIdentifier());
+			Logger.info(this.getClass(),
+					" \n \nAll Legacy files under site '" + site.getHostname() + "' have been processed.\n"
+							+ "**********************************************************************\n");
+		}
+	}
+
+	/**
+	 * Migrates the work units this node claims from the
+	 * {@link MigrationLeaseManager}, one at a time, until every unit of the
+	 * cluster is completed or the migration is cancelled. A unit whose lease is
+	 * lost, or that is interrupted by a cancellation, is released so that any
+	 * node resumes it after its last committed Inode.
+	 *
+	 * @param siteList
+	 *            - The Sites whose legacy files are migrated.
+	 * @param workerPool
+	 *            - Migrates the dispatched files.
+	 * @param pipeline
+	 *            - Prefetches the pages and stages the binaries of the units.
+	 * @param checkpoints
+	 *            - Follows the committed files of every unit.
+	 * @return Returns {@code true} if every unit of the cluster is completed.
+	 * @throws DotDataException
+	 *             An error occurred when reading the legacy files or the work
+	 *             units.
+	 * @throws InterruptedException
+	 *             The current thread was interrupted while waiting.
+	 */
+	private boolean migrateWorkUnits(final List<Host> siteList, final MigrationWorkerPool workerPool,
+			final MigrationPipeline pipeline, final CheckpointTracker checkpoints)
+			throws DotDataException, InterruptedException {
+		final String nodeId = config.getClusterNodeId().isEmpty() ? APILocator.getServerAPI().readServerId()
+				: config.getClusterNodeId();
+		final MigrationLeaseManager leases = new MigrationLeaseManager(nodeId, config.getClusterLeaseMillis(),
+				config.getClusterHeartbeatMillis(), new DotConnectLeaseStore(), transactions);
+		leases.start();
+		try {
+			leases.plan(siteList, config.getClusterUnitSize(), control);
+			final Map<String, Host> sites = new HashMap<String, Host>();
+			for (Host site : siteList) {
+				sites.put(site.getIdentifier(), site);
+			}
+			while (!control.isCancelled()) {
+				final MigrationLeaseManager.Lease lease = leases.claim();
+				if (null == lease) {
+					if (leases.isFinished()) {
+						return Boolean.TRUE;
 					}
-					Logger.info(this.getClass(), " \n");
-					final boolean isLiveInode = Boolean.TRUE;
-					final List<File> filesPerSite = fileAPI.getAllHostFiles(site, !isLiveInode, sysUser,
-							!RESPECT_FRONTEND_ROLES);
-					int counter = 1;
-					for (File legacyFile : filesPerSite) {
-						if (migrated == 0) {
-							HibernateUtil.startTransaction();
-						}
-						Logger.info(this.getClass(), counter + ". Processing file: " + legacyFile.getURI());
-						counter++;
-						if (skipMigration) {
-							deleteLegacyFile(legacyFile);
-							migrated++;
-						} else {
-							if (migrateLegacyFile(legacyFile)) {
-								migrated++;
-							}
-						}
-						if (migrated == filesPerSite.size() || (migrated > 0 && migrated % 100 == 0)) {
-							HibernateUtil.commitTransaction();
-						}
+					// The remaining units are leased to other nodes, which may die
+					Thread.sleep(config.getClusterHeartbeatMillis());
+					continue;
+				}
+				final MigrationLeaseManager.WorkUnit unit = lease.getUnit();
+				final Host site = sites.get(unit.getSiteId());
+				if (null == site) {
+					Logger.warn(this.getClass(), "Site of work unit '" + unit.getUnitId() + "' no longer exists.");
+					leases.complete(lease, 0);
+					continue;
+				}
+				Logger.info(this.getClass(),
+						" \n**********************************************************************\n"
+								+ "-> Migrating work unit '" + unit.getUnitId() + "' of Site '" + site.getHostname()
+								+ "' on node '" + nodeId + "'");
+				if (!unit.getResumeInode().isEmpty()) {
+					Logger.info(this.getClass(), "Resuming after Inode '" + unit.getResumeInode() + "'");
+				}
+				final boolean skipMigration = Host.SYSTEM_HOST.equalsIgnoreCase(site.getIdentifier());
+				checkpoints.startRange(site.getIdentifier(), unit.getResumeInode());
+				lease.track(checkpoints);
+				if (skipMigration && config.isSystemHostBulkPurge()) {
+					purgeSystemHost();
+				} else {
+					dispatchFiles(site, site.getIdentifier(), skipMigration,
+							new LegacyFileSource(site.getIdentifier(), config.getPageSize(), unit.getResumeInode(),
+									unit.getEndInode()),
+							workerPool, pipeline, checkpoints, lease);
+					lookups.clearPrefetched();
+					permissionCarryOver.clear();
+				}
+				if (control.isCancelled() || lease.isLost()) {
+					if (lease.isLost()) {
+						Logger.warn(this.getClass(), "The lease of work unit '" + unit.getUnitId()
+								+ "' was lost. Its remaining files are left to the node that claims it.");
 					}
+					leases.release(lease);
+					checkpoints.finishRange(site.getIdentifier());
+				} else {
+					leases.complete(lease, checkpoints.finishRange(site.getIdentifier()));
 					Logger.info(this.getClass(),
-							" \n \nAll Legacy files under site '" + site.getHostname() + "' have been processed.\n"
+							" \n \nWork unit '" + unit.getUnitId() + "' has been processed.\n"
 									+ "**********************************************************************\n");
 				}
+			}
+			return Boolean.FALSE;
+		} finally {
+			leases.stop();
+		}
+	}
+
+	/**
+	 * Migrates the legacy files of every Site in the order planned by the
+	 * {@link MigrationScheduler}: the most expensive Sites first, with the
+	 * biggest ones split into chunks, handed to the workers by several
+	 * dispatch runners at the same time. Sites completed by a previous run are
+	 * skipped, and System Host is purged before the runners start when the
+	 * bulk purge is enabled.
+	 *
+	 * @param siteList
+	 *            - The Sites whose legacy files are migrated.
+	 * @param journal
+	 *            - The progress of the previous runs.
+	 * @param workerPool
+	 *            - Migrates the dispatched files.
+	 * @param pipeline
+	 *            - Prefetches the pages and stages the binaries of the chunks.
+	 * @param checkpoints
+	 *            - Follows the committed files of every Site and chunk.
+	 * @throws DotDataException
+	 *             An error occurred when planning or reading the legacy files.
+	 * @throws InterruptedException
+	 *             The current thread was interrupted while waiting.
+	 */
+	private void migrateScheduled(final List<Host> siteList, final CheckpointJournal journal,
+			final MigrationWorkerPool workerPool, final MigrationPipeline pipeline,
+			final CheckpointTracker checkpoints) throws DotDataException, InterruptedException {
+		final List<Host> pendingSites = new ArrayList<Host>();
+		for (Host site : siteList) {
+			if (journal.isSiteFinished(site.getIdentifier())) {
+				Logger.info(this.getClass(), " \n-> Skipping Site '" + site.getHostname()
+						+ "': it was completed by a previous run.");
+			} else if (Host.SYSTEM_HOST.equalsIgnoreCase(site.getIdentifier()) && config.isSystemHostBulkPurge()) {
 				Logger.info(this.getClass(),
-						" \n" + "\n-> Total processed files = " + migrated + "\n \n"
-								+ "All legacy files have been processed. Please undeploy the Legacy File Migrator plugin now.\n"
-								+ " \n");
+						" \nNOTE: The new Files as Contents CANNOT LIVE UNDER SYSTEM_HOST. Therefore, these legacy files will be permanently deleted.");
+				checkpoints.startSite(site.getIdentifier());
+				purgeSystemHost();
+				if (control.isCancelled()) {
+					return;
+				}
+				checkpoints.finishSite(site.getIdentifier());
+			} else {
+				pendingSites.add(site);
+			}
+		}
+		final MigrationScheduler scheduler = new MigrationScheduler(config.getScheduleRunners(),
+				config.getScheduleChunkFiles(), config.getScheduleFileCostMillis(),
+				config.getScheduleMegabyteCostMillis());
+		scheduler.plan(pendingSites);
+		scheduler.startReporter(config.getMetricsReportIntervalSeconds(), checkpoints);
+		final ExecutorService runners = Executors.newFixedThreadPool(config.getScheduleRunners(),
+				new ThreadFactory() {
+
+					private final AtomicInteger counter = new AtomicInteger();
+
+					@Override
+					public Thread newThread(final Runnable runnable) {
+						final Thread thread = new Thread(runnable,
+								"LegacyFilesMigrator-runner-" + counter.incrementAndGet());
+						thread.setDaemon(Boolean.TRUE);
+						return thread;
+					}
+
+				});
+		try {
+			final List<Future<Void>> results = new ArrayList<Future<Void>>();
+			for (int i = 0; i < config.getScheduleRunners(); i++) {
+				final int runner = i;
+				results.add(runners.submit(new Callable<Void>() {
+
+					@Override
+					public Void call() throws Exception {
+						try {
+							migrateChunks(runner, scheduler, workerPool, pipeline, checkpoints);
+						} catch (Exception e) {
+							scheduler.abort();
+							throw e;
+						} finally {
+							transactions.closeSession();
+						}
+						return null;
+					}
+
+				}));
+			}
+			Exception failure = null;
+			for (Future<Void> result : results) {
+				try {
+					result.get();
+				} catch (ExecutionException e) {
+					if (null == failure) {
+						failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+					}
+				}
+			}
+			if (failure instanceof DotDataException) {
+				throw (DotDataException) failure;
+			} else if (failure instanceof InterruptedException) {
+				throw (InterruptedException) failure;
+			} else if (failure instanceof RuntimeException) {
+				throw (RuntimeException) failure;
+			} else if (null != failure) {
+				throw new DotDataException("A dispatch runner failed: " + failure.getMessage(), failure);
+			}
+		} catch (InterruptedException e) {
+			scheduler.abort();
+			throw e;
+		} finally {
+			runners.shutdown();
+			scheduler.stopReporter();
+			Logger.info(this.getClass(), "Schedule: " + scheduler.getEtaReport(checkpoints));
+			lookups.clearPrefetched();
+			permissionCarryOver.clear();
+		}
+	}
+
+	/**
+	 * Dispatches the chunks handed out by the {@link MigrationScheduler} to a
+	 * runner, until none is left or the migration is cancelled. A Site that
+	 * was not split is resumed from the journal; the chunks of a split Site
+	 * always start from their planned boundary, as the files they already
+	 * migrated are no longer legacy files.
+	 *
+	 * @param runner
+	 *            - The number of the runner, from 0.
+	 * @param scheduler
+	 *            - Hands out the chunks.
+	 * @param workerPool
+	 *            - Migrates the dispatched files.
+	 * @param pipeline
+	 *            - Prefetches the pages and stages the binaries of the chunks.
+	 * @param checkpoints
+	 *            - Follows the committed files of every Site and chunk.
+	 * @throws DotDataException
+	 *             An error occurred when reading the legacy files.
+	 * @throws InterruptedException
+	 *             The runner was interrupted while waiting.
+	 */
+	private void migrateChunks(final int runner, final MigrationScheduler scheduler,
+			final MigrationWorkerPool workerPool, final MigrationPipeline pipeline,
+			final CheckpointTracker checkpoints) throws DotDataException, InterruptedException {
+		for (MigrationScheduler.Chunk chunk = scheduler.next(runner); null != chunk
+				&& !control.isCancelled(); chunk = scheduler.next(runner)) {
+			final Host site = chunk.getSite();
+			final boolean skipMigration = Host.SYSTEM_HOST.equalsIgnoreCase(site.getIdentifier());
+			final String startInode;
+			if (chunk.isWholeSite()) {
+				startInode = checkpoints.startSite(site.getIdentifier());
+			} else {
+				startInode = chunk.getStartInode();
+				checkpoints.startRange(chunk.getTrackingKey(), startInode);
+			}
+			Logger.info(this.getClass(), "-> Runner " + runner + " is migrating " + chunk
+					+ (startInode.isEmpty() ? "" : " after Inode '" + startInode + "'"));
+			dispatchFiles(site, chunk.getTrackingKey(), skipMigration,
+					new LegacyFileSource(site.getIdentifier(), config.getPageSize(), startInode,
+							chunk.getEndInode()),
+					workerPool, pipeline, checkpoints, null);
+			if (control.isCancelled()) {
+				break;
+			}
+			final boolean siteFinished;
+			if (chunk.isWholeSite()) {
+				siteFinished = scheduler.chunkFinished(chunk, checkpoints.getCommittedCount(site.getIdentifier()));
+				checkpoints.finishSite(site.getIdentifier());
+			} else {
+				siteFinished = scheduler.chunkFinished(chunk, checkpoints.finishRange(chunk.getTrackingKey()));
+				if (siteFinished) {
+					checkpoints.finishSplitSite(site.getIdentifier(), scheduler.getCommitted(site.getIdentifier()));
+				}
+			}
+			if (siteFinished) {
+				Logger.info(this.getClass(), " \n \nAll Legacy files under site '" + site.getHostname()
+						+ "' have been processed.\n");
+			}
+		}
+	}
+
+	/**
+	 * Hands the legacy files of a source to the workers, and commits them once
+	 * the source is exhausted. The lookups and permissions prefetched for files
+	 * that were not dispatched, e.g., because the migration was cancelled, are
+	 * left for the caller to discard, as other runners may still be using
+	 * theirs.
+	 *
+	 * @param site
+	 *            - The Site of the legacy files.
+	 * @param trackingKey
+	 *            - The key the {@link CheckpointTracker} follows the files
+	 *            under: the Site Identifier, or the key of a chunk.
+	 * @param skipMigration
+	 *            - If {@code true}, the files are deleted instead of migrated.
+	 * @param source
+	 *            - The legacy files of the Site, or of one of its work units
+	 *            or chunks.
+	 * @param workerPool
+	 *            - Migrates the dispatched files.
+	 * @param pipeline
+	 *            - Prefetches the pages and stages the binaries.
+	 * @param checkpoints
+	 *            - Follows the dispatched files of the Site.
+	 * @param lease
+	 *            - The lease of the work unit being migrated, or {@code null}
+	 *            if the migration is not sharded. Files are no longer
+	 *            dispatched once it is lost.
+	 * @throws DotDataException
+	 *             An error occurred when reading the legacy files.
+	 * @throws InterruptedException
+	 *             The current thread was interrupted while waiting.
+	 */
+	private void dispatchFiles(final Host site, final String trackingKey, final boolean skipMigration,
+			final LegacyFileSource source,
+			final MigrationWorkerPool workerPool, final MigrationPipeline pipeline,
+			final CheckpointTracker checkpoints, final MigrationLeaseManager.Lease lease)
+			throws DotDataException, InterruptedException {
+		final MigrationPipeline.ReadAhead filesPerSite = pipeline.readAhead(source, newPagePrefetcher(skipMigration));
+		int counter = 1;
+		for (List<LegacyFileSource.Entry> page = filesPerSite.nextPage(); !page.isEmpty(); page = filesPerSite
+				.nextPage()) {
+			for (final LegacyFileSource.Entry entry : page) {
+				if (!awaitDispatch(workerPool, entry.getFile()) || (null != lease && lease.isLost())) {
+					break;
+				}
+				if (Logger.isDebugEnabled(this.getClass())) {
+					Logger.debug(this.getClass(), counter + ". Processing file: " + entry.getParentPath()
+							+ entry.getFile().getFileName());
+				}
+				counter++;
+				checkpoints.dispatched(trackingKey, entry.getFile().getInode());
+				final Future<StagedBinary> staged = !skipMigration && pipeline.isStaging()
+						? pipeline.stage(newStagingTask(entry.getFile())) : null;
+				workerPool.submit(getOrderingKey(entry),
+						newMigrationTask(site.getIdentifier(), trackingKey, entry.getFile(), skipMigration, staged));
+			}
+			if (control.isCancelled() || (null != lease && lease.isLost())) {
+				break;
+			}
+		}
+		// Commit the tail batch of this Site before moving on
+		workerPool.flush();
+		filesPerSite.close();
+	}
+
+	/**
+	 * Creates the policy that decides whether a legacy file that failed to
+	 * migrate is retried or recorded in the dead-letter file.
+	 *
+	 * @param deadLetters
+	 *            - Records the legacy files that could not be migrated.
+	 * @return The failure policy.
+	 */
+	MigrationFailurePolicy newFailurePolicy(final DeadLetterFile deadLetters) {
+		return new MigrationFailurePolicy(config.getRetryMaxAttempts(), config.getRetryBackoffMillis(),
+				config.getRetryMaxBackoffMillis(), config.getMaxConsecutiveFailures(), deadLetters);
+	}
+
+	/**
+	 * Sets the user, the File Asset Content Type and the default language used
+	 * to migrate every legacy file, so they are resolved once per run, and
+	 * creates the lookup layer of the migration.
+	 * 
+	 * @param systemUser
+	 *            - The user performing the migration.
+	 * @param contentType
+	 *            - The File Asset Content Type.
+	 */
+	void initialize(final User systemUser, final Structure contentType) {
+		sysUser = systemUser;
+		fileAssetContentType = contentType;
+		defaultLanguageId = langAPI.getDefaultLanguage().getId();
+		lookups = new MigrationLookupCache(identifierAPI, versionableAPI, folderAPI, sysUser,
+				config.getFolderCacheSize());
+	}
+
+	/**
+	 * Makes the binaries of migrated legacy files be deleted only after their
+	 * transaction is committed, by a pool of deleting threads, instead of right
+	 * away. The returned listener must be added to the worker pool, and
+	 * {@link #finishDeferredDeletion()} must be called once the pool has
+	 * stopped.
+	 * 
+	 * @return The deferred deletion.
+	 */
+	DeferredFileDeletion startDeferredDeletion() {
+		deferredDeletion = new DeferredFileDeletion(new FileSystemDeleter(derivedAssetIndex,
+				config.getDeleteThreads(), config.getDeleteQueueCapacity(), metrics), metrics);
+		return deferredDeletion;
+	}
+
+	/**
+	 * Waits for the binaries of the committed batches to be deleted, and goes
+	 * back to deleting binaries right away.
+	 * 
+	 * @throws InterruptedException
+	 *             The current thread was interrupted while waiting.
+	 */
+	void finishDeferredDeletion() throws InterruptedException {
+		if (null == deferredDeletion) {
+			return;
+		}
+		try {
+			deferredDeletion.close();
+			Logger.info(this.getClass(), "Legacy binaries: " + deferredDeletion.getSummary());
+		} finally {
+			deferredDeletion = null;
+		}
+	}
+
+	/**
+	 * Deletes all the legacy files under System Host in chunks, via the
+	 * {@link SystemHostPurger}, instead of dispatching them one by one. Their
+	 * binaries are deleted in parallel once every chunk is committed.
+	 * 
+	 * @throws DotDataException
+	 *             An error occurred when deleting the data.
+	 * @throws InterruptedException
+	 *             The current thread was interrupted while waiting.
+	 */
+	private void purgeSystemHost() throws DotDataException, InterruptedException {
+		final FileSystemDeleter fileSystemDeleter = new FileSystemDeleter(derivedAssetIndex,
+				config.getPurgeDeleteThreads(), config.getPurgeChunkSize() * 4, metrics);
+		try {
+			final long purged = new SystemHostPurger(fileAPI, fileSystemDeleter, control, metrics,
+					config.getPurgeChunkSize()).purge();
+			Logger.info(this.getClass(), "A total of " + purged + " legacy files under System Host were deleted.");
+		} finally {
+			fileSystemDeleter.close();
+			Logger.info(this.getClass(), "Legacy binaries under System Host: " + fileSystemDeleter.getSummary());
+		}
+	}
+
+	/**
+	 * Checks the {@link MigrationControl} before the specified legacy file is
+	 * dispatched. If the migration is paused, the open transactions of the
+	 * workers are committed first, so no locks are held while it waits.
+	 * 
+	 * @param workerPool
+	 *            - The worker pool.
+	 * @param file
+	 *            - The legacy file about to be dispatched.
+	 * @return Returns {@code true} if the file can be dispatched, or
+	 *         {@code false} if the migration was cancelled.
+	 * @throws DotDataException
+	 *             A worker failed and the migration must be aborted.
+	 * @throws InterruptedException
+	 *             The current thread was interrupted while waiting.
+	 */
+	private boolean awaitDispatch(final MigrationWorkerPool workerPool, final File file)
+			throws DotDataException, InterruptedException {
+		if (control.isPaused()) {
+			workerPool.flush();
+			Logger.info(this.getClass(), "Legacy files migration paused after " + workerPool.getProcessedCount()
+					+ " files.");
+			if (!control.awaitResume()) {
+				return false;
+			}
+			Logger.info(this.getClass(), "Legacy files migration resumed.");
+		}
+		return control.throttle(file.getSize());
+	}
+
+	/**
+	 * Creates the listener that counts the migrated and deleted legacy files
+	 * of every committed batch in the metrics. The outcome of a file that is
+	 * rolled back is discarded, as it will be counted by the run that
+	 * commits it, if any.
+	 * 
+	 * @return The batch listener.
+	 */
+	private MigrationWorkerPool.BatchListener newMetricsListener() {
+		return new MigrationWorkerPool.BatchListener() {
+
+			@Override
+			public void beforeCommit(final List<MigrationWorkerPool.MigrationTask> batch) {
+				// Files are only counted once they are committed
+			}
+
+			@Override
+			public void afterCommit(final List<MigrationWorkerPool.MigrationTask> batch) {
+				for (MigrationWorkerPool.MigrationTask task : batch) {
+					final Long bytes = uncommittedOutcomes.remove(task.getInode());
+					if (null == bytes) {
+						continue;
+					} else if (DELETED == bytes) {
+						metrics.fileDeleted();
+					} else {
+						metrics.fileMigrated(bytes);
+					}
+				}
+			}
+
+			@Override
+			public void afterRollback(final List<MigrationWorkerPool.MigrationTask> batch) {
+				for (MigrationWorkerPool.MigrationTask task : batch) {
+					uncommittedOutcomes.remove(task.getInode());
+				}
+			}
+
+		};
+	}
+
+	/**
+	 * Returns the key used to keep the migration of legacy files in order: all
+	 * the files living under the same parent folder of the same Site are
+	 * migrated sequentially by the same worker.
+	 * 
+	 * @param entry
+	 *            - The legacy file, as read from the {@link LegacyFileSource}.
+	 * @return The ordering key of the legacy file.
+	 */
+	private String getOrderingKey(final LegacyFileSource.Entry entry) {
+		return entry.getHostId() + ":" + entry.getParentPath();
+	}
+
+	/**
+	 * Creates the task that either migrates or deletes the specified legacy
+	 * file inside the transaction of a worker.
+	 * 
+	 * @param siteId
+	 *            - The Identifier of the Site the legacy file belongs to.
+	 * @param trackingKey
+	 *            - The key the {@link CheckpointTracker} follows the file
+	 *            under.
+	 * @param legacyFile
+	 *            - The legacy file to process.
+	 * @param skipMigration
+	 *            - If {@code true}, the legacy file will be deleted instead of
+	 *            migrated.
+	 * @param staged
+	 *            - The binary staged by the {@link MigrationPipeline}, or
+	 *            {@code null} if the worker must stage it.
+	 * @return The migration task.
+	 */
+	private MigrationWorkerPool.MigrationTask newMigrationTask(final String siteId, final String trackingKey,
+			final File legacyFile, final boolean skipMigration, final Future<StagedBinary> staged) {
+		return new MigrationWorkerPool.MigrationTask(siteId, legacyFile.getInode(), trackingKey) {
+
+			@Override
+			public boolean execute() throws Exception {
+				if (skipMigration) {
+					deleteLegacyFile(legacyFile);
+					return true;
+				}
+				return migrateLegacyFile(legacyFile, null != staged ? MigrationPipeline.get(staged) : null);
+			}
+
+		};
+	}
+
+	/**
+	 * Creates the task that prepares a page of legacy files in the prefetch
+	 * stage of the {@link MigrationPipeline}: their Identifiers, version info
+	 * and versions and, unless they are going to be deleted, their individual
+	 * permissions.
+	 * 
+	 * @param skipMigration
+	 *            - If {@code true}, the legacy files will be deleted instead of
+	 *            migrated.
+	 * @return The page prefetcher.
+	 */
+	private MigrationPipeline.PagePrefetcher newPagePrefetcher(final boolean skipMigration) {
+		return new MigrationPipeline.PagePrefetcher() {
+
+			@Override
+			public void prefetch(final List<LegacyFileSource.Entry> page) throws Exception {
+				lookups.prefetch(page);
+				if (!skipMigration) {
+					permissionCarryOver.snapshot(page);
+				}
+			}
+
+		};
+	}
+
+	/**
+	 * Creates the task that stages the binary of a legacy file in the staging
+	 * stage of the {@link MigrationPipeline}.
+	 * 
+	 * @param legacyFile
+	 *            - The legacy file whose binary will be staged.
+	 * @return The staging task.
+	 */
+	private Callable<StagedBinary> newStagingTask(final File legacyFile) {
+		return new Callable<StagedBinary>() {
+
+			@Override
+			public StagedBinary call() throws Exception {
+				return stageBinary(legacyFile);
+			}
+
+		};
+	}
+
+	/**
+	 * Runs the read-only planning mode of the migration: all the legacy files
+	 * of all sites are enumerated and measured, but nothing is checked in or
+	 * deleted. The resulting plan report is written to the journal directory.
+	 * 
+	 * @see MigrationPlanner
+	 */
+	public void planMigration() {
+		Logger.info(this.getClass(),
+				" \n \n" + "=======================================================================\n"
+						+ "===== Planning conversion of Legacy Files to Files as Content (DRY RUN) =====\n"
+						+ "=======================================================================\n");
+		try {
+			sysUser = userAPI.getSystemUser();
+			final List<Host> siteList = siteAPI.findAll(sysUser, false);
+			if (null != siteList && !siteList.isEmpty()) {
+				new MigrationPlanner(config, fileAPI).plan(siteList);
 			} else {
 				Logger.error(this.getClass(),
 						" \nAn error occurred: No Sites could be retrieved. Have you tried re-indexing your contents first?\n");
 			}
 		} catch (Exception ex) {
+			Logger.error(this.getClass(), "An error occurred when planning the migration: " + ex.getMessage(), ex);
+		} finally {
 			try {
-				Logger.error(this.getClass(), "An error occurred when migrating Files to Contents: " + ex.getMessage(),
-						ex);
-				HibernateUtil.rollbackTransaction();
-			} catch (DotHibernateException e1) {
-				Logger.warn(this, e1.getMessage(), e1);
+				transactions.closeSession();
+			} catch (DotHibernateException e) {
+				Logger.error(this.getClass(), "An error occurred when closing the Hibernate session.", e);
 			}
+		}
+	}
+
+	/**
+	 * Runs the read-only verification mode of the migration: every File as
+	 * Content recorded in the verification manifest by previous runs is
+	 * checked against its legacy file, and the mismatches are written to a
+	 * report in the journal directory.
+	 * 
+	 * @see MigrationVerifier
+	 */
+	public void verifyMigration() {
+		Logger.info(this.getClass(),
+				" \n \n" + "=======================================================================\n"
+						+ "===== Verifying conversion of Legacy Files to Files as Content =====\n"
+						+ "=======================================================================\n");
+		try {
+			sysUser = userAPI.getSystemUser();
+			new MigrationVerifier(config, contAPI, versionableAPI,
+					new BinaryHasher(config.getDedupMmapMinBytes(), metrics), control, transactions, sysUser)
+							.verify();
+		} catch (Exception ex) {
+			Logger.error(this.getClass(), "An error occurred when verifying the migration: " + ex.getMessage(), ex);
 		} finally {
 			try {
-				HibernateUtil.closeSession();
+				transactions.closeSession();
 			} catch (DotHibernateException e) {
 				Logger.error(this.getClass(), "An error occurred when closing the Hibernate session.", e);
 			}
 		}
 	}
 
+	/**
+	 * Returns the configuration of this migration.
+	 * 
+	 * @return The migration configuration.
+	 */
+	public MigrationConfig getConfig() {
+		return config;
+	}
+
+	/**
+	 * Returns the metrics of this migration.
+	 * 
+	 * @return The migration metrics.
+	 */
+	public MigrationMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Returns the control used to pause, throttle or cancel this migration.
+	 * 
+	 * @return The migration control.
+	 */
+	public MigrationControl getControl() {
+		return control;
+	}
+
 	/**
 	 * Sets a valid parent path for legacy files whose parent path is null or
 	 * empty, which can be caused by different circumstances. This is a data
 	 * inconsistency and must be fixed before migrating such legacy files to
-	 * files as content.
+	 * files as content. The affected Identifiers are read and fixed in pages,
+	 * so they are never loaded all at once.
 	 * 
 	 * @throws DotDataException
 	 *             An error occurred when updating the records in the data
 	 *             source.
 	 */
 	private void recreateMissingParentPath() throws DotDataException {
-		final DotConnect dc = new DotConnect();
-		final String whereClause = "WHERE parent_path IS NULL OR parent_path = '' OR parent_path = ' ' AND asset_type = 'file_asset'";
-		String query = "SELECT id FROM identifier " + whereClause;
-		dc.setSQL(query);
-		List<Map<String, Object>> results = dc.loadObjectResults();
-		if (!results.isEmpty()) {
-			Logger.info(this.getClass(), " \n=== A total of " + results.size()
-					+ " legacy files have an invalid parent path. Fixing data... ===");
-			query = "UPDATE identifier SET parent_path = '/' " + whereClause;
-			dc.setSQL(query);
+		final String whereClause = "WHERE (parent_path IS NULL OR parent_path = '' OR parent_path = ' ' AND asset_type = 'file_asset')";
+		final KeysetPager pager = new KeysetPager("SELECT id FROM identifier " + whereClause, "id", "id", null,
+				config.getPageSize(), "");
+		int fixed = 0;
+		for (List<Map<String, Object>> results = pager.nextPage(); !results.isEmpty(); results = pager.nextPage()) {
+			if (fixed == 0) {
+				Logger.info(this.getClass(), " \n=== Legacy files with an invalid parent path found. Fixing data... ===");
+			}
+			final DotConnect dc = new DotConnect();
+			dc.setSQL("UPDATE identifier SET parent_path = '/' WHERE id IN ("
+					+ SqlHelper.placeholders(results.size()) + ")");
+			for (Map<String, Object> record : results) {
+				dc.addParam(record.get("id").toString());
+			}
 			dc.loadResult();
 			for (Map<String, Object> record : results) {
 				final String identifier = record.get("id").toString();
 				CacheLocator.getIdentifierCache().removeFromCacheByIdentifier(identifier);
 			}
+			fixed += results.size();
+		}
+		if (fixed > 0) {
+			Logger.info(this.getClass(), " \n=== A total of " + fixed + " legacy files had an invalid parent path. ===");
 		}
 	}
 
@@ -225,41 +1219,83 @@ public class LegacyFilesMigrator {
 	 *             An error occurred when migrating the specified Legacy File.
 	 */
 	public boolean migrateLegacyFile(final File file) throws Exception {
+		return migrateLegacyFile(file, null);
+	}
+
+	/**
+	 * Performs the migration of the legacy file whose binary has already been
+	 * staged by the {@link MigrationPipeline}. The staged binary and its
+	 * fingerprint are used as long as they are still valid, and the binary is
+	 * staged again otherwise, e.g., when the file is retried.
+	 * 
+	 * @param file
+	 *            - The legacy file to migrate.
+	 * @param staged
+	 *            - The staged binary, or {@code null} to stage it now.
+	 * @return Returns {@code true} if the process was successful.
+	 * @throws Exception
+	 *             An error occurred when migrating the specified Legacy File.
+	 */
+	boolean migrateLegacyFile(final File file, final StagedBinary staged) throws Exception {
 		// Retrieve asset and version information of the legacy file to create
 		// the new content file
-		final Identifier legacyIdentifier = identifierAPI.find(file);
-		final VersionInfo versionInfo = versionableAPI.getVersionInfo(legacyIdentifier.getId());
-		List<Versionable> legacyFileVersions = findAllVersions(file);
+		long phaseStart = System.nanoTime();
+		final Identifier legacyIdentifier = lookups.findIdentifier(file);
+		final VersionInfo versionInfo = lookups.findVersionInfo(legacyIdentifier);
+		List<Versionable> legacyFileVersions = lookups.findAllVersions(legacyIdentifier);
 		
-		final java.io.File fileReferenceInFS = fileAPI.getAssetIOFile(file);
+		final java.io.File fileReferenceInFS = null != staged ? staged.getSource() : fileAPI.getAssetIOFile(file);
 		if (null == fileReferenceInFS || !fileReferenceInFS.exists()) {
+			metrics.record(MigrationMetrics.Phase.LOOKUP, phaseStart);
+			permissionCarryOver.discard(file.getInode());
 			Logger.warn(this,
 					"\nLegacy File '" + legacyIdentifier.getPath() + "' has no associated binary file. Deleting...");
-			deleteLegacyFile(file);
+			deleteLegacyFile(file, legacyIdentifier, legacyFileVersions);
 		} else {
-			final File working = (File) versionableAPI.findWorkingVersion(legacyIdentifier, sysUser,
-					!RESPECT_ANON_PERMISSIONS);
-			final Contentlet cworking = migrateLegacyFileData(file);
-			Contentlet clive = null;
-			setHostFolderValues(cworking, legacyIdentifier);
-			// Migrate and clear permissions on the legacy file
+			// Legacy files are read from their working version, so it only
+			// needs to be looked up if it has changed in the meantime
+			final File working = file.getInode().equals(versionInfo.getWorkingInode()) ? file
+					: (File) versionableAPI.findWorkingVersion(legacyIdentifier, sysUser, !RESPECT_ANON_PERMISSIONS);
+			File live = null;
 			if (versionInfo.getLiveInode() != null && !versionInfo.getLiveInode().equals(versionInfo.getWorkingInode())) {
-				final File live = (File) versionableAPI.findLiveVersion(legacyIdentifier, sysUser,
-						!RESPECT_ANON_PERMISSIONS);
-				clive = migrateLegacyFileData(live);
-				setHostFolderValues(clive, legacyIdentifier);
+				live = (File) versionableAPI.findLiveVersion(legacyIdentifier, sysUser, !RESPECT_ANON_PERMISSIONS);
 			}
-			if (!permissionAPI.isInheritingPermissions(working)) {
-				final boolean bitPermissions = Boolean.TRUE;
-				final boolean onlyIndividualPermissions = Boolean.TRUE;
-				final boolean forceLoadFromDB = Boolean.TRUE;
-				permissionAPI.getPermissions(working, bitPermissions, onlyIndividualPermissions, forceLoadFromDB);
+			final String folderInode = lookups.findFolderInode(legacyIdentifier.getHostId(),
+					legacyIdentifier.getParentPath());
+			metrics.record(MigrationMetrics.Phase.LOOKUP, phaseStart);
+			final long binarySize = null != staged && staged.getSize() >= 0 ? staged.getSize()
+					: fileReferenceInFS.length();
+			final java.io.File stagedWorking = null != staged ? staged.getStaged() : stageFileInTempFolder(file);
+			final Contentlet cworking = migrateLegacyFileData(file, stagedWorking);
+			Contentlet clive = null;
+			setHostFolderValues(cworking, legacyIdentifier, folderInode);
+			if (null != live) {
+				clive = migrateLegacyFileData(live, null);
+				setHostFolderValues(clive, legacyIdentifier, folderInode);
+			}
+			// The checked in binary is the live one, if any. It is hashed
+			// before the legacy binaries are deleted
+			String fingerprint = null;
+			if (null != hasher) {
+				if (null == live && null != staged && null != staged.getFingerprint()) {
+					fingerprint = staged.getFingerprint();
+				} else {
+					final java.io.File source = null != live ? fileAPI.getAssetIOFile(live) : fileReferenceInFS;
+					fingerprint = hasher.fingerprint(source.toPath());
+				}
 			}
 			// Delete the legacy file and use its working Inode to create the new
-			// one
+			// one. Its individual permissions were read with its page, and the
+			// PermissionCarryOver writes them back before the batch is committed
 			final String workingInode = working.getInode();
+			phaseStart = System.nanoTime();
 			fileAPI.delete(working, sysUser, !RESPECT_FRONTEND_ROLES);
-			fileReferenceInFS.delete();
+			if (null != deferredDeletion) {
+				deferredDeletion.deleteFile(file.getInode(), fileReferenceInFS.toPath());
+			} else {
+				fileReferenceInFS.delete();
+			}
+			metrics.record(MigrationMetrics.Phase.DELETE, phaseStart);
 			Iterator<Versionable> it = legacyFileVersions.iterator();
 			while (it.hasNext()) {
 				Versionable version = it.next();
@@ -269,32 +1305,56 @@ public class LegacyFilesMigrator {
 					it.remove();
 				}
 			}
-			HibernateUtil.getSession().clear();
-			CacheLocator.getIdentifierCache().removeFromCacheByIdentifier(legacyIdentifier.getId());
+			transactions.clearSession();
+			transactions.evictIdentifier(legacyIdentifier.getId());
 			// Check in the new content file
+			Contentlet checkedIn = null;
 			if (clive != null) {
 				try {
-					checkinLive(clive);
+					checkedIn = checkinLive(clive);
 				} catch (DotContentletValidationException e) {
+					metrics.error(e);
 					Logger.warn(this, "\nLegacy File '" + legacyIdentifier.getPath()
 							+ "' has invalid fields. Re-trying to check in without validation...");
 					clive.setProperty(Contentlet.DONT_VALIDATE_ME, Boolean.TRUE);
-					checkinLive(clive);
+					checkedIn = checkinLive(clive);
 					Logger.warn(this, "Done.");
 				}
 			} else {
 				try {
-					checkinWorking(cworking, versionInfo);
+					checkedIn = checkinWorking(cworking, versionInfo);
 				} catch (DotContentletValidationException e) {
+					metrics.error(e);
 					Logger.warn(this, "\nLegacy File '" + legacyIdentifier.getPath()
 							+ "' has invalid fields. Re-trying to check in without validation...");
 					cworking.setProperty(Contentlet.DONT_VALIDATE_ME, Boolean.TRUE);
-					checkinWorking(cworking, versionInfo);
+					checkedIn = checkinWorking(cworking, versionInfo);
 					Logger.warn(this, "Done.");
 				}
 			}
+			if (null != deduplicator && null != fingerprint) {
+				final java.io.File stored = checkedIn.getBinary("fileAsset");
+				deduplicator.stored(file.getInode(), fingerprint, null != stored ? stored.toPath() : null);
+			}
+			if (null != indexingListener) {
+				// The live version, if any, is checked in under its own Inode
+				indexingListener.checkedIn(file.getInode(), checkedIn.getInode());
+			}
+			if (null != memoryGovernor) {
+				memoryGovernor.migrated(file.getInode(), checkedIn.getIdentifier(), checkedIn.getInode(),
+						checkedIn.getLanguageId());
+			}
+			if (null != manifest && null != fingerprint) {
+				manifest.record(file.getInode(),
+						new VerificationManifest.Entry(legacyIdentifier.getId(), checkedIn.getInode(),
+								checkedIn.getLanguageId(), legacyIdentifier.getHostId(), folderInode, fingerprint,
+								versionInfo.getWorkingInode(), versionInfo.getLiveInode()));
+			}
 			// Finally, delete all legacy file versions, if any
-			deleteAllVersions(legacyFileVersions);
+			phaseStart = System.nanoTime();
+			deleteAllVersions(file.getInode(), legacyFileVersions);
+			metrics.record(MigrationMetrics.Phase.VERSION_CLEANUP, phaseStart);
+			countOutcome(file.getInode(), binarySize);
 		}
 		return true;
 	}
@@ -304,6 +1364,7 @@ public class LegacyFilesMigrator {
 	 * 
 	 * @param clive
 	 *            - The live version of the content.
+	 * @return The checked in content.
 	 * @throws DotContentletValidationException
 	 *             One or more fields in the content have invalid values.
 	 * @throws DotContentletStateException
@@ -316,10 +1377,15 @@ public class LegacyFilesMigrator {
 	 *             The specified user does not have permissions to perform this
 	 *             action.
 	 */
-	private void checkinLive(final Contentlet clive) throws DotContentletValidationException,
+	private Contentlet checkinLive(final Contentlet clive) throws DotContentletValidationException,
 			DotContentletStateException, IllegalArgumentException, DotDataException, DotSecurityException {
+		long phaseStart = System.nanoTime();
 		final Contentlet cclive = contAPI.checkin(clive, sysUser, !RESPECT_FRONTEND_ROLES);
-		contAPI.publish(cclive, sysUser, !RESPECT_FRONTEND_ROLES);
+		metrics.record(MigrationMetrics.Phase.CHECKIN, phaseStart);
+		phaseStart = System.nanoTime();
+		publish(cclive);
+		metrics.record(MigrationMetrics.Phase.PUBLISH, phaseStart);
+		return cclive;
 	}
 
 	/**
@@ -330,6 +1396,7 @@ public class LegacyFilesMigrator {
 	 *            - The working version of the content.
 	 * @param vInfo
 	 *            - The version info of the content.
+	 * @return The checked in content.
 	 * @throws DotContentletValidationException
 	 *             One or more fields in the content have invalid values.
 	 * @throws DotContentletStateException
@@ -342,55 +1409,114 @@ public class LegacyFilesMigrator {
 	 *             The specified user does not have permissions to perform this
 	 *             action.
 	 */
-	private void checkinWorking(final Contentlet cworking, final VersionInfo vInfo)
+	private Contentlet checkinWorking(final Contentlet cworking, final VersionInfo vInfo)
 			throws DotContentletValidationException, DotContentletStateException, IllegalArgumentException,
 			DotDataException, DotSecurityException {
+		final long checkinStart = System.nanoTime();
 		final Contentlet ccworking = contAPI.checkin(cworking, sysUser, !RESPECT_FRONTEND_ROLES);
+		metrics.record(MigrationMetrics.Phase.CHECKIN, checkinStart);
 		if (vInfo.getLiveInode() != null && vInfo.getLiveInode().equals(ccworking.getInode())) {
-			contAPI.publish(ccworking, sysUser, !RESPECT_FRONTEND_ROLES);
+			final long publishStart = System.nanoTime();
+			publish(ccworking);
+			metrics.record(MigrationMetrics.Phase.PUBLISH, publishStart);
 		}
+		return ccworking;
 	}
 
 	/**
-	 * Copies the specified legacy file to a temporary location in the file
-	 * system.
+	 * Publishes the specified file as content. With deferred indexing, the
+	 * content is only marked as live, and it is indexed in bulk once its batch
+	 * has been committed.
+	 * 
+	 * @param content
+	 *            - The checked in content.
+	 * @throws DotContentletStateException
+	 *             An error occurred when publishing the content.
+	 * @throws DotDataException
+	 *             An error occurred when interacting with the data source.
+	 * @throws DotSecurityException
+	 *             The specified user does not have permissions to perform this
+	 *             action.
+	 */
+	private void publish(final Contentlet content)
+			throws DotContentletStateException, DotDataException, DotSecurityException {
+		if (config.isDeferredIndexing()) {
+			versionableAPI.setLive(content);
+		} else {
+			contAPI.publish(content, sysUser, !RESPECT_FRONTEND_ROLES);
+		}
+	}
+
+	/**
+	 * Stages the binary of the specified legacy file in a temporary location
+	 * of the file system, from where it will be checked in as a File as
+	 * Content. The {@link BinaryStager} hard-links the binary whenever possible
+	 * and only copies it when the temporary folder is on another file system.
+	 * The Inode is part of the temporary path so that workers staging files
+	 * with the same name at the same time do not collide.
 	 * 
 	 * @param file
-	 *            - The legacy file that will be copied.
+	 *            - The legacy file whose binary will be staged.
 	 * @return The new temporary location of the legacy file.
 	 */
-	private java.io.File copyFileToTempFolder(final File file) {
+	java.io.File stageFileInTempFolder(final File file) {
 		final java.io.File tmp = new java.io.File(fileAPI.getRealAssetPathTmpBinary() + java.io.File.separator
-				+ file.getModUser() + java.io.File.separator + System.currentTimeMillis() + java.io.File.separator
-				+ file.getFileName());
-		if (tmp.exists()) {
-			tmp.delete();
-		}
+				+ file.getModUser() + java.io.File.separator + System.currentTimeMillis() + "_" + file.getInode()
+				+ java.io.File.separator + file.getFileName());
 		try {
 			final java.io.File originalFile = fileAPI.getAssetIOFile(file);
 			if (originalFile.exists()) {
-				FileUtil.copyFile(originalFile, tmp);
+				final long start = System.nanoTime();
+				binaryStager.stage(originalFile.toPath(), tmp.toPath());
+				metrics.record(MigrationMetrics.Phase.STAGE, start);
 			}
 		} catch (IOException e) {
+			metrics.error(e);
 			Logger.error(this.getClass(), "Error processing Stream", e);
 		}
 		return tmp;
 	}
 
+	/**
+	 * Checks the binary of a legacy file and stages it in the temporary folder.
+	 * When binaries are deduplicated or verified, it is also hashed. This is
+	 * the staging stage of the {@link MigrationPipeline}, so it only touches
+	 * the file system.
+	 * 
+	 * @param file
+	 *            - The legacy file whose binary will be staged.
+	 * @return The staged binary.
+	 * @throws IOException
+	 *             The binary could not be hashed.
+	 */
+	StagedBinary stageBinary(final File file) throws IOException {
+		final java.io.File source = fileAPI.getAssetIOFile(file);
+		if (null == source || !source.exists()) {
+			return new StagedBinary(source, -1, null, null);
+		}
+		final long size = source.length();
+		final String fingerprint = null != hasher ? hasher.fingerprint(source.toPath()) : null;
+		final java.io.File tmp = stageFileInTempFolder(file);
+		return new StagedBinary(source, size, tmp, fingerprint);
+	}
+
 	/**
 	 * Takes a legacy file and assigns its properties and binary file to the
 	 * Contentlet that will represent it from now on.
 	 * 
 	 * @param file
 	 *            - The legacy file to transform.
+	 * @param staged
+	 *            - The binary of the file, already staged in the temporary
+	 *            folder, or {@code null} to stage it now.
 	 * @return The new File as Content.
 	 * @throws Exception
 	 *             An error occurred when setting some contentlet's properties.
 	 */
-	private Contentlet migrateLegacyFileData(final File file) throws Exception {
+	private Contentlet migrateLegacyFileData(final File file, final java.io.File staged) throws Exception {
 		final Contentlet fileAsContent = new Contentlet();
 		fileAsContent.setStructureInode(fileAssetContentType.getInode());
-		fileAsContent.setLanguageId(langAPI.getDefaultLanguage().getId());
+		fileAsContent.setLanguageId(defaultLanguageId);
 		fileAsContent.setInode(file.getInode());
 		fileAsContent.setIdentifier(file.getIdentifier());
 		fileAsContent.setModUser(file.getModUser());
@@ -398,7 +1524,7 @@ public class LegacyFilesMigrator {
 		fileAsContent.setStringProperty("title", file.getFileName());
 		fileAsContent.setStringProperty("fileName", file.getFileName());
 		fileAsContent.setStringProperty("description", file.getTitle());
-		final java.io.File tmp = copyFileToTempFolder(file);
+		final java.io.File tmp = null != staged ? staged : stageFileInTempFolder(file);
 		fileAsContent.setBinary("fileAsset", tmp);
 		return fileAsContent;
 	}
@@ -411,13 +1537,13 @@ public class LegacyFilesMigrator {
 	 *            - The file as a contentlet.
 	 * @param legacyIdentifier
 	 *            - The Identifier pointing to the legacy file.
-	 * @throws Exception
-	 *             An error occurred when setting the parent folder.
+	 * @param folderInode
+	 *            - The Inode of the parent folder of the legacy file.
 	 */
-	private void setHostFolderValues(final Contentlet con, final Identifier legacyIdentifier) throws Exception {
+	private void setHostFolderValues(final Contentlet con, final Identifier legacyIdentifier,
+			final String folderInode) {
 		con.setHost(legacyIdentifier.getHostId());
-		con.setFolder(APILocator.getFolderAPI().findFolderByPath(legacyIdentifier.getParentPath(),
-				legacyIdentifier.getHostId(), sysUser, !RESPECT_FRONTEND_ROLES).getInode());
+		con.setFolder(folderInode);
 	}
 
 	/**
@@ -429,48 +1555,80 @@ public class LegacyFilesMigrator {
 	 *             An error occurred when deleting the data.
 	 */
 	private void deleteLegacyFile(final File file) throws Exception {
-		final File working = (File) versionableAPI.findWorkingVersion(file.getIdentifier(), sysUser,
-				!RESPECT_ANON_PERMISSIONS);
-		final List<Versionable> legacyFileVersions = findAllVersions(file);
-		deleteAllVersions(legacyFileVersions);
-		fileAPI.delete(working, sysUser, !RESPECT_FRONTEND_ROLES);
+		final Identifier legacyIdentifier = lookups.findIdentifier(file);
+		deleteLegacyFile(file, legacyIdentifier, lookups.findAllVersions(legacyIdentifier));
 	}
 
 	/**
-	 * Returns all the different versions of the Legacy File.
+	 * Deletes the specified Legacy File along with all of its versions, which
+	 * have already been looked up.
 	 * 
 	 * @param file
 	 *            - The Legacy File.
-	 * @return The list of Legacy File versions.
-	 * @throws DotStateException
-	 *             An error occurred when retrieving the information.
-	 * @throws DotDataException
-	 *             An error occurred when accessing the data source.
-	 * @throws DotSecurityException
-	 *             The specified user does not have permissions to perform this
-	 *             action.
+	 * @param legacyIdentifier
+	 *            - The Identifier of the Legacy File.
+	 * @param legacyFileVersions
+	 *            - All the versions of the Legacy File.
+	 * @throws Exception
+	 *             An error occurred when deleting the data.
+	 */
+	private void deleteLegacyFile(final File file, final Identifier legacyIdentifier,
+			final List<Versionable> legacyFileVersions) throws Exception {
+		final File working = (File) versionableAPI.findWorkingVersion(legacyIdentifier, sysUser,
+				!RESPECT_ANON_PERMISSIONS);
+		final long start = System.nanoTime();
+		deleteAllVersions(file.getInode(), legacyFileVersions);
+		fileAPI.delete(working, sysUser, !RESPECT_FRONTEND_ROLES);
+		metrics.record(MigrationMetrics.Phase.DELETE, start);
+		countOutcome(file.getInode(), DELETED);
+	}
+
+	/**
+	 * Counts a migrated or deleted legacy file in the metrics. Inside the
+	 * workers, a file may run several times before its transaction is
+	 * committed, so it is only counted by the listener created in
+	 * {@link #newMetricsListener()} once it is.
+	 *
+	 * @param inode
+	 *            - The Inode of the legacy file.
+	 * @param bytes
+	 *            - The size of its migrated binary, or {@link #DELETED}.
 	 */
-	private List<Versionable> findAllVersions(final File file)
-			throws DotStateException, DotDataException, DotSecurityException {
-		final Identifier legacyIdentifier = identifierAPI.find(file);
-		return versionableAPI.findAllVersions(legacyIdentifier, sysUser, !RESPECT_FRONTEND_ROLES);
+	private void countOutcome(final String inode, final long bytes) {
+		if (null != uncommittedOutcomes) {
+			uncommittedOutcomes.put(inode, bytes);
+		} else if (DELETED == bytes) {
+			metrics.fileDeleted();
+		} else {
+			metrics.fileMigrated(bytes);
+		}
 	}
 
 	/**
 	 * Deletes the specified list of Legacy File versions from the file system.
+	 * With deferred deletion, the binaries are only scheduled for deletion, and
+	 * are deleted once the transaction of the current task is committed.
 	 * 
+	 * @param taskInode
+	 *            - The Inode of the legacy file being processed.
 	 * @param legacyFileVersions
 	 *            - The list of Legacy File versions.
 	 * @throws IOException
 	 *             An error occurred when deleting the file form the file
 	 *             system.
 	 */
-	private void deleteAllVersions(final List<Versionable> legacyFileVersions) throws IOException {
+	private void deleteAllVersions(final String taskInode, final List<Versionable> legacyFileVersions)
+			throws IOException {
 		if (null != legacyFileVersions) {
 			for (Versionable versionable : legacyFileVersions) {
 				final File legacyFile = (File) versionable;
 				final java.io.File fileReference = fileAPI.getAssetIOFile(legacyFile);
-				if (null != fileReference && fileReference.exists()) {
+				if (null == fileReference) {
+					continue;
+				}
+				if (null != deferredDeletion) {
+					deferredDeletion.deleteFamily(taskInode, fileReference.toPath());
+				} else if (fileReference.exists()) {
 					deleteFilesInFileSystem(fileReference);
 				}
 			}
@@ -491,21 +1649,25 @@ public class LegacyFilesMigrator {
 	 * </pre>
 	 * 
 	 * The original file name will be taken as a filter to find the other
-	 * "edited" versions and the parent folder where they are located.
+	 * "edited" versions and the parent folder where they are located. The
+	 * {@link DerivedAssetIndex} reads each folder only once and matches the
+	 * original file name exactly, instead of scanning the whole folder for
+	 * every legacy file.
 	 * 
 	 * @param fileReference
 	 *            - The reference to the original legacy file.
 	 */
-	private void deleteFilesInFileSystem(java.io.File fileReference) {
-		final String legacyFileName = fileReference.getName();
-		final java.io.File parentDir = fileReference.getParentFile();
-		if (parentDir.isDirectory()) {
-			for (java.io.File file : parentDir.listFiles()) {
-				if (!file.isDirectory() && file.getName().contains(FilenameUtils.removeExtension(legacyFileName))) {
+	void deleteFilesInFileSystem(java.io.File fileReference) {
+		try {
+			for (Path path : derivedAssetIndex.removeFamily(fileReference.toPath())) {
+				final java.io.File file = path.toFile();
+				if (!file.isDirectory()) {
 					file.delete();
 				}
 			}
+		} catch (IOException e) {
+			Logger.warn(this, "Could not read the folder of legacy file '" + fileReference + "': " + e.getMessage(), e);
 		}
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,192 @@
+package com.dotmarketing.osgi.util;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dotmarketing.exception.DotHibernateException;
+import com.dotmarketing.util.Logger;
+
+/**
+ * Keeps the memory of long migration runs bounded. Every migrated file leaves
+ * its content, Identifier and version info in the dotCMS caches, and objects
+ * in the Hibernate session of its worker, although the migration never reads
+ * them again. Once the batch of a file is committed or rolled back, the
+ * governor:
+ * <ol>
+ * <li>Evicts the content of every file of the batch from the caches.</li>
+ * <li>Clears the session of the worker.</li>
+ * <li>Reads the heap retained after the last garbage collection and, above
+ * the high watermark, makes the {@link BatchSizeController} halve the batch
+ * size and keep it down until the heap drops below the low watermark.</li>
+ * </ol>
+ * The heap is read at most once per second, however many workers commit, and
+ * batches are only shrunk again once a new collection confirms the pressure.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class MemoryGovernor implements MigrationWorkerPool.BatchListener {
+
+	private static final long CHECK_INTERVAL_MILLIS = 1000;
+
+	private final MigrationTransactions transactions;
+	private final BatchSizeController batchSizeController;
+	private final MigrationMetrics metrics;
+	private final double highWatermark;
+	private final double lowWatermark;
+	private final Map<String, MigratedContent> migrated = new ConcurrentHashMap<String, MigratedContent>();
+	private final AtomicLong lastCheck = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong pressureEvents = new AtomicLong();
+	private volatile boolean underPressure = Boolean.FALSE;
+	private volatile long gcAtLastShrink = -1;
+
+	/**
+	 * A content checked in by a batch that is still open.
+	 */
+	private static final class MigratedContent {
+
+		private final String identifier;
+		private final String inode;
+		private final long languageId;
+
+		private MigratedContent(final String identifier, final String inode, final long languageId) {
+			this.identifier = identifier;
+			this.inode = inode;
+			this.languageId = languageId;
+		}
+
+	}
+
+	/**
+	 * Creates the governor.
+	 *
+	 * @param transactions
+	 *            - Clears the sessions and evicts the caches.
+	 * @param batchSizeController
+	 *            - Sizes the batches of the workers.
+	 * @param metrics
+	 *            - Reads the heap usage.
+	 * @param highWatermark
+	 *            - The fraction of the maximum heap retained after garbage
+	 *            collection above which batches are shrunk.
+	 * @param lowWatermark
+	 *            - The fraction of the maximum heap retained after garbage
+	 *            collection below which batches may grow again.
+	 */
+	public MemoryGovernor(final MigrationTransactions transactions, final BatchSizeController batchSizeController,
+			final MigrationMetrics metrics, final double highWatermark, final double lowWatermark) {
+		this.transactions = transactions;
+		this.batchSizeController = batchSizeController;
+		this.metrics = metrics;
+		this.highWatermark = highWatermark;
+		this.lowWatermark = Math.min(lowWatermark, highWatermark);
+	}
+
+	/**
+	 * Records the content checked in for a legacy file. It is evicted from the
+	 * caches once the batch of the file is over.
+	 *
+	 * @param taskInode
+	 *            - The Inode of the task whose transaction must end.
+	 * @param identifier
+	 *            - The Identifier of the content.
+	 * @param inode
+	 *            - The Inode of the content.
+	 * @param languageId
+	 *            - The language of the content.
+	 */
+	public void migrated(final String taskInode, final String identifier, final String inode,
+			final long languageId) {
+		migrated.put(taskInode, new MigratedContent(identifier, inode, languageId));
+	}
+
+	/**
+	 * Returns a one-line summary of the memory governance.
+	 *
+	 * @return The governance statistics.
+	 */
+	public String getSummary() {
+		return evictions.get() + " contents evicted from the caches, " + pressureEvents.get()
+				+ " times the heap went over " + Math.round(highWatermark * 100) + "%"
+				+ (underPressure ? " (still under pressure)" : "");
+	}
+
+	@Override
+	public void beforeCommit(final List<MigrationWorkerPool.MigrationTask> batch) {
+		// Nothing can be released before the batch is over
+	}
+
+	@Override
+	public void afterCommit(final List<MigrationWorkerPool.MigrationTask> batch) {
+		evict(batch);
+		try {
+			transactions.clearSession();
+		} catch (DotHibernateException e) {
+			Logger.warn(this, "Could not clear the session of a worker: " + e.getMessage());
+		}
+		checkHeap();
+	}
+
+	@Override
+	public void afterRollback(final List<MigrationWorkerPool.MigrationTask> batch) {
+		// The session of the worker is closed after a rollback
+		evict(batch);
+		checkHeap();
+	}
+
+	/**
+	 * Evicts the contents of a batch from the caches.
+	 *
+	 * @param batch
+	 *            - The tasks of the batch.
+	 */
+	private void evict(final List<MigrationWorkerPool.MigrationTask> batch) {
+		for (MigrationWorkerPool.MigrationTask task : batch) {
+			final MigratedContent content = migrated.remove(task.getInode());
+			if (null != content) {
+				transactions.evictContent(content.identifier, content.inode, content.languageId);
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Compares the retained heap with the watermarks, and shrinks or releases
+	 * the batch size accordingly.
+	 */
+	private void checkHeap() {
+		final long now = System.currentTimeMillis();
+		final long last = lastCheck.get();
+		if (now - last < CHECK_INTERVAL_MILLIS || !lastCheck.compareAndSet(last, now)) {
+			return;
+		}
+		final long max = metrics.getHeapMaxBytes();
+		if (max <= 0) {
+			return;
+		}
+		final double usage = metrics.getHeapRetainedBytes() / (double) max;
+		if (usage >= highWatermark) {
+			final long collections = metrics.getGcCollections();
+			if (collections != gcAtLastShrink) {
+				gcAtLastShrink = collections;
+				batchSizeController.memoryPressure();
+			}
+			if (!underPressure) {
+				underPressure = Boolean.TRUE;
+				pressureEvents.incrementAndGet();
+				Logger.warn(this.getClass(), "Heap retained after GC is at " + Math.round(usage * 100)
+						+ "%. Shrinking batches to " + batchSizeController.getBatchSize() + " files.");
+			}
+		} else if (underPressure && usage <= lowWatermark) {
+			underPressure = Boolean.FALSE;
+			batchSizeController.memoryRelieved();
+			Logger.info(this.getClass(), "Heap retained after GC is back at " + Math.round(usage * 100)
+					+ "%. Batches may grow again.");
+		}
+	}
+
+}
@@ -0,0 +1,748 @@
+package com.dotmarketing.osgi.util;
+
+import java.io.File;
+
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.ConfigUtils;
+import com.dotmarketing.util.Logger;
+
+/**
+ * Holds the tuning parameters of the Legacy Files migration. All values are
+ * read once from the dotCMS configuration ({@code dotmarketing-config.properties})
+ * when the migration is created, so changing them only requires a new run
+ * instead of a new build of the plugin.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class MigrationConfig {
+
+	private static final String PREFIX = "legacy.files.migrator.";
+
+	private final int workerThreads;
+	private final int queueCapacity;
+	private final int batchSize;
+	private final int minBatchSize;
+	private final int maxBatchSize;
+	private final int batchTargetMillis;
+	private final int commitLatencyCeilingMillis;
+	private final int pageSize;
+	private final String journalDirectory;
+	private final int derivedIndexMaxDirectories;
+	private final int derivedIndexMaxAgeMillis;
+	private final int folderCacheSize;
+	private final boolean dryRun;
+	private final boolean verify;
+	private final boolean verifyManifest;
+	private final int verifyThreads;
+	private final int verifyQueueCapacity;
+	private final int planStatThreads;
+	private final int planFilesPerSecond;
+	private final int journalSyncIntervalMillis;
+	private final int journalMaxRecordsPerSync;
+	private final int metricsReportIntervalSeconds;
+	private final float filesPerSecondLimit;
+	private final float megabytesPerSecondLimit;
+	private final boolean autoStart;
+	private final int shutdownTimeoutSeconds;
+	private final boolean deferredIndexing;
+	private final int indexBulkSize;
+	private final int indexQueueCapacity;
+	private final boolean systemHostBulkPurge;
+	private final int purgeChunkSize;
+	private final int purgeDeleteThreads;
+	private final int deleteThreads;
+	private final int deleteQueueCapacity;
+	private final boolean deduplication;
+	private final int dedupMmapMinBytes;
+	private final boolean memoryGoverned;
+	private final double memoryHighWatermark;
+	private final double memoryLowWatermark;
+	private final int retryMaxAttempts;
+	private final int retryBackoffMillis;
+	private final int retryMaxBackoffMillis;
+	private final int maxConsecutiveFailures;
+	private final int prefetchThreads;
+	private final int prefetchPages;
+	private final int stagingThreads;
+	private final int stagingQueueCapacity;
+	private final boolean cluster;
+	private final String clusterNodeId;
+	private final int clusterUnitSize;
+	private final int clusterLeaseMillis;
+	private final int clusterHeartbeatMillis;
+	private final boolean schedule;
+	private final int scheduleRunners;
+	private final int scheduleChunkFiles;
+	private final int scheduleFileCostMillis;
+	private final int scheduleMegabyteCostMillis;
+	private final int permissionCacheFlushThreshold;
+
+	/**
+	 * Default class constructor. Reads the migration parameters from the dotCMS
+	 * configuration, falling back to sensible defaults.
+	 */
+	public MigrationConfig() {
+		final int cores = Runtime.getRuntime().availableProcessors();
+		this.workerThreads = Math.max(1, Config.getIntProperty(PREFIX + "worker.threads", Math.min(cores, 8)));
+		this.queueCapacity = Math.max(1, Config.getIntProperty(PREFIX + "worker.queue.capacity", 200));
+		this.batchSize = Math.max(1, Config.getIntProperty(PREFIX + "batch.size", 100));
+		this.minBatchSize = Math.max(1, Config.getIntProperty(PREFIX + "batch.size.min", 10));
+		this.maxBatchSize = Math.max(this.minBatchSize, Config.getIntProperty(PREFIX + "batch.size.max", 1000));
+		this.batchTargetMillis = Math.max(1, Config.getIntProperty(PREFIX + "batch.target.ms", 5000));
+		this.commitLatencyCeilingMillis = Math.max(1, Config.getIntProperty(PREFIX + "commit.latency.ceiling.ms", 2000));
+		this.pageSize = Math.max(1, Config.getIntProperty(PREFIX + "page.size", 500));
+		if (Config.getBooleanProperty(PREFIX + "staging.allow.move", false)) {
+			// A moved binary is lost if its batch is rolled back or replayed
+			Logger.warn(this, PREFIX + "staging.allow.move is no longer supported. Binaries are hard-linked or "
+					+ "copied instead.");
+		}
+		this.derivedIndexMaxDirectories = Math.max(1, Config.getIntProperty(PREFIX + "derived.index.max.dirs", 64));
+		this.derivedIndexMaxAgeMillis = Math.max(0, Config.getIntProperty(PREFIX + "derived.index.max.age.ms", 600000));
+		this.folderCacheSize = Math.max(1, Config.getIntProperty(PREFIX + "folder.cache.size", 10000));
+		this.dryRun = Config.getBooleanProperty(PREFIX + "dry.run", false);
+		this.verify = Config.getBooleanProperty(PREFIX + "verify", false);
+		this.verifyManifest = Config.getBooleanProperty(PREFIX + "verify.manifest.enabled", false);
+		this.verifyThreads = Math.max(1, Config.getIntProperty(PREFIX + "verify.threads", 8));
+		this.verifyQueueCapacity = Math.max(1, Config.getIntProperty(PREFIX + "verify.queue.capacity", 256));
+		this.planStatThreads = Math.max(1, Config.getIntProperty(PREFIX + "plan.stat.threads", 16));
+		this.planFilesPerSecond = Math.max(1, Config.getIntProperty(PREFIX + "plan.files.per.second", 20));
+		this.journalDirectory = Config.getStringProperty(PREFIX + "journal.dir",
+				ConfigUtils.getDynamicContentPath() + File.separator + "legacy-files-migrator");
+		this.journalSyncIntervalMillis = Math.max(1, Config.getIntProperty(PREFIX + "journal.sync.interval.ms", 500));
+		this.journalMaxRecordsPerSync = Math.max(1, Config.getIntProperty(PREFIX + "journal.sync.max.records", 1000));
+		this.metricsReportIntervalSeconds = Math.max(1,
+				Config.getIntProperty(PREFIX + "metrics.report.interval.seconds", 30));
+		this.filesPerSecondLimit = Config.getFloatProperty(PREFIX + "rate.files.per.second", 0);
+		this.megabytesPerSecondLimit = Config.getFloatProperty(PREFIX + "rate.mb.per.second", 0);
+		this.autoStart = Config.getBooleanProperty(PREFIX + "autostart", true);
+		this.shutdownTimeoutSeconds = Math.max(1, Config.getIntProperty(PREFIX + "shutdown.timeout.seconds", 300));
+		this.deferredIndexing = Config.getBooleanProperty(PREFIX + "index.deferred", false);
+		this.indexBulkSize = Math.max(1, Config.getIntProperty(PREFIX + "index.bulk.size", 500));
+		this.indexQueueCapacity = Math.max(this.indexBulkSize,
+				Config.getIntProperty(PREFIX + "index.queue.capacity", 10000));
+		this.systemHostBulkPurge = Config.getBooleanProperty(PREFIX + "purge.bulk", true);
+		this.purgeChunkSize = Math.max(1, Config.getIntProperty(PREFIX + "purge.chunk.size", 500));
+		this.purgeDeleteThreads = Math.max(1, Config.getIntProperty(PREFIX + "purge.delete.threads", 4));
+		this.deleteThreads = Math.max(1, Config.getIntProperty(PREFIX + "delete.threads", 4));
+		this.deleteQueueCapacity = Math.max(1, Config.getIntProperty(PREFIX + "delete.queue.capacity", 1000));
+		this.deduplication = Config.getBooleanProperty(PREFIX + "dedup.enabled", false);
+		this.dedupMmapMinBytes = Math.max(1, Config.getIntProperty(PREFIX + "dedup.mmap.min.bytes", 4194304));
+		this.memoryGoverned = Config.getBooleanProperty(PREFIX + "memory.governed", false);
+		this.memoryHighWatermark = Config.getFloatProperty(PREFIX + "memory.high.watermark", 0.8f);
+		this.memoryLowWatermark = Config.getFloatProperty(PREFIX + "memory.low.watermark", 0.6f);
+		this.retryMaxAttempts = Math.max(1, Config.getIntProperty(PREFIX + "retry.max.attempts", 3));
+		this.retryBackoffMillis = Math.max(0, Config.getIntProperty(PREFIX + "retry.backoff.ms", 500));
+		this.retryMaxBackoffMillis = Math.max(this.retryBackoffMillis,
+				Config.getIntProperty(PREFIX + "retry.backoff.max.ms", 30000));
+		this.maxConsecutiveFailures = Math.max(1, Config.getIntProperty(PREFIX + "deadletter.max.consecutive", 100));
+		this.prefetchThreads = Math.max(1, Config.getIntProperty(PREFIX + "pipeline.prefetch.threads", 2));
+		this.prefetchPages = Math.max(1, Config.getIntProperty(PREFIX + "pipeline.prefetch.pages", 2));
+		this.stagingThreads = Math.max(0, Config.getIntProperty(PREFIX + "pipeline.staging.threads", 4));
+		this.stagingQueueCapacity = Math.max(1, Config.getIntProperty(PREFIX + "pipeline.staging.queue.capacity", 200));
+		this.cluster = Config.getBooleanProperty(PREFIX + "cluster.enabled", false);
+		this.clusterNodeId = Config.getStringProperty(PREFIX + "cluster.node.id", "");
+		this.clusterUnitSize = Math.max(1, Config.getIntProperty(PREFIX + "cluster.unit.size", 5000));
+		this.clusterLeaseMillis = Math.max(1000, Config.getIntProperty(PREFIX + "cluster.lease.ms", 120000));
+		this.clusterHeartbeatMillis = Math.max(100, Config.getIntProperty(PREFIX + "cluster.heartbeat.ms", 20000));
+		this.schedule = Config.getBooleanProperty(PREFIX + "schedule.enabled", false);
+		this.scheduleRunners = Math.max(1, Config.getIntProperty(PREFIX + "schedule.runners", 2));
+		this.scheduleChunkFiles = Math.max(1, Config.getIntProperty(PREFIX + "schedule.chunk.files", 20000));
+		this.scheduleFileCostMillis = Math.max(0, Config.getIntProperty(PREFIX + "schedule.file.cost.ms", 40));
+		this.scheduleMegabyteCostMillis = Math.max(0, Config.getIntProperty(PREFIX + "schedule.mb.cost.ms", 25));
+		this.permissionCacheFlushThreshold = Math.max(0,
+				Config.getIntProperty(PREFIX + "permission.cache.flush.threshold", 1));
+	}
+
+	/**
+	 * Returns the number of worker threads that migrate files concurrently.
+	 * Each worker uses its own Hibernate session and transaction.
+	 *
+	 * @return The number of worker threads.
+	 */
+	public int getWorkerThreads() {
+		return workerThreads;
+	}
+
+	/**
+	 * Returns the maximum number of files that can be waiting in the queue of
+	 * a single worker. When a queue is full, the thread reading the legacy
+	 * files blocks until the worker catches up.
+	 *
+	 * @return The capacity of each worker queue.
+	 */
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	/**
+	 * Returns the initial number of migrated files after which a worker
+	 * commits its current transaction. The actual size is adjusted during the
+	 * migration by the {@link BatchSizeController}.
+	 *
+	 * @return The initial transaction batch size.
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Returns the smallest transaction batch size the migration may use.
+	 *
+	 * @return The minimum batch size.
+	 */
+	public int getMinBatchSize() {
+		return minBatchSize;
+	}
+
+	/**
+	 * Returns the largest transaction batch size the migration may use.
+	 *
+	 * @return The maximum batch size.
+	 */
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	/**
+	 * Returns the desired duration of a single transaction, in milliseconds.
+	 * Batches are sized so that they take roughly this long.
+	 *
+	 * @return The target transaction time.
+	 */
+	public int getBatchTargetMillis() {
+		return batchTargetMillis;
+	}
+
+	/**
+	 * Returns the commit latency, in milliseconds, above which the batch size
+	 * is reduced.
+	 *
+	 * @return The commit latency ceiling.
+	 */
+	public int getCommitLatencyCeilingMillis() {
+		return commitLatencyCeilingMillis;
+	}
+
+	/**
+	 * Returns the number of rows read per page when streaming legacy files or
+	 * Identifiers from the database.
+	 *
+	 * @return The page size.
+	 */
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * Returns the local directory where the checkpoint journal and the reports
+	 * of the migration are written.
+	 *
+	 * @return The journal directory.
+	 */
+	public String getJournalDirectory() {
+		return journalDirectory;
+	}
+
+	/**
+	 * Returns the maximum time, in milliseconds, that a journal record may wait
+	 * before being synced to disk.
+	 *
+	 * @return The journal sync interval.
+	 */
+	public int getJournalSyncIntervalMillis() {
+		return journalSyncIntervalMillis;
+	}
+
+	/**
+	 * Returns the maximum number of journal records written with a single
+	 * sync.
+	 *
+	 * @return The maximum records per sync.
+	 */
+	public int getJournalMaxRecordsPerSync() {
+		return journalMaxRecordsPerSync;
+	}
+
+	/**
+	 * Returns the maximum number of asset folders whose file index is kept in
+	 * memory to find the derived files of legacy binaries.
+	 *
+	 * @return The maximum number of indexed folders.
+	 */
+	public int getDerivedIndexMaxDirectories() {
+		return derivedIndexMaxDirectories;
+	}
+
+	/**
+	 * Returns the time, in milliseconds, after which an asset folder is read
+	 * again to find the derived files of legacy binaries.
+	 *
+	 * @return The maximum age of a folder index.
+	 */
+	public int getDerivedIndexMaxAgeMillis() {
+		return derivedIndexMaxAgeMillis;
+	}
+
+	/**
+	 * Returns the maximum number of folders kept in the lookup cache of the
+	 * migration.
+	 *
+	 * @return The folder cache size.
+	 */
+	public int getFolderCacheSize() {
+		return folderCacheSize;
+	}
+
+	/**
+	 * Indicates whether the plugin must only plan the migration, without
+	 * changing any data.
+	 *
+	 * @return Returns {@code true} for a dry run.
+	 */
+	public boolean isDryRun() {
+		return dryRun;
+	}
+
+	/**
+	 * Indicates whether the plugin must only verify the Files as Content of
+	 * previous migration runs, without changing any data.
+	 *
+	 * @return Returns {@code true} for a verification run.
+	 */
+	public boolean isVerify() {
+		return verify;
+	}
+
+	/**
+	 * Returns whether the migration records the expected state of every
+	 * migrated file in the {@link VerificationManifest}. Disabled by default,
+	 * as it requires reading and hashing every migrated binary, and the live
+	 * one inside the transaction of the worker when it differs from the
+	 * working one.
+	 *
+	 * @return Returns {@code true} if the manifest is written.
+	 */
+	public boolean isVerifyManifest() {
+		return verifyManifest;
+	}
+
+	/**
+	 * Returns the number of threads used by the verification mode.
+	 *
+	 * @return The number of verifying threads.
+	 */
+	public int getVerifyThreads() {
+		return verifyThreads;
+	}
+
+	/**
+	 * Returns the maximum number of manifest entries waiting to be verified.
+	 *
+	 * @return The verification queue capacity.
+	 */
+	public int getVerifyQueueCapacity() {
+		return verifyQueueCapacity;
+	}
+
+	/**
+	 * Returns the number of threads used by the planning mode to read the size
+	 * of the legacy binaries.
+	 *
+	 * @return The number of stat threads.
+	 */
+	public int getPlanStatThreads() {
+		return planStatThreads;
+	}
+
+	/**
+	 * Returns the throughput, in files per second, used by the planning mode to
+	 * estimate the time it takes to check the legacy files in, which cannot be
+	 * measured without migrating them.
+	 *
+	 * @return The estimated files per second.
+	 */
+	public int getPlanFilesPerSecond() {
+		return planFilesPerSecond;
+	}
+
+	/**
+	 * Returns the time between two summaries of the migration metrics in the
+	 * log. Individual files are only logged at debug level.
+	 *
+	 * @return The report interval, in seconds.
+	 */
+	public int getMetricsReportIntervalSeconds() {
+		return metricsReportIntervalSeconds;
+	}
+
+	/**
+	 * Returns the initial limit of legacy files migrated per second. It can be
+	 * changed while the migration runs via the {@link MigrationService}.
+	 *
+	 * @return The files per second, or zero if unlimited.
+	 */
+	public float getFilesPerSecondLimit() {
+		return filesPerSecondLimit;
+	}
+
+	/**
+	 * Returns the initial limit of megabytes of legacy binaries migrated per
+	 * second. It can be changed while the migration runs via the
+	 * {@link MigrationService}.
+	 *
+	 * @return The megabytes per second, or zero if unlimited.
+	 */
+	public float getMegabytesPerSecondLimit() {
+		return megabytesPerSecondLimit;
+	}
+
+	/**
+	 * Indicates whether the migration starts as soon as the bundle is started.
+	 * Otherwise, it must be started via the {@link MigrationService}.
+	 *
+	 * @return Returns {@code true} if the migration starts automatically.
+	 */
+	public boolean isAutoStart() {
+		return autoStart;
+	}
+
+	/**
+	 * Returns the maximum time the bundle waits for the migration to commit
+	 * its pending work when it is stopped.
+	 *
+	 * @return The shutdown timeout, in seconds.
+	 */
+	public int getShutdownTimeoutSeconds() {
+		return shutdownTimeoutSeconds;
+	}
+
+	/**
+	 * Indicates whether migrated contents are indexed in bulk after their
+	 * batch is committed, instead of being published one by one inside the
+	 * transaction of the worker.
+	 *
+	 * @return Returns {@code true} if indexing is deferred.
+	 */
+	public boolean isDeferredIndexing() {
+		return deferredIndexing;
+	}
+
+	/**
+	 * Returns the maximum number of contents sent to the search index in a
+	 * single bulk request when indexing is deferred.
+	 *
+	 * @return The bulk request size.
+	 */
+	public int getIndexBulkSize() {
+		return indexBulkSize;
+	}
+
+	/**
+	 * Returns the maximum number of committed contents waiting to be indexed.
+	 * When it is reached, the workers wait for the indexer to catch up.
+	 *
+	 * @return The capacity of the indexing queue.
+	 */
+	public int getIndexQueueCapacity() {
+		return indexQueueCapacity;
+	}
+
+	/**
+	 * Indicates whether the legacy files under System Host are deleted with
+	 * set-based statements in chunks, instead of one by one by the workers.
+	 *
+	 * @return Returns {@code true} if System Host is purged in bulk.
+	 */
+	public boolean isSystemHostBulkPurge() {
+		return systemHostBulkPurge;
+	}
+
+	/**
+	 * Returns the number of legacy files under System Host deleted per
+	 * transaction by the bulk purge.
+	 *
+	 * @return The purge chunk size.
+	 */
+	public int getPurgeChunkSize() {
+		return purgeChunkSize;
+	}
+
+	/**
+	 * Returns the number of threads that delete the legacy binaries purged
+	 * from System Host.
+	 *
+	 * @return The number of deleting threads.
+	 */
+	public int getPurgeDeleteThreads() {
+		return purgeDeleteThreads;
+	}
+
+	/**
+	 * Returns the number of threads that delete the binaries of migrated legacy
+	 * files once their transaction is committed. It caps the number of
+	 * concurrent deletions on the file system.
+	 *
+	 * @return The number of deleting threads.
+	 */
+	public int getDeleteThreads() {
+		return deleteThreads;
+	}
+
+	/**
+	 * Returns the maximum number of committed binaries waiting for a deleting
+	 * thread. When it is reached, workers delete binaries themselves.
+	 *
+	 * @return The deletion queue capacity.
+	 */
+	public int getDeleteQueueCapacity() {
+		return deleteQueueCapacity;
+	}
+
+	/**
+	 * Returns whether identical binaries are stored only once, as hard links,
+	 * in the asset tree of the new Files as Content.
+	 *
+	 * @return Returns {@code true} if binaries are deduplicated.
+	 */
+	public boolean isDeduplication() {
+		return deduplication;
+	}
+
+	/**
+	 * Returns the size from which binaries are hashed via memory-mapped reads
+	 * instead of buffered reads, both for deduplication and verification.
+	 *
+	 * @return The minimum size, in bytes.
+	 */
+	public int getDedupMmapMinBytes() {
+		return dedupMmapMinBytes;
+	}
+
+	/**
+	 * Returns whether the {@link MemoryGovernor} releases the caches and
+	 * sessions of every batch and shrinks batches under heap pressure.
+	 *
+	 * @return Returns {@code true} if the memory is governed.
+	 */
+	public boolean isMemoryGoverned() {
+		return memoryGoverned;
+	}
+
+	/**
+	 * Returns the fraction of the maximum heap, retained after garbage
+	 * collection, above which batches are shrunk.
+	 *
+	 * @return The high heap watermark.
+	 */
+	public double getMemoryHighWatermark() {
+		return memoryHighWatermark;
+	}
+
+	/**
+	 * Returns the fraction of the maximum heap, retained after garbage
+	 * collection, below which batches may grow again.
+	 *
+	 * @return The low heap watermark.
+	 */
+	public double getMemoryLowWatermark() {
+		return memoryLowWatermark;
+	}
+
+	/**
+	 * Returns the maximum number of attempts of a legacy file that fails with
+	 * lock timeouts or deadlocks, before it is sent to the dead-letter file.
+	 *
+	 * @return The maximum number of attempts.
+	 */
+	public int getRetryMaxAttempts() {
+		return retryMaxAttempts;
+	}
+
+	/**
+	 * Returns the wait before the first retry of a legacy file. It is doubled
+	 * for every later retry.
+	 *
+	 * @return The initial backoff, in milliseconds.
+	 */
+	public int getRetryBackoffMillis() {
+		return retryBackoffMillis;
+	}
+
+	/**
+	 * Returns the longest wait between two attempts of a legacy file.
+	 *
+	 * @return The maximum backoff, in milliseconds.
+	 */
+	public int getRetryMaxBackoffMillis() {
+		return retryMaxBackoffMillis;
+	}
+
+	/**
+	 * Returns the number of consecutive legacy files sent to the dead-letter
+	 * file that aborts the migration, as it usually means the database is not
+	 * available.
+	 *
+	 * @return The maximum number of consecutive failures.
+	 */
+	public int getMaxConsecutiveFailures() {
+		return maxConsecutiveFailures;
+	}
+
+	/**
+	 * Returns the number of threads reading the lookups and permissions of
+	 * the upcoming pages of legacy files.
+	 *
+	 * @return The number of prefetch threads.
+	 */
+	public int getPrefetchThreads() {
+		return prefetchThreads;
+	}
+
+	/**
+	 * Returns the number of pages of legacy files prefetched ahead of the one
+	 * being dispatched.
+	 *
+	 * @return The number of pages read ahead.
+	 */
+	public int getPrefetchPages() {
+		return prefetchPages;
+	}
+
+	/**
+	 * Returns the number of threads staging binaries before their files reach
+	 * a worker. If 0, the workers stage the binaries themselves.
+	 *
+	 * @return The number of staging threads.
+	 */
+	public int getStagingThreads() {
+		return stagingThreads;
+	}
+
+	/**
+	 * Returns the maximum number of binaries waiting for a staging thread.
+	 * When it is reached, the dispatching thread stages binaries itself.
+	 *
+	 * @return The staging queue capacity.
+	 */
+	public int getStagingQueueCapacity() {
+		return stagingQueueCapacity;
+	}
+
+	/**
+	 * Returns whether the migration is shared between the nodes of a cluster
+	 * via the {@link MigrationLeaseManager}. It must be set on every node that
+	 * runs the migration.
+	 *
+	 * @return Returns {@code true} if the migration is sharded.
+	 */
+	public boolean isCluster() {
+		return cluster;
+	}
+
+	/**
+	 * Returns the Identifier of this node in the lease table. If empty, the
+	 * dotCMS server Id is used.
+	 *
+	 * @return The node Id.
+	 */
+	public String getClusterNodeId() {
+		return clusterNodeId;
+	}
+
+	/**
+	 * Returns the number of legacy files per work unit of a Site.
+	 *
+	 * @return The work unit size.
+	 */
+	public int getClusterUnitSize() {
+		return clusterUnitSize;
+	}
+
+	/**
+	 * Returns the time a work unit stays leased to a node that stopped
+	 * renewing it, before any other node can claim it.
+	 *
+	 * @return The lease duration, in milliseconds.
+	 */
+	public int getClusterLeaseMillis() {
+		return clusterLeaseMillis;
+	}
+
+	/**
+	 * Returns the time between two renewals of the leases of a node.
+	 *
+	 * @return The heartbeat interval, in milliseconds.
+	 */
+	public int getClusterHeartbeatMillis() {
+		return clusterHeartbeatMillis;
+	}
+
+	/**
+	 * Returns whether the Sites are ordered by the {@link MigrationScheduler},
+	 * largest first and split into chunks, instead of being migrated one after
+	 * the other. It is ignored when the migration is shared by a cluster.
+	 *
+	 * @return Returns {@code true} if the Sites are scheduled.
+	 */
+	public boolean isSchedule() {
+		return schedule;
+	}
+
+	/**
+	 * Returns the number of threads that dispatch the chunks of the scheduled
+	 * Sites to the workers concurrently.
+	 *
+	 * @return The number of dispatch runners.
+	 */
+	public int getScheduleRunners() {
+		return scheduleRunners;
+	}
+
+	/**
+	 * Returns the number of legacy files above which a Site is split into
+	 * chunks that several runners can dispatch at the same time.
+	 *
+	 * @return The maximum number of files per chunk.
+	 */
+	public int getScheduleChunkFiles() {
+		return scheduleChunkFiles;
+	}
+
+	/**
+	 * Returns the estimated cost of migrating a legacy file, regardless of the
+	 * size of its binary.
+	 *
+	 * @return The cost per file, in milliseconds.
+	 */
+	public int getScheduleFileCostMillis() {
+		return scheduleFileCostMillis;
+	}
+
+	/**
+	 * Returns the estimated cost of migrating a megabyte of legacy binaries.
+	 *
+	 * @return The cost per megabyte, in milliseconds.
+	 */
+	public int getScheduleMegabyteCostMillis() {
+		return scheduleMegabyteCostMillis;
+	}
+
+	/**
+	 * Returns the number of files with restored permissions in a committed
+	 * batch from which the whole permission cache is flushed once, instead of
+	 * removing the entries of the batch one by one. By default, every batch
+	 * that restores permissions flushes the cache once: the permissions of
+	 * every asset are then reloaded from the database when next used, which
+	 * is cheaper than one cluster invalidation per migrated file. A higher
+	 * value keeps the cache warm for small batches on a site under load. If 0,
+	 * the cache is never flushed.
+	 *
+	 * @return The minimum number of files to flush the permission cache.
+	 */
+	public int getPermissionCacheFlushThreshold() {
+		return permissionCacheFlushThreshold;
+	}
+
+}
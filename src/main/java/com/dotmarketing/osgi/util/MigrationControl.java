@@ -0,0 +1,148 @@
+package com.dotmarketing.osgi.util;
+
+/**
+ * Shared switchboard between the {@link MigrationService} and the thread that
+ * dispatches legacy files to the workers. The dispatcher checks it before
+ * every file: it waits while the migration is paused, waits as long as the
+ * {@link RateLimiter}s require, and stops dispatching once the migration is
+ * cancelled. Every wait is interrupted as soon as the migration is resumed or
+ * cancelled.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class MigrationControl {
+
+	private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+	private final RateLimiter filesLimiter;
+	private final RateLimiter bytesLimiter;
+	private volatile boolean paused = Boolean.FALSE;
+	private volatile boolean cancelled = Boolean.FALSE;
+
+	/**
+	 * Creates the control with the specified rate limits.
+	 *
+	 * @param filesPerSecond
+	 *            - The maximum number of files per second. Zero or less means
+	 *            unlimited.
+	 * @param megabytesPerSecond
+	 *            - The maximum number of megabytes of binaries per second. Zero
+	 *            or less means unlimited.
+	 */
+	public MigrationControl(final double filesPerSecond, final double megabytesPerSecond) {
+		this.filesLimiter = new RateLimiter(filesPerSecond);
+		this.bytesLimiter = new RateLimiter(megabytesPerSecond * BYTES_PER_MEGABYTE);
+	}
+
+	/**
+	 * Requests the dispatcher to pause after the current file.
+	 */
+	public synchronized void pause() {
+		paused = Boolean.TRUE;
+	}
+
+	/**
+	 * Lets a paused dispatcher continue.
+	 */
+	public synchronized void resume() {
+		paused = Boolean.FALSE;
+		notifyAll();
+	}
+
+	/**
+	 * Requests the dispatcher to stop. Files already being migrated are
+	 * committed, and the rest will be migrated by the next run.
+	 */
+	public synchronized void cancel() {
+		cancelled = Boolean.TRUE;
+		notifyAll();
+	}
+
+	/**
+	 * Clears the pause and cancel requests before a new run.
+	 */
+	public synchronized void reset() {
+		paused = Boolean.FALSE;
+		cancelled = Boolean.FALSE;
+	}
+
+	public boolean isPaused() {
+		return paused;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Blocks while the migration is paused.
+	 *
+	 * @return Returns {@code true} if the migration can go on, or
+	 *         {@code false} if it was cancelled.
+	 * @throws InterruptedException
+	 *             The current thread was interrupted while waiting.
+	 */
+	public synchronized boolean awaitResume() throws InterruptedException {
+		while (paused && !cancelled) {
+			wait();
+		}
+		return !cancelled;
+	}
+
+	/**
+	 * Blocks as long as the rate limits require before a file of the
+	 * specified size can be dispatched.
+	 *
+	 * @param bytes
+	 *            - The size of the binary of the file.
+	 * @return Returns {@code true} if the migration can go on, or
+	 *         {@code false} if it was cancelled.
+	 * @throws InterruptedException
+	 *             The current thread was interrupted while waiting.
+	 */
+	public boolean throttle(final long bytes) throws InterruptedException {
+		final long delay = Math.max(filesLimiter.reserve(1), bytesLimiter.reserve(Math.max(0, bytes)));
+		if (delay > 0) {
+			final long deadline = System.currentTimeMillis() + delay;
+			synchronized (this) {
+				for (long remaining = delay; remaining > 0 && !cancelled; remaining = deadline
+						- System.currentTimeMillis()) {
+					wait(remaining);
+				}
+			}
+		}
+		return !cancelled;
+	}
+
+	/**
+	 * Changes the maximum number of files dispatched per second.
+	 *
+	 * @param filesPerSecond
+	 *            - The new limit. Zero or less means unlimited.
+	 */
+	public void setFilesPerSecond(final double filesPerSecond) {
+		filesLimiter.setRate(filesPerSecond);
+	}
+
+	/**
+	 * Changes the maximum number of megabytes of binaries dispatched per
+	 * second.
+	 *
+	 * @param megabytesPerSecond
+	 *            - The new limit. Zero or less means unlimited.
+	 */
+	public void setMegabytesPerSecond(final double megabytesPerSecond) {
+		bytesLimiter.setRate(megabytesPerSecond * BYTES_PER_MEGABYTE);
+	}
+
+	public double getFilesPerSecond() {
+		return filesLimiter.getRate();
+	}
+
+	public double getMegabytesPerSecond() {
+		return bytesLimiter.getRate() / BYTES_PER_MEGABYTE;
+	}
+
+}
@@ -0,0 +1,148 @@
+package com.dotmarketing.osgi.util;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides what the {@link MigrationWorkerPool} does with a legacy file that
+ * failed to migrate. Transient errors, i.e., lock timeouts, deadlocks and
+ * serialization failures, are retried with an exponential backoff, up to a
+ * maximum number of attempts. Any other error, or a transient one that keeps
+ * happening, sends the file to the {@link DeadLetterFile}.
+ * <p>
+ * As a safety net, the migration is aborted after a number of consecutive
+ * failed files, which usually means the database itself is unavailable.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class MigrationFailurePolicy {
+
+	private final int maxAttempts;
+	private final long backoffMillis;
+	private final long maxBackoffMillis;
+	private final int maxConsecutiveFailures;
+	private final DeadLetterFile deadLetters;
+
+	/**
+	 * Creates the policy.
+	 *
+	 * @param maxAttempts
+	 *            - The maximum number of attempts of a file failing with
+	 *            transient errors.
+	 * @param backoffMillis
+	 *            - The wait before the first retry, doubled for every later
+	 *            one.
+	 * @param maxBackoffMillis
+	 *            - The longest wait between two attempts.
+	 * @param maxConsecutiveFailures
+	 *            - The number of consecutive dead-lettered files that aborts
+	 *            the migration.
+	 * @param deadLetters
+	 *            - Records the files that could not be migrated.
+	 */
+	public MigrationFailurePolicy(final int maxAttempts, final long backoffMillis, final long maxBackoffMillis,
+			final int maxConsecutiveFailures, final DeadLetterFile deadLetters) {
+		this.maxAttempts = Math.max(1, maxAttempts);
+		this.backoffMillis = Math.max(0, backoffMillis);
+		this.maxBackoffMillis = Math.max(this.backoffMillis, maxBackoffMillis);
+		this.maxConsecutiveFailures = Math.max(1, maxConsecutiveFailures);
+		this.deadLetters = deadLetters;
+	}
+
+	/**
+	 * Returns whether an error is worth retrying: lock timeouts, deadlocks and
+	 * serialization failures, in any of the databases supported by dotCMS.
+	 *
+	 * @param error
+	 *            - The error.
+	 * @return Returns {@code true} if the error is transient.
+	 */
+	public boolean isTransient(final Throwable error) {
+		for (Throwable cause = error; null != cause; cause = cause.getCause() == cause ? null : cause.getCause()) {
+			final String type = cause.getClass().getSimpleName();
+			if (cause instanceof SQLTransientException || type.contains("LockAcquisition")
+					|| type.contains("LockTimeout") || type.contains("Deadlock")
+					|| type.contains("PessimisticLock")) {
+				return true;
+			}
+			if (cause instanceof SQLException && isTransient((SQLException) cause)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns whether the maximum number of attempts of a file has been reached.
+	 *
+	 * @param attempts
+	 *            - The number of failed attempts so far.
+	 * @return Returns {@code true} if the file can be retried.
+	 */
+	public boolean canRetry(final int attempts) {
+		return attempts < maxAttempts;
+	}
+
+	/**
+	 * Returns the wait before the next attempt of a file, with up to 25% of
+	 * random jitter, so workers that collided do not collide again.
+	 *
+	 * @param attempts
+	 *            - The number of failed attempts so far.
+	 * @return The wait, in milliseconds.
+	 */
+	public long getBackoffMillis(final int attempts) {
+		final long backoff = Math.min(maxBackoffMillis, backoffMillis << Math.min(20, Math.max(0, attempts - 1)));
+		return backoff + (backoff > 3 ? ThreadLocalRandom.current().nextLong(backoff / 4) : 0);
+	}
+
+	/**
+	 * Returns the number of consecutive dead-lettered files that aborts the
+	 * migration.
+	 *
+	 * @return The maximum number of consecutive failures.
+	 */
+	public int getMaxConsecutiveFailures() {
+		return maxConsecutiveFailures;
+	}
+
+	/**
+	 * Returns the file where failed legacy files are recorded.
+	 *
+	 * @return The dead-letter file.
+	 */
+	public DeadLetterFile getDeadLetters() {
+		return deadLetters;
+	}
+
+	/**
+	 * Checks the SQL state and vendor codes of lock timeouts, deadlocks and
+	 * serialization failures.
+	 *
+	 * @param error
+	 *            - The SQL error.
+	 * @return Returns {@code true} if the error is transient.
+	 */
+	private static boolean isTransient(final SQLException error) {
+		final String state = error.getSQLState();
+		if (null != state && (state.startsWith("40") || "55P03".equals(state) || "HYT00".equals(state))) {
+			// Transaction rollback (serialization failure, deadlock), lock not
+			// available (PostgreSQL) and lock timeout
+			return true;
+		}
+		switch (error.getErrorCode()) {
+		case 60: // ORA-00060: deadlock detected
+		case 30006: // ORA-30006: resource busy, WAIT timeout expired
+		case 1205: // MySQL lock wait timeout, SQL Server deadlock victim
+		case 1213: // MySQL deadlock
+		case 1222: // SQL Server lock request timeout
+			return true;
+		default:
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+package com.dotmarketing.osgi.util;
+
+import java.util.List;
+
+/**
+ * Pushes migrated Files as Content to the search index outside of the
+ * transactions of the workers. Inodes are handed over after their batch has
+ * been committed, and implementations index them in large groups instead of
+ * one document at a time. Implementations must bound the number of pending
+ * Inodes and make {@link #add(List)} block when the bound is reached, so a
+ * slow index slows the migration down instead of filling the heap.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public interface MigrationIndexer {
+
+	/**
+	 * Starts indexing in the background.
+	 */
+	void start();
+
+	/**
+	 * Queues the specified Inodes to be indexed, blocking while the queue is
+	 * full.
+	 *
+	 * @param inodes
+	 *            - The Inodes of committed Files as Content.
+	 * @throws InterruptedException
+	 *             The current thread was interrupted while waiting.
+	 */
+	void add(List<String> inodes) throws InterruptedException;
+
+	/**
+	 * Indexes every queued Inode and stops the background indexing.
+	 *
+	 * @throws InterruptedException
+	 *             The current thread was interrupted while waiting.
+	 */
+	void close() throws InterruptedException;
+
+	/**
+	 * Returns the number of Inodes indexed so far.
+	 *
+	 * @return The number of indexed Inodes.
+	 */
+	long getIndexedCount();
+
+	/**
+	 * Returns the number of Inodes that could not be indexed. Those contents
+	 * are picked up by a regular reindex of the File Asset Content Type.
+	 *
+	 * @return The number of failed Inodes.
+	 */
+	long getFailedCount();
+
+	/**
+	 * Creates the indexer of every migration run, so the migrator can be
+	 * measured or tested with a stand-in of the search index.
+	 */
+	interface Factory {
+
+		/**
+		 * Creates an indexer. It is started and closed by the caller.
+		 *
+		 * @param metrics
+		 *            - Records the latency and the errors of the indexer.
+		 * @param bulkSize
+		 *            - The maximum number of contents indexed at once.
+		 * @param queueCapacity
+		 *            - The maximum number of Inodes waiting to be indexed.
+		 * @return The indexer.
+		 */
+		MigrationIndexer newIndexer(MigrationMetrics metrics, int bulkSize, int queueCapacity);
+
+	}
+
+}
@@ -0,0 +1,678 @@
+package com.dotmarketing.osgi.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.dotmarketing.beans.Host;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotHibernateException;
+import com.dotmarketing.util.Logger;
+
+/**
+ * Shares the migration between the nodes of a dotCMS cluster. The legacy files
+ * of every Site are split into work units, i.e., ranges of Inodes, recorded in
+ * the {@value #TABLE} table. Every node claims one unit at a time with an
+ * expiring lease, and renews it with heartbeats while it migrates the files
+ * of the unit. The heartbeats also record the Inode up to which the unit is
+ * committed, so when a node dies and its lease expires, any other node
+ * reclaims the unit and resumes it from there.
+ * <p>
+ * Leases are claimed and renewed with conditional updates, and every claim
+ * gets a random token that is read back to find out whether the update won,
+ * so no vendor-specific locking is needed. The units are planned once per
+ * run, by the first node that claims the planning lease; the others wait for
+ * it to finish. A node that starts once every unit of the previous run is
+ * completed plans a new run, which picks up the legacy files left behind,
+ * e.g., the ones recorded in the dead-letter file.
+ * Lease expiration is based on the clocks of the nodes, so they are expected
+ * to be synchronized well within the lease duration.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class MigrationLeaseManager {
+
+	public static final String TABLE = "legacy_migration_lease";
+
+	private static final String PLAN_UNIT = "plan";
+	private static final String PENDING = "PENDING";
+	private static final String LEASED = "LEASED";
+	private static final String DONE = "DONE";
+	private static final int CLAIM_CANDIDATES = 10;
+
+	private final String nodeId;
+	private final long leaseMillis;
+	private final long heartbeatMillis;
+	private final MigrationLeaseStore store;
+	private final MigrationTransactions transactions;
+	private final Set<Lease> held = new CopyOnWriteArraySet<Lease>();
+	private ScheduledExecutorService heartbeat;
+
+	/**
+	 * A range of legacy files of a Site, migrated by one node at a time.
+	 */
+	public static final class WorkUnit {
+
+		private final String unitId;
+		private final String siteId;
+		private final String startInode;
+		private final String endInode;
+		private final String lastInode;
+
+		private WorkUnit(final String unitId, final String siteId, final String startInode, final String endInode,
+				final String lastInode) {
+			this.unitId = unitId;
+			this.siteId = siteId;
+			this.startInode = startInode;
+			this.endInode = endInode;
+			this.lastInode = lastInode;
+		}
+
+		public String getUnitId() {
+			return unitId;
+		}
+
+		public String getSiteId() {
+			return siteId;
+		}
+
+		/**
+		 * Returns the Inode the unit starts after, or an empty String for the
+		 * first unit of a Site.
+		 *
+		 * @return The exclusive lower bound of the unit.
+		 */
+		public String getStartInode() {
+			return startInode;
+		}
+
+		/**
+		 * Returns the last Inode of the unit, or an empty String for the last
+		 * unit of a Site, which also takes any file added after the planning.
+		 *
+		 * @return The inclusive upper bound of the unit.
+		 */
+		public String getEndInode() {
+			return endInode;
+		}
+
+		/**
+		 * Returns the Inode the migration of the unit must resume after: the
+		 * last one committed by a previous holder of the unit, if any.
+		 *
+		 * @return The Inode to resume after.
+		 */
+		public String getResumeInode() {
+			return lastInode.isEmpty() ? startInode : lastInode;
+		}
+
+	}
+
+	/**
+	 * A work unit claimed by this node. It is renewed by the heartbeats until
+	 * it is completed or released.
+	 */
+	public final class Lease {
+
+		private final WorkUnit unit;
+		private final String token;
+		private volatile long expiresAt;
+		private volatile boolean lost = Boolean.FALSE;
+		private volatile CheckpointTracker progress;
+		private volatile String lastInode;
+
+		private Lease(final WorkUnit unit, final String token, final long expiresAt) {
+			this.unit = unit;
+			this.token = token;
+			this.expiresAt = expiresAt;
+			this.lastInode = unit.lastInode;
+		}
+
+		public WorkUnit getUnit() {
+			return unit;
+		}
+
+		/**
+		 * Returns whether the lease expired and the unit may have been claimed
+		 * by another node. The files of the unit must no longer be dispatched.
+		 *
+		 * @return Returns {@code true} if the lease was lost.
+		 */
+		public boolean isLost() {
+			return lost;
+		}
+
+		/**
+		 * Makes the heartbeats record the Inode up to which the Site of the
+		 * unit has been committed.
+		 *
+		 * @param checkpoints
+		 *            - Follows the committed files of the Site.
+		 */
+		public void track(final CheckpointTracker checkpoints) {
+			this.progress = checkpoints;
+		}
+
+		/**
+		 * Returns the Inode up to which the unit is known to be committed.
+		 *
+		 * @return The last committed Inode.
+		 */
+		private String getLastInode() {
+			final CheckpointTracker checkpoints = progress;
+			if (null != checkpoints) {
+				final String inode = checkpoints.getCommittedInode(unit.siteId);
+				if (null != inode) {
+					lastInode = inode;
+				}
+			}
+			return lastInode;
+		}
+
+	}
+
+	/**
+	 * Creates the lease manager.
+	 *
+	 * @param nodeId
+	 *            - The Identifier of this node, e.g., its dotCMS server Id.
+	 * @param leaseMillis
+	 *            - The time a lease lasts without a heartbeat.
+	 * @param heartbeatMillis
+	 *            - The time between two heartbeats.
+	 * @param store
+	 *            - Reads and writes the lease table.
+	 * @param transactions
+	 *            - Closes the session of the heartbeat thread.
+	 */
+	public MigrationLeaseManager(final String nodeId, final long leaseMillis, final long heartbeatMillis,
+			final MigrationLeaseStore store, final MigrationTransactions transactions) {
+		this.nodeId = nodeId;
+		this.leaseMillis = leaseMillis;
+		this.heartbeatMillis = Math.min(heartbeatMillis, leaseMillis / 2);
+		this.store = store;
+		this.transactions = transactions;
+	}
+
+	/**
+	 * Creates the lease table, if needed, and starts the heartbeats.
+	 *
+	 * @throws DotDataException
+	 *             The lease table could not be created.
+	 */
+	public synchronized void start() throws DotDataException {
+		if (!tableExists()) {
+			try {
+				update(getCreateTableSQL());
+			} catch (DotDataException e) {
+				// Another node may have created it in the meantime
+				if (!tableExists()) {
+					throw e;
+				}
+			}
+		}
+		if (null != heartbeat) {
+			return;
+		}
+		heartbeat = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, "LegacyFilesMigrator-lease-heartbeat");
+				thread.setDaemon(Boolean.TRUE);
+				return thread;
+			}
+
+		});
+		heartbeat.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				renewLeases();
+			}
+
+		}, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops the heartbeats. Leases still held expire on their own.
+	 */
+	public synchronized void stop() {
+		if (null != heartbeat) {
+			heartbeat.shutdownNow();
+			heartbeat = null;
+		}
+	}
+
+	/**
+	 * Splits the legacy files of every Site into work units, unless they have
+	 * already been planned. If another node is planning them, this method
+	 * waits for it, and takes over if its planning lease expires.
+	 *
+	 * @param sites
+	 *            - All the Sites.
+	 * @param unitSize
+	 *            - The number of legacy files per work unit.
+	 * @param control
+	 *            - Stops waiting once the migration is cancelled.
+	 * @throws DotDataException
+	 *             An error occurred when planning the work units.
+	 * @throws InterruptedException
+	 *             The current thread was interrupted while waiting.
+	 */
+	public void plan(final List<Host> sites, final int unitSize, final MigrationControl control)
+			throws DotDataException, InterruptedException {
+		final List<String> siteIds = new ArrayList<String>(sites.size());
+		for (Host site : sites) {
+			siteIds.add(site.getIdentifier());
+		}
+		plan(siteIds, unitSize, control);
+	}
+
+	/**
+	 * Splits the legacy files of the specified Sites into work units, unless
+	 * they have already been planned for the current run. If every unit of
+	 * the previous run is completed, a new run is planned instead. If another
+	 * node is planning them, this method waits for it, and takes over if its
+	 * planning lease expires.
+	 *
+	 * @param siteIds
+	 *            - The Identifiers of all the Sites.
+	 * @param unitSize
+	 *            - The number of legacy files per work unit.
+	 * @param control
+	 *            - Stops waiting once the migration is cancelled.
+	 * @throws DotDataException
+	 *             An error occurred when planning the work units.
+	 * @throws InterruptedException
+	 *             The current thread was interrupted while waiting.
+	 */
+	void plan(final Collection<String> siteIds, final int unitSize, final MigrationControl control)
+			throws DotDataException, InterruptedException {
+		try {
+			update("INSERT INTO " + TABLE + " (unit_id, site_id, status) VALUES (?, ?, ?)", PLAN_UNIT, PLAN_UNIT,
+					PENDING);
+		} catch (DotDataException e) {
+			// The planning unit already exists
+		}
+		// Only the run found when this node started can be replaced, so that a
+		// run planned in the meantime by another node is never planned again
+		final Map<String, Object> previousPlan = readUnit(PLAN_UNIT);
+		final String previousToken = null == previousPlan ? "" : value(previousPlan, "lease_token");
+		while (!control.isCancelled()) {
+			final Map<String, Object> planRow = readUnit(PLAN_UNIT);
+			final Lease lease;
+			if (null != planRow && DONE.equals(value(planRow, "status"))) {
+				if (!previousToken.equals(value(planRow, "lease_token")) || !isFinished()) {
+					return;
+				}
+				lease = tryReplan(previousToken, System.currentTimeMillis());
+				if (null != lease) {
+					Logger.info(this.getClass(), "Every work unit of the previous run is completed. Planning a "
+							+ "new run for the legacy files left.");
+				}
+			} else {
+				lease = tryClaim(PLAN_UNIT, System.currentTimeMillis());
+			}
+			if (null != lease) {
+				try {
+					if (planUnits(siteIds, unitSize, lease)) {
+						complete(lease, 0);
+						return;
+					}
+				} catch (DotDataException e) {
+					release(lease);
+					throw e;
+				}
+				Logger.warn(this.getClass(), "The planning lease expired while planning the legacy files migration. "
+						+ "It is left to the node that took it over.");
+				held.remove(lease);
+			}
+			Logger.info(this.getClass(), "Waiting for another node to plan the legacy files migration...");
+			Thread.sleep(heartbeatMillis);
+		}
+	}
+
+	/**
+	 * Claims the next available work unit: one that is pending, or whose lease
+	 * has expired.
+	 *
+	 * @return The lease of the unit, or {@code null} if no unit is available
+	 *         right now.
+	 * @throws DotDataException
+	 *             An error occurred when claiming a unit.
+	 */
+	public Lease claim() throws DotDataException {
+		final long now = System.currentTimeMillis();
+		final List<Map<String, Object>> rows = store.query("SELECT unit_id FROM " + TABLE
+				+ " WHERE unit_id <> ? AND (status = ? OR (status = ? AND lease_expires < ?)) ORDER BY unit_id",
+				CLAIM_CANDIDATES, PLAN_UNIT, PENDING, LEASED, now);
+		for (Map<String, Object> row : rows) {
+			final Lease lease = tryClaim(row.get("unit_id").toString(), now);
+			if (null != lease) {
+				return lease;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns whether every work unit has been completed, by any node.
+	 *
+	 * @return Returns {@code true} if the migration is finished.
+	 * @throws DotDataException
+	 *             An error occurred when reading the work units.
+	 */
+	public boolean isFinished() throws DotDataException {
+		final List<Map<String, Object>> rows = store.query("SELECT COUNT(*) AS pending FROM " + TABLE
+				+ " WHERE status <> ?", 0, DONE);
+		return Integer.parseInt(value(rows.get(0), "pending")) == 0;
+	}
+
+	/**
+	 * Marks the unit of a lease as completed.
+	 *
+	 * @param lease
+	 *            - The lease of the unit.
+	 * @param processed
+	 *            - The number of legacy files committed by this node.
+	 * @throws DotDataException
+	 *             An error occurred when updating the unit.
+	 */
+	public void complete(final Lease lease, final long processed) throws DotDataException {
+		held.remove(lease);
+		update("UPDATE " + TABLE + " SET status = ?, last_inode = ?, processed = ?, lease_expires = ? "
+				+ "WHERE unit_id = ? AND lease_token = ?", DONE, lease.getLastInode(), processed,
+				System.currentTimeMillis(), lease.unit.unitId, lease.token);
+	}
+
+	/**
+	 * Gives the unit of a lease back, e.g., when the migration is cancelled,
+	 * so any node can resume it from its last committed Inode.
+	 *
+	 * @param lease
+	 *            - The lease of the unit.
+	 * @throws DotDataException
+	 *             An error occurred when updating the unit.
+	 */
+	public void release(final Lease lease) throws DotDataException {
+		held.remove(lease);
+		update("UPDATE " + TABLE + " SET status = ?, owner = NULL, lease_token = NULL, last_inode = ? "
+				+ "WHERE unit_id = ? AND lease_token = ?", PENDING, lease.getLastInode(), lease.unit.unitId,
+				lease.token);
+	}
+
+	/**
+	 * Returns the Identifier of this node.
+	 *
+	 * @return The node Id.
+	 */
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	/**
+	 * Claims a unit with a conditional update, and reads it back to find out
+	 * whether this node won it.
+	 *
+	 * @param unitId
+	 *            - The Id of the unit.
+	 * @param now
+	 *            - The current time.
+	 * @return The lease, or {@code null} if another node claimed the unit.
+	 * @throws DotDataException
+	 *             An error occurred when claiming the unit.
+	 */
+	private Lease tryClaim(final String unitId, final long now) throws DotDataException {
+		final String token = UUID.randomUUID().toString();
+		final long expiresAt = now + leaseMillis;
+		update("UPDATE " + TABLE + " SET status = ?, owner = ?, lease_token = ?, lease_expires = ? "
+				+ "WHERE unit_id = ? AND (status = ? OR (status = ? AND lease_expires < ?))", LEASED, nodeId, token,
+				expiresAt, unitId, PENDING, LEASED, now);
+		return readLease(unitId, token, expiresAt);
+	}
+
+	/**
+	 * Claims the planning unit of a completed run with a conditional update,
+	 * so that a single node plans the next run.
+	 *
+	 * @param previousToken
+	 *            - The lease token the completed run was planned with.
+	 * @param now
+	 *            - The current time.
+	 * @return The lease, or {@code null} if another node claimed the unit.
+	 * @throws DotDataException
+	 *             An error occurred when claiming the unit.
+	 */
+	private Lease tryReplan(final String previousToken, final long now) throws DotDataException {
+		final String token = UUID.randomUUID().toString();
+		final long expiresAt = now + leaseMillis;
+		update("UPDATE " + TABLE + " SET status = ?, owner = ?, lease_token = ?, lease_expires = ? "
+				+ "WHERE unit_id = ? AND status = ? AND lease_token = ?", LEASED, nodeId, token, expiresAt,
+				PLAN_UNIT, DONE, previousToken);
+		return readLease(PLAN_UNIT, token, expiresAt);
+	}
+
+	/**
+	 * Reads a unit back after claiming it, to find out whether this node won
+	 * it.
+	 *
+	 * @param unitId
+	 *            - The Id of the unit.
+	 * @param token
+	 *            - The token of the claim.
+	 * @param expiresAt
+	 *            - The time the claimed lease expires.
+	 * @return The lease, or {@code null} if another node claimed the unit.
+	 * @throws DotDataException
+	 *             An error occurred when reading the unit.
+	 */
+	private Lease readLease(final String unitId, final String token, final long expiresAt)
+			throws DotDataException {
+		final Map<String, Object> row = readUnit(unitId);
+		if (null == row || !token.equals(value(row, "lease_token"))) {
+			return null;
+		}
+		final Lease lease = new Lease(new WorkUnit(unitId, value(row, "site_id"), value(row, "start_inode"),
+				value(row, "end_inode"), value(row, "last_inode")), token, expiresAt);
+		held.add(lease);
+		return lease;
+	}
+
+	/**
+	 * Renews all the leases held by this node, along with their progress. A
+	 * lease that could not be renewed before it expired is marked as lost.
+	 */
+	private void renewLeases() {
+		try {
+			for (Lease lease : held) {
+				final long now = System.currentTimeMillis();
+				try {
+					update("UPDATE " + TABLE + " SET lease_expires = ?, last_inode = ? "
+							+ "WHERE unit_id = ? AND lease_token = ? AND status = ?", now + leaseMillis,
+							lease.getLastInode(), lease.unit.unitId, lease.token, LEASED);
+					final Map<String, Object> row = readUnit(lease.unit.unitId);
+					if (null != row && lease.token.equals(value(row, "lease_token"))) {
+						lease.expiresAt = now + leaseMillis;
+						continue;
+					}
+				} catch (DotDataException e) {
+					Logger.warn(this, "Could not renew the lease of work unit '" + lease.unit.unitId + "': "
+							+ e.getMessage());
+					if (now < lease.expiresAt) {
+						continue;
+					}
+				}
+				Logger.warn(this, "The lease of work unit '" + lease.unit.unitId + "' was lost.");
+				lease.lost = Boolean.TRUE;
+				held.remove(lease);
+			}
+		} finally {
+			try {
+				transactions.closeSession();
+			} catch (DotHibernateException e) {
+				Logger.warn(this, "Could not close the session of the lease heartbeat: " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Splits every Site into ranges of Inodes of the same size. The last range
+	 * of a Site has no upper bound, and the System Host is a single range, as
+	 * its legacy files are purged as a whole. The units of a previous run are
+	 * replaced.
+	 * <p>
+	 * Splitting a Site may take longer than the planning lease, so the lease
+	 * is checked and renewed before anything is written. Once it has been
+	 * taken over by another node, which plans every unit again, nothing else
+	 * is written.
+	 *
+	 * @param siteIds
+	 *            - The Identifiers of all the Sites.
+	 * @param unitSize
+	 *            - The number of legacy files per work unit.
+	 * @param lease
+	 *            - The planning lease.
+	 * @return Returns {@code true} if every unit was planned, or {@code false}
+	 *         if the planning lease was lost.
+	 * @throws DotDataException
+	 *             An error occurred when recording the units.
+	 */
+	private boolean planUnits(final Collection<String> siteIds, final int unitSize, final Lease lease)
+			throws DotDataException {
+		if (!renew(lease)) {
+			return false;
+		}
+		// Units left by a previous run, or by a planning node that died, are
+		// planned again
+		update("DELETE FROM " + TABLE + " WHERE unit_id <> ?", PLAN_UNIT);
+		int units = 0;
+		for (String siteId : siteIds) {
+			final List<String> boundaries = Host.SYSTEM_HOST.equalsIgnoreCase(siteId) ? new ArrayList<String>()
+					: store.findRangeBoundaries(siteId, unitSize);
+			if (!renew(lease)) {
+				return false;
+			}
+			String start = "";
+			for (int i = 0; i <= boundaries.size(); i++) {
+				final String end = i < boundaries.size() ? boundaries.get(i) : "";
+				update("INSERT INTO " + TABLE + " (unit_id, site_id, start_inode, end_inode, status, last_inode, "
+						+ "processed) VALUES (?, ?, ?, ?, ?, ?, ?)", siteId + ":" + String.format("%05d", i), siteId,
+						start, end, PENDING, "", 0L);
+				start = end;
+				units++;
+			}
+		}
+		Logger.info(this.getClass(), "The legacy files migration was split into " + units + " work units.");
+		return true;
+	}
+
+	/**
+	 * Extends a lease with a conditional update, and reads it back to find out
+	 * whether this node still holds it.
+	 *
+	 * @param lease
+	 *            - The lease.
+	 * @return Returns {@code true} if the lease is still held by this node.
+	 * @throws DotDataException
+	 *             An error occurred when updating the lease.
+	 */
+	private boolean renew(final Lease lease) throws DotDataException {
+		if (lease.lost) {
+			return false;
+		}
+		final long now = System.currentTimeMillis();
+		update("UPDATE " + TABLE + " SET lease_expires = ? WHERE unit_id = ? AND lease_token = ? AND status = ?",
+				now + leaseMillis, lease.unit.unitId, lease.token, LEASED);
+		final Map<String, Object> row = readUnit(lease.unit.unitId);
+		if (null != row && lease.token.equals(value(row, "lease_token"))) {
+			lease.expiresAt = now + leaseMillis;
+			return true;
+		}
+		lease.lost = Boolean.TRUE;
+		return false;
+	}
+
+	/**
+	 * Reads a work unit.
+	 *
+	 * @param unitId
+	 *            - The Id of the unit.
+	 * @return The row of the unit, or {@code null} if it does not exist.
+	 * @throws DotDataException
+	 *             An error occurred when reading the unit.
+	 */
+	private Map<String, Object> readUnit(final String unitId) throws DotDataException {
+		final List<Map<String, Object>> rows = store.query("SELECT * FROM " + TABLE + " WHERE unit_id = ?", 0,
+				unitId);
+		return rows.isEmpty() ? null : rows.get(0);
+	}
+
+	/**
+	 * Returns whether the lease table exists.
+	 *
+	 * @return Returns {@code true} if the table exists.
+	 */
+	private boolean tableExists() {
+		try {
+			store.query("SELECT COUNT(*) AS units FROM " + TABLE, 0);
+			return true;
+		} catch (DotDataException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Executes a statement that does not return rows.
+	 *
+	 * @param sql
+	 *            - The statement.
+	 * @param params
+	 *            - The values of its parameters.
+	 * @throws DotDataException
+	 *             An error occurred when executing the statement.
+	 */
+	private void update(final String sql, final Object... params) throws DotDataException {
+		store.update(sql, params);
+	}
+
+	/**
+	 * Returns a column of a row as a String. Oracle stores empty Strings as
+	 * {@code NULL}, so both are read as an empty String.
+	 *
+	 * @param row
+	 *            - The row.
+	 * @param column
+	 *            - The column.
+	 * @return The value, or an empty String.
+	 */
+	private static String value(final Map<String, Object> row, final String column) {
+		final Object value = row.get(column);
+		return null == value ? "" : value.toString();
+	}
+
+	/**
+	 * Returns the statement that creates the lease table.
+	 *
+	 * @return The create statement.
+	 */
+	private String getCreateTableSQL() {
+		final String text = store.isOracle() ? "varchar2" : "varchar";
+		final String number = store.isOracle() ? "number(19)" : "bigint";
+		return "CREATE TABLE " + TABLE + " (unit_id " + text + "(100) NOT NULL PRIMARY KEY, site_id " + text
+				+ "(36) NOT NULL, start_inode " + text + "(36), end_inode " + text + "(36), status " + text
+				+ "(16) NOT NULL, owner " + text + "(255), lease_token " + text + "(36), lease_expires " + number
+				+ ", last_inode " + text + "(36), processed " + number + ")";
+	}
+
+}
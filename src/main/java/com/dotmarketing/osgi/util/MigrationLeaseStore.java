@@ -0,0 +1,68 @@
+package com.dotmarketing.osgi.util;
+
+import java.util.List;
+import java.util.Map;
+
+import com.dotmarketing.exception.DotDataException;
+
+/**
+ * Database access of the {@link MigrationLeaseManager}. Every statement runs
+ * on its own, outside of any transaction of the migration, so that leases
+ * are visible to the other nodes right away. Keeping it behind this interface
+ * allows the leases to be exercised by several threads against an embedded
+ * database instead of a dotCMS instance.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public interface MigrationLeaseStore {
+
+	/**
+	 * Runs a query.
+	 *
+	 * @param sql
+	 *            - The query.
+	 * @param maxRows
+	 *            - The maximum number of rows to return, or 0 for all.
+	 * @param params
+	 *            - The values of its parameters.
+	 * @return The rows, with their column names in lower case.
+	 * @throws DotDataException
+	 *             An error occurred when running the query.
+	 */
+	List<Map<String, Object>> query(String sql, int maxRows, Object... params) throws DotDataException;
+
+	/**
+	 * Executes a statement that does not return rows.
+	 *
+	 * @param sql
+	 *            - The statement.
+	 * @param params
+	 *            - The values of its parameters.
+	 * @throws DotDataException
+	 *             An error occurred when executing the statement.
+	 */
+	void update(String sql, Object... params) throws DotDataException;
+
+	/**
+	 * Returns whether the database is Oracle, whose column types differ.
+	 *
+	 * @return Returns {@code true} on Oracle.
+	 */
+	boolean isOracle();
+
+	/**
+	 * Splits the legacy files of a Site into ranges of the same size.
+	 *
+	 * @param siteId
+	 *            - The Identifier of the Site.
+	 * @param rangeSize
+	 *            - The number of legacy files per range.
+	 * @return The last Inode of every range but the last one, in order.
+	 * @throws DotDataException
+	 *             An error occurred when reading the legacy files.
+	 */
+	List<String> findRangeBoundaries(String siteId, int rangeSize) throws DotDataException;
+
+}
@@ -0,0 +1,342 @@
+package com.dotmarketing.osgi.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dotmarketing.beans.Identifier;
+import com.dotmarketing.beans.VersionInfo;
+import com.dotmarketing.business.DotStateException;
+import com.dotmarketing.business.IdentifierAPI;
+import com.dotmarketing.business.Versionable;
+import com.dotmarketing.business.VersionableAPI;
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.db.HibernateUtil;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotSecurityException;
+import com.dotmarketing.portlets.files.model.File;
+import com.dotmarketing.portlets.folders.business.FolderAPI;
+import com.liferay.portal.model.User;
+
+/**
+ * Migration-scoped lookup layer for the data every legacy file needs before it
+ * can be migrated: its Identifier, its version info, all of its versions and
+ * its parent folder.
+ * <p>
+ * Identifiers, version info and versions are prefetched for a whole page of
+ * legacy files with a few {@code IN}-list queries, and each entry is handed
+ * out once and then discarded, so memory stays bounded by the page size.
+ * Folders are resolved via a bounded LRU cache keyed by Site and parent path,
+ * as every file of a folder needs the same one. Anything that was not
+ * prefetched falls back to the regular dotCMS APIs. Hits and misses of every
+ * lookup are counted.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class MigrationLookupCache {
+
+	private static final boolean RESPECT_FRONTEND_ROLES = Boolean.TRUE;
+
+	private final IdentifierAPI identifierAPI;
+	private final VersionableAPI versionableAPI;
+	private final FolderAPI folderAPI;
+	private final User user;
+	private final Map<String, Identifier> identifiers = new ConcurrentHashMap<String, Identifier>();
+	private final Map<String, VersionInfo> versionInfos = new ConcurrentHashMap<String, VersionInfo>();
+	private final Map<String, List<Versionable>> versions = new ConcurrentHashMap<String, List<Versionable>>();
+	private final Map<String, String> folders;
+	private final AtomicLong identifierHits = new AtomicLong();
+	private final AtomicLong identifierMisses = new AtomicLong();
+	private final AtomicLong versionInfoHits = new AtomicLong();
+	private final AtomicLong versionInfoMisses = new AtomicLong();
+	private final AtomicLong versionsHits = new AtomicLong();
+	private final AtomicLong versionsMisses = new AtomicLong();
+	private final AtomicLong folderHits = new AtomicLong();
+	private final AtomicLong folderMisses = new AtomicLong();
+
+	/**
+	 * Creates the lookup layer.
+	 *
+	 * @param identifierAPI
+	 *            - The Identifier API, used on cache misses.
+	 * @param versionableAPI
+	 *            - The Versionable API, used on cache misses.
+	 * @param folderAPI
+	 *            - The Folder API, used on cache misses.
+	 * @param user
+	 *            - The user performing the lookups.
+	 * @param maxFolders
+	 *            - The maximum number of folders kept in the LRU cache.
+	 */
+	public MigrationLookupCache(final IdentifierAPI identifierAPI, final VersionableAPI versionableAPI,
+			final FolderAPI folderAPI, final User user, final int maxFolders) {
+		this.identifierAPI = identifierAPI;
+		this.versionableAPI = versionableAPI;
+		this.folderAPI = folderAPI;
+		this.user = user;
+		this.folders = new LinkedHashMap<String, String>(16, 0.75f, Boolean.TRUE) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+				return size() > maxFolders;
+			}
+
+		};
+	}
+
+	/**
+	 * Loads the Identifiers, version info and versions of a page of legacy
+	 * files with a few bulk queries.
+	 *
+	 * @param page
+	 *            - The page of legacy files.
+	 * @throws DotDataException
+	 *             An error occurred when reading the data.
+	 */
+	public void prefetch(final List<LegacyFileSource.Entry> page) throws DotDataException {
+		final List<String> ids = new ArrayList<String>(page.size());
+		for (LegacyFileSource.Entry entry : page) {
+			ids.add(entry.getIdentifier());
+		}
+		for (List<String> chunk : SqlHelper.chunks(ids)) {
+			prefetchIdentifiers(chunk);
+			prefetchVersionInfo(chunk);
+			prefetchVersions(chunk);
+		}
+	}
+
+	/**
+	 * Returns the Identifier of the specified legacy file.
+	 *
+	 * @param file
+	 *            - The legacy file.
+	 * @return The Identifier.
+	 * @throws DotDataException
+	 *             An error occurred when reading the Identifier.
+	 */
+	public Identifier findIdentifier(final File file) throws DotDataException {
+		final Identifier identifier = identifiers.remove(file.getIdentifier());
+		if (null != identifier) {
+			identifierHits.incrementAndGet();
+			return identifier;
+		}
+		identifierMisses.incrementAndGet();
+		return identifierAPI.find(file);
+	}
+
+	/**
+	 * Returns the version info of the specified Identifier.
+	 *
+	 * @param identifier
+	 *            - The Identifier.
+	 * @return The version info.
+	 * @throws DotDataException
+	 *             An error occurred when reading the version info.
+	 */
+	public VersionInfo findVersionInfo(final Identifier identifier) throws DotDataException {
+		final VersionInfo versionInfo = versionInfos.remove(identifier.getId());
+		if (null != versionInfo) {
+			versionInfoHits.incrementAndGet();
+			return versionInfo;
+		}
+		versionInfoMisses.incrementAndGet();
+		return versionableAPI.getVersionInfo(identifier.getId());
+	}
+
+	/**
+	 * Returns all the versions of the specified Identifier.
+	 *
+	 * @param identifier
+	 *            - The Identifier.
+	 * @return The list of versions.
+	 * @throws DotStateException
+	 *             An error occurred when retrieving the information.
+	 * @throws DotDataException
+	 *             An error occurred when reading the versions.
+	 * @throws DotSecurityException
+	 *             The user does not have permissions to read the versions.
+	 */
+	public List<Versionable> findAllVersions(final Identifier identifier)
+			throws DotStateException, DotDataException, DotSecurityException {
+		final List<Versionable> fileVersions = versions.remove(identifier.getId());
+		if (null != fileVersions) {
+			versionsHits.incrementAndGet();
+			return fileVersions;
+		}
+		versionsMisses.incrementAndGet();
+		return versionableAPI.findAllVersions(identifier, user, !RESPECT_FRONTEND_ROLES);
+	}
+
+	/**
+	 * Returns the Inode of the folder with the specified path.
+	 *
+	 * @param hostId
+	 *            - The Identifier of the Site.
+	 * @param path
+	 *            - The path of the folder.
+	 * @return The Inode of the folder.
+	 * @throws DotStateException
+	 *             An error occurred when retrieving the information.
+	 * @throws DotDataException
+	 *             An error occurred when reading the folder.
+	 * @throws DotSecurityException
+	 *             The user does not have permissions to read the folder.
+	 */
+	public String findFolderInode(final String hostId, final String path)
+			throws DotStateException, DotDataException, DotSecurityException {
+		final String key = hostId + ":" + path;
+		synchronized (folders) {
+			final String inode = folders.get(key);
+			if (null != inode) {
+				folderHits.incrementAndGet();
+				return inode;
+			}
+		}
+		folderMisses.incrementAndGet();
+		final String inode = folderAPI.findFolderByPath(path, hostId, user, !RESPECT_FRONTEND_ROLES).getInode();
+		synchronized (folders) {
+			folders.put(key, inode);
+		}
+		return inode;
+	}
+
+	/**
+	 * Discards any prefetched data that was not used, e.g., after a Site is
+	 * finished or the migration is aborted.
+	 */
+	public void clearPrefetched() {
+		identifiers.clear();
+		versionInfos.clear();
+		versions.clear();
+	}
+
+	/**
+	 * Returns a one-line summary of the hits and misses of every lookup.
+	 *
+	 * @return The cache statistics.
+	 */
+	public String getSummary() {
+		return "identifiers " + identifierHits.get() + "/" + identifierMisses.get() + ", version info "
+				+ versionInfoHits.get() + "/" + versionInfoMisses.get() + ", versions " + versionsHits.get() + "/"
+				+ versionsMisses.get() + ", folders " + folderHits.get() + "/" + folderMisses.get()
+				+ " (hits/misses)";
+	}
+
+	/**
+	 * Loads a chunk of Identifiers.
+	 *
+	 * @param ids
+	 *            - The Identifiers to load.
+	 * @throws DotDataException
+	 *             An error occurred when reading the data.
+	 */
+	private void prefetchIdentifiers(final List<String> ids) throws DotDataException {
+		final DotConnect dc = new DotConnect();
+		dc.setSQL("SELECT id, parent_path, asset_name, host_inode, asset_type FROM identifier WHERE id IN ("
+				+ SqlHelper.placeholders(ids.size()) + ")");
+		for (String id : ids) {
+			dc.addParam(id);
+		}
+		for (Map<String, Object> row : dc.loadObjectResults()) {
+			final Identifier identifier = new Identifier();
+			identifier.setId(toString(row.get("id")));
+			identifier.setParentPath(toString(row.get("parent_path")));
+			identifier.setAssetName(toString(row.get("asset_name")));
+			identifier.setHostId(toString(row.get("host_inode")));
+			identifier.setAssetType(toString(row.get("asset_type")));
+			identifiers.put(identifier.getId(), identifier);
+		}
+	}
+
+	/**
+	 * Loads the version info of a chunk of Identifiers.
+	 *
+	 * @param ids
+	 *            - The Identifiers.
+	 * @throws DotDataException
+	 *             An error occurred when reading the data.
+	 */
+	private void prefetchVersionInfo(final List<String> ids) throws DotDataException {
+		final DotConnect dc = new DotConnect();
+		dc.setSQL("SELECT identifier, working_inode, live_inode, deleted FROM fileasset_version_info "
+				+ "WHERE identifier IN (" + SqlHelper.placeholders(ids.size()) + ")");
+		for (String id : ids) {
+			dc.addParam(id);
+		}
+		for (Map<String, Object> row : dc.loadObjectResults()) {
+			final VersionInfo versionInfo = new VersionInfo();
+			versionInfo.setIdentifier(toString(row.get("identifier")));
+			versionInfo.setWorkingInode(toString(row.get("working_inode")));
+			versionInfo.setLiveInode(toString(row.get("live_inode")));
+			versionInfo.setDeleted(toBoolean(row.get("deleted")));
+			versionInfos.put(versionInfo.getIdentifier(), versionInfo);
+		}
+	}
+
+	/**
+	 * Loads all the legacy file versions of a chunk of Identifiers with a
+	 * single Hibernate query.
+	 *
+	 * @param ids
+	 *            - The Identifiers.
+	 * @throws DotDataException
+	 *             An error occurred when reading the data.
+	 */
+	@SuppressWarnings("unchecked")
+	private void prefetchVersions(final List<String> ids) throws DotDataException {
+		final HibernateUtil dh = new HibernateUtil(File.class);
+		dh.setQuery("from " + File.class.getName() + " file where file.identifier in ("
+				+ SqlHelper.placeholders(ids.size()) + ")");
+		for (String id : ids) {
+			dh.setParam(id);
+		}
+		final Map<String, List<Versionable>> loaded = new LinkedHashMap<String, List<Versionable>>();
+		for (String id : ids) {
+			loaded.put(id, new ArrayList<Versionable>());
+		}
+		for (File version : (List<File>) dh.list()) {
+			final List<Versionable> fileVersions = loaded.get(version.getIdentifier());
+			if (null != fileVersions) {
+				fileVersions.add(version);
+			}
+		}
+		HibernateUtil.getSession().clear();
+		versions.putAll(loaded);
+	}
+
+	/**
+	 * Returns the String value of a column, or {@code null}.
+	 *
+	 * @param value
+	 *            - The column value.
+	 * @return The String value.
+	 */
+	private static String toString(final Object value) {
+		return null == value ? null : value.toString();
+	}
+
+	/**
+	 * Returns the boolean value of a column, which depending on the database
+	 * can be read as a Boolean, a number or a String.
+	 *
+	 * @param value
+	 *            - The column value.
+	 * @return The boolean value.
+	 */
+	private static boolean toBoolean(final Object value) {
+		if (value instanceof Boolean) {
+			return (Boolean) value;
+		} else if (value instanceof Number) {
+			return ((Number) value).intValue() != 0;
+		}
+		return null != value && Boolean.parseBoolean(value.toString());
+	}
+
+}
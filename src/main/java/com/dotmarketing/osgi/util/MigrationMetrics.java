@@ -0,0 +1,697 @@
+package com.dotmarketing.osgi.util;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.dotmarketing.util.Logger;
+
+/**
+ * Collects the hot-path metrics of the Legacy Files migration: a latency
+ * histogram for every {@link Phase} of the migration of a file, files and
+ * bytes per second, the occupancy of every {@link Stage} of the pipeline, and
+ * the number of errors by exception class. All the counters are lock-free, so
+ * workers can update them for every file. The heap usage and the garbage
+ * collections of the JVM are read from its management beans, so that long
+ * runs can be watched for memory growth next to their throughput.
+ * <p>
+ * Instead of logging every processed file, a summary of these metrics is
+ * logged periodically by {@link #startReporter(int)}. The same data is
+ * available via JMX under {@link #OBJECT_NAME} while the bundle is active.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class MigrationMetrics implements MigrationMetricsMXBean {
+
+	public static final String OBJECT_NAME = "com.dotmarketing.osgi:type=LegacyFilesMigrator,name=MigrationMetrics";
+
+	/**
+	 * The timed phases of the migration of a legacy file.
+	 */
+	public enum Phase {
+
+		/** Reading the Identifier, version info, versions and folder. */
+		LOOKUP,
+		/** Staging the binary in the temporary folder. */
+		STAGE,
+		/** Hashing the source binary for deduplication. */
+		HASH,
+		/** Deleting the legacy file and its binary. */
+		DELETE,
+		/** Checking in the new File as Content. */
+		CHECKIN,
+		/** Publishing the new File as Content. */
+		PUBLISH,
+		/** Deleting the binaries of the old versions. */
+		VERSION_CLEANUP,
+		/** Committing the transaction of a batch. */
+		COMMIT,
+		/** Indexing a group of committed contents in bulk. */
+		INDEX
+
+	}
+
+	/**
+	 * The stages of the migration pipeline. Every stage has its own threads
+	 * and a bounded queue in front of them, so the busiest one is the
+	 * bottleneck of the migration.
+	 */
+	public enum Stage {
+
+		/** Reading the lookups and permissions of the upcoming pages. */
+		PREFETCH,
+		/** Staging and hashing the binaries of the dispatched files. */
+		STAGING,
+		/** Migrating the files in the transactions of the workers. */
+		CHECKIN
+
+	}
+
+	/**
+	 * The occupancy counters of a stage.
+	 */
+	private static final class StageOccupancy {
+
+		private final AtomicInteger queued = new AtomicInteger();
+		private final AtomicInteger active = new AtomicInteger();
+		private final AtomicLong busyNanos = new AtomicLong();
+		private volatile int threads;
+		private volatile int capacity;
+
+	}
+
+	private final Map<Phase, LatencyHistogram> phases = new EnumMap<Phase, LatencyHistogram>(Phase.class);
+	private final Map<Stage, StageOccupancy> stages = new EnumMap<Stage, StageOccupancy>(Stage.class);
+	private final AtomicLong filesMigrated = new AtomicLong();
+	private final AtomicLong filesDeleted = new AtomicLong();
+	private final AtomicLong bytesMigrated = new AtomicLong();
+	private final AtomicLong deletionsAwaitingCommit = new AtomicLong();
+	private final AtomicLong deletionsQueued = new AtomicLong();
+	private final AtomicLong deletionsCompleted = new AtomicLong();
+	private final AtomicLong deletionsDropped = new AtomicLong();
+	private final ConcurrentHashMap<String, AtomicLong> errors = new ConcurrentHashMap<String, AtomicLong>();
+	private volatile long startedAt = System.currentTimeMillis();
+	private volatile long gcCollectionsAtStart = 0;
+	private volatile long gcMillisAtStart = 0;
+	private ScheduledExecutorService reporter;
+
+	/**
+	 * Default class constructor.
+	 */
+	public MigrationMetrics() {
+		for (Phase phase : Phase.values()) {
+			phases.put(phase, new LatencyHistogram());
+		}
+		for (Stage stage : Stage.values()) {
+			stages.put(stage, new StageOccupancy());
+		}
+	}
+
+	/**
+	 * Discards everything measured by a previous run of the migration, so the
+	 * rates and percentiles of a restarted run only cover that run. The
+	 * configured threads and capacity of every stage are kept, as they are set
+	 * up before the run starts.
+	 */
+	public void reset() {
+		for (LatencyHistogram histogram : phases.values()) {
+			histogram.reset();
+		}
+		for (StageOccupancy occupancy : stages.values()) {
+			occupancy.queued.set(0);
+			occupancy.active.set(0);
+			occupancy.busyNanos.set(0);
+		}
+		filesMigrated.set(0);
+		filesDeleted.set(0);
+		bytesMigrated.set(0);
+		deletionsAwaitingCommit.set(0);
+		deletionsQueued.set(0);
+		deletionsCompleted.set(0);
+		deletionsDropped.set(0);
+		errors.clear();
+	}
+
+	/**
+	 * Marks the beginning of the migration. Throughput is measured from this
+	 * point on.
+	 */
+	public void markStarted() {
+		startedAt = System.currentTimeMillis();
+		gcCollectionsAtStart = countGcCollections();
+		gcMillisAtStart = countGcMillis();
+	}
+
+	/**
+	 * Records the latency of a phase that began at the specified time.
+	 *
+	 * @param phase
+	 *            - The phase.
+	 * @param startNanos
+	 *            - The value of {@link System#nanoTime()} when the phase
+	 *            began.
+	 */
+	public void record(final Phase phase, final long startNanos) {
+		phases.get(phase).record(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Counts a legacy file that was migrated to a File as Content.
+	 *
+	 * @param bytes
+	 *            - The size of its binary.
+	 */
+	public void fileMigrated(final long bytes) {
+		filesMigrated.incrementAndGet();
+		bytesMigrated.addAndGet(bytes);
+	}
+
+	/**
+	 * Counts a legacy file that was deleted instead of migrated.
+	 */
+	public void fileDeleted() {
+		filesDeleted.incrementAndGet();
+	}
+
+	/**
+	 * Counts several legacy files that were deleted at once.
+	 *
+	 * @param count
+	 *            - The number of deleted files.
+	 */
+	public void filesDeleted(final long count) {
+		filesDeleted.addAndGet(count);
+	}
+
+	/**
+	 * Counts legacy binaries whose deletion waits for their transaction to be
+	 * committed.
+	 *
+	 * @param count
+	 *            - The number of binaries.
+	 */
+	public void deletionsDeferred(final int count) {
+		deletionsAwaitingCommit.addAndGet(count);
+	}
+
+	/**
+	 * Counts deferred deletions whose transaction was committed. They are
+	 * counted as queued by the {@link FileSystemDeleter} right after.
+	 *
+	 * @param count
+	 *            - The number of binaries.
+	 */
+	public void deletionsReleased(final int count) {
+		deletionsAwaitingCommit.addAndGet(-count);
+	}
+
+	/**
+	 * Counts deferred deletions whose transaction was rolled back.
+	 *
+	 * @param count
+	 *            - The number of binaries.
+	 */
+	public void deletionsDropped(final int count) {
+		deletionsAwaitingCommit.addAndGet(-count);
+		deletionsDropped.addAndGet(count);
+	}
+
+	/**
+	 * Counts legacy binaries queued for deletion.
+	 *
+	 * @param count
+	 *            - The number of binaries.
+	 */
+	public void deletionsQueued(final int count) {
+		deletionsQueued.addAndGet(count);
+	}
+
+	/**
+	 * Counts a queued legacy binary that has been deleted, or could not be.
+	 */
+	public void deletionCompleted() {
+		deletionsQueued.decrementAndGet();
+		deletionsCompleted.incrementAndGet();
+	}
+
+	/**
+	 * Sets the size of a stage of the pipeline.
+	 *
+	 * @param stage
+	 *            - The stage.
+	 * @param threads
+	 *            - The number of threads of the stage.
+	 * @param capacity
+	 *            - The maximum number of items waiting for the stage.
+	 */
+	public void stageConfigured(final Stage stage, final int threads, final int capacity) {
+		stages.get(stage).threads = threads;
+		stages.get(stage).capacity = capacity;
+	}
+
+	/**
+	 * Counts items added to, or taken from, the queue of a stage.
+	 *
+	 * @param stage
+	 *            - The stage.
+	 * @param delta
+	 *            - The number of added items, or a negative number for the
+	 *            taken ones.
+	 */
+	public void stageQueued(final Stage stage, final int delta) {
+		stages.get(stage).queued.addAndGet(delta);
+	}
+
+	/**
+	 * Counts a thread of a stage that started processing an item.
+	 *
+	 * @param stage
+	 *            - The stage.
+	 * @return The value of {@link System#nanoTime()}, to be passed to
+	 *         {@link #stageFinished(Stage, long)}.
+	 */
+	public long stageStarted(final Stage stage) {
+		stages.get(stage).active.incrementAndGet();
+		return System.nanoTime();
+	}
+
+	/**
+	 * Counts a thread of a stage that finished processing an item, and adds
+	 * the time it took to the busy time of the stage.
+	 *
+	 * @param stage
+	 *            - The stage.
+	 * @param startNanos
+	 *            - The value returned by {@link #stageStarted(Stage)}.
+	 */
+	public void stageFinished(final Stage stage, final long startNanos) {
+		final StageOccupancy occupancy = stages.get(stage);
+		occupancy.busyNanos.addAndGet(System.nanoTime() - startNanos);
+		occupancy.active.decrementAndGet();
+	}
+
+	/**
+	 * Counts an error by its exception class.
+	 *
+	 * @param error
+	 *            - The error.
+	 */
+	public void error(final Throwable error) {
+		final String type = error.getClass().getName();
+		AtomicLong count = errors.get(type);
+		if (null == count) {
+			final AtomicLong newCount = new AtomicLong();
+			count = errors.putIfAbsent(type, newCount);
+			if (null == count) {
+				count = newCount;
+			}
+		}
+		count.incrementAndGet();
+	}
+
+	/**
+	 * Returns the latency histogram of a phase.
+	 *
+	 * @param phase
+	 *            - The phase.
+	 * @return The latency histogram.
+	 */
+	public LatencyHistogram getHistogram(final Phase phase) {
+		return phases.get(phase);
+	}
+
+	@Override
+	public long getFilesMigrated() {
+		return filesMigrated.get();
+	}
+
+	@Override
+	public long getFilesDeleted() {
+		return filesDeleted.get();
+	}
+
+	@Override
+	public long getBytesMigrated() {
+		return bytesMigrated.get();
+	}
+
+	@Override
+	public long getElapsedSeconds() {
+		return Math.max(0, System.currentTimeMillis() - startedAt) / 1000;
+	}
+
+	@Override
+	public double getFilesPerSecond() {
+		return perSecond(filesMigrated.get() + filesDeleted.get());
+	}
+
+	@Override
+	public double getBytesPerSecond() {
+		return perSecond(bytesMigrated.get());
+	}
+
+	@Override
+	public long getPendingDeletions() {
+		return deletionsAwaitingCommit.get() + deletionsQueued.get();
+	}
+
+	@Override
+	public long getHeapUsedBytes() {
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	@Override
+	public long getHeapRetainedBytes() {
+		long retained = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+				final MemoryUsage usage = pool.getCollectionUsage();
+				if (null != usage) {
+					retained += usage.getUsed();
+				}
+			}
+		}
+		return retained;
+	}
+
+	@Override
+	public long getHeapMaxBytes() {
+		return Runtime.getRuntime().maxMemory();
+	}
+
+	@Override
+	public long getGcCollections() {
+		return countGcCollections() - gcCollectionsAtStart;
+	}
+
+	@Override
+	public long getGcMillis() {
+		return countGcMillis() - gcMillisAtStart;
+	}
+
+	@Override
+	public long getCompletedDeletions() {
+		return deletionsCompleted.get();
+	}
+
+	@Override
+	public long getDroppedDeletions() {
+		return deletionsDropped.get();
+	}
+
+	@Override
+	public Map<String, Long> getStageQueued() {
+		final Map<String, Long> values = new LinkedHashMap<String, Long>();
+		for (Stage stage : Stage.values()) {
+			values.put(stage.name(), (long) stages.get(stage).queued.get());
+		}
+		return values;
+	}
+
+	@Override
+	public Map<String, Long> getStageActive() {
+		final Map<String, Long> values = new LinkedHashMap<String, Long>();
+		for (Stage stage : Stage.values()) {
+			values.put(stage.name(), (long) stages.get(stage).active.get());
+		}
+		return values;
+	}
+
+	@Override
+	public Map<String, Long> getStageUtilization() {
+		final Map<String, Long> values = new LinkedHashMap<String, Long>();
+		for (Stage stage : Stage.values()) {
+			values.put(stage.name(), getUtilization(stages.get(stage)));
+		}
+		return values;
+	}
+
+	@Override
+	public Map<String, Long> getErrorCounts() {
+		final Map<String, Long> counts = new LinkedHashMap<String, Long>();
+		for (Map.Entry<String, AtomicLong> entry : errors.entrySet()) {
+			counts.put(entry.getKey(), entry.getValue().get());
+		}
+		return counts;
+	}
+
+	@Override
+	public Map<String, Long> getPhaseCounts() {
+		final Map<String, Long> values = new LinkedHashMap<String, Long>();
+		for (Phase phase : Phase.values()) {
+			values.put(phase.name(), phases.get(phase).getCount());
+		}
+		return values;
+	}
+
+	@Override
+	public Map<String, Long> getPhaseMeanMicros() {
+		final Map<String, Long> values = new LinkedHashMap<String, Long>();
+		for (Phase phase : Phase.values()) {
+			values.put(phase.name(), phases.get(phase).getMeanMicros());
+		}
+		return values;
+	}
+
+	@Override
+	public Map<String, Long> getPhaseP50Micros() {
+		return getPhasePercentiles(0.5);
+	}
+
+	@Override
+	public Map<String, Long> getPhaseP99Micros() {
+		return getPhasePercentiles(0.99);
+	}
+
+	@Override
+	public Map<String, Long> getPhaseMaxMicros() {
+		final Map<String, Long> values = new LinkedHashMap<String, Long>();
+		for (Phase phase : Phase.values()) {
+			values.put(phase.name(), phases.get(phase).getMaxMicros());
+		}
+		return values;
+	}
+
+	@Override
+	public String getSummary() {
+		final StringBuilder summary = new StringBuilder();
+		summary.append(filesMigrated.get()).append(" migrated, ").append(filesDeleted.get()).append(" deleted, ")
+				.append(bytesMigrated.get() / (1024 * 1024)).append(" MB in ").append(getElapsedSeconds())
+				.append(" s (").append(String.format("%.1f", getFilesPerSecond())).append(" files/s, ")
+				.append(String.format("%.2f", getBytesPerSecond() / (1024 * 1024))).append(" MB/s)");
+		summary.append("\n   binary deletions: ").append(getPendingDeletions()).append(" pending, ")
+				.append(deletionsCompleted.get()).append(" completed, ").append(deletionsDropped.get())
+				.append(" dropped");
+		summary.append("\n   stages (busy threads / queued / utilization):");
+		for (Stage stage : Stage.values()) {
+			final StageOccupancy occupancy = stages.get(stage);
+			if (occupancy.threads > 0) {
+				summary.append("\n      ").append(stage.name().toLowerCase()).append(": ")
+						.append(occupancy.active.get()).append(" of ").append(occupancy.threads).append(" / ")
+						.append(occupancy.queued.get()).append(" of ").append(occupancy.capacity).append(" / ")
+						.append(getUtilization(occupancy)).append("%");
+			}
+		}
+		summary.append("\n   phase latency in ms (count / mean / p50 / p99 / max):");
+		for (Phase phase : Phase.values()) {
+			final LatencyHistogram histogram = phases.get(phase);
+			if (histogram.getCount() > 0) {
+				summary.append("\n      ").append(phase.name().toLowerCase()).append(": ").append(histogram.getCount())
+						.append(" / ").append(toMillis(histogram.getMeanMicros())).append(" / ")
+						.append(toMillis(histogram.getPercentileMicros(0.5))).append(" / ")
+						.append(toMillis(histogram.getPercentileMicros(0.99))).append(" / ")
+						.append(toMillis(histogram.getMaxMicros()));
+			}
+		}
+		final long elapsedMillis = Math.max(1, System.currentTimeMillis() - startedAt);
+		summary.append("\n   heap: ").append(getHeapUsedBytes() / (1024 * 1024)).append(" MB used, ")
+				.append(getHeapRetainedBytes() / (1024 * 1024)).append(" MB retained after GC, ")
+				.append(getHeapMaxBytes() / (1024 * 1024)).append(" MB max; gc: ").append(getGcCollections())
+				.append(" collections, ").append(getGcMillis()).append(" ms (")
+				.append(String.format("%.1f", getGcMillis() * 100.0 / elapsedMillis)).append("% of the run)");
+		if (!errors.isEmpty()) {
+			summary.append("\n   errors: ").append(getErrorCounts());
+		}
+		return summary.toString();
+	}
+
+	/**
+	 * Starts logging a summary of the metrics periodically, along with the
+	 * throughput of the last interval.
+	 *
+	 * @param intervalSeconds
+	 *            - The time between two summaries, in seconds.
+	 */
+	public synchronized void startReporter(final int intervalSeconds) {
+		if (null != reporter) {
+			return;
+		}
+		reporter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, "LegacyFilesMigrator-metrics");
+				thread.setDaemon(Boolean.TRUE);
+				return thread;
+			}
+
+		});
+		reporter.scheduleAtFixedRate(new Runnable() {
+
+			private long lastFiles = 0;
+
+			@Override
+			public void run() {
+				final long files = filesMigrated.get() + filesDeleted.get();
+				Logger.info(MigrationMetrics.class, "Migration progress: " + (files - lastFiles) + " files in the last "
+						+ intervalSeconds + " s. Totals: " + getSummary());
+				lastFiles = files;
+			}
+
+		}, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Stops the periodic summaries and logs the final one.
+	 */
+	public synchronized void stopReporter() {
+		if (null != reporter) {
+			reporter.shutdownNow();
+			reporter = null;
+			Logger.info(MigrationMetrics.class, "Migration metrics: " + getSummary());
+		}
+	}
+
+	/**
+	 * Registers these metrics in the platform MBean server. Errors are logged,
+	 * as the migration does not depend on JMX.
+	 */
+	public void registerMBean() {
+		try {
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			final ObjectName name = new ObjectName(OBJECT_NAME);
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(this, name);
+		} catch (JMException e) {
+			Logger.warn(this, "Could not register the migration metrics in JMX: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Removes these metrics from the platform MBean server.
+	 */
+	public void unregisterMBean() {
+		try {
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			final ObjectName name = new ObjectName(OBJECT_NAME);
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+		} catch (JMException e) {
+			Logger.warn(this, "Could not unregister the migration metrics from JMX: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Returns the specified percentile of every phase.
+	 *
+	 * @param fraction
+	 *            - The percentile, between 0 and 1.
+	 * @return The percentiles in microseconds, by phase.
+	 */
+	private Map<String, Long> getPhasePercentiles(final double fraction) {
+		final Map<String, Long> values = new LinkedHashMap<String, Long>();
+		for (Phase phase : Phase.values()) {
+			values.put(phase.name(), phases.get(phase).getPercentileMicros(fraction));
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the rate per second of a counter since the migration started.
+	 *
+	 * @param count
+	 *            - The counter value.
+	 * @return The rate per second.
+	 */
+	private double perSecond(final long count) {
+		final long elapsed = System.currentTimeMillis() - startedAt;
+		return elapsed <= 0 ? 0 : count * 1000d / elapsed;
+	}
+
+	/**
+	 * Returns the share of the thread time of a stage spent processing items
+	 * since the migration started.
+	 *
+	 * @param occupancy
+	 *            - The counters of the stage.
+	 * @return The utilization, in percent.
+	 */
+	private long getUtilization(final StageOccupancy occupancy) {
+		final long elapsedNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - startedAt);
+		if (occupancy.threads <= 0 || elapsedNanos <= 0) {
+			return 0;
+		}
+		return Math.min(100, Math.round(100.0 * occupancy.busyNanos.get() / (elapsedNanos * occupancy.threads)));
+	}
+
+	/**
+	 * Formats microseconds as milliseconds with one decimal.
+	 *
+	 * @param micros
+	 *            - The value in microseconds.
+	 * @return The value in milliseconds.
+	 */
+	private static String toMillis(final long micros) {
+		return String.format("%.1f", micros / 1000d);
+	}
+
+	/**
+	 * Returns the number of garbage collections since the JVM started, by all
+	 * the collectors.
+	 *
+	 * @return The number of collections.
+	 */
+	private static long countGcCollections() {
+		long collections = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			collections += Math.max(0, collector.getCollectionCount());
+		}
+		return collections;
+	}
+
+	/**
+	 * Returns the time spent in garbage collections since the JVM started, by
+	 * all the collectors.
+	 *
+	 * @return The collection time, in milliseconds.
+	 */
+	private static long countGcMillis() {
+		long millis = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			millis += Math.max(0, collector.getCollectionTime());
+		}
+		return millis;
+	}
+
+}
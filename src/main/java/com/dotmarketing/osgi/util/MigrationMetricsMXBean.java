@@ -0,0 +1,197 @@
+package com.dotmarketing.osgi.util;
+
+import java.util.Map;
+
+/**
+ * Management interface of the {@link MigrationMetrics}. It is registered in
+ * the platform MBean server and published as an OSGi service while the Legacy
+ * Files Migrator bundle is active, so the progress of a running migration can
+ * be followed from any JMX console.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public interface MigrationMetricsMXBean {
+
+	/**
+	 * Returns the number of legacy files migrated to Files as Content so far.
+	 * Files are counted once their transaction is committed, no matter how
+	 * many times they were replayed or retried.
+	 *
+	 * @return The number of migrated files.
+	 */
+	long getFilesMigrated();
+
+	/**
+	 * Returns the number of legacy files deleted instead of migrated, e.g.,
+	 * files under System Host or without a binary.
+	 *
+	 * @return The number of deleted files.
+	 */
+	long getFilesDeleted();
+
+	/**
+	 * Returns the size of all the migrated binaries, counted once their
+	 * transaction is committed.
+	 *
+	 * @return The number of migrated bytes.
+	 */
+	long getBytesMigrated();
+
+	/**
+	 * Returns the time since the migration started.
+	 *
+	 * @return The elapsed time, in seconds.
+	 */
+	long getElapsedSeconds();
+
+	/**
+	 * Returns the average throughput of the migration.
+	 *
+	 * @return The number of processed files per second.
+	 */
+	double getFilesPerSecond();
+
+	/**
+	 * Returns the average binary throughput of the migration.
+	 *
+	 * @return The number of migrated bytes per second.
+	 */
+	double getBytesPerSecond();
+
+	/**
+	 * Returns the number of legacy binaries waiting to be deleted: the ones
+	 * whose transaction has not been committed yet, plus the ones queued for
+	 * deletion after the commit.
+	 *
+	 * @return The number of pending deletions.
+	 */
+	long getPendingDeletions();
+
+	/**
+	 * Returns the number of legacy binaries deleted, along with their derived
+	 * files, after their transaction was committed.
+	 *
+	 * @return The number of completed deletions.
+	 */
+	long getCompletedDeletions();
+
+	/**
+	 * Returns the number of legacy binaries that were kept because their
+	 * transaction was rolled back.
+	 *
+	 * @return The number of dropped deletions.
+	 */
+	long getDroppedDeletions();
+
+	/**
+	 * Returns the heap currently in use, garbage included.
+	 *
+	 * @return The used heap, in bytes.
+	 */
+	long getHeapUsedBytes();
+
+	/**
+	 * Returns the heap still in use after the last garbage collection of
+	 * every heap pool, i.e., the memory actually retained.
+	 *
+	 * @return The retained heap, in bytes, or 0 before the first collection.
+	 */
+	long getHeapRetainedBytes();
+
+	/**
+	 * Returns the maximum size of the heap.
+	 *
+	 * @return The maximum heap, in bytes.
+	 */
+	long getHeapMaxBytes();
+
+	/**
+	 * Returns the number of garbage collections since the migration started.
+	 *
+	 * @return The number of collections.
+	 */
+	long getGcCollections();
+
+	/**
+	 * Returns the time spent in garbage collections since the migration
+	 * started.
+	 *
+	 * @return The collection time, in milliseconds.
+	 */
+	long getGcMillis();
+
+	/**
+	 * Returns the number of items waiting for every stage of the pipeline.
+	 *
+	 * @return The queued items, by stage.
+	 */
+	Map<String, Long> getStageQueued();
+
+	/**
+	 * Returns the number of threads of every stage of the pipeline that are
+	 * processing an item.
+	 *
+	 * @return The busy threads, by stage.
+	 */
+	Map<String, Long> getStageActive();
+
+	/**
+	 * Returns the share of the thread time of every stage of the pipeline
+	 * spent processing items. The stage closest to 100% is the bottleneck.
+	 *
+	 * @return The utilization in percent, by stage.
+	 */
+	Map<String, Long> getStageUtilization();
+
+	/**
+	 * Returns the number of errors, by exception class.
+	 *
+	 * @return The error counts.
+	 */
+	Map<String, Long> getErrorCounts();
+
+	/**
+	 * Returns the number of measurements of every phase.
+	 *
+	 * @return The counts, by phase.
+	 */
+	Map<String, Long> getPhaseCounts();
+
+	/**
+	 * Returns the mean latency of every phase.
+	 *
+	 * @return The mean latencies in microseconds, by phase.
+	 */
+	Map<String, Long> getPhaseMeanMicros();
+
+	/**
+	 * Returns the median latency of every phase.
+	 *
+	 * @return The 50th percentiles in microseconds, by phase.
+	 */
+	Map<String, Long> getPhaseP50Micros();
+
+	/**
+	 * Returns the 99th percentile latency of every phase.
+	 *
+	 * @return The 99th percentiles in microseconds, by phase.
+	 */
+	Map<String, Long> getPhaseP99Micros();
+
+	/**
+	 * Returns the largest latency of every phase.
+	 *
+	 * @return The maximum latencies in microseconds, by phase.
+	 */
+	Map<String, Long> getPhaseMaxMicros();
+
+	/**
+	 * Returns a human-readable summary of all the metrics.
+	 *
+	 * @return The metrics summary.
+	 */
+	String getSummary();
+
+}
@@ -0,0 +1,350 @@
+package com.dotmarketing.osgi.util;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotHibernateException;
+import com.dotmarketing.util.Logger;
+
+/**
+ * The stages that feed the {@link MigrationWorkerPool}, so that disk and
+ * database work overlap instead of taking turns for every file:
+ * <ol>
+ * <li><b>Prefetch</b>: while a page of legacy files is being dispatched, the
+ * lookups and permissions of the next pages are already being read by the
+ * prefetch threads.</li>
+ * <li><b>Staging</b>: every dispatched file has its binary checked, staged in
+ * the temporary folder and, optionally, hashed by the staging threads, while
+ * it waits in the queue of its worker.</li>
+ * <li><b>Check-in</b>: the workers migrate the files in their transactions,
+ * picking up the staged binaries.</li>
+ * </ol>
+ * Every stage has its own threads and a bounded queue. When the staging queue
+ * is full, the dispatching thread stages the binary itself, and the worker
+ * queues bound the number of staged binaries waiting to be checked in. The
+ * occupancy of every stage is recorded by the {@link MigrationMetrics}.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class MigrationPipeline {
+
+	private final int prefetchPages;
+	private final MigrationMetrics metrics;
+	private final MigrationTransactions transactions;
+	private final ThreadPoolExecutor prefetchExecutor;
+	private final ThreadPoolExecutor stagingExecutor;
+
+	/**
+	 * Prepares a page of legacy files before it is dispatched.
+	 */
+	public interface PagePrefetcher {
+
+		/**
+		 * Reads the data the files of the page will need.
+		 *
+		 * @param page
+		 *            - The page of legacy files.
+		 * @throws Exception
+		 *             An error occurred when reading the data.
+		 */
+		void prefetch(List<LegacyFileSource.Entry> page) throws Exception;
+
+	}
+
+	/**
+	 * Creates the pipeline.
+	 *
+	 * @param prefetchThreads
+	 *            - The number of threads prefetching pages.
+	 * @param prefetchPages
+	 *            - The number of pages prefetched ahead of the one being
+	 *            dispatched.
+	 * @param stagingThreads
+	 *            - The number of threads staging binaries, or 0 to stage them
+	 *            in the workers.
+	 * @param stagingQueueCapacity
+	 *            - The maximum number of binaries waiting to be staged.
+	 * @param metrics
+	 *            - Records the occupancy of every stage.
+	 * @param transactions
+	 *            - Closes the sessions of the prefetch threads.
+	 */
+	public MigrationPipeline(final int prefetchThreads, final int prefetchPages, final int stagingThreads,
+			final int stagingQueueCapacity, final MigrationMetrics metrics, final MigrationTransactions transactions) {
+		this.prefetchPages = prefetchPages;
+		this.metrics = metrics;
+		this.transactions = transactions;
+		this.prefetchExecutor = new ThreadPoolExecutor(prefetchThreads, prefetchThreads, 0, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), newThreadFactory("prefetch"));
+		this.stagingExecutor = stagingThreads > 0
+				? new ThreadPoolExecutor(stagingThreads, stagingThreads, 0, TimeUnit.MILLISECONDS,
+						new ArrayBlockingQueue<Runnable>(stagingQueueCapacity), newThreadFactory("staging"),
+						new ThreadPoolExecutor.CallerRunsPolicy())
+				: null;
+		metrics.stageConfigured(MigrationMetrics.Stage.PREFETCH, prefetchThreads, prefetchPages);
+		metrics.stageConfigured(MigrationMetrics.Stage.STAGING, stagingThreads, stagingQueueCapacity);
+	}
+
+	/**
+	 * Returns whether binaries are staged by the pipeline or by the workers.
+	 *
+	 * @return Returns {@code true} if the pipeline stages binaries.
+	 */
+	public boolean isStaging() {
+		return null != stagingExecutor;
+	}
+
+	/**
+	 * Starts reading the pages of a legacy file source ahead of the dispatching
+	 * thread.
+	 *
+	 * @param source
+	 *            - The legacy files of a Site.
+	 * @param prefetcher
+	 *            - Reads the data of every page.
+	 * @return The pages, in order, once prefetched.
+	 */
+	public ReadAhead readAhead(final LegacyFileSource source, final PagePrefetcher prefetcher) {
+		return new ReadAhead(source, prefetcher);
+	}
+
+	/**
+	 * Queues the staging of a binary. If the staging queue is full, the
+	 * binary is staged by the calling thread.
+	 *
+	 * @param task
+	 *            - Stages the binary.
+	 * @return The result of the staging, to be picked up by the worker.
+	 */
+	public Future<StagedBinary> stage(final Callable<StagedBinary> task) {
+		final FutureTask<StagedBinary> future = new FutureTask<StagedBinary>(
+				timed(MigrationMetrics.Stage.STAGING, task));
+		metrics.stageQueued(MigrationMetrics.Stage.STAGING, 1);
+		stagingExecutor.execute(future);
+		return future;
+	}
+
+	/**
+	 * Waits for the queued work to finish and stops the threads of the
+	 * pipeline.
+	 *
+	 * @throws InterruptedException
+	 *             The current thread was interrupted while waiting.
+	 */
+	public void close() throws InterruptedException {
+		prefetchExecutor.shutdown();
+		if (null != stagingExecutor) {
+			stagingExecutor.shutdown();
+			stagingExecutor.awaitTermination(1, TimeUnit.MINUTES);
+		}
+		prefetchExecutor.awaitTermination(1, TimeUnit.MINUTES);
+	}
+
+	/**
+	 * Returns the result of a staging, unwrapping the error it failed with.
+	 *
+	 * @param staged
+	 *            - The result of the staging.
+	 * @return The staged binary.
+	 * @throws Exception
+	 *             The staging failed.
+	 */
+	public static StagedBinary get(final Future<StagedBinary> staged) throws Exception {
+		try {
+			return staged.get();
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+		}
+	}
+
+	/**
+	 * Wraps a task so that its queue and thread time are counted for a stage.
+	 *
+	 * @param stage
+	 *            - The stage.
+	 * @param task
+	 *            - The task.
+	 * @return The counted task.
+	 */
+	private <T> Callable<T> timed(final MigrationMetrics.Stage stage, final Callable<T> task) {
+		return new Callable<T>() {
+
+			@Override
+			public T call() throws Exception {
+				metrics.stageQueued(stage, -1);
+				final long start = metrics.stageStarted(stage);
+				try {
+					return task.call();
+				} finally {
+					metrics.stageFinished(stage, start);
+				}
+			}
+
+		};
+	}
+
+	/**
+	 * Creates the factory of the daemon threads of a stage.
+	 *
+	 * @param stage
+	 *            - The name of the stage.
+	 * @return The thread factory.
+	 */
+	private static ThreadFactory newThreadFactory(final String stage) {
+		return new ThreadFactory() {
+
+			private final AtomicInteger counter = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable,
+						"LegacyFilesMigrator-" + stage + "-" + counter.incrementAndGet());
+				thread.setDaemon(Boolean.TRUE);
+				return thread;
+			}
+
+		};
+	}
+
+	/**
+	 * The pages of a legacy file source, prefetched ahead of the dispatching
+	 * thread. Pages are read in order by the dispatching thread itself, as
+	 * they are paged by Inode, and handed to the prefetch threads. Only the
+	 * dispatching thread may use it.
+	 */
+	public final class ReadAhead {
+
+		private final LegacyFileSource source;
+		private final PagePrefetcher prefetcher;
+		private final Deque<Prefetch> ahead = new ArrayDeque<Prefetch>();
+		private boolean exhausted = Boolean.FALSE;
+
+		private ReadAhead(final LegacyFileSource source, final PagePrefetcher prefetcher) {
+			this.source = source;
+			this.prefetcher = prefetcher;
+		}
+
+		/**
+		 * Returns the next page, once its data has been prefetched, and starts
+		 * prefetching the pages after it.
+		 *
+		 * @return The next page, or an empty list if there are no more files.
+		 * @throws DotDataException
+		 *             An error occurred when reading or prefetching a page.
+		 * @throws InterruptedException
+		 *             The current thread was interrupted while waiting.
+		 */
+		public List<LegacyFileSource.Entry> nextPage() throws DotDataException, InterruptedException {
+			fill();
+			final Prefetch next = ahead.poll();
+			if (null == next) {
+				return Collections.emptyList();
+			}
+			try {
+				next.future.get();
+			} catch (ExecutionException e) {
+				throw new DotDataException("Legacy files could not be prefetched: " + e.getCause().getMessage(),
+						e.getCause());
+			}
+			fill();
+			return next.page;
+		}
+
+		/**
+		 * Waits for the pages still being prefetched, so that their data can be
+		 * safely discarded, e.g., when the migration is cancelled.
+		 *
+		 * @throws InterruptedException
+		 *             The current thread was interrupted while waiting.
+		 */
+		public void close() throws InterruptedException {
+			Prefetch next;
+			while (null != (next = ahead.poll())) {
+				try {
+					next.future.get();
+				} catch (ExecutionException e) {
+					Logger.debug(MigrationPipeline.class, "Discarded page failed to prefetch: " + e.getMessage());
+				}
+			}
+			exhausted = Boolean.TRUE;
+		}
+
+		/**
+		 * Reads pages and queues their prefetch until enough pages are ahead
+		 * of the dispatching thread.
+		 *
+		 * @throws DotDataException
+		 *             An error occurred when reading a page.
+		 */
+		private void fill() throws DotDataException {
+			while (!exhausted && ahead.size() < prefetchPages) {
+				final List<LegacyFileSource.Entry> page = source.nextPage();
+				if (page.isEmpty()) {
+					exhausted = Boolean.TRUE;
+					return;
+				}
+				final FutureTask<Void> future = new FutureTask<Void>(
+						timed(MigrationMetrics.Stage.PREFETCH, new Callable<Void>() {
+
+							@Override
+							public Void call() throws Exception {
+								try {
+									prefetcher.prefetch(page);
+								} finally {
+									closeSession();
+								}
+								return null;
+							}
+
+						}));
+				metrics.stageQueued(MigrationMetrics.Stage.PREFETCH, 1);
+				prefetchExecutor.execute(future);
+				ahead.add(new Prefetch(page, future));
+			}
+		}
+
+		/**
+		 * Releases the database connection of a prefetch thread.
+		 */
+		private void closeSession() {
+			try {
+				transactions.closeSession();
+			} catch (DotHibernateException e) {
+				Logger.warn(MigrationPipeline.class, "Could not close the session of a prefetch thread: "
+						+ e.getMessage());
+			}
+		}
+
+	}
+
+	/**
+	 * A page of legacy files and its prefetch.
+	 */
+	private static final class Prefetch {
+
+		private final List<LegacyFileSource.Entry> page;
+		private final Future<Void> future;
+
+		private Prefetch(final List<LegacyFileSource.Entry> page, final Future<Void> future) {
+			this.page = page;
+			this.future = future;
+		}
+
+	}
+
+}
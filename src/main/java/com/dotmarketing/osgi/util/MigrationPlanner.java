@@ -0,0 +1,357 @@
+package com.dotmarketing.osgi.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.dotmarketing.beans.Host;
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.portlets.files.business.FileAPI;
+import com.dotmarketing.portlets.files.model.File;
+import com.dotmarketing.util.Logger;
+
+/**
+ * Read-only planning mode of the Legacy Files migration. It runs the same
+ * per-Site enumeration as the migration, but without checking in or deleting
+ * anything, and writes a report with the number of files, versions, bytes,
+ * live/working splits, missing binaries and SYSTEM_HOST deletions of every
+ * Site, along with an estimate of its runtime.
+ * <p>
+ * The size of every binary is read via {@code FileAPI.getAssetIOFile()} from a
+ * pool of threads, as stat calls on network storage are slow but parallelize
+ * well. The first page of every Site is timed as a sample, and its read and
+ * stat time is extrapolated to all the files of the Site. Checking the files
+ * in cannot be measured without migrating them, so that part of the estimate
+ * is based on the configured {@code plan.files.per.second} instead.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class MigrationPlanner {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final String VERSIONS_QUERY = "SELECT COUNT(*) AS versions FROM file_asset fa "
+			+ "INNER JOIN identifier i ON i.id = fa.identifier WHERE i.host_inode = ?";
+	private static final String STATES_QUERY = "SELECT "
+			+ "SUM(CASE WHEN fvi.live_inode IS NULL THEN 1 ELSE 0 END) AS working_only, "
+			+ "SUM(CASE WHEN fvi.live_inode = fvi.working_inode THEN 1 ELSE 0 END) AS published, "
+			+ "SUM(CASE WHEN fvi.live_inode <> fvi.working_inode THEN 1 ELSE 0 END) AS live_and_working "
+			+ "FROM fileasset_version_info fvi INNER JOIN identifier i ON i.id = fvi.identifier "
+			+ "WHERE i.host_inode = ?";
+
+	private final MigrationConfig config;
+	private final FileAPI fileAPI;
+
+	/**
+	 * The plan of a single Site.
+	 */
+	public static final class SitePlan {
+
+		private final String siteId;
+		private final String hostname;
+		private final boolean systemHost;
+		private long files;
+		private long bytes;
+		private long missingBinaries;
+		private long versions;
+		private long workingOnly;
+		private long published;
+		private long liveAndWorking;
+		private long sampleFiles;
+		private long sampleMillis;
+
+		private SitePlan(final String siteId, final String hostname, final boolean systemHost) {
+			this.siteId = siteId;
+			this.hostname = hostname;
+			this.systemHost = systemHost;
+		}
+
+		public String getSiteId() {
+			return siteId;
+		}
+
+		public String getHostname() {
+			return hostname;
+		}
+
+		public long getFiles() {
+			return files;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		public long getMissingBinaries() {
+			return missingBinaries;
+		}
+
+		public long getVersions() {
+			return versions;
+		}
+
+		/**
+		 * Returns the time it takes to read and stat all the legacy files of
+		 * this Site, extrapolated from the time measured for its sample page.
+		 *
+		 * @return The estimated read and stat time, in seconds.
+		 */
+		public long getReadSeconds() {
+			return 0 == sampleFiles ? 0 : Math.round(files * sampleMillis / (sampleFiles * 1000.0));
+		}
+
+		/**
+		 * Returns the number of legacy files of this Site that will be
+		 * permanently deleted because it is the System Host.
+		 *
+		 * @return The number of deletions.
+		 */
+		public long getDeletions() {
+			return systemHost ? files : 0;
+		}
+
+	}
+
+	/**
+	 * Creates the planner.
+	 *
+	 * @param config
+	 *            - The migration configuration.
+	 * @param fileAPI
+	 *            - The File API used to locate the legacy binaries.
+	 */
+	public MigrationPlanner(final MigrationConfig config, final FileAPI fileAPI) {
+		this.config = config;
+		this.fileAPI = fileAPI;
+	}
+
+	/**
+	 * Plans the migration of the specified Sites and writes the plan report to
+	 * the journal directory.
+	 *
+	 * @param sites
+	 *            - The Sites to plan.
+	 * @return The location of the plan report.
+	 * @throws DotDataException
+	 *             An error occurred when reading the legacy files.
+	 * @throws IOException
+	 *             An error occurred when writing the report.
+	 * @throws InterruptedException
+	 *             The current thread was interrupted.
+	 */
+	public Path plan(final List<Host> sites) throws DotDataException, IOException, InterruptedException {
+		final long start = System.currentTimeMillis();
+		final ExecutorService statPool = Executors.newFixedThreadPool(config.getPlanStatThreads());
+		final List<SitePlan> plans = new ArrayList<SitePlan>();
+		try {
+			for (Host site : sites) {
+				final SitePlan plan = new SitePlan(site.getIdentifier(), site.getHostname(),
+						Host.SYSTEM_HOST.equalsIgnoreCase(site.getIdentifier()));
+				countVersions(plan);
+				statBinaries(plan, statPool);
+				plans.add(plan);
+				Logger.info(this.getClass(), "Planned Site '" + plan.hostname + "': " + plan.files + " files, "
+						+ plan.bytes + " bytes");
+			}
+		} finally {
+			statPool.shutdownNow();
+		}
+		final Path report = writeReport(plans, System.currentTimeMillis() - start);
+		Logger.info(this.getClass(), " \n-> Migration plan written to '" + report + "'\n");
+		return report;
+	}
+
+	/**
+	 * Counts the versions and the live/working split of the legacy files of a
+	 * Site with aggregate queries.
+	 *
+	 * @param plan
+	 *            - The plan of the Site.
+	 * @throws DotDataException
+	 *             An error occurred when reading the data.
+	 */
+	private void countVersions(final SitePlan plan) throws DotDataException {
+		DotConnect dc = new DotConnect();
+		dc.setSQL(VERSIONS_QUERY);
+		dc.addParam(plan.siteId);
+		plan.versions = toLong(dc.loadObjectResults().get(0).get("versions"));
+		dc = new DotConnect();
+		dc.setSQL(STATES_QUERY);
+		dc.addParam(plan.siteId);
+		final Map<String, Object> states = dc.loadObjectResults().get(0);
+		plan.workingOnly = toLong(states.get("working_only"));
+		plan.published = toLong(states.get("published"));
+		plan.liveAndWorking = toLong(states.get("live_and_working"));
+	}
+
+	/**
+	 * Streams the legacy files of a Site and reads the size of their binaries
+	 * in parallel. The read and stat time of the first page is recorded as the
+	 * sample of the Site.
+	 *
+	 * @param plan
+	 *            - The plan of the Site.
+	 * @param statPool
+	 *            - The thread pool used to read the binaries.
+	 * @throws DotDataException
+	 *             An error occurred when reading the legacy files.
+	 * @throws InterruptedException
+	 *             The current thread was interrupted.
+	 */
+	private void statBinaries(final SitePlan plan, final ExecutorService statPool)
+			throws DotDataException, InterruptedException {
+		final LegacyFileSource source = new LegacyFileSource(plan.siteId, config.getPageSize(), "");
+		final long sampleStart = System.currentTimeMillis();
+		for (List<LegacyFileSource.Entry> page = source.nextPage(); !page.isEmpty(); page = source.nextPage()) {
+			final List<Callable<Long>> stats = new ArrayList<Callable<Long>>(page.size());
+			for (final LegacyFileSource.Entry entry : page) {
+				stats.add(new Callable<Long>() {
+
+					@Override
+					public Long call() throws Exception {
+						return binarySize(entry.getFile());
+					}
+
+				});
+			}
+			for (Future<Long> size : statPool.invokeAll(stats)) {
+				plan.files++;
+				long bytes;
+				try {
+					bytes = size.get();
+				} catch (ExecutionException e) {
+					bytes = -1;
+				}
+				if (bytes < 0) {
+					plan.missingBinaries++;
+				} else {
+					plan.bytes += bytes;
+				}
+			}
+			if (0 == plan.sampleFiles) {
+				plan.sampleFiles = page.size();
+				plan.sampleMillis = System.currentTimeMillis() - sampleStart;
+			}
+		}
+	}
+
+	/**
+	 * Returns the size of the binary of a legacy file.
+	 *
+	 * @param file
+	 *            - The legacy file.
+	 * @return The size of the binary, or -1 if it does not exist.
+	 * @throws IOException
+	 *             An error occurred when locating the binary.
+	 */
+	private long binarySize(final File file) throws IOException {
+		final java.io.File binary = fileAPI.getAssetIOFile(file);
+		if (null == binary) {
+			return -1;
+		}
+		final long size = binary.length();
+		// File.length() returns 0 for missing files, so only then check
+		return size == 0 && !binary.exists() ? -1 : size;
+	}
+
+	/**
+	 * Writes the plan report as tab-separated values, one line per Site plus a
+	 * line with the totals.
+	 *
+	 * @param plans
+	 *            - The plans of all the Sites.
+	 * @param planningMillis
+	 *            - The time it took to build the plan.
+	 * @return The location of the report.
+	 * @throws IOException
+	 *             An error occurred when writing the report.
+	 */
+	private Path writeReport(final List<SitePlan> plans, final long planningMillis) throws IOException {
+		final int filesPerSecond = config.getPlanFilesPerSecond();
+		final Path report = Paths.get(config.getJournalDirectory(),
+				"migration-plan-" + System.currentTimeMillis() + ".tsv");
+		Files.createDirectories(report.getParent());
+		final SitePlan total = new SitePlan("TOTAL", "TOTAL", Boolean.FALSE);
+		long deletions = 0;
+		long readSeconds = 0;
+		try (Writer writer = Files.newBufferedWriter(report, UTF8)) {
+			writer.write("site_id\thostname\tfiles\tversions\tbytes\tworking_only\tpublished\tlive_and_working"
+					+ "\tmissing_binaries\tsystem_host_deletions\tsample_files\tsample_ms\tread_seconds"
+					+ "\testimated_checkin_seconds\testimated_seconds\n");
+			for (SitePlan plan : plans) {
+				writeLine(writer, plan, plan.getDeletions(), plan.getReadSeconds(), filesPerSecond);
+				total.files += plan.files;
+				total.versions += plan.versions;
+				total.bytes += plan.bytes;
+				total.workingOnly += plan.workingOnly;
+				total.published += plan.published;
+				total.liveAndWorking += plan.liveAndWorking;
+				total.missingBinaries += plan.missingBinaries;
+				total.sampleFiles += plan.sampleFiles;
+				total.sampleMillis += plan.sampleMillis;
+				deletions += plan.getDeletions();
+				readSeconds += plan.getReadSeconds();
+			}
+			writeLine(writer, total, deletions, readSeconds, filesPerSecond);
+			writer.write("# read_seconds: read and stat time measured on the first page of every Site and"
+					+ " extrapolated to all its files\n");
+			writer.write("# estimated_checkin_seconds: not measured, based on the configured " + filesPerSecond
+					+ " files/sec\n");
+			writer.write("# planning took " + planningMillis + " ms\n");
+		}
+		return report;
+	}
+
+	/**
+	 * Writes a single line of the plan report.
+	 *
+	 * @param writer
+	 *            - The report writer.
+	 * @param plan
+	 *            - The plan to write.
+	 * @param deletions
+	 *            - The number of SYSTEM_HOST deletions.
+	 * @param readSeconds
+	 *            - The estimated read and stat time.
+	 * @param filesPerSecond
+	 *            - The configured check-in throughput.
+	 * @throws IOException
+	 *             An error occurred when writing the line.
+	 */
+	private void writeLine(final Writer writer, final SitePlan plan, final long deletions, final long readSeconds,
+			final int filesPerSecond) throws IOException {
+		final long checkinSeconds = Math.round(plan.files / (double) filesPerSecond);
+		writer.write(plan.siteId + "\t" + plan.hostname + "\t" + plan.files + "\t" + plan.versions + "\t" + plan.bytes
+				+ "\t" + plan.workingOnly + "\t" + plan.published + "\t" + plan.liveAndWorking + "\t"
+				+ plan.missingBinaries + "\t" + deletions + "\t" + plan.sampleFiles + "\t" + plan.sampleMillis + "\t"
+				+ readSeconds + "\t" + checkinSeconds + "\t" + (readSeconds + checkinSeconds)
+				+ "\n");
+	}
+
+	/**
+	 * Returns the numeric value of an aggregate column.
+	 *
+	 * @param value
+	 *            - The column value.
+	 * @return The numeric value, or 0 if it is {@code null}.
+	 */
+	private static long toLong(final Object value) {
+		return null == value ? 0 : new BigDecimal(value.toString().trim()).longValue();
+	}
+
+}
@@ -0,0 +1,452 @@
+package com.dotmarketing.osgi.util;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dotmarketing.beans.Host;
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.util.Logger;
+
+/**
+ * Orders the legacy files of all the Sites so that the migration finishes as
+ * early as possible, instead of following the order in which the Sites are
+ * returned by the Site API. A huge Site handled last would otherwise set the
+ * length of the whole run while everything else waits for it.
+ * <p>
+ * The cost of every Site is estimated from its number of legacy files and the
+ * total size of their binaries, read with a single aggregate query. Sites
+ * with more files than the chunk size are split into Inode ranges of that
+ * size, so that they can be migrated by several dispatch runners at the same
+ * time. Chunks are dealt to the runners largest first, always to the runner
+ * with the least work assigned (LPT scheduling). Every runner takes the
+ * largest chunk of its own queue and, once its queue is empty, steals the
+ * smallest chunk of the runner with the most work left.
+ * <p>
+ * While the run progresses, the completion ETA of every Site being migrated is
+ * logged periodically, based on the throughput the Site has had so far.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class MigrationScheduler {
+
+	private static final String COST_QUERY = "SELECT i.host_inode, COUNT(*) AS files, SUM(fa.file_size) AS bytes "
+			+ "FROM file_asset fa "
+			+ "INNER JOIN fileasset_version_info fvi ON fvi.working_inode = fa.inode "
+			+ "INNER JOIN identifier i ON i.id = fvi.identifier "
+			+ "GROUP BY i.host_inode";
+	private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+	private final int runners;
+	private final int chunkFiles;
+	private final long fileCostMillis;
+	private final long megabyteCostMillis;
+	private final List<Deque<Chunk>> queues = new ArrayList<Deque<Chunk>>();
+	private final List<AtomicLong> queuedCosts = new ArrayList<AtomicLong>();
+	private final Map<String, SiteProgress> progressBySite = new LinkedHashMap<String, SiteProgress>();
+	private final AtomicLong steals = new AtomicLong();
+	private volatile boolean aborted = Boolean.FALSE;
+	private volatile long startedAt = System.currentTimeMillis();
+	private ScheduledExecutorService reporter;
+
+	/**
+	 * An Inode range of the legacy files of a Site, migrated by a single
+	 * dispatch runner.
+	 */
+	public static final class Chunk {
+
+		private final SiteProgress site;
+		private final int index;
+		private final String startInode;
+		private final String endInode;
+		private final long cost;
+
+		private Chunk(final SiteProgress site, final int index, final String startInode, final String endInode,
+				final long cost) {
+			this.site = site;
+			this.index = index;
+			this.startInode = startInode;
+			this.endInode = endInode;
+			this.cost = cost;
+		}
+
+		public Host getSite() {
+			return site.site;
+		}
+
+		/**
+		 * Returns the Inode the chunk starts after.
+		 *
+		 * @return The start Inode, or an empty String for the first chunk.
+		 */
+		public String getStartInode() {
+			return startInode;
+		}
+
+		/**
+		 * Returns the last Inode of the chunk.
+		 *
+		 * @return The end Inode, or an empty String for the last chunk.
+		 */
+		public String getEndInode() {
+			return endInode;
+		}
+
+		/**
+		 * Returns whether the chunk covers the whole Site, which is then
+		 * resumed from the journal like an unscheduled Site.
+		 *
+		 * @return Returns {@code true} if the Site was not split.
+		 */
+		public boolean isWholeSite() {
+			return site.chunks == 1;
+		}
+
+		/**
+		 * Returns the key the {@link CheckpointTracker} follows the chunk
+		 * under: the Site Identifier for a whole Site, and the Site Identifier
+		 * plus the chunk number otherwise.
+		 *
+		 * @return The tracking key.
+		 */
+		public String getTrackingKey() {
+			return isWholeSite() ? site.site.getIdentifier() : site.site.getIdentifier() + "#" + index;
+		}
+
+		@Override
+		public String toString() {
+			return "chunk " + (index + 1) + " of " + site.chunks + " of Site '" + site.site.getHostname() + "'";
+		}
+
+	}
+
+	/**
+	 * The estimate and progress of a Site.
+	 */
+	private static final class SiteProgress {
+
+		private final Host site;
+		private final long files;
+		private final long bytes;
+		private int chunks = 1;
+		private final AtomicInteger finishedChunks = new AtomicInteger();
+		private final AtomicLong committed = new AtomicLong();
+		private final Map<String, Chunk> active = new HashMap<String, Chunk>();
+		private volatile long startedAt = 0;
+		private volatile long finishedAt = 0;
+
+		private SiteProgress(final Host site, final long files, final long bytes) {
+			this.site = site;
+			this.files = files;
+			this.bytes = bytes;
+		}
+
+	}
+
+	/**
+	 * Creates the scheduler.
+	 *
+	 * @param runners
+	 *            - The number of dispatch runners.
+	 * @param chunkFiles
+	 *            - The maximum number of legacy files of a chunk.
+	 * @param fileCostMillis
+	 *            - The estimated cost of migrating a file, regardless of its
+	 *            size.
+	 * @param megabyteCostMillis
+	 *            - The estimated cost of migrating a megabyte of binaries.
+	 */
+	public MigrationScheduler(final int runners, final int chunkFiles, final long fileCostMillis,
+			final long megabyteCostMillis) {
+		this.runners = runners;
+		this.chunkFiles = chunkFiles;
+		this.fileCostMillis = fileCostMillis;
+		this.megabyteCostMillis = megabyteCostMillis;
+		for (int i = 0; i < runners; i++) {
+			queues.add(new ConcurrentLinkedDeque<Chunk>());
+			queuedCosts.add(new AtomicLong());
+		}
+	}
+
+	/**
+	 * Estimates, splits and deals the legacy files of the specified Sites to
+	 * the dispatch runners.
+	 *
+	 * @param sites
+	 *            - The Sites to migrate.
+	 * @return The number of chunks planned.
+	 * @throws DotDataException
+	 *             An error occurred when estimating or splitting the Sites.
+	 */
+	public int plan(final List<Host> sites) throws DotDataException {
+		final Map<String, long[]> estimates = new HashMap<String, long[]>();
+		final DotConnect dc = new DotConnect();
+		dc.setSQL(COST_QUERY);
+		for (Map<String, Object> row : dc.loadObjectResults()) {
+			estimates.put(row.get("host_inode").toString(),
+					new long[] { toLong(row.get("files")), toLong(row.get("bytes")) });
+		}
+		final List<Chunk> chunks = new ArrayList<Chunk>();
+		for (Host site : sites) {
+			final long[] estimate = estimates.get(site.getIdentifier());
+			if (null == estimate) {
+				// No legacy files left in this Site
+				continue;
+			}
+			final SiteProgress progress = new SiteProgress(site, estimate[0], estimate[1]);
+			final long cost = estimate[0] * fileCostMillis
+					+ Math.round(estimate[1] / BYTES_PER_MEGABYTE * megabyteCostMillis);
+			final List<String> boundaries = estimate[0] > chunkFiles
+					? LegacyFileSource.findRangeBoundaries(site.getIdentifier(), chunkFiles)
+					: Collections.<String>emptyList();
+			progress.chunks = boundaries.size() + 1;
+			for (int i = 0; i < progress.chunks; i++) {
+				chunks.add(new Chunk(progress, i, i > 0 ? boundaries.get(i - 1) : "",
+						i < boundaries.size() ? boundaries.get(i) : "", cost / progress.chunks));
+			}
+			progressBySite.put(site.getIdentifier(), progress);
+		}
+		Collections.sort(chunks, new Comparator<Chunk>() {
+
+			@Override
+			public int compare(final Chunk one, final Chunk other) {
+				return Long.compare(other.cost, one.cost);
+			}
+
+		});
+		for (Chunk chunk : chunks) {
+			int target = 0;
+			for (int i = 1; i < runners; i++) {
+				if (queuedCosts.get(i).get() < queuedCosts.get(target).get()) {
+					target = i;
+				}
+			}
+			queues.get(target).addLast(chunk);
+			queuedCosts.get(target).addAndGet(chunk.cost);
+		}
+		startedAt = System.currentTimeMillis();
+		Logger.info(this.getClass(), " \n-> Scheduled " + progressBySite.size() + " Sites as " + chunks.size()
+				+ " chunks for " + runners + " dispatch runners, largest first.\n");
+		return chunks.size();
+	}
+
+	/**
+	 * Returns the next chunk for a dispatch runner: the largest one of its own
+	 * queue or, if it is empty, the smallest one of the runner with the most
+	 * work left.
+	 *
+	 * @param runner
+	 *            - The number of the runner, from 0.
+	 * @return The next chunk, or {@code null} if there is nothing left to do.
+	 */
+	public Chunk next(final int runner) {
+		Chunk chunk = aborted ? null : queues.get(runner).pollFirst();
+		int owner = runner;
+		while (null == chunk && !aborted) {
+			owner = -1;
+			for (int i = 0; i < runners; i++) {
+				if (i != runner && !queues.get(i).isEmpty()
+						&& (owner < 0 || queuedCosts.get(i).get() > queuedCosts.get(owner).get())) {
+					owner = i;
+				}
+			}
+			if (owner < 0) {
+				return null;
+			}
+			chunk = queues.get(owner).pollLast();
+			if (null != chunk) {
+				steals.incrementAndGet();
+				Logger.debug(this.getClass(), "Runner " + runner + " stole " + chunk + " from runner " + owner);
+			}
+		}
+		if (null == chunk) {
+			return null;
+		}
+		queuedCosts.get(owner).addAndGet(-chunk.cost);
+		final SiteProgress site = chunk.site;
+		synchronized (site) {
+			if (0 == site.startedAt) {
+				site.startedAt = System.currentTimeMillis();
+			}
+			site.active.put(chunk.getTrackingKey(), chunk);
+		}
+		return chunk;
+	}
+
+	/**
+	 * Records a chunk whose legacy files have all been committed.
+	 *
+	 * @param chunk
+	 *            - The chunk.
+	 * @param committed
+	 *            - The number of files of the chunk committed during this run.
+	 * @return Returns {@code true} if it was the last chunk of its Site.
+	 */
+	public boolean chunkFinished(final Chunk chunk, final long committed) {
+		final SiteProgress site = chunk.site;
+		synchronized (site) {
+			site.active.remove(chunk.getTrackingKey());
+			site.committed.addAndGet(committed);
+			if (site.finishedChunks.incrementAndGet() == site.chunks) {
+				site.finishedAt = System.currentTimeMillis();
+				return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the number of legacy files of a Site committed by its finished
+	 * chunks.
+	 *
+	 * @param siteId
+	 *            - The Identifier of the Site.
+	 * @return The number of committed files.
+	 */
+	public long getCommitted(final String siteId) {
+		final SiteProgress site = progressBySite.get(siteId);
+		return null == site ? 0 : site.committed.get();
+	}
+
+	/**
+	 * Makes every runner stop once its current chunk is done, e.g., when
+	 * another runner failed.
+	 */
+	public void abort() {
+		aborted = Boolean.TRUE;
+	}
+
+	/**
+	 * Starts logging the completion ETAs of the Sites periodically.
+	 *
+	 * @param intervalSeconds
+	 *            - The time between two reports, in seconds.
+	 * @param checkpoints
+	 *            - Follows the files committed by the active chunks.
+	 */
+	public synchronized void startReporter(final int intervalSeconds, final CheckpointTracker checkpoints) {
+		if (null != reporter) {
+			return;
+		}
+		reporter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, "LegacyFilesMigrator-scheduler");
+				thread.setDaemon(Boolean.TRUE);
+				return thread;
+			}
+
+		});
+		reporter.scheduleAtFixedRate(new Runnable() {
+
+			@Override
+			public void run() {
+				Logger.info(MigrationScheduler.class, "Migration ETAs: " + getEtaReport(checkpoints));
+			}
+
+		}, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Stops the periodic ETA reports.
+	 */
+	public synchronized void stopReporter() {
+		if (null != reporter) {
+			reporter.shutdownNow();
+			reporter = null;
+		}
+	}
+
+	/**
+	 * Returns the progress and the completion ETA of every Site being
+	 * migrated, and of the whole run. The ETA of a Site is based on the
+	 * throughput it has had since its first chunk started, and the one of the
+	 * run on the overall throughput.
+	 *
+	 * @param checkpoints
+	 *            - Follows the files committed by the active chunks.
+	 * @return The ETA report.
+	 */
+	public String getEtaReport(final CheckpointTracker checkpoints) {
+		final long now = System.currentTimeMillis();
+		final StringBuilder report = new StringBuilder();
+		long totalFiles = 0;
+		long totalCommitted = 0;
+		int queued = 0;
+		int finished = 0;
+		for (SiteProgress site : progressBySite.values()) {
+			long committed;
+			synchronized (site) {
+				committed = site.committed.get();
+				for (String trackingKey : site.active.keySet()) {
+					committed += checkpoints.getCommittedCount(trackingKey);
+				}
+			}
+			totalFiles += site.files;
+			totalCommitted += Math.min(committed, site.files);
+			if (0 == site.startedAt) {
+				queued++;
+			} else if (0 != site.finishedAt) {
+				finished++;
+			} else {
+				report.append("\n   ").append(site.site.getHostname()).append(": ").append(committed).append(" of ")
+						.append(site.files).append(" files, ").append(site.finishedChunks.get()).append(" of ")
+						.append(site.chunks).append(" chunks, ETA ")
+						.append(eta(site.files - committed, committed, now - site.startedAt));
+			}
+		}
+		return finished + " Sites finished, " + (progressBySite.size() - finished - queued) + " in progress, "
+				+ queued + " queued, " + steals.get() + " chunks stolen; run ETA "
+				+ eta(totalFiles - totalCommitted, totalCommitted, now - startedAt) + report;
+	}
+
+	/**
+	 * Projects the time left to migrate a number of files.
+	 *
+	 * @param remaining
+	 *            - The files left.
+	 * @param done
+	 *            - The files migrated so far.
+	 * @param elapsedMillis
+	 *            - The time it took to migrate them.
+	 * @return The ETA, formatted as hours, minutes and seconds.
+	 */
+	private static String eta(final long remaining, final long done, final long elapsedMillis) {
+		if (remaining <= 0) {
+			return "0:00:00";
+		} else if (done <= 0 || elapsedMillis <= 0) {
+			return "unknown";
+		}
+		final long seconds = Math.round(remaining * (elapsedMillis / 1000.0) / done);
+		return String.format("%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+	}
+
+	/**
+	 * Returns the numeric value of an aggregate column.
+	 *
+	 * @param value
+	 *            - The column value.
+	 * @return The numeric value, or 0 if it is {@code null}.
+	 */
+	private static long toLong(final Object value) {
+		return null == value ? 0 : new BigDecimal(value.toString().trim()).longValue();
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.dotmarketing.osgi.util;
+
+/**
+ * Lifecycle of the Legacy Files migration. It is published as an OSGi service
+ * by the bundle, so the migration can be paused during business hours,
+ * throttled, resumed or cancelled without redeploying the plugin. A cancelled
+ * migration commits the files it was working on and resumes from its
+ * checkpoint journal the next time it is started.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public interface MigrationService {
+
+	/**
+	 * The states of the migration.
+	 */
+	enum State {
+
+		/** The migration has not been started. */
+		IDLE,
+		/** Legacy files are being migrated. */
+		RUNNING,
+		/** No new files are dispatched until the migration is resumed. */
+		PAUSED,
+		/** The migration was cancelled and is committing its pending work. */
+		STOPPING,
+		/** The migration thread has finished. */
+		FINISHED
+
+	}
+
+	/**
+	 * Starts the migration in a new thread. It does nothing if the migration
+	 * is already running.
+	 */
+	void start();
+
+	/**
+	 * Commits the open transactions and stops dispatching new files until
+	 * {@link #resume()} is called.
+	 */
+	void pause();
+
+	/**
+	 * Resumes a paused migration.
+	 */
+	void resume();
+
+	/**
+	 * Stops dispatching new files, commits the files that are being migrated
+	 * and lets the migration thread finish.
+	 */
+	void cancel();
+
+	/**
+	 * Waits for the migration thread to finish.
+	 *
+	 * @param timeoutMillis
+	 *            - The maximum time to wait, in milliseconds.
+	 * @return Returns {@code true} if the thread finished, or {@code false} if
+	 *         the timeout elapsed.
+	 * @throws InterruptedException
+	 *             The current thread was interrupted while waiting.
+	 */
+	boolean awaitTermination(long timeoutMillis) throws InterruptedException;
+
+	/**
+	 * Returns the current state of the migration.
+	 *
+	 * @return The migration state.
+	 */
+	State getState();
+
+	/**
+	 * Limits the number of legacy files migrated per second.
+	 *
+	 * @param filesPerSecond
+	 *            - The new limit. Zero or less means unlimited.
+	 */
+	void setFilesPerSecondLimit(double filesPerSecond);
+
+	/**
+	 * Limits the size of the legacy binaries migrated per second.
+	 *
+	 * @param megabytesPerSecond
+	 *            - The new limit, in megabytes. Zero or less means unlimited.
+	 */
+	void setMegabytesPerSecondLimit(double megabytesPerSecond);
+
+}
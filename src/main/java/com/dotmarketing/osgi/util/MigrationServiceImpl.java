@@ -0,0 +1,120 @@
+package com.dotmarketing.osgi.util;
+
+import com.dotmarketing.util.Logger;
+
+/**
+ * Default implementation of the {@link MigrationService}. The migration, or
+ * the planning mode when {@link MigrationConfig#isDryRun()} is set, or the
+ * verification mode when {@link MigrationConfig#isVerify()} is set, runs in a
+ * single named thread, and every lifecycle operation is passed on to the
+ * dispatcher of the {@link LegacyFilesMigrator} via its
+ * {@link MigrationControl}.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class MigrationServiceImpl implements MigrationService {
+
+	private static final String THREAD_NAME = "LegacyFilesMigrator-main";
+
+	private final LegacyFilesMigrator migrator;
+	private final MigrationControl control;
+	private Thread migrationThread;
+
+	/**
+	 * Creates the service for the specified migrator.
+	 *
+	 * @param migrator
+	 *            - The migrator.
+	 */
+	public MigrationServiceImpl(final LegacyFilesMigrator migrator) {
+		this.migrator = migrator;
+		this.control = migrator.getControl();
+	}
+
+	@Override
+	public synchronized void start() {
+		if (null != migrationThread && migrationThread.isAlive()) {
+			Logger.info(this.getClass(), "The legacy files migration is already running.");
+			return;
+		}
+		control.reset();
+		migrationThread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				if (migrator.getConfig().isDryRun()) {
+					migrator.planMigration();
+				} else if (migrator.getConfig().isVerify()) {
+					migrator.verifyMigration();
+				} else {
+					migrator.migrateLegacyFiles();
+				}
+			}
+
+		}, THREAD_NAME);
+		migrationThread.start();
+	}
+
+	@Override
+	public void pause() {
+		control.pause();
+		Logger.info(this.getClass(), "Pausing the legacy files migration...");
+	}
+
+	@Override
+	public void resume() {
+		control.resume();
+		Logger.info(this.getClass(), "Resuming the legacy files migration...");
+	}
+
+	@Override
+	public synchronized void cancel() {
+		control.cancel();
+		if (null != migrationThread && migrationThread.isAlive()) {
+			Logger.info(this.getClass(), "Cancelling the legacy files migration...");
+			if (migrator.getConfig().isDryRun()) {
+				// The planning mode does not change any data, so it can simply
+				// be interrupted. The verification mode stops on its own
+				migrationThread.interrupt();
+			}
+		}
+	}
+
+	@Override
+	public boolean awaitTermination(final long timeoutMillis) throws InterruptedException {
+		final Thread thread;
+		synchronized (this) {
+			thread = migrationThread;
+		}
+		if (null == thread) {
+			return true;
+		}
+		thread.join(timeoutMillis);
+		return !thread.isAlive();
+	}
+
+	@Override
+	public synchronized State getState() {
+		if (null == migrationThread) {
+			return State.IDLE;
+		} else if (!migrationThread.isAlive()) {
+			return State.FINISHED;
+		} else if (control.isCancelled()) {
+			return State.STOPPING;
+		}
+		return control.isPaused() ? State.PAUSED : State.RUNNING;
+	}
+
+	@Override
+	public void setFilesPerSecondLimit(final double filesPerSecond) {
+		control.setFilesPerSecond(filesPerSecond);
+	}
+
+	@Override
+	public void setMegabytesPerSecondLimit(final double megabytesPerSecond) {
+		control.setMegabytesPerSecond(megabytesPerSecond);
+	}
+
+}
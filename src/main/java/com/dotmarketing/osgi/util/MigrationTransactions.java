@@ -0,0 +1,80 @@
+package com.dotmarketing.osgi.util;
+
+import com.dotmarketing.exception.DotHibernateException;
+
+/**
+ * Transaction and session operations used on the hot path of the migration:
+ * by the workers of the {@link MigrationWorkerPool} and by every single file
+ * migrated by the {@link LegacyFilesMigrator}. All the operations apply to the
+ * session of the current thread. Keeping them behind this interface allows the
+ * migration to be measured with an in-memory stand-in instead of a database.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public interface MigrationTransactions {
+
+	/**
+	 * Starts a transaction.
+	 *
+	 * @throws DotHibernateException
+	 *             An error occurred when starting the transaction.
+	 */
+	void begin() throws DotHibernateException;
+
+	/**
+	 * Commits the current transaction.
+	 *
+	 * @throws DotHibernateException
+	 *             An error occurred when committing the transaction.
+	 */
+	void commit() throws DotHibernateException;
+
+	/**
+	 * Rolls back the current transaction.
+	 *
+	 * @throws DotHibernateException
+	 *             An error occurred when rolling back the transaction.
+	 */
+	void rollback() throws DotHibernateException;
+
+	/**
+	 * Detaches every object from the current session.
+	 *
+	 * @throws DotHibernateException
+	 *             An error occurred when accessing the session.
+	 */
+	void clearSession() throws DotHibernateException;
+
+	/**
+	 * Closes the current session.
+	 *
+	 * @throws DotHibernateException
+	 *             An error occurred when closing the session.
+	 */
+	void closeSession() throws DotHibernateException;
+
+	/**
+	 * Removes an Identifier from the cache, so that it is read again from the
+	 * current transaction.
+	 *
+	 * @param identifier
+	 *            - The Identifier.
+	 */
+	void evictIdentifier(String identifier);
+
+	/**
+	 * Removes a migrated content, its Identifier and its version info from
+	 * the caches, once it is no longer needed by the migration.
+	 *
+	 * @param identifier
+	 *            - The Identifier of the content.
+	 * @param inode
+	 *            - The Inode of the content.
+	 * @param languageId
+	 *            - The language of the content.
+	 */
+	void evictContent(String identifier, String inode, long languageId);
+
+}
@@ -0,0 +1,299 @@
+package com.dotmarketing.osgi.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dotmarketing.beans.ContentletVersionInfo;
+import com.dotmarketing.business.VersionableAPI;
+import com.dotmarketing.exception.DotHibernateException;
+import com.dotmarketing.portlets.contentlet.business.ContentletAPI;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.util.Logger;
+import com.liferay.portal.model.User;
+
+/**
+ * Read-only verification mode of the Legacy Files migration. It streams the
+ * {@link VerificationManifest} written by the migration runs and checks every
+ * File as Content against the state recorded for its legacy file:
+ * <ul>
+ * <li>Its version info exists, and its working and live Inodes match the
+ * version info of the legacy file.</li>
+ * <li>The content exists, with the legacy Identifier, Site and folder.</li>
+ * <li>Its binary exists, and its size and SHA-1 hash match the ones of the
+ * legacy binary.</li>
+ * </ul>
+ * Files are checked by a pool of threads fed through a bounded queue, so only
+ * a few entries of the manifest are in memory at any time, and the
+ * {@link MigrationControl} limits the files and megabytes read per second, so
+ * the verification can run next to live traffic. Binaries are hashed via
+ * memory-mapped reads by the {@link BinaryHasher}.
+ * <p>
+ * Every mismatch is appended to the report as a JSON object on its own line:
+ *
+ * <pre>
+ * {"identifier":"0f2c...","inode":"2cb2...","check":"checksum","expected":"9a0364b9...:5120","actual":"1b6453...:5120"}
+ * </pre>
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class MigrationVerifier {
+
+	private static final String BINARY_FIELD = "fileAsset";
+
+	private final MigrationConfig config;
+	private final ContentletAPI contentletAPI;
+	private final VersionableAPI versionableAPI;
+	private final BinaryHasher hasher;
+	private final MigrationControl control;
+	private final MigrationTransactions transactions;
+	private final User user;
+	private final AtomicLong checkedFiles = new AtomicLong();
+	private final AtomicLong checkedBytes = new AtomicLong();
+	private final AtomicLong failedFiles = new AtomicLong();
+	private final AtomicLong mismatches = new AtomicLong();
+	private BufferedWriter report;
+
+	/**
+	 * Creates the verifier.
+	 *
+	 * @param config
+	 *            - The migration configuration.
+	 * @param contentletAPI
+	 *            - Reads the Files as Content.
+	 * @param versionableAPI
+	 *            - Reads the version info of the Files as Content.
+	 * @param hasher
+	 *            - Fingerprints the migrated binaries.
+	 * @param control
+	 *            - Throttles, pauses or cancels the verification.
+	 * @param transactions
+	 *            - Closes the sessions of the verifying threads.
+	 * @param user
+	 *            - The user reading the Files as Content.
+	 */
+	public MigrationVerifier(final MigrationConfig config, final ContentletAPI contentletAPI,
+			final VersionableAPI versionableAPI, final BinaryHasher hasher, final MigrationControl control,
+			final MigrationTransactions transactions, final User user) {
+		this.config = config;
+		this.contentletAPI = contentletAPI;
+		this.versionableAPI = versionableAPI;
+		this.hasher = hasher;
+		this.control = control;
+		this.transactions = transactions;
+		this.user = user;
+	}
+
+	/**
+	 * Verifies every File as Content of the manifest in the journal directory
+	 * and writes the mismatch report next to it.
+	 *
+	 * @return The location of the mismatch report, or {@code null} if there is
+	 *         no manifest.
+	 * @throws IOException
+	 *             An error occurred when reading the manifest or writing the
+	 *             report.
+	 * @throws InterruptedException
+	 *             The current thread was interrupted.
+	 */
+	public Path verify() throws IOException, InterruptedException {
+		final Path manifest = Paths.get(config.getJournalDirectory(), VerificationManifest.FILE_NAME);
+		if (!Files.exists(manifest)) {
+			Logger.warn(this.getClass(), "No verification manifest found at '" + manifest
+					+ "'. Only migrations run with legacy.files.migrator.verify.manifest.enabled can be verified.");
+			return null;
+		}
+		final long start = System.currentTimeMillis();
+		final Path reportFile = Paths.get(config.getJournalDirectory(),
+				"verification-report-" + System.currentTimeMillis() + ".jsonl");
+		final int threads = config.getVerifyThreads();
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(config.getVerifyQueueCapacity()), newThreadFactory(),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		long skipped = 0;
+		try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8);
+				BufferedWriter writer = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8)) {
+			report = writer;
+			String line;
+			while (null != (line = reader.readLine())) {
+				final VerificationManifest.Entry entry = VerificationManifest.Entry.parse(line);
+				if (null == entry) {
+					skipped++;
+					continue;
+				}
+				if (control.isPaused() && !control.awaitResume()) {
+					break;
+				}
+				if (!control.throttle(BinaryHasher.getSize(entry.getFingerprint()))) {
+					break;
+				}
+				executor.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						check(entry);
+					}
+
+				});
+			}
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} finally {
+			executor.shutdownNow();
+			report = null;
+		}
+		final long seconds = Math.max(1, (System.currentTimeMillis() - start) / 1000);
+		Logger.info(this.getClass(), " \n-> Verified " + checkedFiles.get() + " Files as Content ("
+				+ checkedBytes.get() / (1024 * 1024) + " MB, " + checkedFiles.get() / seconds + " files/s): "
+				+ failedFiles.get() + " with " + mismatches.get() + " mismatches"
+				+ (skipped > 0 ? ", " + skipped + " incomplete manifest lines skipped" : "")
+				+ (control.isCancelled() ? ". The verification was cancelled" : "") + ".\n   Hashing: "
+				+ hasher.getSummary() + "\n   Report written to '" + reportFile + "'\n");
+		return reportFile;
+	}
+
+	/**
+	 * Checks a single File as Content. Its binary is only hashed once
+	 * everything else matches.
+	 *
+	 * @param entry
+	 *            - The expected state of the File as Content.
+	 */
+	private void check(final VerificationManifest.Entry entry) {
+		final long before = mismatches.get();
+		try {
+			final ContentletVersionInfo versionInfo = versionableAPI
+					.getContentletVersionInfo(entry.getIdentifier(), entry.getLanguageId());
+			if (null == versionInfo) {
+				mismatch(entry, "version_info", "present", null);
+				return;
+			}
+			compare(entry, "working", entry.getInode(), versionInfo.getWorkingInode());
+			compare(entry, "live", entry.isLive() ? entry.getInode() : null, versionInfo.getLiveInode());
+			final Contentlet content = contentletAPI.find(entry.getInode(), user, false);
+			if (null == content) {
+				mismatch(entry, "content", "present", null);
+				return;
+			}
+			compare(entry, "identifier", entry.getIdentifier(), content.getIdentifier());
+			compare(entry, "host", entry.getHostId(), content.getHost());
+			compare(entry, "folder", entry.getFolderInode(), content.getFolder());
+			final java.io.File binary = content.getBinary(BINARY_FIELD);
+			if (null == binary || !binary.exists()) {
+				mismatch(entry, "binary", "present", null);
+				return;
+			}
+			final long size = binary.length();
+			checkedBytes.addAndGet(size);
+			if (size != BinaryHasher.getSize(entry.getFingerprint())) {
+				mismatch(entry, "size", String.valueOf(BinaryHasher.getSize(entry.getFingerprint())),
+						String.valueOf(size));
+				return;
+			}
+			compare(entry, "checksum", entry.getFingerprint(), hasher.fingerprint(binary.toPath()));
+		} catch (Exception e) {
+			mismatch(entry, "error", null, e.toString());
+		} finally {
+			checkedFiles.incrementAndGet();
+			if (mismatches.get() > before) {
+				failedFiles.incrementAndGet();
+			}
+			closeSession();
+		}
+	}
+
+	/**
+	 * Records a mismatch if an actual value differs from the expected one.
+	 * Missing and empty values are considered equal.
+	 *
+	 * @param entry
+	 *            - The expected state of the File as Content.
+	 * @param check
+	 *            - The name of the check.
+	 * @param expected
+	 *            - The expected value.
+	 * @param actual
+	 *            - The actual value.
+	 */
+	private void compare(final VerificationManifest.Entry entry, final String check, final String expected,
+			final String actual) {
+		final String expectedValue = null == expected ? "" : expected;
+		final String actualValue = null == actual ? "" : actual;
+		if (!expectedValue.equals(actualValue)) {
+			mismatch(entry, check, expected, actual);
+		}
+	}
+
+	/**
+	 * Appends a mismatch to the report.
+	 *
+	 * @param entry
+	 *            - The expected state of the File as Content.
+	 * @param check
+	 *            - The name of the failed check.
+	 * @param expected
+	 *            - The expected value.
+	 * @param actual
+	 *            - The actual value.
+	 */
+	private void mismatch(final VerificationManifest.Entry entry, final String check, final String expected,
+			final String actual) {
+		mismatches.incrementAndGet();
+		final String line = "{\"identifier\":" + DeadLetterFile.quote(entry.getIdentifier()) + ",\"inode\":"
+				+ DeadLetterFile.quote(entry.getInode()) + ",\"check\":" + DeadLetterFile.quote(check)
+				+ ",\"expected\":" + DeadLetterFile.quote(expected) + ",\"actual\":" + DeadLetterFile.quote(actual)
+				+ "}";
+		synchronized (this) {
+			try {
+				report.write(line);
+				report.newLine();
+			} catch (IOException e) {
+				Logger.error(this.getClass(), "Could not write to the verification report. Mismatch: " + line, e);
+			}
+		}
+	}
+
+	/**
+	 * Releases the database connection of a verifying thread.
+	 */
+	private void closeSession() {
+		try {
+			transactions.closeSession();
+		} catch (DotHibernateException e) {
+			Logger.warn(this, "Could not close the session of a verifying thread: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Creates the factory of the daemon verifying threads.
+	 *
+	 * @return The thread factory.
+	 */
+	private static ThreadFactory newThreadFactory() {
+		return new ThreadFactory() {
+
+			private final AtomicInteger counter = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, "LegacyFilesMigrator-verify-" + counter.incrementAndGet());
+				thread.setDaemon(Boolean.TRUE);
+				return thread;
+			}
+
+		};
+	}
+
+}
@@ -0,0 +1,779 @@
+package com.dotmarketing.osgi.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotHibernateException;
+import com.dotmarketing.util.Logger;
+
+/**
+ * Bounded pool of worker threads that migrate legacy files concurrently. Every
+ * worker owns a bounded queue and its own Hibernate session, and groups the
+ * files it processes in transactions whose size is decided by a
+ * {@link BatchSizeController}.
+ * <p>
+ * Files are assigned to a worker based on an ordering key, which is usually
+ * made of the Site and the parent path of the file. This way, all the files
+ * that share an Identifier or a parent folder are always processed by the same
+ * worker, and in the same order in which they were submitted.
+ * <p>
+ * A file that fails does not abort the migration. The open batch is rolled
+ * back and replayed without it, and the file is handled by the
+ * {@link MigrationFailurePolicy}: lock timeouts and deadlocks are retried in
+ * a transaction of their own after a backoff, and any other error sends the
+ * file to the {@link DeadLetterFile}. Pending retries are always run before a
+ * flush or a shutdown completes.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class MigrationWorkerPool {
+
+	private static final long WAIT_MILLIS = 1000;
+
+	private final Worker[] workers;
+	private final BatchSizeController batchSizeController;
+	private final MigrationMetrics metrics;
+	private final MigrationControl control;
+	private final MigrationTransactions transactions;
+	private final MigrationFailurePolicy failurePolicy;
+	private final AtomicLong processed = new AtomicLong();
+	private final AtomicLong retried = new AtomicLong();
+	private final AtomicLong deadLettered = new AtomicLong();
+	private final AtomicInteger consecutiveFailures = new AtomicInteger();
+	private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+	private final List<BatchListener> listeners = new CopyOnWriteArrayList<BatchListener>();
+
+	/**
+	 * Represents the migration of a single legacy file, executed by a worker
+	 * inside its current transaction.
+	 */
+	public static abstract class MigrationTask {
+
+		private final String siteId;
+		private final String inode;
+		private final String trackingKey;
+
+		/**
+		 * Creates a task for the specified legacy file.
+		 *
+		 * @param siteId
+		 *            - The Identifier of the Site the file belongs to.
+		 * @param inode
+		 *            - The Inode of the legacy file.
+		 */
+		protected MigrationTask(final String siteId, final String inode) {
+			this(siteId, inode, siteId);
+		}
+
+		/**
+		 * Creates a task for the specified legacy file, whose progress is
+		 * tracked separately from the rest of its Site, e.g., because it
+		 * belongs to a chunk of the Site migrated next to other chunks.
+		 *
+		 * @param siteId
+		 *            - The Identifier of the Site the file belongs to.
+		 * @param inode
+		 *            - The Inode of the legacy file.
+		 * @param trackingKey
+		 *            - The key the {@link CheckpointTracker} follows the file
+		 *            under.
+		 */
+		protected MigrationTask(final String siteId, final String inode, final String trackingKey) {
+			this.trackingKey = trackingKey;
+			this.siteId = siteId;
+			this.inode = inode;
+		}
+
+		public String getSiteId() {
+			return siteId;
+		}
+
+		public String getInode() {
+			return inode;
+		}
+
+		public String getTrackingKey() {
+			return trackingKey;
+		}
+
+		/**
+		 * Migrates the legacy file.
+		 *
+		 * @return Returns {@code true} if the file must be counted as processed.
+		 * @throws Exception
+		 *             An error occurred when migrating the file.
+		 */
+		public abstract boolean execute() throws Exception;
+
+	}
+
+	/**
+	 * Receives the outcome of every transaction of the workers. Listeners are
+	 * called from the worker thread that owns the transaction, so they must be
+	 * thread-safe and should return quickly.
+	 */
+	public interface BatchListener {
+
+		/**
+		 * Called before a batch is committed, inside its transaction. Any
+		 * error makes the batch roll back, and its files are replayed one by
+		 * one.
+		 *
+		 * @param batch
+		 *            - The tasks that are part of the transaction.
+		 * @throws Exception
+		 *             An error occurred when completing the batch.
+		 */
+		void beforeCommit(List<MigrationTask> batch) throws Exception;
+
+		/**
+		 * Called after a batch has been committed.
+		 *
+		 * @param batch
+		 *            - The tasks that were part of the committed transaction.
+		 */
+		void afterCommit(List<MigrationTask> batch);
+
+		/**
+		 * Called after a batch has been rolled back.
+		 *
+		 * @param batch
+		 *            - The tasks that were part of the rolled back transaction.
+		 */
+		void afterRollback(List<MigrationTask> batch);
+
+	}
+
+	/**
+	 * Creates the worker pool. Workers are not started until {@link #start()}
+	 * is called.
+	 *
+	 * @param workerThreads
+	 *            - The number of worker threads.
+	 * @param queueCapacity
+	 *            - The maximum number of pending tasks per worker.
+	 * @param batchSizeController
+	 *            - Decides the number of processed files per transaction.
+	 * @param metrics
+	 *            - Records the commit latency and the errors of the workers.
+	 * @param control
+	 *            - Once the migration is cancelled, the workers skip the tasks
+	 *            left in their queues. The files already migrated in the open
+	 *            transactions are still committed by the next {@link #flush()}
+	 *            or {@link #shutdown()}, and the skipped ones are left for the
+	 *            next run.
+	 * @param transactions
+	 *            - Starts, commits and rolls back the transactions of the
+	 *            workers.
+	 * @param failurePolicy
+	 *            - Decides whether a failed file is retried or sent to the
+	 *            dead-letter file.
+	 */
+	public MigrationWorkerPool(final int workerThreads, final int queueCapacity,
+			final BatchSizeController batchSizeController, final MigrationMetrics metrics,
+			final MigrationControl control, final MigrationTransactions transactions,
+			final MigrationFailurePolicy failurePolicy) {
+		this.batchSizeController = batchSizeController;
+		this.metrics = metrics;
+		this.control = control;
+		this.transactions = transactions;
+		this.failurePolicy = failurePolicy;
+		this.workers = new Worker[workerThreads];
+		for (int i = 0; i < workerThreads; i++) {
+			this.workers[i] = new Worker("LegacyFilesMigrator-worker-" + (i + 1), queueCapacity);
+		}
+		metrics.stageConfigured(MigrationMetrics.Stage.CHECKIN, workerThreads, workerThreads * queueCapacity);
+	}
+
+	/**
+	 * Registers a listener that will be notified of every committed or rolled
+	 * back batch.
+	 *
+	 * @param listener
+	 *            - The listener.
+	 */
+	public void addBatchListener(final BatchListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Starts all the worker threads.
+	 */
+	public void start() {
+		for (Worker worker : workers) {
+			worker.start();
+		}
+	}
+
+	/**
+	 * Queues a task in the worker associated to the specified ordering key. If
+	 * the queue of that worker is full, this method blocks until there is room
+	 * for the new task, or until the workers are aborted.
+	 *
+	 * @param orderingKey
+	 *            - Tasks sharing this key are executed sequentially.
+	 * @param task
+	 *            - The task to execute.
+	 * @throws DotDataException
+	 *             The workers were aborted.
+	 * @throws InterruptedException
+	 *             The current thread was interrupted while waiting.
+	 */
+	public void submit(final String orderingKey, final MigrationTask task)
+			throws DotDataException, InterruptedException {
+		checkFailure();
+		metrics.stageQueued(MigrationMetrics.Stage.CHECKIN, 1);
+		boolean queued = Boolean.FALSE;
+		try {
+			put(workerFor(orderingKey), task);
+			queued = Boolean.TRUE;
+		} finally {
+			if (!queued) {
+				metrics.stageQueued(MigrationMetrics.Stage.CHECKIN, -1);
+			}
+		}
+	}
+
+	/**
+	 * Waits for all the tasks submitted so far to finish, and makes every
+	 * worker commit its open transaction, even if the batch is not complete.
+	 * This is used to commit the tail batch of a Site.
+	 *
+	 * @throws DotDataException
+	 *             The workers were aborted.
+	 * @throws InterruptedException
+	 *             The current thread was interrupted while waiting.
+	 */
+	public void flush() throws DotDataException, InterruptedException {
+		checkFailure();
+		final CountDownLatch latch = new CountDownLatch(workers.length);
+		for (Worker worker : workers) {
+			put(worker, new Flush(latch));
+		}
+		// A worker that dies records its error before exiting
+		while (!latch.await(WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+			checkFailure();
+		}
+		checkFailure();
+	}
+
+	/**
+	 * Commits any pending work and stops all the worker threads once their
+	 * queues are empty.
+	 *
+	 * @throws InterruptedException
+	 *             The current thread was interrupted while waiting.
+	 */
+	public void shutdown() throws InterruptedException {
+		for (Worker worker : workers) {
+			while (worker.isAlive() && !worker.queue.offer(Shutdown.INSTANCE, WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+				// Wait for room in the queue, unless the worker has died
+			}
+		}
+		for (Worker worker : workers) {
+			worker.join();
+		}
+	}
+
+	/**
+	 * Returns the number of files whose migration has been committed.
+	 *
+	 * @return The number of processed files.
+	 */
+	public long getProcessedCount() {
+		return processed.get();
+	}
+
+	/**
+	 * Returns the number of times a file was scheduled for a retry after a
+	 * transient error.
+	 *
+	 * @return The number of retries.
+	 */
+	public long getRetriedCount() {
+		return retried.get();
+	}
+
+	/**
+	 * Returns the number of files sent to the dead-letter file.
+	 *
+	 * @return The number of failed files.
+	 */
+	public long getDeadLetterCount() {
+		return deadLettered.get();
+	}
+
+	/**
+	 * Throws the error that aborted the workers, if any.
+	 *
+	 * @throws DotDataException
+	 *             A worker was interrupted or died, or too many consecutive
+	 *             files failed, and the migration must be aborted.
+	 */
+	private void checkFailure() throws DotDataException {
+		final Throwable error = failure.get();
+		if (null != error) {
+			throw new DotDataException("Legacy file migration aborted: " + error.getMessage(), error);
+		}
+	}
+
+	/**
+	 * Queues an item in a worker, waiting for room in its queue. It gives up
+	 * as soon as the workers are aborted, as a worker that died no longer
+	 * takes items from its queue.
+	 *
+	 * @param worker
+	 *            - The worker.
+	 * @param item
+	 *            - The task or marker to queue.
+	 * @throws DotDataException
+	 *             The workers were aborted.
+	 * @throws InterruptedException
+	 *             The current thread was interrupted while waiting.
+	 */
+	private void put(final Worker worker, final Object item) throws DotDataException, InterruptedException {
+		while (!worker.queue.offer(item, WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+			checkFailure();
+		}
+	}
+
+	/**
+	 * Returns the worker that must process the tasks of the specified ordering
+	 * key.
+	 *
+	 * @param orderingKey
+	 *            - The ordering key.
+	 * @return The worker in charge of that key.
+	 */
+	private Worker workerFor(final String orderingKey) {
+		final int hash = null == orderingKey ? 0 : orderingKey.hashCode();
+		return workers[(hash & Integer.MAX_VALUE) % workers.length];
+	}
+
+	/**
+	 * Marker that makes a worker commit its open transaction and notify the
+	 * thread waiting for it.
+	 */
+	private static final class Flush {
+
+		private final CountDownLatch latch;
+
+		private Flush(final CountDownLatch latch) {
+			this.latch = latch;
+		}
+
+	}
+
+	/**
+	 * Marker that makes a worker commit its open transaction and exit.
+	 */
+	private static final class Shutdown {
+
+		private static final Shutdown INSTANCE = new Shutdown();
+
+	}
+
+	/**
+	 * A file waiting to be retried after a transient error.
+	 */
+	private static final class Retry implements Comparable<Retry> {
+
+		private final MigrationTask task;
+		private final int attempts;
+		private final long dueAt;
+
+		private Retry(final MigrationTask task, final int attempts, final long dueAt) {
+			this.task = task;
+			this.attempts = attempts;
+			this.dueAt = dueAt;
+		}
+
+		@Override
+		public int compareTo(final Retry other) {
+			return Long.compare(dueAt, other.dueAt);
+		}
+
+	}
+
+	/**
+	 * Worker thread that executes the tasks of its queue in order, in
+	 * transactions sized by the {@link BatchSizeController}. A worker always
+	 * commits its open transaction when it is flushed, so the tail batch of
+	 * every Site is committed no matter its size.
+	 * <p>
+	 * Files that failed with a transient error wait in a retry queue, ordered
+	 * by the time they are due. A due retry is run in its own transaction,
+	 * right after the open batch is committed.
+	 */
+	private final class Worker extends Thread {
+
+		private final BlockingQueue<Object> queue;
+		private final PriorityQueue<Retry> retries = new PriorityQueue<Retry>();
+		private final List<MigrationTask> batch = new ArrayList<MigrationTask>();
+		private boolean inTransaction = Boolean.FALSE;
+		private int pending = 0;
+
+		private Worker(final String name, final int queueCapacity) {
+			super(name);
+			this.queue = new ArrayBlockingQueue<Object>(queueCapacity);
+			setDaemon(Boolean.TRUE);
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					final Retry retry = retries.peek();
+					final Object item;
+					if (null == retry) {
+						item = queue.take();
+					} else {
+						final long wait = retry.dueAt - System.currentTimeMillis();
+						item = wait > 0 ? queue.poll(wait, TimeUnit.MILLISECONDS) : null;
+						if (null == item) {
+							commit();
+							retries.poll();
+							runIsolated(retry.task, retry.attempts);
+							continue;
+						}
+					}
+					if (item instanceof Shutdown) {
+						commit();
+						drainRetries();
+						break;
+					} else if (item instanceof Flush) {
+						commit();
+						drainRetries();
+						((Flush) item).latch.countDown();
+					} else {
+						metrics.stageQueued(MigrationMetrics.Stage.CHECKIN, -1);
+						final long start = metrics.stageStarted(MigrationMetrics.Stage.CHECKIN);
+						try {
+							execute((MigrationTask) item);
+						} finally {
+							metrics.stageFinished(MigrationMetrics.Stage.CHECKIN, start);
+						}
+					}
+				}
+			} catch (InterruptedException e) {
+				Logger.warn(this, getName() + " was interrupted. Pending work will be rolled back.");
+				failure.compareAndSet(null, e);
+				rollback();
+				retries.clear();
+				releaseWaitingThreads();
+				Thread.currentThread().interrupt();
+			} catch (Throwable t) {
+				// Errors such as an OutOfMemoryError or a class that can no
+				// longer be loaded must not leave the worker silently dead
+				Logger.error(this.getClass(), getName() + " stopped unexpectedly. Pending work will be rolled back.", t);
+				failure.compareAndSet(null, t);
+				rollback();
+				retries.clear();
+				releaseWaitingThreads();
+			} finally {
+				closeSession();
+			}
+		}
+
+		/**
+		 * Executes the task inside the current transaction, and commits it if
+		 * the batch is complete. Tasks are skipped once the workers have been
+		 * aborted or the migration has been cancelled. If the task fails, the
+		 * rest of the batch is replayed without it.
+		 *
+		 * @param task
+		 *            - The task to execute.
+		 */
+		private void execute(final MigrationTask task) {
+			if (null != failure.get() || control.isCancelled()) {
+				return;
+			}
+			try {
+				if (!inTransaction) {
+					transactions.begin();
+					inTransaction = Boolean.TRUE;
+				}
+				batch.add(task);
+				final long start = System.currentTimeMillis();
+				if (task.execute()) {
+					pending++;
+				}
+				batchSizeController.fileMigrated(System.currentTimeMillis() - start);
+			} catch (Exception e) {
+				Logger.warn(this, "An error occurred when migrating legacy file '" + task.getInode() + "': "
+						+ e.getMessage());
+				metrics.error(e);
+				replay(task, e);
+				return;
+			}
+			if (pending >= batchSizeController.getBatchSize()) {
+				commit();
+			}
+		}
+
+		/**
+		 * Commits the open transaction, if any, and adds its files to the
+		 * processed count. If the commit fails, the files of the batch are
+		 * replayed one by one.
+		 */
+		private void commit() {
+			if (!inTransaction) {
+				return;
+			}
+			try {
+				commitBatch();
+			} catch (Exception e) {
+				Logger.warn(this, "An error occurred when committing a batch of " + batch.size()
+						+ " legacy files. They will be replayed one by one: " + e.getMessage());
+				metrics.error(e);
+				replay(null, e);
+			}
+		}
+
+		/**
+		 * Commits the open transaction and notifies the listeners. If an error
+		 * occurs, the transaction is left open for the caller to roll it back.
+		 *
+		 * @throws Exception
+		 *             An error occurred when committing the transaction.
+		 */
+		private void commitBatch() throws Exception {
+			for (BatchListener listener : listeners) {
+				listener.beforeCommit(batch);
+			}
+			final long start = System.nanoTime();
+			transactions.commit();
+			metrics.record(MigrationMetrics.Phase.COMMIT, start);
+			batchSizeController.batchCommitted((System.nanoTime() - start) / 1000000, pending);
+			processed.addAndGet(pending);
+			consecutiveFailures.set(0);
+			inTransaction = Boolean.FALSE;
+			notifyListeners(true);
+			pending = 0;
+			batch.clear();
+		}
+
+		/**
+		 * Rolls back the open batch and migrates its files again, without the
+		 * one that failed. They are first replayed together as a single
+		 * sub-batch and, if that fails as well, one by one, so that only the
+		 * files that keep failing are left out. When the culprit is not known,
+		 * e.g., because the commit failed, every file is replayed on its own.
+		 *
+		 * @param failed
+		 *            - The task that failed, or {@code null} if unknown.
+		 * @param error
+		 *            - The error of the failed task.
+		 */
+		private void replay(final MigrationTask failed, final Exception error) {
+			final List<MigrationTask> tasks = new ArrayList<MigrationTask>(batch);
+			tasks.remove(failed);
+			rollback();
+			closeSession();
+			if (null == failed || tasks.isEmpty() || !runSubBatch(tasks)) {
+				for (MigrationTask task : tasks) {
+					runIsolated(task, 0);
+				}
+			}
+			if (null != failed) {
+				handleFailure(failed, 1, error);
+			}
+		}
+
+		/**
+		 * Migrates a group of files in a single transaction.
+		 *
+		 * @param tasks
+		 *            - The tasks to execute.
+		 * @return Returns {@code true} if the transaction was committed.
+		 */
+		private boolean runSubBatch(final List<MigrationTask> tasks) {
+			if (null != failure.get() || control.isCancelled()) {
+				return Boolean.TRUE;
+			}
+			try {
+				transactions.begin();
+				inTransaction = Boolean.TRUE;
+				for (MigrationTask task : tasks) {
+					batch.add(task);
+					if (task.execute()) {
+						pending++;
+					}
+				}
+				commitBatch();
+				return Boolean.TRUE;
+			} catch (Exception e) {
+				Logger.debug(this.getClass(), "Replaying a batch of " + tasks.size()
+						+ " legacy files failed. They will be replayed one by one: " + e.getMessage());
+				rollback();
+				closeSession();
+				return Boolean.FALSE;
+			}
+		}
+
+		/**
+		 * Migrates a single file in a transaction of its own.
+		 *
+		 * @param task
+		 *            - The task to execute.
+		 * @param failedAttempts
+		 *            - The number of times the task has already failed.
+		 */
+		private void runIsolated(final MigrationTask task, final int failedAttempts) {
+			if (null != failure.get() || control.isCancelled()) {
+				return;
+			}
+			try {
+				transactions.begin();
+				inTransaction = Boolean.TRUE;
+				batch.add(task);
+				if (task.execute()) {
+					pending++;
+				}
+				commitBatch();
+			} catch (Exception e) {
+				metrics.error(e);
+				rollback();
+				closeSession();
+				handleFailure(task, failedAttempts + 1, e);
+			}
+		}
+
+		/**
+		 * Schedules a retry of a failed file, if its error is transient and it
+		 * has attempts left. Otherwise, the file is sent to the dead-letter
+		 * file. Lock contention also halves the batch size, as smaller
+		 * transactions hold fewer locks.
+		 *
+		 * @param task
+		 *            - The failed task.
+		 * @param attempts
+		 *            - The number of failed attempts, including this one.
+		 * @param error
+		 *            - The error of the last attempt.
+		 */
+		private void handleFailure(final MigrationTask task, final int attempts, final Exception error) {
+			if (failurePolicy.isTransient(error) && failurePolicy.canRetry(attempts)) {
+				batchSizeController.contentionDetected();
+				final long backoff = failurePolicy.getBackoffMillis(attempts);
+				retries.add(new Retry(task, attempts, System.currentTimeMillis() + backoff));
+				retried.incrementAndGet();
+				Logger.warn(this, "Legacy file '" + task.getInode() + "' failed with a transient error (attempt "
+						+ attempts + "). Retrying in " + backoff + " ms: " + error.getMessage());
+				return;
+			}
+			final DeadLetterFile deadLetters = failurePolicy.getDeadLetters();
+			Logger.error(this.getClass(), "Legacy file '" + task.getInode() + "' could not be migrated after "
+					+ attempts + " attempt(s). It has been recorded in '" + deadLetters.getFile() + "'.", error);
+			deadLetters.write(task.getSiteId(), task.getInode(), attempts, error);
+			deadLettered.incrementAndGet();
+			if (consecutiveFailures.incrementAndGet() >= failurePolicy.getMaxConsecutiveFailures()) {
+				failure.compareAndSet(null, new DotDataException(failurePolicy.getMaxConsecutiveFailures()
+						+ " legacy files failed in a row. Last error: " + error.getMessage(), error));
+			}
+		}
+
+		/**
+		 * Runs all the pending retries, waiting for each one to be due. Retries
+		 * scheduled along the way are run as well, so no file is left behind
+		 * once a Site is flushed.
+		 *
+		 * @throws InterruptedException
+		 *             The worker was interrupted while waiting.
+		 */
+		private void drainRetries() throws InterruptedException {
+			Retry retry;
+			while (null != (retry = retries.poll())) {
+				final long wait = retry.dueAt - System.currentTimeMillis();
+				if (wait > 0 && null == failure.get() && !control.isCancelled()) {
+					Thread.sleep(wait);
+				}
+				runIsolated(retry.task, retry.attempts);
+			}
+		}
+
+		/**
+		 * Discards the tasks left in the queue of a worker that stopped
+		 * unexpectedly, so that no thread keeps waiting for it.
+		 */
+		private void releaseWaitingThreads() {
+			Object item;
+			while (null != (item = queue.poll())) {
+				if (item instanceof Flush) {
+					((Flush) item).latch.countDown();
+				} else if (item instanceof MigrationTask) {
+					metrics.stageQueued(MigrationMetrics.Stage.CHECKIN, -1);
+				}
+			}
+		}
+
+		/**
+		 * Rolls back the open transaction, if any.
+		 */
+		private void rollback() {
+			try {
+				transactions.rollback();
+			} catch (DotHibernateException e) {
+				Logger.warn(this, e.getMessage(), e);
+			} finally {
+				notifyListeners(false);
+				inTransaction = Boolean.FALSE;
+				pending = 0;
+				batch.clear();
+			}
+		}
+
+		/**
+		 * Closes the Hibernate session of the worker, so that no object loaded
+		 * by a rolled back transaction is reused. A new session is opened by
+		 * the next transaction.
+		 */
+		private void closeSession() {
+			try {
+				transactions.closeSession();
+			} catch (DotHibernateException e) {
+				Logger.error(this.getClass(), "An error occurred when closing the Hibernate session.", e);
+			}
+		}
+
+		/**
+		 * Notifies the registered listeners about the outcome of the current
+		 * batch. Errors in listeners are logged and do not affect the worker.
+		 *
+		 * @param committed
+		 *            - If {@code true}, the batch was committed. Otherwise, it
+		 *            was rolled back.
+		 */
+		private void notifyListeners(final boolean committed) {
+			if (batch.isEmpty()) {
+				return;
+			}
+			final List<MigrationTask> tasks = new ArrayList<MigrationTask>(batch);
+			for (BatchListener listener : listeners) {
+				try {
+					if (committed) {
+						listener.afterCommit(tasks);
+					} else {
+						listener.afterRollback(tasks);
+					}
+				} catch (Exception e) {
+					Logger.warn(this, "An error occurred when notifying a batch listener: " + e.getMessage(), e);
+				}
+			}
+		}
+
+	}
+
+}
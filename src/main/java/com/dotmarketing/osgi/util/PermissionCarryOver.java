@@ -0,0 +1,245 @@
+package com.dotmarketing.osgi.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dotmarketing.business.CacheLocator;
+import com.dotmarketing.business.PermissionCache;
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.db.DbConnectionFactory;
+import com.dotmarketing.exception.DotDataException;
+
+/**
+ * Carries the individual permissions of legacy files over to the Files as
+ * Content that replace them, with set-based SQL instead of a permission lookup
+ * per file.
+ * <p>
+ * The permission rows of a whole page of legacy files are read with a few
+ * {@code IN}-list queries before the page is dispatched. Deleting a legacy
+ * file drops its permissions, so right before a batch is committed, the rows
+ * of every file migrated in that batch are written back for its Identifier,
+ * which is shared by the new content, in the same transaction. Once the batch
+ * is committed, the permission cache entries of those Identifiers are
+ * invalidated together. The permission cache of dotCMS 3.7 can only remove
+ * one key at a time, each sending its own cluster invalidation, so by default
+ * every batch flushes the whole cache once instead.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class PermissionCarryOver implements MigrationWorkerPool.BatchListener {
+
+	private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<String, Snapshot>();
+	private final Map<String, Snapshot> restored = new ConcurrentHashMap<String, Snapshot>();
+	private final AtomicLong restoredAssets = new AtomicLong();
+	private final AtomicLong restoredRows = new AtomicLong();
+	private final AtomicLong cacheFlushes = new AtomicLong();
+	private final int cacheFlushThreshold;
+
+	/**
+	 * The individual permissions of a legacy file.
+	 */
+	private static final class Snapshot {
+
+		private final String identifier;
+		private final List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+
+		private Snapshot(final String identifier) {
+			this.identifier = identifier;
+		}
+
+	}
+
+	/**
+	 * Creates the carry-over.
+	 *
+	 * @param cacheFlushThreshold
+	 *            - The number of restored files in a batch from which the
+	 *            whole permission cache is flushed, or 0 to never flush it.
+	 */
+	public PermissionCarryOver(final int cacheFlushThreshold) {
+		this.cacheFlushThreshold = cacheFlushThreshold;
+	}
+
+	/**
+	 * Reads the individual permissions of a page of legacy files. Files that
+	 * inherit their permissions have no rows, and nothing is kept for them.
+	 *
+	 * @param page
+	 *            - The page of legacy files.
+	 * @throws DotDataException
+	 *             An error occurred when reading the permissions.
+	 */
+	public void snapshot(final List<LegacyFileSource.Entry> page) throws DotDataException {
+		final Map<String, String> inodesByIdentifier = new HashMap<String, String>(page.size() * 2);
+		for (LegacyFileSource.Entry entry : page) {
+			inodesByIdentifier.put(entry.getIdentifier(), entry.getFile().getInode());
+		}
+		for (List<String> chunk : SqlHelper.chunks(new ArrayList<String>(inodesByIdentifier.keySet()))) {
+			final DotConnect dc = new DotConnect();
+			dc.setSQL("SELECT permission_type, inode_id, roleid, permission FROM permission WHERE inode_id IN ("
+					+ SqlHelper.placeholders(chunk.size()) + ")");
+			for (String identifier : chunk) {
+				dc.addParam(identifier);
+			}
+			for (Map<String, Object> row : dc.loadObjectResults()) {
+				final String identifier = row.get("inode_id").toString();
+				final String inode = inodesByIdentifier.get(identifier);
+				Snapshot snapshot = snapshots.get(inode);
+				if (null == snapshot) {
+					snapshot = new Snapshot(identifier);
+					snapshots.put(inode, snapshot);
+				}
+				snapshot.rows.add(row);
+			}
+		}
+	}
+
+	/**
+	 * Drops the permissions of a legacy file that was deleted instead of
+	 * migrated.
+	 *
+	 * @param inode
+	 *            - The Inode of the legacy file.
+	 */
+	public void discard(final String inode) {
+		snapshots.remove(inode);
+	}
+
+	/**
+	 * Drops the permissions of the files that were never migrated, e.g.,
+	 * after a Site is finished or the migration is cancelled.
+	 */
+	public void clear() {
+		snapshots.clear();
+	}
+
+	@Override
+	public void beforeCommit(final List<MigrationWorkerPool.MigrationTask> batch) throws Exception {
+		final List<Snapshot> batchSnapshots = new ArrayList<Snapshot>();
+		for (MigrationWorkerPool.MigrationTask task : batch) {
+			final Snapshot snapshot = snapshots.remove(task.getInode());
+			if (null != snapshot) {
+				batchSnapshots.add(snapshot);
+				restored.put(task.getInode(), snapshot);
+			}
+		}
+		for (List<Snapshot> chunk : SqlHelper.chunks(batchSnapshots)) {
+			restore(chunk);
+		}
+	}
+
+	@Override
+	public void afterCommit(final List<MigrationWorkerPool.MigrationTask> batch) {
+		final List<String> identifiers = new ArrayList<String>(batch.size());
+		for (MigrationWorkerPool.MigrationTask task : batch) {
+			final Snapshot snapshot = restored.remove(task.getInode());
+			if (null != snapshot) {
+				identifiers.add(snapshot.identifier);
+			}
+		}
+		if (identifiers.isEmpty()) {
+			return;
+		}
+		final PermissionCache permissionCache = CacheLocator.getPermissionCache();
+		if (cacheFlushThreshold > 0 && identifiers.size() >= cacheFlushThreshold) {
+			permissionCache.clearCache();
+			cacheFlushes.incrementAndGet();
+		} else {
+			for (String identifier : identifiers) {
+				permissionCache.remove(identifier);
+			}
+		}
+		restoredAssets.addAndGet(identifiers.size());
+	}
+
+	@Override
+	public void afterRollback(final List<MigrationWorkerPool.MigrationTask> batch) {
+		// The legacy permissions are back in place. The snapshots are kept in
+		// case the files are replayed or retried by the worker
+		for (MigrationWorkerPool.MigrationTask task : batch) {
+			final Snapshot snapshot = restored.remove(task.getInode());
+			if (null != snapshot) {
+				snapshots.put(task.getInode(), snapshot);
+			}
+		}
+	}
+
+	/**
+	 * Returns a one-line summary of the restored permissions.
+	 *
+	 * @return The permission statistics.
+	 */
+	public String getSummary() {
+		return restoredRows.get() + " permissions restored on " + restoredAssets.get() + " files, "
+				+ cacheFlushes.get() + " permission cache flushes";
+	}
+
+	/**
+	 * Writes back the permissions of a chunk of migrated files: any rows left
+	 * for their Identifiers are deleted with a single statement, and the
+	 * snapshot rows are inserted as one JDBC batch on the connection of the
+	 * current transaction, as {@link DotConnect} cannot batch statements.
+	 *
+	 * @param chunk
+	 *            - The permissions of the migrated files.
+	 * @throws DotDataException
+	 *             An error occurred when deleting the current permissions.
+	 * @throws SQLException
+	 *             An error occurred when inserting the permissions.
+	 */
+	private void restore(final List<Snapshot> chunk) throws DotDataException, SQLException {
+		final DotConnect dc = new DotConnect();
+		dc.setSQL("DELETE FROM permission WHERE inode_id IN (" + SqlHelper.placeholders(chunk.size()) + ")");
+		for (Snapshot snapshot : chunk) {
+			dc.addParam(snapshot.identifier);
+		}
+		dc.loadResult();
+		final Connection connection = DbConnectionFactory.getConnection();
+		final PreparedStatement statement = connection.prepareStatement(getInsertSQL());
+		try {
+			int rows = 0;
+			for (Snapshot snapshot : chunk) {
+				for (Map<String, Object> row : snapshot.rows) {
+					statement.setString(1, row.get("permission_type").toString());
+					statement.setString(2, snapshot.identifier);
+					statement.setString(3, row.get("roleid").toString());
+					statement.setInt(4, Integer.parseInt(row.get("permission").toString()));
+					statement.addBatch();
+					rows++;
+				}
+			}
+			statement.executeBatch();
+			restoredRows.addAndGet(rows);
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * Returns the statement that inserts a permission row. The Id of the row
+	 * comes from a sequence in PostgreSQL and Oracle, and from an identity
+	 * column in the other databases.
+	 *
+	 * @return The insert statement.
+	 */
+	private static String getInsertSQL() {
+		if (DbConnectionFactory.isPostgres()) {
+			return "INSERT INTO permission (id, permission_type, inode_id, roleid, permission) "
+					+ "VALUES (nextval('permission_seq'), ?, ?, ?, ?)";
+		} else if (DbConnectionFactory.isOracle()) {
+			return "INSERT INTO permission (id, permission_type, inode_id, roleid, permission) "
+					+ "VALUES (permission_seq.NEXTVAL, ?, ?, ?, ?)";
+		}
+		return "INSERT INTO permission (permission_type, inode_id, roleid, permission) VALUES (?, ?, ?, ?)";
+	}
+
+}
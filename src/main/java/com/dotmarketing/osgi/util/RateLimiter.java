@@ -0,0 +1,72 @@
+package com.dotmarketing.osgi.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Smooth rate limiter used to throttle the migration, e.g., to a number of
+ * files or megabytes per second. Permits are reserved up front and the caller
+ * is told how long it must wait before using them, so a large request, such as
+ * a big binary, delays the requests that follow instead of failing. A rate of
+ * zero or less disables the limit. The rate can be changed at any time.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class RateLimiter {
+
+	private double permitsPerSecond;
+	private long nextFreeNanos = System.nanoTime();
+
+	/**
+	 * Creates a rate limiter.
+	 *
+	 * @param permitsPerSecond
+	 *            - The allowed rate. Zero or less means unlimited.
+	 */
+	public RateLimiter(final double permitsPerSecond) {
+		this.permitsPerSecond = permitsPerSecond;
+	}
+
+	/**
+	 * Changes the allowed rate. Permits already reserved are not affected.
+	 *
+	 * @param permitsPerSecond
+	 *            - The new rate. Zero or less means unlimited.
+	 */
+	public synchronized void setRate(final double permitsPerSecond) {
+		this.permitsPerSecond = permitsPerSecond;
+		this.nextFreeNanos = Math.min(this.nextFreeNanos, System.nanoTime());
+	}
+
+	/**
+	 * Returns the allowed rate.
+	 *
+	 * @return The permits per second, or zero or less if unlimited.
+	 */
+	public synchronized double getRate() {
+		return permitsPerSecond;
+	}
+
+	/**
+	 * Reserves the specified number of permits.
+	 *
+	 * @param permits
+	 *            - The number of permits.
+	 * @return The time the caller must wait before using the permits, in
+	 *         milliseconds.
+	 */
+	public synchronized long reserve(final double permits) {
+		if (permitsPerSecond <= 0) {
+			return 0;
+		}
+		final long now = System.nanoTime();
+		if (nextFreeNanos < now) {
+			nextFreeNanos = now;
+		}
+		final long waitNanos = nextFreeNanos - now;
+		nextFreeNanos += (long) (permits / permitsPerSecond * TimeUnit.SECONDS.toNanos(1));
+		return TimeUnit.NANOSECONDS.toMillis(waitNanos);
+	}
+
+}
@@ -0,0 +1,56 @@
+package com.dotmarketing.osgi.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Small helpers to build the set-based SQL statements used by the migration.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public final class SqlHelper {
+
+	/**
+	 * Maximum number of values in a single {@code IN} list. Oracle does not
+	 * allow more than 1000.
+	 */
+	public static final int MAX_IN_LIST_SIZE = 500;
+
+	private SqlHelper() {
+
+	}
+
+	/**
+	 * Returns a comma-separated list of {@code ?} placeholders to be used in
+	 * an {@code IN} clause.
+	 *
+	 * @param count
+	 *            - The number of placeholders.
+	 * @return The placeholders, e.g., {@code ?,?,?}.
+	 */
+	public static String placeholders(final int count) {
+		final StringBuilder placeholders = new StringBuilder(count * 2);
+		for (int i = 0; i < count; i++) {
+			placeholders.append(i == 0 ? "?" : ",?");
+		}
+		return placeholders.toString();
+	}
+
+	/**
+	 * Splits a list of values in chunks that fit in a single {@code IN} list.
+	 *
+	 * @param values
+	 *            - The values.
+	 * @return The chunks of values.
+	 */
+	public static <T> List<List<T>> chunks(final List<T> values) {
+		final List<List<T>> chunks = new ArrayList<List<T>>();
+		for (int i = 0; i < values.size(); i += MAX_IN_LIST_SIZE) {
+			chunks.add(values.subList(i, Math.min(values.size(), i + MAX_IN_LIST_SIZE)));
+		}
+		return chunks;
+	}
+
+}
@@ -0,0 +1,66 @@
+package com.dotmarketing.osgi.util;
+
+import java.io.File;
+
+/**
+ * The binary of a legacy file, as prepared by the staging stage of the
+ * {@link MigrationPipeline} before the file reaches a worker: its location and
+ * size in the asset tree, its copy in the temporary folder, and its
+ * fingerprint when binaries are deduplicated.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class StagedBinary {
+
+	private final File source;
+	private final long size;
+	private final File staged;
+	private final String fingerprint;
+
+	/**
+	 * Creates the staged binary.
+	 *
+	 * @param source
+	 *            - The legacy binary in the asset tree.
+	 * @param size
+	 *            - The size of the legacy binary, or -1 if it does not exist.
+	 * @param staged
+	 *            - The copy in the temporary folder, or {@code null} if the
+	 *            legacy binary does not exist.
+	 * @param fingerprint
+	 *            - The fingerprint of the legacy binary, or {@code null} if it
+	 *            was not hashed.
+	 */
+	public StagedBinary(final File source, final long size, final File staged, final String fingerprint) {
+		this.source = source;
+		this.size = size;
+		this.staged = staged;
+		this.fingerprint = fingerprint;
+	}
+
+	public File getSource() {
+		return source;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the copy of the binary in the temporary folder, as long as it is
+	 * still there. A check-in that was rolled back may have consumed it, in
+	 * which case the binary must be staged again.
+	 *
+	 * @return The staged binary, or {@code null} if it is not available.
+	 */
+	public File getStaged() {
+		return null != staged && staged.exists() ? staged : null;
+	}
+
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+}
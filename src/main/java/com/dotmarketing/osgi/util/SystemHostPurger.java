@@ -0,0 +1,222 @@
+package com.dotmarketing.osgi.util;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.dotmarketing.beans.Host;
+import com.dotmarketing.business.CacheLocator;
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.db.HibernateUtil;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotHibernateException;
+import com.dotmarketing.portlets.files.business.FileAPI;
+import com.dotmarketing.portlets.files.model.File;
+import com.dotmarketing.util.Logger;
+
+/**
+ * Permanently deletes the legacy files living under System Host, as Files as
+ * Content cannot live there. Instead of deleting one file at a time through
+ * the File API, the Identifiers of the legacy files are read in chunks, and all
+ * the rows of every chunk are removed with a few set-based statements in a
+ * single transaction: permissions, tree relations, version info, file assets,
+ * Inodes and, finally, the Identifiers themselves.
+ * <p>
+ * Once a chunk is committed, the caches of its Identifiers are cleared in one
+ * pass and the binaries of all its versions are handed to a
+ * {@link FileSystemDeleter}, which removes them, and their derived files, in
+ * parallel.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class SystemHostPurger {
+
+	private static final String IDENTIFIERS_QUERY = "SELECT id FROM identifier WHERE host_inode = ? "
+			+ "AND asset_type = 'file_asset'";
+
+	private final FileAPI fileAPI;
+	private final FileSystemDeleter fileSystemDeleter;
+	private final MigrationControl control;
+	private final MigrationMetrics metrics;
+	private final int chunkSize;
+
+	/**
+	 * Creates the purger.
+	 *
+	 * @param fileAPI
+	 *            - The File API, used to locate the legacy binaries.
+	 * @param fileSystemDeleter
+	 *            - Deletes the legacy binaries.
+	 * @param control
+	 *            - Pauses or cancels the purge between chunks.
+	 * @param metrics
+	 *            - Counts the deleted legacy files.
+	 * @param chunkSize
+	 *            - The number of legacy files deleted per transaction.
+	 */
+	public SystemHostPurger(final FileAPI fileAPI, final FileSystemDeleter fileSystemDeleter,
+			final MigrationControl control, final MigrationMetrics metrics, final int chunkSize) {
+		this.fileAPI = fileAPI;
+		this.fileSystemDeleter = fileSystemDeleter;
+		this.control = control;
+		this.metrics = metrics;
+		this.chunkSize = Math.min(chunkSize, SqlHelper.MAX_IN_LIST_SIZE);
+	}
+
+	/**
+	 * Deletes all the legacy files under System Host.
+	 *
+	 * @return The number of deleted legacy files.
+	 * @throws DotDataException
+	 *             An error occurred when deleting the data.
+	 * @throws InterruptedException
+	 *             The current thread was interrupted while paused.
+	 */
+	public long purge() throws DotDataException, InterruptedException {
+		final KeysetPager pager = new KeysetPager(IDENTIFIERS_QUERY, "id", "id",
+				Arrays.<Object>asList(Host.SYSTEM_HOST), chunkSize, "");
+		long purged = 0;
+		for (List<Map<String, Object>> rows = pager.nextPage(); !rows.isEmpty(); rows = pager.nextPage()) {
+			if (control.isPaused() && !control.awaitResume()) {
+				break;
+			}
+			if (control.isCancelled()) {
+				break;
+			}
+			final List<String> identifiers = new ArrayList<String>(rows.size());
+			for (Map<String, Object> row : rows) {
+				identifiers.add(row.get("id").toString());
+			}
+			purged += purgeChunk(identifiers);
+			Logger.info(this.getClass(), purged + " legacy files under System Host have been deleted so far.");
+		}
+		return purged;
+	}
+
+	/**
+	 * Deletes a chunk of legacy files in a single transaction.
+	 *
+	 * @param identifiers
+	 *            - The Identifiers of the legacy files.
+	 * @return The number of deleted legacy files.
+	 * @throws DotDataException
+	 *             An error occurred when deleting the data.
+	 */
+	private int purgeChunk(final List<String> identifiers) throws DotDataException {
+		final List<String> inodes = new ArrayList<String>();
+		final List<Path> binaries = new ArrayList<Path>();
+		boolean committed = Boolean.FALSE;
+		try {
+			HibernateUtil.startTransaction();
+			findVersions(identifiers, inodes, binaries);
+			deleteIn("DELETE FROM permission WHERE inode_id IN ", identifiers);
+			deleteIn("DELETE FROM permission_reference WHERE asset_id IN ", identifiers);
+			for (List<String> chunk : SqlHelper.chunks(inodes)) {
+				deleteIn("DELETE FROM tree WHERE child IN ", chunk);
+				deleteIn("DELETE FROM tree WHERE parent IN ", chunk);
+			}
+			deleteIn("DELETE FROM fileasset_version_info WHERE identifier IN ", identifiers);
+			deleteIn("DELETE FROM file_asset WHERE identifier IN ", identifiers);
+			for (List<String> chunk : SqlHelper.chunks(inodes)) {
+				deleteIn("DELETE FROM inode WHERE inode IN ", chunk);
+			}
+			deleteIn("DELETE FROM identifier WHERE id IN ", identifiers);
+			HibernateUtil.commitTransaction();
+			committed = Boolean.TRUE;
+		} finally {
+			if (!committed) {
+				rollback();
+			}
+		}
+		for (String identifier : identifiers) {
+			CacheLocator.getIdentifierCache().removeFromCacheByIdentifier(identifier);
+			CacheLocator.getPermissionCache().remove(identifier);
+		}
+		CacheLocator.getFileCache().clearCache();
+		// Binaries are only deleted once their rows are gone for good
+		fileSystemDeleter.delete(binaries);
+		metrics.filesDeleted(identifiers.size());
+		return identifiers.size();
+	}
+
+	/**
+	 * Reads the Inodes and the binary locations of all the versions of a chunk
+	 * of legacy files.
+	 *
+	 * @param identifiers
+	 *            - The Identifiers of the legacy files.
+	 * @param inodes
+	 *            - Receives the Inodes of the versions.
+	 * @param binaries
+	 *            - Receives the binaries of the versions.
+	 * @throws DotDataException
+	 *             An error occurred when reading the versions.
+	 */
+	private void findVersions(final List<String> identifiers, final List<String> inodes, final List<Path> binaries)
+			throws DotDataException {
+		final DotConnect dc = new DotConnect();
+		dc.setSQL("SELECT inode, file_name FROM file_asset WHERE identifier IN ("
+				+ SqlHelper.placeholders(identifiers.size()) + ")");
+		for (String identifier : identifiers) {
+			dc.addParam(identifier);
+		}
+		for (Map<String, Object> row : dc.loadObjectResults()) {
+			final String inode = row.get("inode").toString();
+			inodes.add(inode);
+			if (null != row.get("file_name")) {
+				// The binary location only depends on the Inode and the file
+				// extension
+				final File version = new File();
+				version.setInode(inode);
+				version.setFileName(row.get("file_name").toString());
+				try {
+					final java.io.File binary = fileAPI.getAssetIOFile(version);
+					if (null != binary) {
+						binaries.add(binary.toPath());
+					}
+				} catch (IOException e) {
+					Logger.warn(this, "Could not locate the binary of legacy file '" + inode + "': " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs a {@code DELETE} statement for a list of values.
+	 *
+	 * @param statement
+	 *            - The statement, ending with {@code IN}.
+	 * @param values
+	 *            - The values of the {@code IN} list.
+	 * @throws DotDataException
+	 *             An error occurred when deleting the rows.
+	 */
+	private void deleteIn(final String statement, final List<String> values) throws DotDataException {
+		if (values.isEmpty()) {
+			return;
+		}
+		final DotConnect dc = new DotConnect();
+		dc.setSQL(statement + "(" + SqlHelper.placeholders(values.size()) + ")");
+		for (String value : values) {
+			dc.addParam(value);
+		}
+		dc.loadResult();
+	}
+
+	/**
+	 * Rolls back the current transaction.
+	 */
+	private void rollback() {
+		try {
+			HibernateUtil.rollbackTransaction();
+		} catch (DotHibernateException e) {
+			Logger.warn(this, e.getMessage(), e);
+		}
+	}
+
+}
@@ -0,0 +1,284 @@
+package com.dotmarketing.osgi.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dotmarketing.util.Logger;
+
+/**
+ * Records what every migrated legacy file is expected to look like as a File
+ * as Content, so that the {@link MigrationVerifier} can check it after the
+ * run. Entries are kept in memory while their batch is open and appended to
+ * the manifest once it is committed, one tab-separated line per file:
+ *
+ * <pre>
+ * identifier  inode  language_id  host_id  folder_inode  fingerprint  legacy_working_inode  legacy_live_inode
+ * </pre>
+ *
+ * The fingerprint is the one of the binary that was checked in, computed by
+ * the {@link BinaryHasher} before the legacy binary was deleted. The
+ * manifest is appended to by every run, so it covers resumed migrations too.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class VerificationManifest implements MigrationWorkerPool.BatchListener {
+
+	public static final String FILE_NAME = "verification-manifest.tsv";
+
+	private static final String SEPARATOR = "\t";
+
+	private final Path file;
+	private final Map<String, Entry> pending = new ConcurrentHashMap<String, Entry>();
+	private final AtomicLong recorded = new AtomicLong();
+	private BufferedWriter writer;
+
+	/**
+	 * The expected state of a migrated legacy file.
+	 */
+	public static final class Entry {
+
+		private final String identifier;
+		private final String inode;
+		private final long languageId;
+		private final String hostId;
+		private final String folderInode;
+		private final String fingerprint;
+		private final String legacyWorkingInode;
+		private final String legacyLiveInode;
+
+		/**
+		 * Creates the entry.
+		 *
+		 * @param identifier
+		 *            - The Identifier shared by the legacy file and its File as
+		 *            Content.
+		 * @param inode
+		 *            - The Inode of the checked in File as Content.
+		 * @param languageId
+		 *            - The language of the File as Content.
+		 * @param hostId
+		 *            - The Site set by {@code setHostFolderValues}.
+		 * @param folderInode
+		 *            - The folder set by {@code setHostFolderValues}.
+		 * @param fingerprint
+		 *            - The fingerprint of the checked in binary.
+		 * @param legacyWorkingInode
+		 *            - The working Inode in the version info of the legacy
+		 *            file.
+		 * @param legacyLiveInode
+		 *            - The live Inode in the version info of the legacy file,
+		 *            or {@code null} if it was not published.
+		 */
+		public Entry(final String identifier, final String inode, final long languageId, final String hostId,
+				final String folderInode, final String fingerprint, final String legacyWorkingInode,
+				final String legacyLiveInode) {
+			this.identifier = identifier;
+			this.inode = inode;
+			this.languageId = languageId;
+			this.hostId = hostId;
+			this.folderInode = folderInode;
+			this.fingerprint = fingerprint;
+			this.legacyWorkingInode = legacyWorkingInode;
+			this.legacyLiveInode = null == legacyLiveInode ? "" : legacyLiveInode;
+		}
+
+		public String getIdentifier() {
+			return identifier;
+		}
+
+		public String getInode() {
+			return inode;
+		}
+
+		public long getLanguageId() {
+			return languageId;
+		}
+
+		public String getHostId() {
+			return hostId;
+		}
+
+		public String getFolderInode() {
+			return folderInode;
+		}
+
+		public String getFingerprint() {
+			return fingerprint;
+		}
+
+		public String getLegacyWorkingInode() {
+			return legacyWorkingInode;
+		}
+
+		/**
+		 * Returns the live Inode in the version info of the legacy file.
+		 *
+		 * @return The live Inode, or an empty String if the legacy file was
+		 *         not published.
+		 */
+		public String getLegacyLiveInode() {
+			return legacyLiveInode;
+		}
+
+		/**
+		 * Returns whether the File as Content must be live. Legacy files with
+		 * a live version are always checked in and published.
+		 *
+		 * @return Returns {@code true} if the File as Content must be live.
+		 */
+		public boolean isLive() {
+			return !legacyLiveInode.isEmpty();
+		}
+
+		/**
+		 * Formats the entry as a line of the manifest.
+		 *
+		 * @return The manifest line.
+		 */
+		private String toLine() {
+			return identifier + SEPARATOR + inode + SEPARATOR + languageId + SEPARATOR + hostId + SEPARATOR
+					+ folderInode + SEPARATOR + fingerprint + SEPARATOR + legacyWorkingInode + SEPARATOR
+					+ legacyLiveInode;
+		}
+
+		/**
+		 * Parses a line of the manifest.
+		 *
+		 * @param line
+		 *            - The manifest line.
+		 * @return The entry, or {@code null} if the line is incomplete, e.g.,
+		 *         the last line written before a crash.
+		 */
+		static Entry parse(final String line) {
+			final String[] fields = line.split(SEPARATOR, -1);
+			if (fields.length < 8) {
+				return null;
+			}
+			try {
+				return new Entry(fields[0], fields[1], Long.parseLong(fields[2]), fields[3], fields[4], fields[5],
+						fields[6], fields[7]);
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+
+	}
+
+	/**
+	 * Creates the manifest.
+	 *
+	 * @param file
+	 *            - The location of the manifest.
+	 */
+	public VerificationManifest(final Path file) {
+		this.file = file;
+	}
+
+	/**
+	 * Records the expected state of a legacy file being migrated. It is only
+	 * written to the manifest once the batch of the file is committed.
+	 *
+	 * @param taskInode
+	 *            - The Inode of the task whose transaction must be committed.
+	 * @param entry
+	 *            - The expected state of the File as Content.
+	 */
+	public void record(final String taskInode, final Entry entry) {
+		pending.put(taskInode, entry);
+	}
+
+	@Override
+	public void beforeCommit(final List<MigrationWorkerPool.MigrationTask> batch) {
+		// Entries are only written once they are committed
+	}
+
+	@Override
+	public void afterCommit(final List<MigrationWorkerPool.MigrationTask> batch) {
+		final StringBuilder lines = new StringBuilder();
+		int count = 0;
+		for (MigrationWorkerPool.MigrationTask task : batch) {
+			final Entry entry = pending.remove(task.getInode());
+			if (null != entry) {
+				lines.append(entry.toLine()).append('\n');
+				count++;
+			}
+		}
+		if (count > 0) {
+			write(lines.toString(), count);
+		}
+	}
+
+	@Override
+	public void afterRollback(final List<MigrationWorkerPool.MigrationTask> batch) {
+		for (MigrationWorkerPool.MigrationTask task : batch) {
+			pending.remove(task.getInode());
+		}
+	}
+
+	/**
+	 * Closes the manifest.
+	 */
+	public synchronized void close() {
+		if (null != writer) {
+			try {
+				writer.close();
+			} catch (IOException e) {
+				Logger.warn(this, "Could not close verification manifest '" + file + "': " + e.getMessage());
+			}
+			writer = null;
+		}
+	}
+
+	/**
+	 * Returns the number of entries written during this run.
+	 *
+	 * @return The number of recorded files.
+	 */
+	public long getCount() {
+		return recorded.get();
+	}
+
+	/**
+	 * Returns the location of the manifest.
+	 *
+	 * @return The manifest file.
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * Appends the lines of a committed batch.
+	 *
+	 * @param lines
+	 *            - The manifest lines.
+	 * @param count
+	 *            - The number of lines.
+	 */
+	private synchronized void write(final String lines, final int count) {
+		try {
+			if (null == writer) {
+				Files.createDirectories(file.getParent());
+				writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+						StandardOpenOption.APPEND);
+			}
+			writer.write(lines);
+			writer.flush();
+			recorded.addAndGet(count);
+		} catch (IOException e) {
+			Logger.error(this.getClass(), "Could not write to verification manifest '" + file + "': "
+					+ e.getMessage(), e);
+		}
+	}
+
+}
@@ -0,0 +1,154 @@
+package com.dotmarketing.osgi.util;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.dotmarketing.exception.DotDataException;
+
+/**
+ * {@link MigrationLeaseStore} backed by an in-memory H2 database. Every
+ * statement runs on a connection of its own, in auto-commit mode, the way the
+ * nodes of a cluster share the lease table. The legacy files of every Site
+ * are described by the boundaries of their ranges instead of being read from
+ * the database.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class H2LeaseStore implements MigrationLeaseStore {
+
+	private final String url;
+	private final Map<String, List<String>> boundaries = new ConcurrentHashMap<String, List<String>>();
+	private final AtomicInteger plannedSites = new AtomicInteger();
+	private volatile long splitMillis;
+
+	/**
+	 * Creates the store.
+	 *
+	 * @param databaseName
+	 *            - The name of the in-memory database, unique per test.
+	 */
+	public H2LeaseStore(final String databaseName) {
+		this.url = "jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1";
+	}
+
+	/**
+	 * Sets the ranges the legacy files of a Site are split into.
+	 *
+	 * @param siteId
+	 *            - The Identifier of the Site.
+	 * @param rangeBoundaries
+	 *            - The last Inode of every range but the last one.
+	 */
+	public void setBoundaries(final String siteId, final List<String> rangeBoundaries) {
+		boundaries.put(siteId, rangeBoundaries);
+	}
+
+	/**
+	 * Sets the time it takes to split a Site into ranges, e.g., to make the
+	 * planning outlast its lease.
+	 *
+	 * @param splitMillis
+	 *            - The time per Site.
+	 */
+	public void setSplitMillis(final long splitMillis) {
+		this.splitMillis = splitMillis;
+	}
+
+	/**
+	 * Returns the number of Sites that have been split into ranges so far.
+	 *
+	 * @return The number of planned Sites.
+	 */
+	public int getPlannedSites() {
+		return plannedSites.get();
+	}
+
+	@Override
+	public List<Map<String, Object>> query(final String sql, final int maxRows, final Object... params)
+			throws DotDataException {
+		try (Connection connection = DriverManager.getConnection(url);
+				PreparedStatement statement = prepare(connection, sql, params)) {
+			statement.setMaxRows(maxRows);
+			final List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+			try (ResultSet results = statement.executeQuery()) {
+				final ResultSetMetaData metaData = results.getMetaData();
+				while (results.next()) {
+					final Map<String, Object> row = new LinkedHashMap<String, Object>();
+					for (int i = 1; i <= metaData.getColumnCount(); i++) {
+						row.put(metaData.getColumnLabel(i).toLowerCase(), results.getObject(i));
+					}
+					rows.add(row);
+				}
+			}
+			return rows;
+		} catch (SQLException e) {
+			throw new DotDataException(e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public void update(final String sql, final Object... params) throws DotDataException {
+		try (Connection connection = DriverManager.getConnection(url);
+				PreparedStatement statement = prepare(connection, sql, params)) {
+			statement.executeUpdate();
+		} catch (SQLException e) {
+			throw new DotDataException(e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public boolean isOracle() {
+		return false;
+	}
+
+	@Override
+	public List<String> findRangeBoundaries(final String siteId, final int rangeSize) throws DotDataException {
+		plannedSites.incrementAndGet();
+		if (splitMillis > 0) {
+			try {
+				Thread.sleep(splitMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new DotDataException("Interrupted while splitting Site '" + siteId + "'", e);
+			}
+		}
+		final List<String> siteBoundaries = boundaries.get(siteId);
+		return null == siteBoundaries ? Collections.<String>emptyList() : siteBoundaries;
+	}
+
+	/**
+	 * Prepares a statement and binds its parameters.
+	 *
+	 * @param connection
+	 *            - The connection.
+	 * @param sql
+	 *            - The statement.
+	 * @param params
+	 *            - The values of its parameters.
+	 * @return The prepared statement.
+	 * @throws SQLException
+	 *             The statement could not be prepared.
+	 */
+	private static PreparedStatement prepare(final Connection connection, final String sql, final Object... params)
+			throws SQLException {
+		final PreparedStatement statement = connection.prepareStatement(sql);
+		for (int i = 0; i < params.length; i++) {
+			statement.setObject(i + 1, params[i]);
+		}
+		return statement;
+	}
+
+}
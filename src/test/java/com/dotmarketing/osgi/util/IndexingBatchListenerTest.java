@@ -0,0 +1,121 @@
+package com.dotmarketing.osgi.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the {@link IndexingBatchListener} indexes the contents that
+ * were actually checked in for every committed legacy file.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class IndexingBatchListenerTest {
+
+	private RecordingIndexer indexer;
+	private IndexingBatchListener listener;
+
+	@Before
+	public void setUp() {
+		indexer = new RecordingIndexer();
+		listener = new IndexingBatchListener(indexer);
+	}
+
+	@Test
+	public void aFileWithTheSameLiveAndWorkingVersionIsIndexedUnderItsInode() {
+		listener.checkedIn("working-1", "working-1");
+		listener.afterCommit(batch("working-1"));
+		assertEquals(Arrays.asList("working-1"), indexer.queued);
+	}
+
+	@Test
+	public void aFileWithADifferentLiveVersionIsIndexedUnderTheLiveInode() {
+		// The task follows the working Inode, but the live version is the one
+		// checked in
+		listener.checkedIn("working-1", "live-1");
+		listener.checkedIn("working-2", "working-2");
+		listener.afterCommit(batch("working-1", "working-2"));
+		assertEquals(Arrays.asList("live-1", "working-2"), indexer.queued);
+	}
+
+	@Test
+	public void aRolledBackFileIsNotIndexed() {
+		listener.checkedIn("working-1", "live-1");
+		listener.afterRollback(batch("working-1"));
+		listener.afterCommit(batch("working-1"));
+		assertTrue(indexer.queued.isEmpty());
+	}
+
+	@Test
+	public void aDeletedFileIsNotIndexed() {
+		listener.afterCommit(batch("deleted-1"));
+		assertEquals(0, indexer.calls);
+	}
+
+	/**
+	 * Creates a batch of tasks that follow the specified legacy files.
+	 *
+	 * @param inodes
+	 *            - The Inodes of the legacy files.
+	 * @return The batch.
+	 */
+	private static List<MigrationWorkerPool.MigrationTask> batch(final String... inodes) {
+		final List<MigrationWorkerPool.MigrationTask> batch = new ArrayList<MigrationWorkerPool.MigrationTask>();
+		for (String inode : inodes) {
+			batch.add(new MigrationWorkerPool.MigrationTask("site-a", inode) {
+
+				@Override
+				public boolean execute() {
+					return true;
+				}
+
+			});
+		}
+		return batch;
+	}
+
+	/**
+	 * {@link MigrationIndexer} that keeps the queued Inodes.
+	 */
+	private static final class RecordingIndexer implements MigrationIndexer {
+
+		private final List<String> queued = new ArrayList<String>();
+		private int calls;
+
+		@Override
+		public void start() {
+			// Nothing to start
+		}
+
+		@Override
+		public void add(final List<String> inodes) {
+			calls++;
+			queued.addAll(inodes);
+		}
+
+		@Override
+		public void close() {
+			// Nothing to close
+		}
+
+		@Override
+		public long getIndexedCount() {
+			return queued.size();
+		}
+
+		@Override
+		public long getFailedCount() {
+			return 0;
+		}
+
+	}
+
+}
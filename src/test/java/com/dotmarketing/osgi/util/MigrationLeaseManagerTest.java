@@ -0,0 +1,299 @@
+package com.dotmarketing.osgi.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs several {@link MigrationLeaseManager} nodes, each on its own thread,
+ * against a shared in-memory H2 lease table.
+ *
+ * @version 3.7.1
+ * @since Oct 17th, 2026
+ *
+ */
+public class MigrationLeaseManagerTest {
+
+	private static final List<String> SITES = Arrays.asList("site-a", "site-b", "site-c");
+	private static final int UNITS = 7;
+	private static final int NODES = 6;
+	private static final AtomicInteger DATABASES = new AtomicInteger();
+
+	private H2LeaseStore store;
+	private MigrationControl control;
+	private final List<MigrationLeaseManager> managers = new ArrayList<MigrationLeaseManager>();
+
+	@Before
+	public void setUp() throws Exception {
+		store = new H2LeaseStore("leases" + DATABASES.incrementAndGet());
+		store.setBoundaries("site-a", Arrays.asList("a-0100", "a-0200", "a-0300"));
+		store.setBoundaries("site-b", Arrays.asList("b-0100"));
+		store.setBoundaries("site-c", Collections.<String>emptyList());
+		control = new MigrationControl(0, 0);
+	}
+
+	@After
+	public void tearDown() {
+		for (MigrationLeaseManager manager : managers) {
+			manager.stop();
+		}
+	}
+
+	@Test
+	public void everyUnitIsMigratedByExactlyOneNode() throws Exception {
+		final Map<String, String> completedBy = new ConcurrentHashMap<String, String>();
+		final Set<String> leased = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		final AtomicInteger overlaps = new AtomicInteger();
+		final CountDownLatch ready = new CountDownLatch(NODES);
+		final CountDownLatch planned = new CountDownLatch(NODES);
+		final ExecutorService nodes = Executors.newFixedThreadPool(NODES);
+		final List<Future<Void>> results = new ArrayList<Future<Void>>();
+		for (int i = 0; i < NODES; i++) {
+			final MigrationLeaseManager manager = newManager("node-" + i, 2000);
+			results.add(nodes.submit(new Callable<Void>() {
+
+				@Override
+				public Void call() throws Exception {
+					ready.countDown();
+					ready.await();
+					manager.start();
+					manager.plan(SITES, 100, control);
+					// A node starting once every unit is done would plan a new run
+					planned.countDown();
+					planned.await();
+					while (!manager.isFinished()) {
+						final MigrationLeaseManager.Lease lease = manager.claim();
+						if (null == lease) {
+							Thread.sleep(10);
+							continue;
+						}
+						final String unitId = lease.getUnit().getUnitId();
+						if (!leased.add(unitId)) {
+							overlaps.incrementAndGet();
+						}
+						Thread.sleep(5);
+						leased.remove(unitId);
+						if (null != completedBy.put(unitId, manager.getNodeId())) {
+							overlaps.incrementAndGet();
+						}
+						manager.complete(lease, 1);
+					}
+					return null;
+				}
+
+			}));
+		}
+		for (Future<Void> result : results) {
+			result.get(30, TimeUnit.SECONDS);
+		}
+		nodes.shutdown();
+		assertEquals(0, overlaps.get());
+		assertEquals(UNITS, completedBy.size());
+		assertEquals(SITES.size(), store.getPlannedSites());
+	}
+
+	@Test
+	public void anExpiredLeaseIsResumedByAnotherNode() throws Exception {
+		final MigrationLeaseManager dying = newManager("dying", 200);
+		final MigrationLeaseManager survivor = newManager("survivor", 200);
+		survivor.start();
+		survivor.plan(Arrays.asList("site-c"), 100, control);
+		final MigrationLeaseManager.Lease lost = dying.claim();
+		assertNotNull(lost);
+		assertNull(survivor.claim());
+		// Progress recorded by the last heartbeat of the dying node
+		store.update("UPDATE " + MigrationLeaseManager.TABLE + " SET last_inode = ? WHERE unit_id = ?", "c-0042",
+				lost.getUnit().getUnitId());
+		Thread.sleep(400);
+		final MigrationLeaseManager.Lease resumed = survivor.claim();
+		assertNotNull(resumed);
+		assertEquals(lost.getUnit().getUnitId(), resumed.getUnit().getUnitId());
+		assertEquals("c-0042", resumed.getUnit().getResumeInode());
+		// The dying node can no longer complete the unit it lost
+		dying.complete(lost, 1);
+		assertFalse(survivor.isFinished());
+		survivor.complete(resumed, 1);
+		assertTrue(survivor.isFinished());
+	}
+
+	@Test
+	public void aRunInProgressIsNotPlannedAgain() throws Exception {
+		final MigrationLeaseManager first = newManager("first", 2000);
+		first.start();
+		first.plan(SITES, 100, control);
+		first.complete(first.claim(), 1);
+		newManager("second", 2000).plan(SITES, 100, control);
+		assertEquals(SITES.size(), store.getPlannedSites());
+		assertEquals(1, countDoneUnits());
+	}
+
+	@Test
+	public void aCompletedRunIsPlannedAgainByOneNode() throws Exception {
+		final MigrationLeaseManager first = newManager("first", 2000);
+		first.start();
+		first.plan(SITES, 100, control);
+		for (MigrationLeaseManager.Lease lease = first.claim(); null != lease; lease = first.claim()) {
+			first.complete(lease, 1);
+		}
+		assertTrue(first.isFinished());
+		// The next run finds the files left behind by the previous one
+		store.setBoundaries("site-a", Collections.<String>emptyList());
+		store.setBoundaries("site-b", Collections.<String>emptyList());
+		final CountDownLatch ready = new CountDownLatch(NODES);
+		final ExecutorService nodes = Executors.newFixedThreadPool(NODES);
+		final List<Future<Void>> results = new ArrayList<Future<Void>>();
+		for (int i = 0; i < NODES; i++) {
+			final MigrationLeaseManager manager = newManager("node-" + i, 2000);
+			results.add(nodes.submit(new Callable<Void>() {
+
+				@Override
+				public Void call() throws Exception {
+					ready.countDown();
+					ready.await();
+					manager.plan(SITES, 100, control);
+					return null;
+				}
+
+			}));
+		}
+		for (Future<Void> result : results) {
+			result.get(30, TimeUnit.SECONDS);
+		}
+		nodes.shutdown();
+		assertEquals(SITES.size() * 2, store.getPlannedSites());
+		assertFalse(first.isFinished());
+		assertEquals(0, countDoneUnits());
+		int units = 0;
+		for (MigrationLeaseManager.Lease lease = first.claim(); null != lease; lease = first.claim()) {
+			units++;
+		}
+		assertEquals(SITES.size(), units);
+	}
+
+	@Test
+	public void aPlanningNodeThatLosesItsLeaseWritesNoUnits() throws Exception {
+		// Splitting a Site outlasts the lease of a node without heartbeats
+		store.setSplitMillis(300);
+		final MigrationLeaseManager stalled = newManager("stalled", 200);
+		final MigrationLeaseManager takeover = newManager("takeover", 200);
+		takeover.start();
+		final ExecutorService nodes = Executors.newFixedThreadPool(2);
+		final Future<?> stalledPlan = nodes.submit(new Callable<Void>() {
+
+			@Override
+			public Void call() throws Exception {
+				stalled.plan(SITES, 100, control);
+				return null;
+			}
+
+		});
+		Thread.sleep(250);
+		takeover.plan(SITES, 100, control);
+		stalledPlan.get(30, TimeUnit.SECONDS);
+		nodes.shutdown();
+		// The stalled node split one Site, but wrote none of its units
+		assertEquals(SITES.size() + 1, store.getPlannedSites());
+		final List<Map<String, Object>> rows = store.query("SELECT COUNT(*) AS units FROM "
+				+ MigrationLeaseManager.TABLE + " WHERE unit_id <> ?", 0, "plan");
+		assertEquals(UNITS, Integer.parseInt(rows.get(0).get("units").toString()));
+		int units = 0;
+		for (MigrationLeaseManager.Lease lease = takeover.claim(); null != lease; lease = takeover.claim()) {
+			takeover.complete(lease, 1);
+			units++;
+		}
+		assertEquals(UNITS, units);
+		assertTrue(takeover.isFinished());
+	}
+
+	/**
+	 * Creates a node whose heartbeats are only started by
+	 * {@link MigrationLeaseManager#start()}.
+	 *
+	 * @param nodeId
+	 *            - The Identifier of the node.
+	 * @param leaseMillis
+	 *            - The time a lease lasts without a heartbeat.
+	 * @return The lease manager of the node.
+	 */
+	private MigrationLeaseManager newManager(final String nodeId, final long leaseMillis) {
+		final MigrationLeaseManager manager = new MigrationLeaseManager(nodeId, leaseMillis, leaseMillis / 4, store,
+				new NoTransactions());
+		managers.add(manager);
+		return manager;
+	}
+
+	/**
+	 * Returns the number of completed work units, the planning unit aside.
+	 *
+	 * @return The number of completed units.
+	 */
+	private int countDoneUnits() throws Exception {
+		final List<Map<String, Object>> rows = store.query("SELECT COUNT(*) AS done FROM "
+				+ MigrationLeaseManager.TABLE + " WHERE status = ? AND unit_id <> ?", 0, "DONE", "plan");
+		return Integer.parseInt(rows.get(0).get("done").toString());
+	}
+
+	/**
+	 * {@link MigrationTransactions} of a node without a Hibernate session.
+	 */
+	private static final class NoTransactions implements MigrationTransactions {
+
+		@Override
+		public void begin() {
+			// No session
+		}
+
+		@Override
+		public void commit() {
+			// No session
+		}
+
+		@Override
+		public void rollback() {
+			// No session
+		}
+
+		@Override
+		public void clearSession() {
+			// No session
+		}
+
+		@Override
+		public void closeSession() {
+			// No session
+		}
+
+		@Override
+		public void evictIdentifier(final String identifier) {
+			// No cache
+		}
+
+		@Override
+		public void evictContent(final String identifier, final String inode, final long languageId) {
+			// No cache
+		}
+
+	}
+
+}